@@ -59,4 +59,16 @@ public class AccountController {
 		return db.getAllUsers();
 	}
 	
+	/**
+	 * Gets one page of users sorted by username.
+	 * @param afterUsername Cursor from the previous page, or {@code null} for the first page.
+	 * @param limit Most users on the page
+	 * @return The page.
+	 * @see Page#getNextCursor()
+	 */
+	public Page<User> pageUsers(String afterUsername, int limit) {
+		
+		return db.pageUsers(afterUsername, limit);
+	}
+	
 }
@@ -0,0 +1,464 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import cmc.backend.entities.EmphasisDictionary;
+import cmc.backend.entities.University;
+
+/**
+ * The universities of a {@link UniversityCatalog.Snapshot} laid out by
+ * column: one primitive array per numeric attribute, and state, location
+ * and control as codes into a small dictionary of their distinct values.
+ * Row {@code i} of every array is the snapshot's {@code i}th university.
+ *
+ * Searches loop over just the arrays they need instead of calling getters
+ * on every University, and only build objects for the rows that match.
+ * States also have a posting list of the rows in each, so a search for
+ * one state only visits that state's rows, and numeric columns get a
+ * {@link SortedIndex} the first time a range search needs one. How many
+ * rows have each location, control and emphasis is kept as well, for
+ * the planner of {@link SearchController#advancedSearch} to estimate with.
+ *
+ * Like the snapshot it comes from, this never changes once built. A
+ * mutation of the catalog derives the next snapshot's columns from these
+ * with {@link #edit(int, boolean, University)} instead of rebuilding them.
+ */
+final class CatalogColumns {
+
+	/**
+	 * Code of a missing ({@code null}) value.
+	 */
+	static final int NONE = -1;
+
+	private static final int[] NO_ROWS = new int[0];
+
+	/**
+	 * The distinct values of a text column, each with a code.
+	 * It only grows while its columns are being built; after that a
+	 * new value means a copy, so codes never change under a reader.
+	 */
+	static final class Dictionary {
+		private final List<String> values;
+		private final Map<String, Integer> codes;
+
+		private Dictionary() {
+			this(new ArrayList<String>(), new HashMap<String, Integer>());
+		}
+
+		private Dictionary(List<String> values, Map<String, Integer> codes) {
+			this.values = values;
+			this.codes = codes;
+		}
+
+		private int add(String value) {
+			if(value == null) return NONE;
+			Integer code = codes.get(value);
+			if(code == null) {
+				code = values.size();
+				values.add(value);
+				codes.put(value, code);
+			}
+			return code;
+		}
+
+		/**
+		 * @return this dictionary if it has the value, otherwise a copy to add it to
+		 */
+		private Dictionary forValue(String value) {
+			if(value == null || codes.containsKey(value)) return this;
+			return new Dictionary(new ArrayList<>(values), new HashMap<>(codes));
+		}
+
+		/**
+		 * @param value A value
+		 * @return its code or {@link #NONE} if no row has it
+		 */
+		int codeOf(String value) {
+			Integer code = value == null ? null : codes.get(value);
+			return code == null ? NONE : code;
+		}
+
+		/**
+		 * @param code A code
+		 * @return the value it stands for
+		 */
+		String valueOf(int code) {
+			return values.get(code);
+		}
+
+		/**
+		 * @return how many distinct values there are, including
+		 *         values whose rows have since been removed
+		 */
+		int size() {
+			return values.size();
+		}
+	}
+
+	private final int size;
+
+	// Package-private so search loops can hoist them into locals
+	final int[] numStudents;
+	final double[] percentFemale;
+	final double[] satVerbal;
+	final double[] satMath;
+	final double[] expenses;
+	final double[] percentFinancialAid;
+	final int[] numApplicants;
+	final double[] percentAdmitted;
+	final double[] percentEnrolled;
+	final int[] scaleAcademics;
+	final int[] scaleSocial;
+	final int[] scaleQualityOfLife;
+
+	// States are coded upper-cased, the way searches compare them
+	final int[] state;
+	final int[] location;
+	final int[] control;
+	final Dictionary states;
+	final Dictionary locations;
+	final Dictionary controls;
+	// Each row's emphasis ids from EmphasisDictionary; never modified
+	final BitSet[] emphases;
+
+	// Sorted rows of each state, by state code. Set once before
+	// the columns are handed out.
+	private int[][] stateRows;
+	// Rows with each location and control code, and with each emphasis id
+	private int[] locationCounts;
+	private int[] controlCounts;
+	private int[] emphasisCounts;
+	// Sorted indexes of numeric columns by column ordinal, each
+	// built the first time a range search needs it
+	private final AtomicReferenceArray<SortedIndex> sorted =
+			new AtomicReferenceArray<>(UniversityColumn.values().length);
+
+	/**
+	 * Lays out universities by column.
+	 * @param universities Universities in row order
+	 */
+	CatalogColumns(List<University> universities) {
+		this(universities.size(), new Dictionary(), new Dictionary(), new Dictionary());
+		for(int i = 0; i < size; i++) setRow(i, universities.get(i));
+		stateRows = indexStates();
+		locationCounts = count(location, locations.size());
+		controlCounts = count(control, controls.size());
+		emphasisCounts = new int[EmphasisDictionary.size()];
+		for(BitSet bits : emphases) emphasisCounts = recount(emphasisCounts, null, bits);
+	}
+
+	private CatalogColumns(int size, Dictionary states, Dictionary locations, Dictionary controls) {
+		this.size = size;
+		this.states = states;
+		this.locations = locations;
+		this.controls = controls;
+		numStudents = new int[size];
+		percentFemale = new double[size];
+		satVerbal = new double[size];
+		satMath = new double[size];
+		expenses = new double[size];
+		percentFinancialAid = new double[size];
+		numApplicants = new int[size];
+		percentAdmitted = new double[size];
+		percentEnrolled = new double[size];
+		scaleAcademics = new int[size];
+		scaleSocial = new int[size];
+		scaleQualityOfLife = new int[size];
+		state = new int[size];
+		location = new int[size];
+		control = new int[size];
+		emphases = new BitSet[size];
+	}
+
+	private static String stateKey(University u) {
+		return u.getState() == null ? null : u.getState().toUpperCase();
+	}
+
+	private void setRow(int i, University u) {
+		numStudents[i] = u.getNumStudents();
+		percentFemale[i] = u.getPercentFemale();
+		satVerbal[i] = u.getSatVerbal();
+		satMath[i] = u.getSatMath();
+		expenses[i] = u.getExpenses();
+		percentFinancialAid[i] = u.getPercentFinancialAid();
+		numApplicants[i] = u.getNumApplicants();
+		percentAdmitted[i] = u.getPercentAdmitted();
+		percentEnrolled[i] = u.getPercentEnrolled();
+		scaleAcademics[i] = u.getScaleAcademics();
+		scaleSocial[i] = u.getScaleSocial();
+		scaleQualityOfLife[i] = u.getScaleQualityOfLife();
+		state[i] = states.add(stateKey(u));
+		location[i] = locations.add(u.getLocation());
+		control[i] = controls.add(u.getControl());
+		emphases[i] = u.getEmphasisBits();
+	}
+
+	private static int[] count(int[] codes, int distinct) {
+		int[] counts = new int[distinct];
+		for(int code : codes) {
+			if(code != NONE) counts[code]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Copies counts by code with one row's code changed.
+	 * @param counts Counts before
+	 * @param distinct How many codes there are now
+	 * @param oldCode Code of the row that is removed, or {@link #NONE}
+	 * @param newCode Code of the row that is inserted, or {@link #NONE}
+	 * @return The counts after.
+	 */
+	private static int[] recount(int[] counts, int distinct, int oldCode, int newCode) {
+		int[] c = Arrays.copyOf(counts, distinct);
+		if(oldCode != NONE) c[oldCode]--;
+		if(newCode != NONE) c[newCode]++;
+		return c;
+	}
+
+	/**
+	 * Emphasis counts with one row's emphases changed. Updates the counts
+	 * in place when they're big enough, so only call it on a copy.
+	 */
+	private static int[] recount(int[] counts, BitSet removed, BitSet inserted) {
+		if(inserted != null && inserted.length() > counts.length) counts = Arrays.copyOf(counts, inserted.length());
+		if(removed != null) {
+			for(int id = removed.nextSetBit(0); id >= 0; id = removed.nextSetBit(id + 1)) counts[id]--;
+		}
+		if(inserted != null) {
+			for(int id = inserted.nextSetBit(0); id >= 0; id = inserted.nextSetBit(id + 1)) counts[id]++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Builds the posting lists with a counting sort of the state column.
+	 */
+	private int[][] indexStates() {
+		int[] counts = new int[states.size()];
+		for(int code : state) {
+			if(code != NONE) counts[code]++;
+		}
+		int[][] rows = new int[counts.length][];
+		for(int c = 0; c < rows.length; c++) rows[c] = counts[c] == 0 ? NO_ROWS : new int[counts[c]];
+		Arrays.fill(counts, 0);
+		for(int i = 0; i < size; i++) {
+			int code = state[i];
+			if(code != NONE) rows[code][counts[code]++] = i;
+		}
+		return rows;
+	}
+
+	/**
+	 * Derives the columns after one row is removed, inserted or replaced.
+	 * Every column is copied around the changed row, and only the
+	 * posting lists whose rows moved are rebuilt.
+	 * @param row Row that changes
+	 * @param remove {@code true} to remove the row that is there
+	 * @param insert University to put at the row, or {@code null} for none.
+	 *        Replacing a row is removing it and inserting one.
+	 * @return New columns; these are left as they were.
+	 */
+	CatalogColumns edit(int row, boolean remove, University insert) {
+		int removed = remove ? 1 : 0;
+		int added = insert == null ? 0 : 1;
+		Dictionary st = states;
+		Dictionary lo = locations;
+		Dictionary co = controls;
+		if(insert != null) {
+			st = states.forValue(stateKey(insert));
+			lo = locations.forValue(insert.getLocation());
+			co = controls.forValue(insert.getControl());
+		}
+
+		CatalogColumns c = new CatalogColumns(size - removed + added, st, lo, co);
+		splice(numStudents, c.numStudents, row, removed, added);
+		splice(percentFemale, c.percentFemale, row, removed, added);
+		splice(satVerbal, c.satVerbal, row, removed, added);
+		splice(satMath, c.satMath, row, removed, added);
+		splice(expenses, c.expenses, row, removed, added);
+		splice(percentFinancialAid, c.percentFinancialAid, row, removed, added);
+		splice(numApplicants, c.numApplicants, row, removed, added);
+		splice(percentAdmitted, c.percentAdmitted, row, removed, added);
+		splice(percentEnrolled, c.percentEnrolled, row, removed, added);
+		splice(scaleAcademics, c.scaleAcademics, row, removed, added);
+		splice(scaleSocial, c.scaleSocial, row, removed, added);
+		splice(scaleQualityOfLife, c.scaleQualityOfLife, row, removed, added);
+		splice(state, c.state, row, removed, added);
+		splice(location, c.location, row, removed, added);
+		splice(control, c.control, row, removed, added);
+		splice(emphases, c.emphases, row, removed, added);
+		if(insert != null) c.setRow(row, insert);
+
+		c.locationCounts = recount(locationCounts, lo.size(),
+				remove ? location[row] : NONE, insert != null ? c.location[row] : NONE);
+		c.controlCounts = recount(controlCounts, co.size(),
+				remove ? control[row] : NONE, insert != null ? c.control[row] : NONE);
+		c.emphasisCounts = recount(emphasisCounts.clone(),
+				remove ? emphases[row] : null, insert != null ? c.emphases[row] : null);
+
+		for(int o = 0; o < sorted.length(); o++) {
+			SortedIndex index = sorted.get(o);
+			if(index == null) continue;
+			UniversityColumn col = UniversityColumn.values()[o];
+			double removedKey = remove ? value(col, row) : SortedIndex.UNKNOWN;
+			double addedKey = insert != null ? c.value(col, row) : SortedIndex.UNKNOWN;
+			c.sorted.set(o, index.edit(row, removedKey, removed, addedKey, added));
+		}
+
+		int oldCode = remove ? state[row] : NONE;
+		int newCode = insert != null ? c.state[row] : NONE;
+		int shift = added - removed;
+		c.stateRows = new int[st.size()][];
+		for(int code = 0; code < c.stateRows.length; code++) {
+			int[] old = code < stateRows.length ? stateRows[code] : NO_ROWS;
+			boolean gains = code == newCode;
+			// Nothing moved, so the list can be shared
+			if(shift == 0 && code != oldCode && !gains) c.stateRows[code] = old;
+			else c.stateRows[code] = spliceRows(old, row, removed, shift, gains);
+		}
+		return c;
+	}
+
+	// Takes any two arrays of the same type, the way System.arraycopy does
+	private void splice(Object from, Object to, int row, int removed, int added) {
+		System.arraycopy(from, 0, to, 0, row);
+		System.arraycopy(from, row + removed, to, row + added, size - row - removed);
+	}
+
+	/**
+	 * Renumbers a posting list around a changed row.
+	 * @param rows Sorted rows before the change
+	 * @param row Row that changes
+	 * @param removed 1 if the row that was there is removed
+	 * @param shift How far rows after it move
+	 * @param gains {@code true} if the row that is there now belongs in this list
+	 * @return The sorted rows after the change.
+	 */
+	private static int[] spliceRows(int[] rows, int row, int removed, int shift, boolean gains) {
+		int[] out = new int[rows.length + (gains ? 1 : 0)];
+		int n = 0;
+		boolean placed = !gains;
+		for(int r : rows) {
+			if(r >= row && r < row + removed) continue;
+			if(r >= row + removed) {
+				if(!placed) {
+					out[n++] = row;
+					placed = true;
+				}
+				r += shift;
+			}
+			out[n++] = r;
+		}
+		if(!placed) out[n++] = row;
+		return n == out.length ? out : Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * Gets the rows in a state from its posting list.
+	 * @param stateCode Code from {@link #states}
+	 * @return Sorted rows, which must not be modified.
+	 */
+	int[] rowsInState(int stateCode) {
+		if(stateCode < 0 || stateCode >= stateRows.length) return NO_ROWS;
+		return stateRows[stateCode];
+	}
+
+	/**
+	 * @param locationCode Code from {@link #locations}
+	 * @return how many rows have the location
+	 */
+	int locationCount(int locationCode) {
+		return locationCode < 0 || locationCode >= locationCounts.length ? 0 : locationCounts[locationCode];
+	}
+
+	/**
+	 * @param controlCode Code from {@link #controls}
+	 * @return how many rows have the control
+	 */
+	int controlCount(int controlCode) {
+		return controlCode < 0 || controlCode >= controlCounts.length ? 0 : controlCounts[controlCode];
+	}
+
+	/**
+	 * @param emphasisId Id from {@link EmphasisDictionary}
+	 * @return how many rows have the emphasis
+	 */
+	int emphasisCount(int emphasisId) {
+		return emphasisId < 0 || emphasisId >= emphasisCounts.length ? 0 : emphasisCounts[emphasisId];
+	}
+
+	/**
+	 * @param column A numeric column stored as whole numbers
+	 * @return its values by row, or {@code null} if it isn't stored as whole numbers
+	 */
+	int[] ints(UniversityColumn column) {
+		switch(column) {
+		case NUM_STUDENTS: return numStudents;
+		case NUM_APPLICANTS: return numApplicants;
+		case SCALE_ACADEMICS: return scaleAcademics;
+		case SCALE_SOCIAL: return scaleSocial;
+		case SCALE_QUALITY_OF_LIFE: return scaleQualityOfLife;
+		default: return null;
+		}
+	}
+
+	/**
+	 * @param column A numeric column stored as doubles
+	 * @return its values by row, or {@code null} if it isn't stored as doubles
+	 */
+	double[] doubles(UniversityColumn column) {
+		switch(column) {
+		case PERCENT_FEMALE: return percentFemale;
+		case SAT_VERBAL: return satVerbal;
+		case SAT_MATH: return satMath;
+		case EXPENSES: return expenses;
+		case PERCENT_FINANCIAL_AID: return percentFinancialAid;
+		case PERCENT_ADMITTED: return percentAdmitted;
+		case PERCENT_ENROLLED: return percentEnrolled;
+		default: return null;
+		}
+	}
+
+	/**
+	 * @param column A numeric column
+	 * @param row Row
+	 * @return the row's value in the column
+	 */
+	double value(UniversityColumn column, int row) {
+		int[] i = ints(column);
+		return i != null ? i[row] : doubles(column)[row];
+	}
+
+	/**
+	 * Gets the sorted index of a numeric column, building it the first time.
+	 * @param column A numeric column
+	 * @return The index.
+	 * @throws IllegalArgumentException if the column isn't numeric.
+	 */
+	SortedIndex sortedIndex(UniversityColumn column) {
+		if(!column.isNumeric()) throw new IllegalArgumentException(column + " is not numeric.");
+		SortedIndex index = sorted.get(column.ordinal());
+		if(index == null) {
+			int[] i = ints(column);
+			index = i != null ? SortedIndex.of(i) : SortedIndex.of(doubles(column));
+			// Two builders make the same index, so either can win
+			if(!sorted.compareAndSet(column.ordinal(), null, index)) index = sorted.get(column.ordinal());
+		}
+		return index;
+	}
+
+	/**
+	 * @return how many rows there are
+	 */
+	int size() {
+		return size;
+	}
+
+}
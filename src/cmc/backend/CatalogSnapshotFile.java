@@ -0,0 +1,260 @@
+package cmc.backend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import cmc.backend.entities.University;
+
+/**
+ * Reads and writes the university catalog as a compact binary file
+ * so it can be loaded at startup without going to the database.
+ *
+ * The file is a header, then one fixed-width row per university, then
+ * the emphasis lists, then a string table. Every text value, including
+ * emphases, is stored once in the string table and rows refer to it by
+ * index, so repeated states and controls cost four bytes each. It is
+ * read into memory in one go and checked against a CRC before anything
+ * is built from it. It isn't mapped, since a mapped file can't be
+ * replaced or deleted on some systems until the mapping is collected.
+ */
+public final class CatalogSnapshotFile {
+
+	private static final int MAGIC = 0x434D4343;
+	private static final int FORMAT_VERSION = 1;
+
+	// magic, format version, crc, row count, emphasis count, string count
+	private static final int HEADER_BYTES = 6 * 4;
+	// name, state, location, control, webpage URL, image URL,
+	// five ints, seven doubles, first emphasis, emphasis count
+	private static final int ROW_BYTES = 6 * 4 + 5 * 4 + 7 * 8 + 2 * 4;
+
+	private static final int NO_STRING = -1;
+
+	private CatalogSnapshotFile() {
+	}
+
+	/**
+	 * Writes universities to a file. It is written next to the
+	 * destination and moved over it, so readers never see half a file.
+	 * @param file File to write
+	 * @param universities Universities to write
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void write(Path file, List<University> universities) throws IOException {
+		replace(writeTemp(file, universities), file);
+	}
+
+	/**
+	 * Writes universities to a file next to the destination and forces it to disk.
+	 * @param file File the snapshot is for
+	 * @param universities Universities to write
+	 * @return The file written, to be moved into place with {@link #replace(Path, Path)}.
+	 * @throws IOException If the file can't be written.
+	 */
+	static Path writeTemp(Path file, List<University> universities) throws IOException {
+		Map<String, Integer> ids = new HashMap<>();
+		List<byte[]> strings = new ArrayList<>();
+		int stringBytes = 0;
+		int emphasisCount = 0;
+		for(University u : universities) {
+			stringBytes += intern(ids, strings, u.getName());
+			stringBytes += intern(ids, strings, u.getState());
+			stringBytes += intern(ids, strings, u.getLocation());
+			stringBytes += intern(ids, strings, u.getControl());
+			stringBytes += intern(ids, strings, u.getWebpageUrl());
+			stringBytes += intern(ids, strings, u.getImageUrl());
+			for(String e : u.getEmphases()) {
+				stringBytes += intern(ids, strings, e);
+				emphasisCount++;
+			}
+		}
+
+		long size = (long)HEADER_BYTES + (long)ROW_BYTES * universities.size()
+				+ 4L * emphasisCount + 4L * (strings.size() + 1) + stringBytes;
+		if(size > Integer.MAX_VALUE) throw new IOException("Catalog is too large for a snapshot.");
+
+		ByteBuffer buf = ByteBuffer.allocate((int)size).order(ByteOrder.LITTLE_ENDIAN);
+		buf.position(HEADER_BYTES);
+		int emphasis = 0;
+		for(University u : universities) {
+			buf.putInt(id(ids, u.getName()));
+			buf.putInt(id(ids, u.getState()));
+			buf.putInt(id(ids, u.getLocation()));
+			buf.putInt(id(ids, u.getControl()));
+			buf.putInt(id(ids, u.getWebpageUrl()));
+			buf.putInt(id(ids, u.getImageUrl()));
+			buf.putInt(u.getNumStudents());
+			buf.putInt(u.getNumApplicants());
+			buf.putInt(u.getScaleAcademics());
+			buf.putInt(u.getScaleSocial());
+			buf.putInt(u.getScaleQualityOfLife());
+			buf.putDouble(u.getPercentFemale());
+			buf.putDouble(u.getSatVerbal());
+			buf.putDouble(u.getSatMath());
+			buf.putDouble(u.getExpenses());
+			buf.putDouble(u.getPercentFinancialAid());
+			buf.putDouble(u.getPercentAdmitted());
+			buf.putDouble(u.getPercentEnrolled());
+			int n = u.getEmphases().size();
+			buf.putInt(emphasis);
+			buf.putInt(n);
+			emphasis += n;
+		}
+		for(University u : universities) {
+			for(String e : u.getEmphases()) buf.putInt(id(ids, e));
+		}
+		int offset = 0;
+		for(byte[] s : strings) {
+			buf.putInt(offset);
+			offset += s.length;
+		}
+		buf.putInt(offset);
+		for(byte[] s : strings) buf.put(s);
+
+		buf.putInt(0, MAGIC);
+		buf.putInt(4, FORMAT_VERSION);
+		buf.putInt(12, universities.size());
+		buf.putInt(16, emphasisCount);
+		buf.putInt(20, strings.size());
+		buf.putInt(8, crc(buf));
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		buf.rewind();
+		try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while(buf.hasRemaining()) ch.write(buf);
+			ch.force(false);
+		}
+		return tmp;
+	}
+
+	/**
+	 * Moves a file from {@link #writeTemp(Path, List)} over the destination.
+	 * @param tmp File written
+	 * @param file Destination
+	 * @throws IOException If it can't be moved.
+	 */
+	static void replace(Path tmp, Path file) throws IOException {
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads universities from a file written by {@link #write(Path, List)}.
+	 * @param file File to read
+	 * @return The universities in the order they were written.
+	 * @throws IOException If the file can't be read, isn't a snapshot
+	 *         of this version or is damaged.
+	 */
+	public static List<University> read(Path file) throws IOException {
+		ByteBuffer buf;
+		try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = ch.size();
+			if(size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is not a catalog snapshot.");
+			}
+			buf = ByteBuffer.allocate((int)size);
+			while(buf.hasRemaining()) {
+				if(ch.read(buf) < 0) throw new IOException(file + " was cut short while it was read.");
+			}
+		}
+		buf.flip();
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		if(buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT_VERSION) {
+			throw new IOException(file + " is not a catalog snapshot of this version.");
+		}
+		if(buf.getInt(8) != crc(buf)) throw new IOException(file + " is damaged.");
+
+		int rows = buf.getInt(12);
+		int emphasisCount = buf.getInt(16);
+		int stringCount = buf.getInt(20);
+		int emphasisBase = HEADER_BYTES + ROW_BYTES * rows;
+		int offsetBase = emphasisBase + 4 * emphasisCount;
+		int stringBase = offsetBase + 4 * (stringCount + 1);
+
+		// Each distinct string is only decoded once
+		String[] strings = new String[stringCount];
+		List<University> list = new ArrayList<>(rows);
+		for(int r = 0; r < rows; r++) {
+			int p = HEADER_BYTES + ROW_BYTES * r;
+			University u = new University(string(buf, strings, offsetBase, stringBase, buf.getInt(p)));
+			u.setState(string(buf, strings, offsetBase, stringBase, buf.getInt(p + 4)));
+			u.setLocation(string(buf, strings, offsetBase, stringBase, buf.getInt(p + 8)));
+			u.setControl(string(buf, strings, offsetBase, stringBase, buf.getInt(p + 12)));
+			u.setWebpageUrl(string(buf, strings, offsetBase, stringBase, buf.getInt(p + 16)));
+			u.setImageUrl(string(buf, strings, offsetBase, stringBase, buf.getInt(p + 20)));
+			u.setNumStudents(buf.getInt(p + 24));
+			u.setNumApplicants(buf.getInt(p + 28));
+			u.setScaleAcademics(buf.getInt(p + 32));
+			u.setScaleSocial(buf.getInt(p + 36));
+			u.setScaleQualityOfLife(buf.getInt(p + 40));
+			u.setPercentFemale(buf.getDouble(p + 44));
+			u.setSatVerbal(buf.getDouble(p + 52));
+			u.setSatMath(buf.getDouble(p + 60));
+			u.setExpenses(buf.getDouble(p + 68));
+			u.setPercentFinancialAid(buf.getDouble(p + 76));
+			u.setPercentAdmitted(buf.getDouble(p + 84));
+			u.setPercentEnrolled(buf.getDouble(p + 92));
+			int first = buf.getInt(p + 100);
+			int n = buf.getInt(p + 104);
+			for(int i = 0; i < n; i++) {
+				int id = buf.getInt(emphasisBase + 4 * (first + i));
+				u.addEmphasis(string(buf, strings, offsetBase, stringBase, id));
+			}
+			list.add(u);
+		}
+		return list;
+	}
+
+	private static int intern(Map<String, Integer> ids, List<byte[]> strings, String s) {
+		if(s == null || ids.containsKey(s)) return 0;
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		ids.put(s, strings.size());
+		strings.add(b);
+		return b.length;
+	}
+
+	private static int id(Map<String, Integer> ids, String s) {
+		return s == null ? NO_STRING : ids.get(s);
+	}
+
+	private static String string(ByteBuffer buf, String[] cache, int offsetBase, int stringBase, int id) {
+		if(id == NO_STRING) return null;
+		String s = cache[id];
+		if(s == null) {
+			int start = buf.getInt(offsetBase + 4 * id);
+			int end = buf.getInt(offsetBase + 4 * (id + 1));
+			byte[] b = new byte[end - start];
+			ByteBuffer view = buf.duplicate();
+			view.position(stringBase + start);
+			view.get(b);
+			s = new String(b, StandardCharsets.UTF_8);
+			cache[id] = s;
+		}
+		return s;
+	}
+
+	/**
+	 * CRC of everything but the first twelve bytes of the header.
+	 */
+	private static int crc(ByteBuffer buf) {
+		CRC32 crc = new CRC32();
+		ByteBuffer view = buf.duplicate();
+		view.position(12);
+		view.limit(buf.capacity());
+		crc.update(view);
+		return (int)crc.getValue();
+	}
+
+}
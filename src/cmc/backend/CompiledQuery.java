@@ -0,0 +1,107 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import cmc.backend.QueryPlanner.Predicate;
+import cmc.backend.entities.University;
+
+/**
+ * A search that has been worked out once so it can be run many times,
+ * such as a saved search or one that is paged through.
+ *
+ * Compiling normalizes the criteria, such as upper-casing the state and
+ * finding emphasis ids, and leaves out every criterion that isn't set,
+ * so running the query never checks whether a filter is on. Each run
+ * binds what is left to a snapshot of the catalog and plans it; the plan
+ * is kept by the snapshot, so running again before the catalog changes
+ * goes straight to the row loops. The query doesn't hold on to plans, so
+ * a query that is kept around doesn't keep an old snapshot alive.
+ */
+public final class CompiledQuery {
+
+	private final List<Function<UniversityCatalog.Snapshot, Predicate>> binders;
+
+	private CompiledQuery(List<Function<UniversityCatalog.Snapshot, Predicate>> binders) {
+		this.binders = binders;
+	}
+
+	/**
+	 * Compiles criteria. Changing the criteria afterward doesn't change the query.
+	 * @param criteria What to search for
+	 * @return The query.
+	 * @throws IllegalArgumentException if criteria is {@code null}.
+	 */
+	public static CompiledQuery compile(SearchCriteria criteria) {
+		if(criteria == null) throw new IllegalArgumentException("criteria cannot be null.");
+		return new CompiledQuery(QueryPlanner.compile(criteria));
+	}
+
+	/**
+	 * @return how many criteria are checked; the ones that weren't set aren't counted
+	 */
+	public int getCriteriaCount() {
+		return binders.size();
+	}
+
+	/**
+	 * Plans this query against a snapshot, or reuses the plan the snapshot
+	 * kept. Plans never change, so any thread can use a kept one.
+	 * @param snap Snapshot
+	 * @return The plan.
+	 */
+	QueryPlan plan(UniversityCatalog.Snapshot snap) {
+		QueryPlan plan = snap.getPlan(this);
+		if(plan != null) return plan;
+
+		List<Predicate> predicates = new ArrayList<>(binders.size());
+		for(Function<UniversityCatalog.Snapshot, Predicate> b : binders) predicates.add(b.apply(snap));
+		plan = QueryPlanner.plan(predicates, snap);
+		snap.putPlan(this, plan);
+		return plan;
+	}
+
+	/**
+	 * Runs this query against a snapshot.
+	 * @param snap Snapshot
+	 * @return Copies of the matching universities, in name order.
+	 */
+	List<University> execute(UniversityCatalog.Snapshot snap) {
+		List<University> all = snap.getUniversities();
+		int[] rows = plan(snap).execute();
+		List<University> list = new ArrayList<>(rows.length);
+		for(int row : rows) list.add(all.get(row).clone());
+		return list;
+	}
+
+	/**
+	 * Runs this query against a snapshot and returns one page of the results.
+	 * Only the universities on the page are copied.
+	 * @param snap Snapshot
+	 * @param afterName Only universities after this name are on the page,
+	 *        or {@code null} to start from the first
+	 * @param limit Most universities on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if limit isn't positive.
+	 */
+	Page<University> page(UniversityCatalog.Snapshot snap, String afterName, int limit) {
+		int read = Page.readAhead(limit);
+		int[] rows = plan(snap).execute();
+		int start = 0;
+		if(afterName != null) {
+			// Rows are in name order, so the cursor's row bounds the page
+			int i = snap.indexOf(afterName);
+			int after = i >= 0 ? i + 1 : -(i + 1);
+			int at = Arrays.binarySearch(rows, after);
+			start = at >= 0 ? at : -(at + 1);
+		}
+		List<University> all = snap.getUniversities();
+		int end = (int)Math.min((long)start + read, rows.length);
+		List<University> list = new ArrayList<>(Math.max(end - start, 0));
+		for(int i = start; i < end; i++) list.add(all.get(rows[i]).clone());
+		return Page.of(list, limit, University::getName);
+	}
+
+}
@@ -0,0 +1,368 @@
+package cmc.backend;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small bounded pool of JDBC connections.
+ *
+ * Connections are validated when they are borrowed and replaced if
+ * the server dropped them. Connections that sit idle for too long are
+ * closed. If every connection is in use, borrowers wait up to a timeout.
+ * Each connection has its own {@link StatementCache}.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+	/**
+	 * Opens new physical connections for the pool.
+	 */
+	public interface ConnectionFactory {
+		/**
+		 * @return A new open connection.
+		 * @throws SQLException If the connection can't be made.
+		 */
+		Connection open() throws SQLException;
+	}
+
+	/**
+	 * An idle connection and when it was returned.
+	 */
+	private static class Idle {
+		private final Connection conn;
+		private final long since;
+
+		private Idle(Connection conn, long since) {
+			this.conn = conn;
+			this.since = since;
+		}
+	}
+
+	private final ConnectionFactory factory;
+	private final int maxSize;
+	private final long borrowTimeoutNanos;
+	private final long maxIdleNanos;
+	private final int validationTimeoutSecs;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	// Most recently returned connections are at the head
+	private final Deque<Idle> idle = new ArrayDeque<>();
+	private int active = 0;
+	// Connections that are being opened but aren't active yet
+	private int opening = 0;
+	private int waiting = 0;
+	private boolean closed = false;
+
+	private final Map<Connection, StatementCache> caches = new IdentityHashMap<>();
+	private final AtomicLong statementsPrepared = new AtomicLong();
+	private final AtomicLong statementsReused = new AtomicLong();
+
+	/**
+	 * Creates an empty pool. Connections are opened as they are needed.
+	 * @param factory Opens new connections
+	 * @param maxSize Most connections (active and idle) open at once
+	 * @param borrowTimeoutMillis How long {@link #borrow()} waits for a connection
+	 * @param maxIdleMillis How long a connection can be idle before it is closed
+	 * @param validationTimeoutSecs Timeout for {@link Connection#isValid(int)}
+	 * @throws IllegalArgumentException if maxSize is less than 1
+	 */
+	public ConnectionPool(ConnectionFactory factory, int maxSize, long borrowTimeoutMillis,
+			long maxIdleMillis, int validationTimeoutSecs) {
+		if(factory == null) throw new IllegalArgumentException("factory cannot be null.");
+		if(maxSize < 1) throw new IllegalArgumentException("maxSize must be at least 1.");
+		this.factory = factory;
+		this.maxSize = maxSize;
+		this.borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+		this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+		this.validationTimeoutSecs = validationTimeoutSecs;
+	}
+
+	/**
+	 * Borrows a valid connection, opening one if none are idle and
+	 * the pool isn't full. Must be given back with {@link #release(Connection)}.
+	 * @return An open connection.
+	 * @throws SQLTimeoutException If no connection was free before the timeout.
+	 * @throws SQLException If a new connection couldn't be opened.
+	 * @throws IllegalStateException If the pool is closed.
+	 */
+	public Connection borrow() throws SQLException {
+		long deadline = System.nanoTime() + borrowTimeoutNanos;
+		while(true) {
+			Connection candidate = null;
+			boolean mustOpen = false;
+			List<Connection> stale = Collections.emptyList();
+
+			lock.lock();
+			try {
+				if(closed) throw new IllegalStateException("Connection pool is closed.");
+				stale = takeStale(System.nanoTime());
+
+				if(!idle.isEmpty()) {
+					candidate = idle.pollFirst().conn;
+					active++;
+				}
+				else if(size() < maxSize) {
+					opening++;
+					mustOpen = true;
+				}
+				else {
+					long left = deadline - System.nanoTime();
+					if(left <= 0) {
+						throw new SQLTimeoutException("Timed out waiting for a database connection.");
+					}
+					waiting++;
+					try {
+						available.awaitNanos(left);
+					}
+					catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted waiting for a database connection.", e);
+					}
+					finally {
+						waiting--;
+					}
+					continue;
+				}
+			}
+			finally {
+				lock.unlock();
+				// Closing talks to the server, so nobody waits on the lock for it
+				for(Connection c : stale) quietClose(c);
+			}
+
+			if(mustOpen) return openNew();
+			// Validate outside the lock since it may talk to the server
+			if(isValid(candidate)) return candidate;
+			discard(candidate);
+		}
+	}
+
+	/**
+	 * Gives a borrowed connection back to the pool.
+	 * @param conn A connection from {@link #borrow()}.
+	 */
+	public void release(Connection conn) {
+		if(conn == null) return;
+		boolean closeIt;
+		lock.lock();
+		try {
+			active--;
+			closeIt = closed;
+			if(!closeIt) {
+				idle.addFirst(new Idle(conn, System.nanoTime()));
+				available.signal();
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+		if(closeIt) quietClose(conn);
+	}
+
+	/**
+	 * Gives back a borrowed connection that is known to be broken.
+	 * It is closed instead of going back into the pool.
+	 * @param conn A connection from {@link #borrow()}.
+	 */
+	public void discard(Connection conn) {
+		if(conn == null) return;
+		lock.lock();
+		try {
+			active--;
+			available.signal();
+		}
+		finally {
+			lock.unlock();
+		}
+		quietClose(conn);
+	}
+
+	/**
+	 * Closes every connection that has been idle for too long.
+	 * This also happens on every borrow.
+	 */
+	public void evictIdle() {
+		List<Connection> stale;
+		lock.lock();
+		try {
+			stale = takeStale(System.nanoTime());
+		}
+		finally {
+			lock.unlock();
+		}
+		for(Connection c : stale) quietClose(c);
+	}
+
+	/**
+	 * Closes every idle connection. Borrowed connections are closed
+	 * when they are released.
+	 */
+	@Override
+	public void close() {
+		List<Connection> open = new ArrayList<>();
+		lock.lock();
+		try {
+			closed = true;
+			for(Idle i : idle) open.add(i.conn);
+			idle.clear();
+			available.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+		for(Connection c : open) quietClose(c);
+	}
+
+	/**
+	 * @return how many connections are currently borrowed
+	 */
+	public int getActiveCount() {
+		lock.lock();
+		try {
+			return active;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return how many open connections are waiting to be borrowed
+	 */
+	public int getIdleCount() {
+		lock.lock();
+		try {
+			return idle.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return how many threads are blocked waiting for a connection
+	 */
+	public int getWaitingCount() {
+		lock.lock();
+		try {
+			return waiting;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the most connections this pool will open at once
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Gets the statement cache of a borrowed connection.
+	 * @param conn A connection from {@link #borrow()}.
+	 * @return Its statement cache.
+	 * @throws IllegalArgumentException If the connection isn't from this pool.
+	 */
+	public StatementCache getStatementCache(Connection conn) {
+		StatementCache cache;
+		synchronized(caches) {
+			cache = caches.get(conn);
+		}
+		if(cache == null) throw new IllegalArgumentException("Connection is not from this pool.");
+		return cache;
+	}
+
+	/**
+	 * @return how many statements had to be prepared across every connection
+	 */
+	public long getStatementsPrepared() {
+		return statementsPrepared.get();
+	}
+
+	/**
+	 * @return how many statements were reused from a cache across every connection
+	 */
+	public long getStatementsReused() {
+		return statementsReused.get();
+	}
+
+	// Must hold lock
+	private int size() {
+		return active + idle.size() + opening;
+	}
+
+	// Must hold lock. The caller closes what is returned once it has let go of the lock.
+	private List<Connection> takeStale(long now) {
+		List<Connection> stale = new ArrayList<>();
+		// Oldest connections are at the tail
+		Iterator<Idle> it = idle.descendingIterator();
+		while(it.hasNext()) {
+			Idle i = it.next();
+			if(now - i.since < maxIdleNanos) break;
+			it.remove();
+			stale.add(i.conn);
+		}
+		return stale;
+	}
+
+	private Connection openNew() throws SQLException {
+		Connection conn = null;
+		try {
+			conn = factory.open();
+			synchronized(caches) {
+				caches.put(conn, new StatementCache(conn, statementsPrepared, statementsReused));
+			}
+			return conn;
+		}
+		finally {
+			lock.lock();
+			try {
+				opening--;
+				if(conn != null) active++;
+				else available.signal();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private boolean isValid(Connection conn) {
+		try {
+			return !conn.isClosed() && conn.isValid(validationTimeoutSecs);
+		}
+		catch(SQLException e) {
+			return false;
+		}
+	}
+
+	private void quietClose(Connection conn) {
+		StatementCache cache;
+		synchronized(caches) {
+			cache = caches.remove(conn);
+		}
+		if(cache != null) cache.close();
+		try {
+			conn.close();
+		}
+		catch(SQLException e) {
+			// It's being thrown away anyway
+		}
+	}
+
+}
@@ -1,9 +1,31 @@
 package cmc.backend;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import cmc.backend.entities.University;
+import cmc.backend.storage.UniversityExt;
+import cmc.backend.storage.UniversityRowSink;
 
 /**
  * This is like an alternate UniversityDB class with the custom tables.
+ *
+ * Every DBExtension for the same database account shares one
+ * {@link ConnectionPool}, and each call borrows a connection for
+ * just as long as it needs it. The pool is closed when the last
+ * instance using it is closed, or when the program exits, and a
+ * background thread closes connections that sit idle too long. Statements come from the connection's
+ * {@link StatementCache} so each SQL string is only prepared once per connection.
  * @author Roman Lefler
  * @version Apr 2, 2025
  */
@@ -12,11 +34,55 @@ public class DBExtension implements AutoCloseable {
 	private static final String NOT_CONN_MSG = "Call connect() before interacting with the database.";
 	// URL found in string in lib/UniversityDBLib.class
 	private static final String URL_F = "jdbc:mysql://cscimysqlsrv.csbsju.edu/%s";
+	// Prepare on the server so reusing a statement skips parsing there too,
+	// and let the driver send a batch of inserts as one multi-row insert
+	private static final String URL_PARAMS = "?useServerPrepStmts=true&rewriteBatchedStatements=true";
+	// Relies on School being UnivExt's key
+	private static final String UPSERT_SQL = "INSERT INTO UnivExt (School, WebpageUrl, ImageUrl) "
+			+ "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE "
+			+ "WebpageUrl = VALUES(WebpageUrl), ImageUrl = VALUES(ImageUrl)";
+
+	private static final String INSERT_UNIVERSITY_SQL = "INSERT INTO University (School, State, Location, "
+			+ "Control, NumberOfStudents, PercentFemales, SATVerbal, SATMath, Expenses, PercentFinancialAid, "
+			+ "NumberOfApplicants, PercentAdmitted, PercentEnrolled, AcademicsScale, SocialScale, "
+			+ "QualityOfLifeScale) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	// IN lists are padded up to one of these sizes, and longer ones are split,
+	// so a handful of statements are prepared however the batches are sized
+	private static final int[] IN_LIST_SIZES = { 1, 4, 16, 64, 256 };
+
+	private static final int POOL_MAX_SIZE = 8;
+	private static final long POOL_BORROW_TIMEOUT_MS = 10000;
+	private static final long POOL_MAX_IDLE_MS = 5 * 60 * 1000;
+	private static final int POOL_VALIDATION_TIMEOUT_S = 2;
+
+	// One pool per database account, shared by every instance,
+	// and how many connected instances use each one
+	private static final Map<String, ConnectionPool> POOLS = new HashMap<>();
+	private static final Map<String, Integer> POOL_USERS = new HashMap<>();
+	// Runs while any pool is open; guarded by POOLS
+	private static ScheduledExecutorService evictor;
+	private static boolean shutdownHookAdded = false;
+
 	private String username;
 	private String password;
-	
-	private Connection conn;
-	
+
+	private ConnectionPool pool;
+
+	/**
+	 * Work done with the statements of a borrowed connection.
+	 */
+	private interface SqlWork<T> {
+		T run(StatementCache statements) throws SQLException;
+	}
+
+	/**
+	 * Reads the current row of a result set.
+	 */
+	private interface RowReader {
+		void read(ResultSet resultSet) throws SQLException;
+	}
+
 	/**
 	 * Creates the info to connect to the database.
 	 * Must call {@link #connect()} to actually connect to database.
@@ -33,62 +99,343 @@ public class DBExtension implements AutoCloseable {
 			throw new IllegalStateException("Failed to load MySQL driver.");
 		}
 	}
-	
+
+	/**
+	 * Gets the shared pool for a database account, creating it if needed,
+	 * and counts one more instance using it.
+	 */
+	private static ConnectionPool sharedPool(String username, String password) {
+		synchronized(POOLS) {
+			ConnectionPool p = POOLS.get(username);
+			if(p == null) {
+				String url = String.format(URL_F, username) + URL_PARAMS;
+				p = new ConnectionPool(() -> DriverManager.getConnection(url, username, password),
+						POOL_MAX_SIZE, POOL_BORROW_TIMEOUT_MS, POOL_MAX_IDLE_MS,
+						POOL_VALIDATION_TIMEOUT_S);
+				POOLS.put(username, p);
+				startEvictor();
+			}
+			POOL_USERS.merge(username, 1, Integer::sum);
+			return p;
+		}
+	}
+
+	/**
+	 * Starts evicting idle connections from every pool, and makes sure the
+	 * pools are closed at exit even if nothing closes its instances.
+	 * Callers hold POOLS.
+	 */
+	private static void startEvictor() {
+		if(!shutdownHookAdded) {
+			Runtime.getRuntime().addShutdownHook(new Thread(DBExtension::shutdownPools, "cmc-pool-shutdown"));
+			shutdownHookAdded = true;
+		}
+		if(evictor != null) return;
+		evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "cmc-pool-evictor");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = POOL_MAX_IDLE_MS / 2;
+		evictor.scheduleWithFixedDelay(DBExtension::evictIdle, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	private static void evictIdle() {
+		List<ConnectionPool> pools;
+		synchronized(POOLS) {
+			pools = new ArrayList<>(POOLS.values());
+		}
+		for(ConnectionPool p : pools) p.evictIdle();
+	}
+
+	/**
+	 * Counts one less instance using a pool, closing it if that was the last.
+	 */
+	private static void releasePool(String username, ConnectionPool pool) {
+		synchronized(POOLS) {
+			Integer users = POOL_USERS.get(username);
+			// Already closed by shutdownPools()
+			if(users == null || POOLS.get(username) != pool) return;
+			if(users > 1) {
+				POOL_USERS.put(username, users - 1);
+				return;
+			}
+			POOL_USERS.remove(username);
+			ConnectionPool p = POOLS.remove(username);
+			if(p != null) p.close();
+			if(POOLS.isEmpty()) stopEvictor();
+		}
+	}
+
+	/**
+	 * Callers hold POOLS.
+	 */
+	private static void stopEvictor() {
+		if(evictor != null) {
+			evictor.shutdownNow();
+			evictor = null;
+		}
+	}
+
+	/**
+	 * Closes every shared connection pool, even ones instances are still using.
+	 * Runs when the program exits.
+	 */
+	public static void shutdownPools() {
+		synchronized(POOLS) {
+			for(ConnectionPool p : POOLS.values()) p.close();
+			POOLS.clear();
+			POOL_USERS.clear();
+			stopEvictor();
+		}
+	}
+
 	/**
 	 * Connects to the database.
 	 * Must be called before interacted with.
 	 */
 	public void connect() {
+		if(pool != null) return;
+		pool = sharedPool(username, password);
 		try {
-			String url = String.format(URL_F, username);
-			conn = DriverManager.getConnection(url, username, password);
+			// Borrow once so a bad login or unreachable server
+			// fails here instead of on the first query
+			withConnection(statements -> null);
 		}
-		catch(SQLException e) {
-			throw new IllegalStateException(e);
+		catch(RuntimeException e) {
+			close();
+			throw e;
 		}
 	}
-	
+
 	/**
-	 * Closes the database connection.
+	 * Stops using the database. The shared pool is closed
+	 * once no other instance is using it.
 	 */
 	public void close() {
+		ConnectionPool p = pool;
+		if(p == null) return;
+		pool = null;
+		releasePool(username, p);
+	}
+
+	/**
+	 * Gets the connection pool this instance borrows from, for its gauges
+	 * and statement counters.
+	 * @return The pool or {@code null} if not connected.
+	 */
+	public ConnectionPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * Borrows a connection, runs some work with it and gives it back.
+	 * @throws IllegalStateException if not connected or on a database error.
+	 */
+	private <T> T withConnection(SqlWork<T> work) {
+		ConnectionPool p = pool;
+		if(p == null) throw new IllegalStateException(NOT_CONN_MSG);
+
+		Connection conn;
+		try {
+			conn = p.borrow();
+		}
+		catch(SQLException e) {
+			throw new IllegalStateException(e);
+		}
+
 		try {
-			conn.close();
+			T result = work.run(p.getStatementCache(conn));
+			p.release(conn);
+			return result;
 		}
 		catch(SQLException e) {
+			// The connection might be why it failed so don't reuse it
+			p.discard(conn);
 			throw new IllegalStateException(e);
 		}
+		catch(RuntimeException e) {
+			p.release(conn);
+			throw e;
+		}
 	}
-	
+
 	/**
 	 * Gets the webpage URL for a specified university.
 	 * @param uniName Name of the university.
 	 * @return The webpage URL or {@code null} if it doesn't exist.
 	 */
 	public String getWebpageUrl(String uniName) {
-		try {
-			return getWebpageUrlInternal(uniName);
-		} catch(SQLException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-	
-	private String getWebpageUrlInternal(String uniName) throws SQLException {
 		if(uniName == null) throw new IllegalArgumentException();
-		if(conn == null) throw new IllegalStateException(NOT_CONN_MSG);
-		
+		return withConnection(statements -> getWebpageUrlInternal(statements, uniName));
+	}
+
+	private String getWebpageUrlInternal(StatementCache statements, String uniName) throws SQLException {
 		String sql = "SELECT WebpageUrl FROM UnivExt WHERE School = ?";
-		PreparedStatement statement = conn.prepareStatement(sql);
+		PreparedStatement statement = statements.prepare(sql);
 		statement.setString(1, uniName);
-		ResultSet resultSet = statement.executeQuery();
-		
-		// If nothing found
-		if(!resultSet.next()) return null;
-		
-		String url = resultSet.getString("WebpageUrl");
-		return url;
+		try(ResultSet resultSet = statement.executeQuery()) {
+			// If nothing found
+			if(!resultSet.next()) return null;
+
+			String url = resultSet.getString("WebpageUrl");
+			return url;
+		}
+	}
+
+	/**
+	 * Gets the extra attributes of every university in one query.
+	 * Universities without a row are not in the map.
+	 * @return A map of university names to their extra attributes.
+	 */
+	public Map<String, UniversityExt> getAllUniversityExt() {
+		return withConnection(this::getAllUniversityExtInternal);
+	}
+
+	private Map<String, UniversityExt> getAllUniversityExtInternal(StatementCache statements) throws SQLException {
+		String sql = "SELECT School, WebpageUrl, ImageUrl FROM UnivExt";
+		Map<String, UniversityExt> map = new HashMap<>();
+		PreparedStatement statement = statements.prepare(sql);
+		// Tells the MySQL driver to stream rows instead of buffering
+		// the whole result
+		statement.setFetchSize(Integer.MIN_VALUE);
+		try(ResultSet resultSet = statement.executeQuery()) {
+			while(resultSet.next()) {
+				UniversityExt row = new UniversityExt(
+						resultSet.getString(2), resultSet.getString(3));
+				map.put(resultSet.getString(1), row);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Gets the extra attributes of one university in one query.
+	 * @param uniName Name of the university.
+	 * @return Its row or {@code null} if it doesn't have one.
+	 */
+	public UniversityExt getUniversityExt(String uniName) {
+		if(uniName == null) throw new IllegalArgumentException();
+		return withConnection(statements -> {
+			String sql = "SELECT WebpageUrl, ImageUrl FROM UnivExt WHERE School = ?";
+			PreparedStatement statement = statements.prepare(sql);
+			statement.setString(1, uniName);
+			try(ResultSet resultSet = statement.executeQuery()) {
+				if(!resultSet.next()) return null;
+				return new UniversityExt(resultSet.getString(1), resultSet.getString(2));
+			}
+		});
+	}
+
+	/**
+	 * Gets the extra attributes of some universities in one query.
+	 * @param uniNames Names of the universities.
+	 * @return A map of university names to their extra attributes.
+	 *         Universities without a row are not in the map.
+	 */
+	public Map<String, UniversityExt> getUniversityExt(Collection<String> uniNames) {
+		if(uniNames == null) throw new IllegalArgumentException();
+		Map<String, UniversityExt> map = new HashMap<>();
+		queryIn("SELECT School, WebpageUrl, ImageUrl FROM UnivExt WHERE School IN ", "", uniNames,
+				resultSet -> map.put(resultSet.getString(1),
+						new UniversityExt(resultSet.getString(2), resultSet.getString(3))));
+		return map;
 	}
-	
+
+	/**
+	 * Gets one row of the library's University table.
+	 * @param uniName Name of the university.
+	 * @return The row's columns as strings, in the same order as
+	 *         {@code UniversityDBLibrary.university_getUniversities()},
+	 *         or {@code null} if there's no such university.
+	 */
+	public String[] getUniversityRow(String uniName) {
+		if(uniName == null) throw new IllegalArgumentException();
+		return withConnection(statements -> {
+			String sql = "SELECT * FROM University WHERE School = ?";
+			PreparedStatement statement = statements.prepare(sql);
+			statement.setString(1, uniName);
+			try(ResultSet resultSet = statement.executeQuery()) {
+				if(!resultSet.next()) return null;
+				int n = resultSet.getMetaData().getColumnCount();
+				String[] row = new String[n];
+				for(int i = 0; i < n; i++) row[i] = resultSet.getString(i + 1);
+				return row;
+			}
+		});
+	}
+
+	/**
+	 * Streams every row of the library's University table to a callback
+	 * as it arrives from the server, so no table is ever all in memory.
+	 * Emphases and UnivExt are joined to it on the server in School order,
+	 * so a university's rows arrive together and are merged as they come.
+	 * The connection stays borrowed until the callback has seen every row.
+	 * @param sink Receives each row, in the same column order as
+	 *        {@code UniversityDBLibrary.university_getUniversities()},
+	 *        with its emphases and extra attributes.
+	 */
+	public void scanUniversityRows(UniversityRowSink sink) {
+		if(sink == null) throw new IllegalArgumentException();
+		withConnection(statements -> {
+			String sql = "SELECT u.*, e.Area, x.School, x.WebpageUrl, x.ImageUrl FROM University u "
+					+ "LEFT JOIN Emphasis e ON e.School = u.School "
+					+ "LEFT JOIN UnivExt x ON x.School = u.School ORDER BY u.School, e.Area";
+			PreparedStatement statement = statements.prepare(sql);
+			statement.setFetchSize(Integer.MIN_VALUE);
+			try(ResultSet resultSet = statement.executeQuery()) {
+				// The University columns come first, then the four joined ones
+				int n = resultSet.getMetaData().getColumnCount() - 4;
+				String[] row = null;
+				List<String> emphases = null;
+				UniversityExt ext = null;
+				while(resultSet.next()) {
+					String school = resultSet.getString(1);
+					if(row == null || !row[0].equals(school)) {
+						if(row != null) sink.accept(row, emphases, ext);
+						row = new String[n];
+						for(int i = 0; i < n; i++) row[i] = resultSet.getString(i + 1);
+						emphases = new ArrayList<>();
+						ext = resultSet.getString(n + 2) == null ? null
+								: new UniversityExt(resultSet.getString(n + 3), resultSet.getString(n + 4));
+					}
+					String area = resultSet.getString(n + 1);
+					if(area != null) emphases.add(area);
+				}
+				if(row != null) sink.accept(row, emphases, ext);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Gets rows of the library's University table in name order,
+	 * starting after a name. The School index means only the
+	 * rows returned are read, however far into the table they are.
+	 * @param afterName Only rows after this name, or {@code null} for the first rows.
+	 * @param limit Most rows to get.
+	 * @return Rows in the same column order as
+	 *         {@code UniversityDBLibrary.university_getUniversities()}.
+	 */
+	public List<String[]> getUniversityRowsAfter(String afterName, int limit) {
+		return withConnection(statements -> {
+			String sql = "SELECT * FROM University WHERE School > ? ORDER BY School LIMIT ?";
+			PreparedStatement statement = statements.prepare(sql);
+			statement.setString(1, afterName == null ? "" : afterName);
+			statement.setInt(2, limit);
+			List<String[]> rows = new ArrayList<>();
+			try(ResultSet resultSet = statement.executeQuery()) {
+				int n = resultSet.getMetaData().getColumnCount();
+				while(resultSet.next()) {
+					String[] row = new String[n];
+					for(int i = 0; i < n; i++) row[i] = resultSet.getString(i + 1);
+					rows.add(row);
+				}
+			}
+			return rows;
+		});
+	}
+
 	/**
 	 * Sets the webpage URL for a specified university.
 	 * This will either insert or update accordingly.
@@ -96,29 +443,26 @@ public class DBExtension implements AutoCloseable {
 	 * @param url URL of webpage.
 	 */
 	public void setWebpageUrl(String uniName, String url) {
-		try {
-			setWebpageUrlInternal(uniName, url);
-		} catch(SQLException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-	
-	private void setWebpageUrlInternal(String uniName, String url) throws SQLException {
 		if(uniName == null) throw new IllegalArgumentException();
-		if(conn == null) throw new IllegalStateException(NOT_CONN_MSG);
-		
+		withConnection(statements -> {
+			setWebpageUrlInternal(statements, uniName, url);
+			return null;
+		});
+	}
+
+	private void setWebpageUrlInternal(StatementCache statements, String uniName, String url) throws SQLException {
 		// First try update
 		String sql = "UPDATE UnivExt SET WebpageUrl = ? WHERE School = ?";
-		PreparedStatement statement = conn.prepareStatement(sql);
+		PreparedStatement statement = statements.prepare(sql);
 		statement.setString(1, url);
 		statement.setString(2, uniName);
 		int affected = statement.executeUpdate();
 		// If it works or url is blank return
 		if(affected > 0 || url == null) return;
-		
+
 		// If it fails then insert
 		sql = "INSERT INTO UnivExt (School, WebpageUrl) VALUES (?, ?)";
-		statement = conn.prepareStatement(sql);
+		statement = statements.prepare(sql);
 		statement.setString(1, uniName);
 		statement.setString(2, url);
 		statement.executeUpdate();
@@ -130,29 +474,23 @@ public class DBExtension implements AutoCloseable {
 	 * @return The image URL or {@code null} if it doesn't exist.
 	 */
 	public String getImageUrl(String uniName) {
-		try {
-			return getImageUrlInternal(uniName);
-		} catch(SQLException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-	
-	private String getImageUrlInternal(String uniName) throws SQLException {
 		if(uniName == null) throw new IllegalArgumentException();
-		if(conn == null) throw new IllegalStateException(NOT_CONN_MSG);
-		
+		return withConnection(statements -> getImageUrlInternal(statements, uniName));
+	}
+
+	private String getImageUrlInternal(StatementCache statements, String uniName) throws SQLException {
 		String sql = "SELECT ImageUrl FROM UnivExt WHERE School = ?";
-		PreparedStatement statement = conn.prepareStatement(sql);
+		PreparedStatement statement = statements.prepare(sql);
 		statement.setString(1, uniName);
-		ResultSet resultSet = statement.executeQuery();
-		
-		// If nothing found
-		if(!resultSet.next()) return null;
-		
-		String url = resultSet.getString("ImageUrl");
-		return url;
+		try(ResultSet resultSet = statement.executeQuery()) {
+			// If nothing found
+			if(!resultSet.next()) return null;
+
+			String url = resultSet.getString("ImageUrl");
+			return url;
+		}
 	}
-	
+
 	/**
 	 * Sets the image URL for a specified university.
 	 * This will either insert or update accordingly.
@@ -160,34 +498,415 @@ public class DBExtension implements AutoCloseable {
 	 * @param url URL of image.
 	 */
 	public void setImageUrl(String uniName, String url) {
-		try {
-			setImageUrlInternal(uniName, url);
-		} catch(SQLException e) {
-			throw new IllegalStateException(e);
-		}
-	}
-	
-	private void setImageUrlInternal(String uniName, String url) throws SQLException {
 		if(uniName == null) throw new IllegalArgumentException();
-		if(conn == null) throw new IllegalStateException(NOT_CONN_MSG);
-		
+		withConnection(statements -> {
+			setImageUrlInternal(statements, uniName, url);
+			return null;
+		});
+	}
+
+	private void setImageUrlInternal(StatementCache statements, String uniName, String url) throws SQLException {
 		// First try update
 		String sql = "UPDATE UnivExt SET ImageUrl = ? WHERE School = ?";
-		PreparedStatement statement = conn.prepareStatement(sql);
+		PreparedStatement statement = statements.prepare(sql);
 		statement.setString(1, url);
 		statement.setString(2, uniName);
 		int affected = statement.executeUpdate();
 		// If it works or url is blank return
 		if(affected > 0) return;
-		
+
 		// If it fails then insert
 		sql = "INSERT INTO UnivExt (School, ImageUrl) VALUES (?, ?)";
-		statement = conn.prepareStatement(sql);
+		statement = statements.prepare(sql);
 		statement.setString(1, uniName);
 		statement.setString(2, url);
 		statement.executeUpdate();
 	}
-	
+
+	/**
+	 * Sets both the webpage and image URL of a university in one statement.
+	 * This will either insert or update accordingly.
+	 * @param uniName Name of the university.
+	 * @param webpageUrl URL of webpage, may be {@code null}.
+	 * @param imageUrl URL of image, may be {@code null}.
+	 */
+	public void upsertUniversityExt(String uniName, String webpageUrl, String imageUrl) {
+		if(uniName == null) throw new IllegalArgumentException();
+		withConnection(statements -> {
+			PreparedStatement statement = statements.prepare(UPSERT_SQL);
+			statement.setString(1, uniName);
+			statement.setString(2, webpageUrl);
+			statement.setString(3, imageUrl);
+			statement.executeUpdate();
+			return null;
+		});
+	}
+
+	/**
+	 * Sets the webpage and image URLs of many universities in one batch.
+	 * This will either insert or update accordingly.
+	 * @param rows Map of university names to their URLs.
+	 */
+	public void upsertUniversityExt(Map<String, UniversityExt> rows) {
+		if(rows == null) throw new IllegalArgumentException();
+		if(rows.isEmpty()) return;
+		withConnection(statements -> {
+			PreparedStatement statement = statements.prepare(UPSERT_SQL);
+			for(Map.Entry<String, UniversityExt> kv : rows.entrySet()) {
+				if(kv.getKey() == null) throw new IllegalArgumentException();
+				statement.setString(1, kv.getKey());
+				statement.setString(2, kv.getValue().getWebpageUrl());
+				statement.setString(3, kv.getValue().getImageUrl());
+				statement.addBatch();
+			}
+			try {
+				statement.executeBatch();
+			}
+			finally {
+				// Don't leave rows queued on the cached statement
+				statement.clearBatch();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Finds which of some universities are already in the library's University table.
+	 * @param names University names.
+	 * @return The names that are taken.
+	 */
+	public Set<String> findUniversities(Collection<String> names) {
+		if(names == null) throw new IllegalArgumentException();
+		Set<String> found = new HashSet<>();
+		queryIn("SELECT School FROM University WHERE School IN ", "", names,
+				resultSet -> found.add(resultSet.getString(1)));
+		return found;
+	}
+
+	/**
+	 * Runs a query with an IN list over some values on one connection.
+	 * The values are split into lists of at most the largest of
+	 * {@link #IN_LIST_SIZES}, and each list is padded up to the next size
+	 * by repeating its last value, so the SQL text only ever takes a few
+	 * forms and each is prepared once per connection.
+	 * @param before SQL up to the IN list
+	 * @param after SQL after the IN list
+	 * @param values Values for the list; duplicates are only queried once
+	 * @param reader Reads each row of every query
+	 */
+	private void queryIn(String before, String after, Collection<String> values, RowReader reader) {
+		if(values.isEmpty()) return;
+		List<String> list = new ArrayList<>(new LinkedHashSet<>(values));
+		int max = IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+		withConnection(statements -> {
+			for(int from = 0; from < list.size(); from += max) {
+				int n = Math.min(max, list.size() - from);
+				int size = inListSize(n);
+				PreparedStatement statement = statements.prepare(before + placeholders(size) + after);
+				for(int i = 0; i < size; i++) statement.setString(i + 1, list.get(from + Math.min(i, n - 1)));
+				try(ResultSet resultSet = statement.executeQuery()) {
+					while(resultSet.next()) reader.read(resultSet);
+				}
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * @param n How many values, at most the largest size
+	 * @return The smallest of {@link #IN_LIST_SIZES} that fits them.
+	 */
+	private static int inListSize(int n) {
+		for(int size : IN_LIST_SIZES) {
+			if(n <= size) return size;
+		}
+		throw new IllegalArgumentException("Too many values for one IN list: " + n);
+	}
+
+	/**
+	 * @param n How many values
+	 * @return A parenthesized list of n parameters for an IN clause.
+	 */
+	private static String placeholders(int n) {
+		StringBuilder sb = new StringBuilder("(");
+		for(int i = 0; i < n; i++) sb.append(i == 0 ? "?" : ", ?");
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * Adds many rows to the library's University table in one batch.
+	 * Their emphases and extra attributes are not added.
+	 * @param universities Universities whose names aren't taken.
+	 */
+	public void insertUniversityRows(Collection<University> universities) {
+		if(universities == null) throw new IllegalArgumentException();
+		if(universities.isEmpty()) return;
+		withConnection(statements -> {
+			PreparedStatement statement = statements.prepare(INSERT_UNIVERSITY_SQL);
+			for(University u : universities) {
+				statement.setString(1, u.getName());
+				statement.setString(2, u.getState());
+				statement.setString(3, u.getLocation());
+				statement.setString(4, u.getControl());
+				statement.setInt(5, u.getNumStudents());
+				statement.setDouble(6, u.getPercentFemale());
+				statement.setDouble(7, u.getSatVerbal());
+				statement.setDouble(8, u.getSatMath());
+				statement.setDouble(9, u.getExpenses());
+				statement.setDouble(10, u.getPercentFinancialAid());
+				statement.setInt(11, u.getNumApplicants());
+				statement.setDouble(12, u.getPercentAdmitted());
+				statement.setDouble(13, u.getPercentEnrolled());
+				statement.setInt(14, u.getScaleAcademics());
+				statement.setInt(15, u.getScaleSocial());
+				statement.setInt(16, u.getScaleQualityOfLife());
+				statement.addBatch();
+			}
+			try {
+				statement.executeBatch();
+			}
+			finally {
+				statement.clearBatch();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Adds emphases to many universities in one batch.
+	 * @param pairs Pairs of (university name, emphasis) that don't exist yet.
+	 */
+	public void addEmphasisPairs(List<String[]> pairs) {
+		if(pairs == null) throw new IllegalArgumentException();
+		if(pairs.isEmpty()) return;
+		withConnection(statements -> {
+			PreparedStatement statement = statements.prepare("INSERT INTO Emphasis (School, Area) VALUES (?, ?)");
+			for(String[] pair : pairs) {
+				statement.setString(1, pair[0]);
+				statement.setString(2, pair[1]);
+				statement.addBatch();
+			}
+			try {
+				statement.executeBatch();
+			}
+			finally {
+				statement.clearBatch();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Gets one university's emphases from the library's Emphasis table.
+	 * @param uniName Name of the university.
+	 * @return The emphases, sorted.
+	 */
+	public List<String> getEmphases(String uniName) {
+		if(uniName == null) throw new IllegalArgumentException();
+		return withConnection(statements -> {
+			String sql = "SELECT Area FROM Emphasis WHERE School = ? ORDER BY Area";
+			List<String> list = new ArrayList<>();
+			PreparedStatement statement = statements.prepare(sql);
+			statement.setString(1, uniName);
+			try(ResultSet resultSet = statement.executeQuery()) {
+				while(resultSet.next()) list.add(resultSet.getString(1));
+			}
+			return list;
+		});
+	}
+
+	/**
+	 * Gets some universities' emphases from the library's Emphasis table in one query.
+	 * @param uniNames Names of the universities.
+	 * @return A map of university names to their sorted emphases.
+	 *         Universities with no emphases are not in the map.
+	 */
+	public Map<String, List<String>> getEmphases(Collection<String> uniNames) {
+		if(uniNames == null) throw new IllegalArgumentException();
+		Map<String, List<String>> map = new HashMap<>();
+		// Each school is in only one list, so its emphases stay sorted
+		queryIn("SELECT School, Area FROM Emphasis WHERE School IN ", " ORDER BY School, Area", uniNames,
+				resultSet -> {
+					String school = resultSet.getString(1);
+					List<String> list = map.get(school);
+					if(list == null) {
+						list = new ArrayList<>(3);
+						map.put(school, list);
+					}
+					list.add(resultSet.getString(2));
+				});
+		return map;
+	}
+
+	/**
+	 * Adds emphases to a university in one batch.
+	 * @param uniName Name of the university.
+	 * @param emphases Emphases it doesn't have yet.
+	 * @return {@code true} if every emphasis was added.
+	 */
+	public boolean addEmphases(String uniName, Collection<String> emphases) {
+		String sql = "INSERT INTO Emphasis (School, Area) VALUES (?, ?)";
+		return emphasisBatch(sql, uniName, emphases);
+	}
+
+	/**
+	 * Removes emphases from a university in one batch.
+	 * @param uniName Name of the university.
+	 * @param emphases Emphases it has.
+	 * @return {@code true} if every emphasis was removed.
+	 */
+	public boolean removeEmphases(String uniName, Collection<String> emphases) {
+		String sql = "DELETE FROM Emphasis WHERE School = ? AND Area = ?";
+		return emphasisBatch(sql, uniName, emphases);
+	}
+
+	private boolean emphasisBatch(String sql, String uniName, Collection<String> emphases) {
+		if(uniName == null || emphases == null) throw new IllegalArgumentException();
+		if(emphases.isEmpty()) return true;
+		return withConnection(statements -> {
+			PreparedStatement statement = statements.prepare(sql);
+			for(String e : emphases) {
+				statement.setString(1, uniName);
+				statement.setString(2, e);
+				statement.addBatch();
+			}
+			int[] counts;
+			try {
+				counts = statement.executeBatch();
+			}
+			finally {
+				statement.clearBatch();
+			}
+			for(int c : counts) {
+				// A rewritten batch reports SUCCESS_NO_INFO instead of a count
+				if(c == 0 || c == Statement.EXECUTE_FAILED) return false;
+			}
+			return true;
+		});
+	}
+
+	/**
+	 * Gets the schools one user has saved from the library's
+	 * MySavedSchools table.
+	 * @param username Username
+	 * @return The user's saved schools, sorted by name.
+	 */
+	public List<String> getSavedSchools(String username) {
+		if(username == null) throw new IllegalArgumentException();
+		return withConnection(statements -> {
+			String sql = "SELECT School FROM MySavedSchools WHERE User = ? ORDER BY School";
+			List<String> list = new ArrayList<>();
+			PreparedStatement statement = statements.prepare(sql);
+			statement.setString(1, username);
+			try(ResultSet resultSet = statement.executeQuery()) {
+				while(resultSet.next()) list.add(resultSet.getString(1));
+			}
+			return list;
+		});
+	}
+
+	/**
+	 * Saves many schools to users' lists in one batch.
+	 * Pairs that are already saved are skipped.
+	 * @param saves Pairs of (username, school name).
+	 */
+	public void saveSchools(List<String[]> saves) {
+		if(saves == null) throw new IllegalArgumentException();
+		if(saves.isEmpty()) return;
+		withConnection(statements -> {
+			String sql = "INSERT IGNORE INTO MySavedSchools (User, School) VALUES (?, ?)";
+			PreparedStatement statement = statements.prepare(sql);
+			for(String[] pair : saves) {
+				statement.setString(1, pair[0]);
+				statement.setString(2, pair[1]);
+				statement.addBatch();
+			}
+			try {
+				statement.executeBatch();
+			}
+			finally {
+				statement.clearBatch();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Overwrites many rows of the library's User table in one batch.
+	 * @param users Users to write, matched by username.
+	 */
+	public void editUsers(Collection<User> users) {
+		if(users == null) throw new IllegalArgumentException();
+		if(users.isEmpty()) return;
+		withConnection(statements -> {
+			String sql = "UPDATE User SET FirstName = ?, LastName = ?, Password = ?, Type = ?, Status = ? "
+					+ "WHERE Username = ?";
+			PreparedStatement statement = statements.prepare(sql);
+			for(User u : users) {
+				statement.setString(1, u.getFirstName());
+				statement.setString(2, u.getLastName());
+				statement.setString(3, u.getPassword());
+				statement.setString(4, u.isAdmin() ? "a" : "u");
+				statement.setString(5, u.isActivated() ? "Y" : "N");
+				statement.setString(6, u.getUsername());
+				statement.addBatch();
+			}
+			try {
+				statement.executeBatch();
+			}
+			finally {
+				statement.clearBatch();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Gets rows of the library's User table in username order,
+	 * starting after a username.
+	 * @param afterUsername Only users after this one, or {@code null} for the first users.
+	 * @param limit Most users to get.
+	 * @return Rows in the same column order as {@code UniversityDBLibrary.user_getUsers()}.
+	 */
+	public List<String[]> getUserRowsAfter(String afterUsername, int limit) {
+		return withConnection(statements -> {
+			String sql = "SELECT FirstName, LastName, Username, Password, Type, Status FROM User "
+					+ "WHERE Username > ? ORDER BY Username LIMIT ?";
+			PreparedStatement statement = statements.prepare(sql);
+			statement.setString(1, afterUsername == null ? "" : afterUsername);
+			statement.setInt(2, limit);
+			List<String[]> rows = new ArrayList<>();
+			try(ResultSet resultSet = statement.executeQuery()) {
+				while(resultSet.next()) {
+					String[] row = new String[6];
+					for(int i = 0; i < row.length; i++) row[i] = resultSet.getString(i + 1);
+					rows.add(row);
+				}
+			}
+			return rows;
+		});
+	}
+
+	/**
+	 * Counts the rows of the library's tables and ours in one query.
+	 * @return How many rows User, MySavedSchools, University, Emphasis
+	 *         and UnivExt have, in that order.
+	 */
+	public long[] countRows() {
+		return withConnection(statements -> {
+			String sql = "SELECT (SELECT COUNT(*) FROM User), (SELECT COUNT(*) FROM MySavedSchools), "
+					+ "(SELECT COUNT(*) FROM University), (SELECT COUNT(*) FROM Emphasis), "
+					+ "(SELECT COUNT(*) FROM UnivExt)";
+			PreparedStatement statement = statements.prepare(sql);
+			long[] counts = new long[5];
+			try(ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				for(int i = 0; i < counts.length; i++) counts[i] = resultSet.getLong(i + 1);
+			}
+			return counts;
+		});
+	}
+
 	/**
 	 * Removes a university row and all its data.
 	 * @param uniName University name.
@@ -195,17 +914,13 @@ public class DBExtension implements AutoCloseable {
 	 *         if a row in this DB existed.
 	 */
 	public boolean removeUniversityRow(String uniName) {
-		try {
-			if(uniName == null) throw new IllegalArgumentException();
-			if(conn == null) throw new IllegalStateException(NOT_CONN_MSG);
-			
+		if(uniName == null) throw new IllegalArgumentException();
+		return withConnection(statements -> {
 			String sql = "DELETE FROM UnivExt WHERE School = ?";
-			PreparedStatement statement = conn.prepareStatement(sql);
+			PreparedStatement statement = statements.prepare(sql);
 			statement.setString(1, uniName);
 			return statement.executeUpdate() == 1;
-		} catch(SQLException e) {
-			throw new IllegalStateException(e);
-		}
+		});
 	}
-	
+
 }
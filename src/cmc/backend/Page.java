@@ -0,0 +1,82 @@
+package cmc.backend;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a listing that is read a page at a time.
+ *
+ * Pages are keyed rather than numbered: the cursor is the key of the
+ * last item on the page, and the next page is everything after that
+ * key. Rows added or removed between calls therefore never make a
+ * page skip or repeat an item that was already there.
+ * @param <T> Item type
+ */
+public final class Page<T> {
+
+	private final List<T> items;
+	private final String nextCursor;
+
+	/**
+	 * Creates a page.
+	 * @param items Items on this page, in key order
+	 * @param nextCursor Key to ask for the next page after, or
+	 *        {@code null} if this is the last page.
+	 */
+	public Page(List<T> items, String nextCursor) {
+		if(items == null) throw new IllegalArgumentException("items cannot be null.");
+		this.items = Collections.unmodifiableList(items);
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * Builds a page from up to {@code limit + 1} items read after a cursor.
+	 * The extra item, if it was found, only says there's another page
+	 * and is dropped.
+	 * @param read Items read in key order, at most {@code limit + 1}
+	 * @param limit Most items on a page
+	 * @param key Gets an item's key
+	 * @return The page.
+	 */
+	public static <T> Page<T> of(List<T> read, int limit, Function<? super T, String> key) {
+		if(read.size() <= limit) return new Page<>(read, null);
+		List<T> items = read.subList(0, limit);
+		return new Page<>(items, key.apply(items.get(limit - 1)));
+	}
+
+	/**
+	 * Checks a page size and works out how many items to read for it,
+	 * which is one more than the page holds so {@link #of} can tell
+	 * whether there's another page.
+	 * @param limit Most items on a page
+	 * @return How many items to read.
+	 * @throws IllegalArgumentException if limit isn't positive.
+	 */
+	public static int readAhead(int limit) {
+		if(limit <= 0) throw new IllegalArgumentException("limit must be positive.");
+		return limit == Integer.MAX_VALUE ? limit : limit + 1;
+	}
+
+	/**
+	 * @return the items on this page, which can't be modified
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return the cursor for the next page or {@code null} if this is the last one
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 * @return {@code true} if there is another page after this one
+	 */
+	public boolean hasMore() {
+		return nextCursor != null;
+	}
+
+}
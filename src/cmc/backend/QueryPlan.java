@@ -0,0 +1,119 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import cmc.backend.QueryPlanner.Predicate;
+
+/**
+ * How {@link SearchController#advancedSearch(SearchCriteria)} finds its
+ * universities in one snapshot of the catalog: the driver that picks the
+ * first rows, either an index or a scan of every row, then the filters
+ * those rows go through in order. Get one with
+ * {@link SearchController#explain(SearchCriteria)} to see why a search
+ * is fast or slow.
+ */
+public final class QueryPlan {
+
+	private final UniversityCatalog.Snapshot snapshot;
+	// null to scan every row
+	private final Predicate driver;
+	private final List<Predicate> filters;
+	private final int estimatedRows;
+	// A criterion no row can match, so nothing is read
+	private final boolean nothing;
+
+	QueryPlan(UniversityCatalog.Snapshot snapshot, Predicate driver, List<Predicate> filters, int estimatedRows) {
+		this(snapshot, driver, filters, estimatedRows, false);
+	}
+
+	private QueryPlan(UniversityCatalog.Snapshot snapshot, Predicate driver, List<Predicate> filters,
+			int estimatedRows, boolean nothing) {
+		this.snapshot = snapshot;
+		this.driver = driver;
+		this.filters = filters;
+		this.estimatedRows = estimatedRows;
+		this.nothing = nothing;
+	}
+
+	/**
+	 * @param snapshot Snapshot
+	 * @param empty Predicate that no row matches
+	 * @return a plan that reads nothing
+	 */
+	static QueryPlan nothing(UniversityCatalog.Snapshot snapshot, Predicate empty) {
+		return new QueryPlan(snapshot, empty, Collections.<Predicate>emptyList(), 0, true);
+	}
+
+	/**
+	 * @return the snapshot this plan searches
+	 */
+	UniversityCatalog.Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return how the first rows are found, such as
+	 *         {@code index on STATE = IOWA (12 rows)}
+	 */
+	public String getDriver() {
+		if(nothing) return "none: " + driver + " matches no university";
+		if(driver == null) return "scan of all " + snapshot.size() + " universities";
+		return "index on " + driver + " (" + driver.estimate() + " rows)";
+	}
+
+	/**
+	 * @return the criteria the driver's rows are checked against, in the order they are checked
+	 */
+	public List<String> getFilters() {
+		List<String> list = new ArrayList<>(filters.size());
+		for(Predicate p : filters) {
+			list.add(p + " (" + (p.exact() ? "" : "~") + p.estimate() + " rows, cost " + p.cost() + ")");
+		}
+		return list;
+	}
+
+	/**
+	 * @return how many universities the search is expected to find
+	 */
+	public int getEstimatedRows() {
+		return estimatedRows;
+	}
+
+	/**
+	 * @return {@code true} if a criterion is known to match nothing,
+	 *         so the search doesn't read any rows
+	 */
+	public boolean matchesNothing() {
+		return nothing;
+	}
+
+	/**
+	 * Runs the plan. The plan doesn't change, so it can be run any number of times.
+	 * @return The matching rows of the snapshot, in row order.
+	 */
+	int[] execute() {
+		if(nothing) return new int[0];
+		int[] rows;
+		if(driver != null) rows = driver.rows();
+		else {
+			rows = new int[snapshot.size()];
+			for(int i = 0; i < rows.length; i++) rows[i] = i;
+		}
+
+		int n = rows.length;
+		for(int f = 0; f < filters.size() && n > 0; f++) n = filters.get(f).filter(rows, n);
+		if(driver != null && !driver.sorted()) Arrays.sort(rows, 0, n);
+		return n == rows.length ? rows : Arrays.copyOf(rows, n);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("driver: ").append(getDriver());
+		for(String f : getFilters()) sb.append("\nfilter: ").append(f);
+		return sb.append("\nestimated: ").append(estimatedRows).append(" rows").toString();
+	}
+
+}
@@ -0,0 +1,407 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+
+import cmc.backend.entities.EmphasisDictionary;
+import cmc.backend.entities.University;
+
+/**
+ * Plans an {@link SearchController#advancedSearch(SearchCriteria)} over
+ * one snapshot of the catalog.
+ *
+ * Every criterion becomes a predicate with an estimate of how many rows
+ * match it, taken from the statistics {@link CatalogColumns} keeps: the
+ * state posting lists, the sorted indexes and the counts of each
+ * location, control and emphasis are all exact. Only text searches have
+ * no statistics and are guessed at a tenth of the catalog. The predicate
+ * with an index and the fewest rows drives, unless it would visit every
+ * row anyway, and the rest filter its rows cheapest first.
+ */
+final class QueryPlanner {
+
+	/**
+	 * Share of rows a text search is guessed to match.
+	 */
+	static final double TEXT_SELECTIVITY = 0.1;
+
+	// Relative cost of testing one row
+	private static final int CODE_COST = 1;
+	private static final int NUMBER_COST = 1;
+	private static final int EMPHASIS_COST = 2;
+	private static final int TEXT_COST = 10;
+
+	private QueryPlanner() {
+	}
+
+	/**
+	 * One criterion bound to the columns of a snapshot.
+	 */
+	abstract static class Predicate {
+		private final String description;
+		private final int cost;
+		private final int estimate;
+		private final boolean exact;
+
+		Predicate(String description, int cost, int estimate, boolean exact) {
+			this.description = description;
+			this.cost = cost;
+			this.estimate = estimate;
+			this.exact = exact;
+		}
+
+		/**
+		 * Keeps the rows that match, in the order they were in, at the front
+		 * of the array. Every predicate has its own copy of this loop, so no
+		 * row costs a virtual call and the JIT sees one receiver type per loop.
+		 * @param rows Rows of the snapshot
+		 * @param n How many of rows to check
+		 * @return How many matched.
+		 */
+		abstract int filter(int[] rows, int n);
+
+		/**
+		 * Reads the matching rows from an index.
+		 * @return A new array of the rows, or {@code null} if there's no index.
+		 */
+		int[] rows() {
+			return null;
+		}
+
+		/**
+		 * @return {@code true} if {@link #rows()} are in row order
+		 */
+		boolean sorted() {
+			return false;
+		}
+
+		/**
+		 * @return {@code true} if {@link #rows()} has an index to read
+		 */
+		boolean indexed() {
+			return false;
+		}
+
+		/**
+		 * @return the cost of testing one row, relative to the other predicates
+		 */
+		int cost() {
+			return cost;
+		}
+
+		/**
+		 * @return how many rows are expected to match
+		 */
+		int estimate() {
+			return estimate;
+		}
+
+		/**
+		 * @return {@code true} if {@link #estimate()} is a count rather than a guess
+		 */
+		boolean exact() {
+			return exact;
+		}
+
+		@Override
+		public String toString() {
+			return description;
+		}
+	}
+
+	private static final class StatePredicate extends Predicate {
+		private final CatalogColumns columns;
+		private final int code;
+
+		StatePredicate(CatalogColumns columns, String state) {
+			this(columns, state, columns.states.codeOf(state));
+		}
+
+		private StatePredicate(CatalogColumns columns, String state, int code) {
+			super("STATE = " + state, CODE_COST, columns.rowsInState(code).length, true);
+			this.columns = columns;
+			this.code = code;
+		}
+
+		@Override
+		int filter(int[] rows, int n) {
+			int[] state = columns.state;
+			int code = this.code;
+			int kept = 0;
+			for(int i = 0; i < n; i++) {
+				int row = rows[i];
+				if(state[row] == code) rows[kept++] = row;
+			}
+			return kept;
+		}
+
+		@Override
+		int[] rows() {
+			return columns.rowsInState(code).clone();
+		}
+
+		@Override
+		boolean sorted() {
+			return true;
+		}
+
+		@Override
+		boolean indexed() {
+			return true;
+		}
+	}
+
+	/**
+	 * Location or control, which have no posting lists.
+	 */
+	private static final class CodePredicate extends Predicate {
+		private final int[] codes;
+		private final int code;
+
+		CodePredicate(String description, int[] codes, int code, int estimate) {
+			super(description, CODE_COST, estimate, true);
+			this.codes = codes;
+			this.code = code;
+		}
+
+		@Override
+		int filter(int[] rows, int n) {
+			int[] codes = this.codes;
+			int code = this.code;
+			int kept = 0;
+			for(int i = 0; i < n; i++) {
+				int row = rows[i];
+				if(codes[row] == code) rows[kept++] = row;
+			}
+			return kept;
+		}
+	}
+
+	private abstract static class RangePredicate extends Predicate {
+		private final SortedIndex index;
+		private final int from;
+		private final int to;
+		final double min;
+		final double max;
+
+		RangePredicate(Range range, SortedIndex index, int from, int to) {
+			super(range.toString(), NUMBER_COST, Math.max(to - from, 0), true);
+			this.index = index;
+			this.from = from;
+			this.to = to;
+			min = range.getMin();
+			max = range.getMax();
+		}
+
+		@Override
+		int[] rows() {
+			return index.rows(from, to);
+		}
+
+		@Override
+		boolean indexed() {
+			return true;
+		}
+	}
+
+	private static final class IntRangePredicate extends RangePredicate {
+		private final int[] values;
+
+		IntRangePredicate(Range range, SortedIndex index, int from, int to, int[] values) {
+			super(range, index, from, to);
+			this.values = values;
+		}
+
+		@Override
+		int filter(int[] rows, int n) {
+			int[] values = this.values;
+			double min = this.min;
+			double max = this.max;
+			int kept = 0;
+			for(int i = 0; i < n; i++) {
+				int row = rows[i];
+				double v = values[row];
+				if(v != SortedIndex.UNKNOWN && v >= min && v <= max) rows[kept++] = row;
+			}
+			return kept;
+		}
+	}
+
+	private static final class DoubleRangePredicate extends RangePredicate {
+		private final double[] values;
+
+		DoubleRangePredicate(Range range, SortedIndex index, int from, int to, double[] values) {
+			super(range, index, from, to);
+			this.values = values;
+		}
+
+		@Override
+		int filter(int[] rows, int n) {
+			double[] values = this.values;
+			double min = this.min;
+			double max = this.max;
+			int kept = 0;
+			for(int i = 0; i < n; i++) {
+				int row = rows[i];
+				double v = values[row];
+				if(v != SortedIndex.UNKNOWN && v >= min && v <= max) rows[kept++] = row;
+			}
+			return kept;
+		}
+	}
+
+	private static final class EmphasisPredicate extends Predicate {
+		private final BitSet[] emphases;
+		private final int id;
+
+		EmphasisPredicate(CatalogColumns columns, String emphasis, int id) {
+			super("EMPHASES has " + emphasis, EMPHASIS_COST, columns.emphasisCount(id), true);
+			this.emphases = columns.emphases;
+			this.id = id;
+		}
+
+		@Override
+		int filter(int[] rows, int n) {
+			int id = this.id;
+			if(id < 0) return 0;
+			BitSet[] emphases = this.emphases;
+			int kept = 0;
+			for(int i = 0; i < n; i++) {
+				int row = rows[i];
+				if(emphases[row].get(id)) rows[kept++] = row;
+			}
+			return kept;
+		}
+	}
+
+	private static final class TextPredicate extends Predicate {
+		private final List<University> universities;
+		private final UniversityColumn column;
+		private final String text;
+
+		TextPredicate(List<University> universities, UniversityColumn column, String text) {
+			super(column + " contains " + text, TEXT_COST,
+					(int)Math.ceil(universities.size() * TEXT_SELECTIVITY), false);
+			this.universities = universities;
+			this.column = column;
+			this.text = text;
+		}
+
+		@Override
+		int filter(int[] rows, int n) {
+			int kept = 0;
+			for(int i = 0; i < n; i++) {
+				int row = rows[i];
+				if(containsIgnoreCase(column.valueOf(universities.get(row)), text)) rows[kept++] = row;
+			}
+			return kept;
+		}
+	}
+
+	/**
+	 * Checks for text without making upper-cased copies of either string.
+	 * @param s String to look in, may be {@code null}
+	 * @param text Text to find
+	 * @return {@code true} if s contains the text ignoring case.
+	 */
+	static boolean containsIgnoreCase(String s, String text) {
+		if(s == null) return false;
+		int last = s.length() - text.length();
+		for(int i = 0; i <= last; i++) {
+			if(s.regionMatches(true, i, text, 0, text.length())) return true;
+		}
+		return false;
+	}
+
+	private static Predicate codes(String column, CatalogColumns.Dictionary dictionary,
+			int[] codes, IntUnaryOperator count, String value) {
+		int code = dictionary.codeOf(value);
+		return new CodePredicate(column + " = " + value, codes, code, count.applyAsInt(code));
+	}
+
+	private static Predicate range(Range range, CatalogColumns columns) {
+		SortedIndex index = columns.sortedIndex(range.getColumn());
+		int from = index.from(range.getMin());
+		int to = index.to(range.getMax());
+		int[] ints = columns.ints(range.getColumn());
+		if(ints != null) return new IntRangePredicate(range, index, from, to, ints);
+		return new DoubleRangePredicate(range, index, from, to, columns.doubles(range.getColumn()));
+	}
+
+	/**
+	 * Normalizes every criterion that is set, once, into something that
+	 * binds it to any snapshot's columns. Criteria that aren't set have
+	 * nothing in the list, so they cost nothing when the query runs.
+	 * @param criteria Criteria
+	 * @return A binder for each criterion that is set.
+	 */
+	static List<Function<UniversityCatalog.Snapshot, Predicate>> compile(SearchCriteria criteria) {
+		List<Function<UniversityCatalog.Snapshot, Predicate>> list = new ArrayList<>();
+		if(criteria.getState() != null) {
+			String state = criteria.getState().toUpperCase();
+			list.add(snap -> new StatePredicate(snap.getColumns(), state));
+		}
+		if(criteria.getLocation() != null) {
+			// Universities keep these in capitals, so one code matches ignoring case
+			String location = criteria.getLocation().toUpperCase();
+			list.add(snap -> {
+				CatalogColumns c = snap.getColumns();
+				return codes("LOCATION", c.locations, c.location, c::locationCount, location);
+			});
+		}
+		if(criteria.getControl() != null) {
+			String control = criteria.getControl().toUpperCase();
+			list.add(snap -> {
+				CatalogColumns c = snap.getColumns();
+				return codes("CONTROL", c.controls, c.control, c::controlCount, control);
+			});
+		}
+		for(Range r : criteria.getRanges()) list.add(snap -> range(r, snap.getColumns()));
+		for(String e : criteria.getEmphases()) {
+			// Ids are never reused, so one found now stays right
+			int id = EmphasisDictionary.lookup(e);
+			list.add(snap -> new EmphasisPredicate(snap.getColumns(), e, id >= 0 ? id : EmphasisDictionary.lookup(e)));
+		}
+		text(list, UniversityColumn.NAME, criteria.getName());
+		text(list, UniversityColumn.WEBPAGE_URL, criteria.getWebpageUrl());
+		text(list, UniversityColumn.IMAGE_URL, criteria.getImageUrl());
+		return list;
+	}
+
+	private static void text(List<Function<UniversityCatalog.Snapshot, Predicate>> list,
+			UniversityColumn column, String text) {
+		if(text != null) list.add(snap -> new TextPredicate(snap.getUniversities(), column, text));
+	}
+
+	/**
+	 * Plans a search from predicates already bound to a snapshot.
+	 * @param predicates Predicates, which are not modified
+	 * @param snap Snapshot they are bound to
+	 * @return The plan.
+	 */
+	static QueryPlan plan(List<Predicate> predicates, UniversityCatalog.Snapshot snap) {
+		int size = snap.size();
+		// A predicate that surely matches nothing is the whole plan
+		for(Predicate p : predicates) {
+			if(p.exact() && p.estimate() == 0) return QueryPlan.nothing(snap, p);
+		}
+
+		Predicate driver = null;
+		for(Predicate p : predicates) {
+			if(p.indexed() && p.estimate() < size && (driver == null || p.estimate() < driver.estimate())) driver = p;
+		}
+		List<Predicate> filters = new ArrayList<>(predicates);
+		filters.remove(driver);
+		filters.sort(Comparator.comparingInt(Predicate::cost).thenComparingInt(Predicate::estimate));
+
+		// Criteria are assumed to be independent
+		double rows = size;
+		for(Predicate p : predicates) rows *= size == 0 ? 0 : (double)p.estimate() / size;
+		return new QueryPlan(snap, driver, filters, (int)Math.round(rows));
+	}
+
+}
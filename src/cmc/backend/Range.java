@@ -0,0 +1,89 @@
+package cmc.backend;
+
+/**
+ * A range of values of one numeric {@link UniversityColumn}, such as
+ * between 5000 and 15000 students. Both ends are included. Universities
+ * whose value is unknown (-1) are never in a range.
+ */
+public final class Range {
+
+	private final UniversityColumn column;
+	private final double min;
+	private final double max;
+
+	private Range(UniversityColumn column, double min, double max) {
+		if(column == null) throw new IllegalArgumentException("column cannot be null.");
+		if(!column.isNumeric()) throw new IllegalArgumentException(column + " is not numeric.");
+		if(Double.isNaN(min) || Double.isNaN(max)) throw new IllegalArgumentException("Bounds cannot be NaN.");
+		if(min > max) throw new IllegalArgumentException("min cannot be more than max.");
+		this.column = column;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * @param column A numeric column
+	 * @param min Smallest value, included
+	 * @param max Largest value, included
+	 * @return The range.
+	 * @throws IllegalArgumentException if the column isn't numeric or min is more than max.
+	 */
+	public static Range between(UniversityColumn column, double min, double max) {
+		return new Range(column, min, max);
+	}
+
+	/**
+	 * @param column A numeric column
+	 * @param min Smallest value, included
+	 * @return The range of every value from min up.
+	 * @throws IllegalArgumentException if the column isn't numeric.
+	 */
+	public static Range atLeast(UniversityColumn column, double min) {
+		return new Range(column, min, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * @param column A numeric column
+	 * @param max Largest value, included
+	 * @return The range of every known value up to max.
+	 * @throws IllegalArgumentException if the column isn't numeric.
+	 */
+	public static Range atMost(UniversityColumn column, double max) {
+		return new Range(column, Double.NEGATIVE_INFINITY, max);
+	}
+
+	/**
+	 * @param v A value of the column
+	 * @return {@code true} if it is known and in the range
+	 */
+	boolean matches(double v) {
+		return v != SortedIndex.UNKNOWN && v >= min && v <= max;
+	}
+
+	/**
+	 * @return the column this is a range of
+	 */
+	public UniversityColumn getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return the smallest value in the range
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * @return the largest value in the range
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return column + " in [" + min + ", " + max + "]";
+	}
+
+}
@@ -13,6 +13,13 @@ import cmc.backend.entities.University;
  * and then filters or analyzes it according to the specific search requirements, including
  * finding schools with similar characteristics.
  *
+ * Both searches run over the catalog's {@link CatalogColumns}, so only
+ * the universities that match are copied out of the cache. A search by
+ * state only visits the rows in that state's posting list, and a range
+ * search starts from the narrowest range's slice of a sorted index.
+ * An advanced search over any attributes is planned by {@link QueryPlanner},
+ * and every search runs as a {@link CompiledQuery}.
+ *
  * @author Nasir Mirza
  * @version Apr 14, 2025 // Updated version date based on previous file context
  */
@@ -51,35 +58,62 @@ public class SearchController {
      *         Returns an empty list if no matches are found or if the underlying data source is empty.
      */
     public List<University> search(String state, int stuNum) {
-        List<University> schoolList = universityController.getAllSchools();
-        List<University> filteredList = new ArrayList<University>();
-
-        // Normalize the search state to uppercase for consistent, case-insensitive comparison.
-        // Safely handles null input for the state parameter.
-        String searchState = (state == null) ? "" : state.toUpperCase();
-
-        for (int i = 0; i < schoolList.size(); i++) {
-            University uni = schoolList.get(i);
-
-            // Prepare the university's state for comparison, handling potential null values.
-            // Assuming database states are consistently stored (e.g., uppercase).
-            String uniState = uni.getState() == null ? "" : uni.getState().toUpperCase();
+        // Filters that are off are left out when the query is compiled, so
+        // the row loops never check them. An empty state is no criterion.
+        SearchCriteria criteria = new SearchCriteria().withState(state);
+        if (stuNum >= 0) {
+            criteria.withRange(Range.between(UniversityColumn.NUM_STUDENTS, stuNum, stuNum));
+        }
+        return search(CompiledQuery.compile(criteria));
+    }
 
-            // Determine if the state criterion should be ignored or if it matches.
-            boolean ignoreState = searchState.isEmpty(); // Use isEmpty for clarity
-            boolean stateMatch = ignoreState || uniState.equals(searchState);
+    /**
+     * Runs a compiled query against the catalog as it is now. A query that is run
+     * again before the catalog changes reuses its plan.
+     *
+     * @param query The query, from {@link CompiledQuery#compile(SearchCriteria)}
+     * @return A {@link List} of copies of the matching universities, in name order.
+     */
+    public List<University> search(CompiledQuery query) {
+        return query.execute(universityController.getCatalog().getSnapshot());
+    }
 
-            // Determine if the student number criterion should be ignored or if it matches.
-            boolean ignoreStuNum = stuNum < 0;
-            boolean stuNumMatch = ignoreStuNum || uni.getNumStudents() == stuNum;
+    /**
+     * Runs a compiled query against the catalog as it is now and returns one page
+     * of the results, keyed by university name like
+     * {@link UniversityController#pageUniversities(String, int)}.
+     *
+     * @param query The query, from {@link CompiledQuery#compile(SearchCriteria)}
+     * @param afterName Only universities after this name are on the page,
+     *                  or {@code null} to start from the first
+     * @param limit The most universities on the page
+     * @return The page of copies, in name order.
+     * @throws IllegalArgumentException if limit isn't positive.
+     */
+    public Page<University> searchPage(CompiledQuery query, String afterName, int limit) {
+        return query.page(universityController.getCatalog().getSnapshot(), afterName, limit);
+    }
 
-            // Only add the university to the results if all active criteria are met.
-            if (stateMatch && stuNumMatch) {
-                filteredList.add(uni);
-            }
+    /**
+     * Finds the universities whose numeric attributes fall in every given range,
+     * such as between 5000 and 15000 students with expenses of at most 40000.
+     * Universities whose value for a range's attribute is unknown never match it.
+     *
+     * This is an {@link #advancedSearch(SearchCriteria)} of just the ranges: each is
+     * counted with two binary searches of its attribute's sorted index, the rows of
+     * the range with the fewest are read from its index, and the other ranges are
+     * checked against those rows, so a narrow range keeps the work small however
+     * wide the others are.
+     *
+     * @param ranges The ranges to match. With none, every university matches.
+     * @return A {@link List} of copies of the matching universities, in name order.
+     */
+    public List<University> rangeSearch(Range... ranges) {
+        SearchCriteria criteria = new SearchCriteria();
+        for (Range range : ranges) {
+            criteria.withRange(range);
         }
-
-        return filteredList;
+        return advancedSearch(criteria);
     }
 
     // <<< NEW METHOD START >>>
@@ -104,7 +138,8 @@ public class SearchController {
             return new ArrayList<>(); // Return an empty list, as no comparison is possible.
         }
 
-        List<University> allUniversities = universityController.getAllSchools();
+        UniversityCatalog.Snapshot snap = universityController.getCatalog().getSnapshot();
+        CatalogColumns columns = snap.getColumns();
         List<University> similarUniversities = new ArrayList<>();
 
         // --- Define Similarity Criteria ---
@@ -115,97 +150,97 @@ public class SearchController {
         final int academicScaleTolerance = 1;     // Allows academic scale rating within +/- 1 point of the target.
         final int requiredMatches = 3; // Minimum number of criteria that must match for a school to be "similar".
 
-        for (University candidate : allUniversities) {
-            // Ensure we don't compare a university to itself. Check based on name, assuming names are unique identifiers here.
-            // Added null check for targetUniversity name for robustness, although handled by the initial null check.
-            if (targetUniversity.getName() != null &&
-                targetUniversity.getName().equals(candidate.getName())) {
-                continue; // Skip to the next candidate.
+        // --- Prepare the Target ---
+        // Everything about the target is worked out once, so the loop below
+        // only reads the candidates' columns. A criterion is only counted
+        // when the target has valid data for it.
+
+        // The target's own row is skipped if it is in the catalog. Names are unique.
+        int self = targetUniversity.getName() == null ? -1 : snap.indexOf(targetUniversity.getName());
+
+        // Criteria 1-3: Location, Control and State require exact matches, which
+        // compare dictionary codes. A value no candidate has gets NONE and matches nothing.
+        int location = targetCode(columns.locations, targetUniversity.getLocation());
+        int control = targetCode(columns.controls, targetUniversity.getControl());
+        int state = targetCode(columns.states, targetUniversity.getState());
+
+        // Criterion 4: Number of Students within the tolerance range of the target.
+        int targetStudents = targetUniversity.getNumStudents();
+        boolean useStudents = targetStudents > 0;
+        double lowerBound = targetStudents * (1.0 - studentSizeTolerance);
+        double upperBound = targetStudents * (1.0 + studentSizeTolerance);
+
+        // Criterion 5: Combined SAT Score (Verbal + Math). Below 400 means data is missing.
+        double targetSat = targetUniversity.getSatVerbal() + targetUniversity.getSatMath();
+        boolean useSat = targetSat >= 400;
+
+        // Criterion 6: Acceptance Rate (% admitted), on the 0-100 scale of getPercentAdmitted.
+        double targetAdmitted = targetUniversity.getPercentAdmitted();
+        boolean useAdmitted = targetAdmitted >= 0;
+        double admittedTolerance = acceptanceRateTolerance * 100.0;
+
+        // Criterion 7: Academic Scale (typically 1-5).
+        int targetAcademics = targetUniversity.getScaleAcademics();
+        boolean useAcademics = targetAcademics > 0;
+
+        int[] locations = columns.location;
+        int[] controls = columns.control;
+        int[] states = columns.state;
+        int[] students = columns.numStudents;
+        double[] satVerbal = columns.satVerbal;
+        double[] satMath = columns.satMath;
+        double[] admitted = columns.percentAdmitted;
+        int[] academics = columns.scaleAcademics;
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (i == self) {
+                continue;
             }
 
             int similarityScore = 0; // Tracks how many criteria match for the current candidate.
-            // int criteriaConsidered = 0; // Not strictly needed for the current logic but could be useful for debugging/analysis.
-
-            // --- Compare Criteria ---
-            // Each comparison block checks if both target and candidate have valid data for the criterion
-            // before attempting the comparison. It increments the score if they match.
-
-            // Criterion 1: Location Type (e.g., SUBURBAN, URBAN, SMALL-CITY) - Requires exact match.
-            if (isValidValue(targetUniversity.getLocation()) && isValidValue(candidate.getLocation())) {
-                // criteriaConsidered++;
-                if (targetUniversity.getLocation().equals(candidate.getLocation())) {
-                    similarityScore++;
-                }
-            }
-
-            // Criterion 2: Control (e.g., PRIVATE, STATE, CITY) - Requires exact match.
-            if (isValidValue(targetUniversity.getControl()) && isValidValue(candidate.getControl())) {
-                // criteriaConsidered++;
-                if (targetUniversity.getControl().equals(candidate.getControl())) {
-                    similarityScore++;
-                }
-            }
-
-            // Criterion 3: State - Requires exact match.
-            if (isValidValue(targetUniversity.getState()) && isValidValue(candidate.getState())) {
-                // criteriaConsidered++;
-                if (targetUniversity.getState().equals(candidate.getState())) {
-                    similarityScore++;
-                }
-            }
+            if (location != CatalogColumns.NONE && locations[i] == location) similarityScore++;
+            if (control != CatalogColumns.NONE && controls[i] == control) similarityScore++;
+            if (state != CatalogColumns.NONE && states[i] == state) similarityScore++;
 
-            // Criterion 4: Number of Students - Checks if candidate's size is within the tolerance range of the target.
-            // Requires both schools to have a positive student count.
-            if (targetUniversity.getNumStudents() > 0 && candidate.getNumStudents() > 0) {
-                // criteriaConsidered++;
-                double lowerBound = targetUniversity.getNumStudents() * (1.0 - studentSizeTolerance);
-                double upperBound = targetUniversity.getNumStudents() * (1.0 + studentSizeTolerance);
-                if (candidate.getNumStudents() >= lowerBound && candidate.getNumStudents() <= upperBound) {
-                    similarityScore++;
-                }
+            if (useStudents) {
+                int n = students[i];
+                if (n > 0 && n >= lowerBound && n <= upperBound) similarityScore++;
             }
-
-            // Criterion 5: Combined SAT Score (Verbal + Math) - Checks if scores are within tolerance.
-            // Requires both schools to have a plausible combined score (>= 400). Assumes -1 indicates missing data.
-            double targetSat = targetUniversity.getSatVerbal() + targetUniversity.getSatMath();
-            double candidateSat = candidate.getSatVerbal() + candidate.getSatMath();
-            // Check if scores seem valid (not resulting from default -1 values)
-            if (targetSat >= 400 && candidateSat >= 400) { // Basic validity check for combined score
-                // criteriaConsidered++;
-                if (Math.abs(targetSat - candidateSat) <= satTolerance) {
-                    similarityScore++;
-                }
+            if (useSat) {
+                double candidateSat = satVerbal[i] + satMath[i];
+                if (candidateSat >= 400 && Math.abs(targetSat - candidateSat) <= satTolerance) similarityScore++;
             }
-
-            // Criterion 6: Acceptance Rate (% admitted) - Checks if rates are within tolerance.
-            // Requires both schools to have a non-negative acceptance rate (0% to 100%). Assumes -1 indicates missing data.
-            if (targetUniversity.getPercentAdmitted() >= 0 && candidate.getPercentAdmitted() >= 0) {
-                // criteriaConsidered++;
-                 // Convert percentage points tolerance (0.15) to the scale of getPercentAdmitted (0-100)
-                if (Math.abs(targetUniversity.getPercentAdmitted() - candidate.getPercentAdmitted()) <= (acceptanceRateTolerance * 100.0)) {
-                    similarityScore++;
-                }
+            if (useAdmitted) {
+                double a = admitted[i];
+                if (a >= 0 && Math.abs(targetAdmitted - a) <= admittedTolerance) similarityScore++;
             }
-
-            // Criterion 7: Academic Scale (typically 1-5) - Checks if ratings are within tolerance.
-            // Requires both schools to have a positive academic scale rating. Assumes -1 indicates missing data.
-            if (targetUniversity.getScaleAcademics() > 0 && candidate.getScaleAcademics() > 0) {
-                // criteriaConsidered++;
-                if (Math.abs(targetUniversity.getScaleAcademics() - candidate.getScaleAcademics()) <= academicScaleTolerance) {
-                    similarityScore++;
-                }
+            if (useAcademics) {
+                int a = academics[i];
+                if (a > 0 && Math.abs(targetAcademics - a) <= academicScaleTolerance) similarityScore++;
             }
 
             // --- Decision ---
-            // If the candidate meets the minimum number of required matches, add it to the results.
+            // Only the candidates that are similar are turned back into objects.
             if (similarityScore >= requiredMatches) {
-                similarUniversities.add(candidate);
+                similarUniversities.add(snap.getUniversities().get(i).clone());
             }
         }
 
         return similarUniversities;
     }
 
+    /**
+     * Gets the code a target's text attribute has to match in findSimilar.
+     *
+     * @param dictionary The column's dictionary
+     * @param value The target's value
+     * @return The code, or {@link CatalogColumns#NONE} if the value isn't valid
+     *         or no university has it, in which case the criterion can't match.
+     */
+    private int targetCode(CatalogColumns.Dictionary dictionary, String value) {
+        return isValidValue(value) ? dictionary.codeOf(value) : CatalogColumns.NONE;
+    }
+
     /**
      * A private helper method to determine if a String attribute from a {@link University}
      * object contains meaningful data for comparison purposes. It checks if the value
@@ -223,19 +258,40 @@ public class SearchController {
     // <<< NEW METHOD END >>>
 
     /**
-     * Placeholder for a more advanced search method intended for future development.
-     * This method could potentially accept a map of various criteria (beyond just state
-     * and student number) for more complex filtering needs.
+     * Finds the universities that match every criterion that is set, over any
+     * attribute of a University. See {@link SearchCriteria} for how each is matched.
+     *
+     * The search is planned against the catalog as it is now: every criterion's
+     * selectivity is estimated from statistics the catalog keeps up to date, the
+     * one with an index and the fewest rows picks the first rows, and the others
+     * check those rows cheapest first. {@link #explain(SearchCriteria)} shows the
+     * plan without running it.
+     *
+     * @param criteria What to search for
+     * @return A {@link List} of copies of the matching universities, in name order.
+     */
+    public List<University> advancedSearch(SearchCriteria criteria) {
+        return search(CompiledQuery.compile(criteria));
+    }
+
+    /**
+     * Plans an {@link #advancedSearch(SearchCriteria)} against the catalog as it is
+     * now, without running it.
+     *
+     * @param criteria What to search for
+     * @return The plan, which says which criterion drives and in what order the rest are checked.
+     */
+    public QueryPlan explain(SearchCriteria criteria) {
+        return explain(CompiledQuery.compile(criteria));
+    }
+
+    /**
+     * Plans a compiled query against the catalog as it is now, without running it.
      *
-     * @param criteria A map where keys are attribute names (e.g., "location", "minSAT")
-     *                 and values are the desired search values. (Currently not implemented).
-     * @return A list of universities matching the advanced criteria. (Currently returns an empty list).
+     * @param query The query
+     * @return The plan, which is the one {@link #search(CompiledQuery)} would run.
      */
-    /* For future extension:
-    public List<University> advancedSearch(Map<String, Object> criteria) {
-        // Actual implementation would parse the map and apply multiple filters.
-        System.out.println("Advanced search called with criteria: " + criteria); // Example placeholder action
-        return new ArrayList<University>(); // Return empty list until implemented
+    public QueryPlan explain(CompiledQuery query) {
+        return query.plan(universityController.getCatalog().getSnapshot());
     }
-    */
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What {@link SearchController#advancedSearch(SearchCriteria)} looks for.
+ * Every attribute of a University can be searched: state, location and
+ * control by value ignoring case, name and URLs by text they contain
+ * ignoring case, numbers by {@link Range}, and emphases a university
+ * must all have. A university matches if it matches every criterion
+ * that is set; with none set, every university matches.
+ *
+ * Setting a text criterion to {@code null} or an empty string clears it,
+ * the same as an empty state in {@link SearchController#search}.
+ */
+public final class SearchCriteria {
+
+	private String name;
+	private String state;
+	private String location;
+	private String control;
+	private String webpageUrl;
+	private String imageUrl;
+	private final List<Range> ranges = new ArrayList<>();
+	private final List<String> emphases = new ArrayList<>();
+
+	private static String text(String s) {
+		return s == null || s.isEmpty() ? null : s;
+	}
+
+	/**
+	 * @param text Text the name must contain
+	 * @return this
+	 */
+	public SearchCriteria withName(String text) {
+		name = text(text);
+		return this;
+	}
+
+	/**
+	 * @param state State the university must be in
+	 * @return this
+	 */
+	public SearchCriteria withState(String state) {
+		this.state = text(state);
+		return this;
+	}
+
+	/**
+	 * @param location Location the university must have, such as URBAN
+	 * @return this
+	 */
+	public SearchCriteria withLocation(String location) {
+		this.location = text(location);
+		return this;
+	}
+
+	/**
+	 * @param control Control the university must have, such as PRIVATE
+	 * @return this
+	 */
+	public SearchCriteria withControl(String control) {
+		this.control = text(control);
+		return this;
+	}
+
+	/**
+	 * @param text Text the webpage URL must contain
+	 * @return this
+	 */
+	public SearchCriteria withWebpageUrl(String text) {
+		webpageUrl = text(text);
+		return this;
+	}
+
+	/**
+	 * @param text Text the image URL must contain
+	 * @return this
+	 */
+	public SearchCriteria withImageUrl(String text) {
+		imageUrl = text(text);
+		return this;
+	}
+
+	/**
+	 * Adds a range a numeric attribute must be in. Ranges of the same
+	 * attribute must all match.
+	 * @param range Range
+	 * @return this
+	 * @throws IllegalArgumentException if range is {@code null}.
+	 */
+	public SearchCriteria withRange(Range range) {
+		if(range == null) throw new IllegalArgumentException("range cannot be null.");
+		ranges.add(range);
+		return this;
+	}
+
+	/**
+	 * Adds an emphasis the university must have.
+	 * @param emphasis Emphasis, matched exactly
+	 * @return this
+	 * @throws IllegalArgumentException if emphasis is {@code null}.
+	 */
+	public SearchCriteria withEmphasis(String emphasis) {
+		if(emphasis == null) throw new IllegalArgumentException("emphasis cannot be null.");
+		emphases.add(emphasis);
+		return this;
+	}
+
+	/**
+	 * @return the text the name must contain, or {@code null}
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the state, or {@code null}
+	 */
+	String getState() {
+		return state;
+	}
+
+	/**
+	 * @return the location, or {@code null}
+	 */
+	String getLocation() {
+		return location;
+	}
+
+	/**
+	 * @return the control, or {@code null}
+	 */
+	String getControl() {
+		return control;
+	}
+
+	/**
+	 * @return the text the webpage URL must contain, or {@code null}
+	 */
+	String getWebpageUrl() {
+		return webpageUrl;
+	}
+
+	/**
+	 * @return the text the image URL must contain, or {@code null}
+	 */
+	String getImageUrl() {
+		return imageUrl;
+	}
+
+	/**
+	 * @return the ranges, which can't be modified
+	 */
+	List<Range> getRanges() {
+		return Collections.unmodifiableList(ranges);
+	}
+
+	/**
+	 * @return the emphases, which can't be modified
+	 */
+	List<String> getEmphases() {
+		return Collections.unmodifiableList(emphases);
+	}
+
+}
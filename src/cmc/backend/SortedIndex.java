@@ -0,0 +1,184 @@
+package cmc.backend;
+
+import java.util.Arrays;
+
+/**
+ * The rows of one numeric column of {@link CatalogColumns} sorted by value,
+ * so the rows with a value in a range are one slice found by two binary
+ * searches. Rows whose value is unknown (-1) aren't in the index since
+ * they never match a range. Ties are kept in row order.
+ *
+ * Like the columns it indexes this never changes once built; an edit of
+ * the catalog derives a new index with {@link #edit}.
+ */
+final class SortedIndex {
+
+	/**
+	 * The value the database uses for an unknown number.
+	 */
+	static final double UNKNOWN = -1;
+
+	private final double[] keys;
+	private final int[] rows;
+
+	private SortedIndex(double[] keys, int[] rows) {
+		this.keys = keys;
+		this.rows = rows;
+	}
+
+	/**
+	 * Indexes a column of whole numbers.
+	 * @param column Values by row
+	 * @return The index.
+	 */
+	static SortedIndex of(int[] column) {
+		double[] values = new double[column.length];
+		for(int i = 0; i < values.length; i++) values[i] = column[i];
+		return of(values);
+	}
+
+	/**
+	 * Indexes a column of numbers.
+	 * @param column Values by row
+	 * @return The index.
+	 */
+	static SortedIndex of(double[] column) {
+		int n = 0;
+		int[] rows = new int[column.length];
+		for(int i = 0; i < column.length; i++) {
+			if(column[i] != UNKNOWN) rows[n++] = i;
+		}
+		rows = Arrays.copyOf(rows, n);
+		sort(rows, new int[n], 0, n, column);
+
+		double[] keys = new double[n];
+		for(int i = 0; i < n; i++) keys[i] = column[rows[i]];
+		return new SortedIndex(keys, rows);
+	}
+
+	/**
+	 * Merge sorts rows by their values. It's stable, so rows that are
+	 * already in order stay in order among equal values.
+	 */
+	private static void sort(int[] rows, int[] tmp, int from, int to, double[] column) {
+		if(to - from < 2) return;
+		int mid = (from + to) >>> 1;
+		sort(rows, tmp, from, mid, column);
+		sort(rows, tmp, mid, to, column);
+		if(column[rows[mid - 1]] <= column[rows[mid]]) return;
+
+		System.arraycopy(rows, from, tmp, from, to - from);
+		int a = from;
+		int b = mid;
+		for(int i = from; i < to; i++) {
+			if(b >= to || (a < mid && column[tmp[a]] <= column[tmp[b]])) rows[i] = tmp[a++];
+			else rows[i] = tmp[b++];
+		}
+	}
+
+	/**
+	 * @param min Smallest value wanted
+	 * @return the first position whose value is at least min
+	 */
+	int from(double min) {
+		int lo = 0;
+		int hi = keys.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid] < min) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * @param max Largest value wanted
+	 * @return the first position whose value is more than max
+	 */
+	int to(double max) {
+		int lo = 0;
+		int hi = keys.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid] <= max) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * @param min Smallest value wanted
+	 * @param max Largest value wanted
+	 * @return how many rows have a value in the range
+	 */
+	int count(double min, double max) {
+		return Math.max(to(max) - from(min), 0);
+	}
+
+	/**
+	 * Copies the rows of a slice.
+	 * @param from First position, from {@link #from(double)}
+	 * @param to Position after the last, from {@link #to(double)}
+	 * @return The rows, in value order.
+	 */
+	int[] rows(int from, int to) {
+		return to <= from ? new int[0] : Arrays.copyOfRange(rows, from, to);
+	}
+
+	/**
+	 * @return how many rows have a known value
+	 */
+	int size() {
+		return rows.length;
+	}
+
+	/**
+	 * Finds where a value and row go, comparing by value then row.
+	 */
+	private static int position(double[] keys, int[] rows, int n, double key, int row) {
+		int lo = 0;
+		int hi = n;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid] < key || (keys[mid] == key && rows[mid] < row)) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Derives the index after one row of the column is removed, inserted or
+	 * replaced, the same way {@link CatalogColumns#edit} changes the rows.
+	 * @param row Row that changes
+	 * @param removedKey Value of the row that is removed, or {@link #UNKNOWN}
+	 *        if none is or its value wasn't known
+	 * @param removed 1 if the row that was there is removed
+	 * @param addedKey Value of the row that is inserted, or {@link #UNKNOWN}
+	 *        if none is or its value isn't known
+	 * @param added 1 if a row is inserted
+	 * @return The new index; this one is left as it was.
+	 */
+	SortedIndex edit(int row, double removedKey, int removed, double addedKey, int added) {
+		int drop = removed == 1 && removedKey != UNKNOWN ? position(keys, rows, keys.length, removedKey, row) : -1;
+		int shift = added - removed;
+		int n = keys.length - (drop >= 0 ? 1 : 0);
+		double[] k = new double[n + (addedKey != UNKNOWN ? 1 : 0)];
+		int[] r = new int[k.length];
+		int j = 0;
+		for(int i = 0; i < keys.length; i++) {
+			if(i == drop) continue;
+			k[j] = keys[i];
+			r[j++] = rows[i] >= row + removed ? rows[i] + shift : rows[i];
+		}
+		SortedIndex next = new SortedIndex(k, r);
+		if(addedKey != UNKNOWN) {
+			int p = position(k, r, n, addedKey, row);
+			System.arraycopy(k, p, k, p + 1, n - p);
+			System.arraycopy(r, p, r, p + 1, n - p);
+			k[p] = addedKey;
+			r[p] = row;
+		}
+		return next;
+	}
+
+}
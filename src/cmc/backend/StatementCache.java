@@ -0,0 +1,95 @@
+package cmc.backend;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the prepared statements of one pooled connection, keyed by SQL text,
+ * so a statement is only parsed the first time the connection runs it.
+ *
+ * Statements from this cache must not be closed by the caller, but their
+ * result sets should be. A connection is only used by one borrower at
+ * a time so this class is not synchronized.
+ */
+public class StatementCache implements AutoCloseable {
+
+	private static final int MAX_STATEMENTS = 32;
+
+	private final Connection conn;
+	private final AtomicLong prepared;
+	private final AtomicLong reused;
+	// Access order so the least recently used statement is evicted first
+	private final LinkedHashMap<String, PreparedStatement> statements =
+			new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Creates an empty cache.
+	 * @param conn Connection to prepare statements on
+	 * @param prepared Counter of statements that had to be prepared
+	 * @param reused Counter of statements that came from a cache
+	 */
+	public StatementCache(Connection conn, AtomicLong prepared, AtomicLong reused) {
+		this.conn = conn;
+		this.prepared = prepared;
+		this.reused = reused;
+	}
+
+	/**
+	 * Gets a prepared statement for some SQL, reusing the cached one if there is one.
+	 * Its parameters are cleared.
+	 * @param sql SQL text
+	 * @return The prepared statement.
+	 * @throws SQLException If the statement can't be prepared.
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement statement = statements.get(sql);
+		if(statement != null && !statement.isClosed()) {
+			statement.clearParameters();
+			reused.incrementAndGet();
+			return statement;
+		}
+
+		statement = conn.prepareStatement(sql);
+		statements.put(sql, statement);
+		prepared.incrementAndGet();
+		if(statements.size() > MAX_STATEMENTS) evictEldest();
+		return statement;
+	}
+
+	/**
+	 * @return how many statements are cached
+	 */
+	public int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Closes every cached statement.
+	 */
+	@Override
+	public void close() {
+		for(PreparedStatement s : statements.values()) quietClose(s);
+		statements.clear();
+	}
+
+	private void evictEldest() {
+		Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+		quietClose(it.next().getValue());
+		it.remove();
+	}
+
+	private static void quietClose(PreparedStatement s) {
+		try {
+			s.close();
+		}
+		catch(SQLException e) {
+			// It's being thrown away anyway
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 package cmc.backend;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -16,11 +18,9 @@ public class SystemController {
 	
 	// Construct a SystemController using the basic (no parameter)
 	// DatabaseController as the underlying database access.
+	// The sub-controllers share it so they all see the same cached users.
 	public SystemController() {
-		this.myDBController = new DatabaseController();
-		this.myAC = new AccountController();
-		this.myUC = new UniversityController();
-		this.mySearchController = new SearchController(myUC);
+		this(new DatabaseController());
 	}
 	
 	public SystemController(DatabaseController injectDb) {
@@ -111,8 +111,7 @@ public class SystemController {
 	// this REGULAR USER ONLY method attempts to retrieve the list of saved
 	// schools for the provided username
 	public List<String> getSavedSchools(String user) {
-		Map<String, List<String>> usersToSavedSchools = this.myDBController.getUserSavedSchoolMap();
-		return usersToSavedSchools.get(user);
+		return this.myDBController.getSavedSchools(user);
 	}
 	
 	/*
@@ -124,45 +123,52 @@ public class SystemController {
 	 * @version March 24 2025
 	 */
 	public String viewSchool (String schoolName) {
-		List <University> allSchools = this.myUC.getAllSchools();
+		University school = getUniversity(schoolName);
 		
-		//loop through list
-		for (University school : allSchools) {
-			
-			//checks to see if the school is there
-			if (school.getName().equals(schoolName)) {
-			StringBuilder sb = new StringBuilder(); //string builder sb
-			sb.append("School Name: ").append(school.getName()).append("\n");
-			sb.append("State: ").append(school.getState()).append("\n");
-			sb.append("Location: ").append(school.getLocation()).append("\n");
-			sb.append("Control: ").append(school.getControl()).append("\n");
-			sb.append("Number of Students: ").append(school.getNumStudents()).append("\n");
-			sb.append("Percent Female: ").append(school.getPercentFemale()).append("\n");
-			sb.append("SAT Verbal: ").append(school.getSatVerbal()).append("\n");
-			sb.append("SAT Math: ").append(school.getSatMath()).append("\n");
-			sb.append("Expenses: ").append(school.getExpenses()).append("\n");
-			sb.append("Percent Financial Aid: ").append(school.getPercentFinancialAid()).append("\n");
-			sb.append("Number of Applicants: ").append(school.getNumApplicants()).append("\n");
-			sb.append("Percent Admitted: ").append(school.getPercentAdmitted()).append("\n");
-			sb.append("Percent Enrolled: ").append(school.getPercentEnrolled()).append("\n");
-			sb.append("Academics Scale: ").append(school.getScaleAcademics()).append("\n");
-			sb.append("Social Scale: ").append(school.getScaleSocial()).append("\n");
-			sb.append("Quality of Life Scale: ").append(school.getScaleQualityOfLife()).append("\n");
-			sb.append("Emphases: ");
-			
-			//additional special info
-			if (school.getEmphases().isEmpty()) {
-				sb.append("no special info\n");
-			}
-			else {
-				sb.append(String.join(", ", school.getEmphases())).append("\n");
-			}
-			
-			return sb.toString(); //proper return
-			}
+		//checks to see if the school is there
+		if (school == null) {
+			return schoolName + " " + "is not on the list";
 		}
 		
-		return schoolName + " " + "is not on the list";
+		StringBuilder sb = new StringBuilder(); //string builder sb
+		sb.append("School Name: ").append(school.getName()).append("\n");
+		sb.append("State: ").append(school.getState()).append("\n");
+		sb.append("Location: ").append(school.getLocation()).append("\n");
+		sb.append("Control: ").append(school.getControl()).append("\n");
+		sb.append("Number of Students: ").append(school.getNumStudents()).append("\n");
+		sb.append("Percent Female: ").append(school.getPercentFemale()).append("\n");
+		sb.append("SAT Verbal: ").append(school.getSatVerbal()).append("\n");
+		sb.append("SAT Math: ").append(school.getSatMath()).append("\n");
+		sb.append("Expenses: ").append(school.getExpenses()).append("\n");
+		sb.append("Percent Financial Aid: ").append(school.getPercentFinancialAid()).append("\n");
+		sb.append("Number of Applicants: ").append(school.getNumApplicants()).append("\n");
+		sb.append("Percent Admitted: ").append(school.getPercentAdmitted()).append("\n");
+		sb.append("Percent Enrolled: ").append(school.getPercentEnrolled()).append("\n");
+		sb.append("Academics Scale: ").append(school.getScaleAcademics()).append("\n");
+		sb.append("Social Scale: ").append(school.getScaleSocial()).append("\n");
+		sb.append("Quality of Life Scale: ").append(school.getScaleQualityOfLife()).append("\n");
+		sb.append("Emphases: ");
+		
+		//additional special info
+		if (school.getEmphases().isEmpty()) {
+			sb.append("no special info\n");
+		}
+		else {
+			sb.append(String.join(", ", school.getEmphases())).append("\n");
+		}
+		
+		return sb.toString(); //proper return
+	}
+	
+	/**
+	 * Gets a single university by its exact name.
+	 * @param schoolName Exact (all caps) name of the university
+	 * @return The university or {@code null} if there isn't one
+	 *         with that name.
+	 */
+	public University getUniversity(String schoolName) {
+		if (schoolName == null || !University.isValidName(schoolName)) return null;
+		return myUC.getUniversity(schoolName);
 	}
 	
 	public static boolean editUniversityDetails (University editedUniversity) throws CMCException {
@@ -181,6 +187,17 @@ public class SystemController {
 		return myUC.getAllSchools();
 	}
 	
+	/**
+	 * Gets one page of universities sorted by name.
+	 * @param afterName Cursor from the previous page, or {@code null} for the first page.
+	 * @param limit Most universities on the page
+	 * @return The page.
+	 */
+	public Page<University> pageUniversities(String afterName, int limit) {
+
+		return myUC.pageUniversities(afterName, limit);
+	}
+	
 	/**
 	 * Adds a new university to the database by calling the database controller.
 	 * @param uni University
@@ -194,6 +211,37 @@ public class SystemController {
 		return myUC.addNewUniversity(uni);
 	}
 	
+	/**
+	 * @return the university controller, whose catalog cache this shares
+	 */
+	public UniversityController getUniversityController() {
+		
+		return myUC;
+	}
+	
+	/**
+	 * Imports universities from a CSV or TSV file.
+	 * @param file File to import
+	 * @return What happened.
+	 * @throws IOException If the file can't be read.
+	 */
+	public UniversityImporter.Report importUniversities(Path file) throws IOException {
+		
+		return myUC.importUniversities(file);
+	}
+	
+	/**
+	 * Exports universities to a CSV or JSON Lines file, gzipped if it ends in ".gz".
+	 * @param file File to write
+	 * @param columns Columns to write. If empty, every column is written.
+	 * @return How many universities were written.
+	 * @throws IOException If the file can't be written.
+	 */
+	public long exportUniversities(Path file, List<UniversityColumn> columns) throws IOException {
+		
+		return myUC.exportUniversities(file, columns);
+	}
+	
 	/**
 	 * Removes a university from the database by calling the database controller.
 	 * @param u University
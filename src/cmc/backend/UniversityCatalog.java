@@ -0,0 +1,579 @@
+package cmc.backend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import cmc.backend.controllers.AsyncDatabaseController;
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.entities.University;
+
+/**
+ * An in-memory cache of the university catalog that sits between
+ * {@link UniversityController} and {@link DatabaseController}.
+ *
+ * The catalog is loaded once into an immutable, versioned {@link Snapshot}.
+ * Reads are served from the snapshot without going to the database.
+ * Writes go to the database first and, if they succeed, a new snapshot
+ * with the next version number is swapped in.
+ *
+ * Looking up a single university uses the snapshot's name index if a
+ * snapshot is loaded, otherwise it is fetched by itself from the database
+ * rather than loading the whole catalog.
+ *
+ * The catalog can also be kept in a {@link CatalogSnapshotFile}, which is
+ * rewritten in the background after loads and mutations. A burst of
+ * mutations is written once, from the newest snapshot. The first read
+ * after startup then comes from the file, and the database is read in
+ * the background to replace it.
+ */
+public class UniversityCatalog {
+
+	/**
+	 * System property naming a file to keep a snapshot of the catalog in.
+	 */
+	public static final String SNAPSHOT_FILE_PROPERTY = "cmc.catalog.snapshot";
+
+	private static final Comparator<University> BY_NAME = new Comparator<University>() {
+		@Override
+		public int compare(University a, University b) {
+			return a.getName().compareTo(b.getName());
+		}
+	};
+
+	/**
+	 * An immutable view of the catalog at a given version.
+	 * The universities inside a snapshot are never handed out
+	 * directly since University is mutable.
+	 */
+	public static class Snapshot {
+
+		private final long version;
+		private final List<University> universities;
+		private final Map<String, University> byName;
+		// Built the first time a search needs it
+		private volatile CatalogColumns columns;
+		// Plans of queries run against this snapshot. A query is held
+		// weakly, and the plans go away with the snapshot.
+		private final Map<CompiledQuery, QueryPlan> plans =
+				Collections.synchronizedMap(new WeakHashMap<CompiledQuery, QueryPlan>());
+
+		private Snapshot(long version, List<University> universities) {
+			this.version = version;
+			this.universities = Collections.unmodifiableList(universities);
+			this.byName = new HashMap<>(universities.size() * 2);
+			for(University u : universities) byName.put(u.getName(), u);
+		}
+
+		/**
+		 * @return the version, which goes up by one every mutation
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * @return how many universities are in the snapshot
+		 */
+		public int size() {
+			return universities.size();
+		}
+
+		/**
+		 * Gets the universities sorted by name.
+		 * These must not be modified; use {@link University#clone()}.
+		 * @return The universities in this snapshot.
+		 */
+		List<University> getUniversities() {
+			return universities;
+		}
+
+		/**
+		 * Looks up a university by name with a hash lookup.
+		 * It must not be modified; use {@link University#clone()}.
+		 * @param name University name
+		 * @return The university or {@code null} if it isn't in the snapshot.
+		 */
+		University get(String name) {
+			return byName.get(name);
+		}
+
+		/**
+		 * Gets this snapshot laid out by column, building it the first time.
+		 * @return The columns, whose rows are in the same order as
+		 *         {@link #getUniversities()}.
+		 */
+		CatalogColumns getColumns() {
+			CatalogColumns c = columns;
+			if(c == null) {
+				synchronized(this) {
+					c = columns;
+					if(c == null) columns = c = new CatalogColumns(universities);
+				}
+			}
+			return c;
+		}
+
+		/**
+		 * @param query Query
+		 * @return The plan kept for the query, or {@code null} if there is none.
+		 */
+		QueryPlan getPlan(CompiledQuery query) {
+			return plans.get(query);
+		}
+
+		/**
+		 * Keeps a query's plan for as long as both are in use.
+		 * @param query Query
+		 * @param plan Its plan against this snapshot
+		 */
+		void putPlan(CompiledQuery query, QueryPlan plan) {
+			plans.put(query, plan);
+		}
+
+		/**
+		 * Finds a university's index with a binary search by name.
+		 * @param name University name
+		 * @return Index if found, otherwise {@code -(insertion point) - 1}
+		 */
+		int indexOf(String name) {
+			int lo = 0;
+			int hi = universities.size() - 1;
+			while(lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				int cmp = universities.get(mid).getName().compareTo(name);
+				if(cmp < 0) lo = mid + 1;
+				else if(cmp > 0) hi = mid - 1;
+				else return mid;
+			}
+			return -(lo + 1);
+		}
+	}
+
+	private final DatabaseController db;
+	private final Path snapshotFile;
+	private final AtomicReference<Snapshot> current = new AtomicReference<>();
+	// Serializes loads and mutations so that two writers can't both
+	// derive their new snapshot from the same old one
+	private final Object writeLock = new Object();
+	// The snapshot file is only read once, at the first load
+	private boolean fileTried = false;
+	// Version of the last snapshot made, guarded by writeLock. It keeps
+	// counting across invalidate() so no two snapshots share a version.
+	private long lastVersion = 0;
+	private volatile CompletableFuture<Void> refresh = CompletableFuture.completedFuture(null);
+	// Last thing that went wrong with the snapshot file, until it is taken
+	private final AtomicReference<RuntimeException> snapshotFailure = new AtomicReference<>();
+	// Goes up every time the file should change: a new snapshot to write
+	// or the file dropped. Guarded by writeLock, like the two below.
+	private long fileGeneration = 0;
+	private long writtenGeneration = 0;
+	private boolean fileWriting = false;
+	private volatile CompletableFuture<Void> fileWrite = CompletableFuture.completedFuture(null);
+
+	/**
+	 * Creates an empty catalog cache over a database controller.
+	 * Nothing is loaded until the first read.
+	 * @param db The database controller to read from and write through to.
+	 */
+	public UniversityCatalog(DatabaseController db) {
+		this(db, null);
+	}
+
+	/**
+	 * Creates an empty catalog cache that is also kept in a snapshot file.
+	 * Nothing is loaded until the first read.
+	 * @param db The database controller to read from and write through to.
+	 * @param snapshotFile File to load the first snapshot from and keep
+	 *        up to date, or {@code null} to not use one.
+	 */
+	public UniversityCatalog(DatabaseController db, Path snapshotFile) {
+		this.db = db;
+		this.snapshotFile = snapshotFile;
+	}
+
+	/**
+	 * Gets the current snapshot, loading it from the database
+	 * if this is the first read since construction or {@link #invalidate()}.
+	 * @return The current snapshot.
+	 */
+	public Snapshot getSnapshot() {
+		Snapshot snap = current.get();
+		if(snap != null) return snap;
+
+		synchronized(writeLock) {
+			snap = current.get();
+			if(snap == null) {
+				snap = loadSnapshotFile();
+				if(snap == null) snap = install(db.getAllSchools());
+				else current.set(snap);
+			}
+			return snap;
+		}
+	}
+
+	/**
+	 * Loads the first snapshot from the file, if there is one, and starts
+	 * reading the database in the background. Callers hold writeLock.
+	 * @return The snapshot or {@code null} if the file couldn't be used.
+	 */
+	private Snapshot loadSnapshotFile() {
+		if(snapshotFile == null || fileTried) return null;
+		fileTried = true;
+		List<University> list;
+		try {
+			list = CatalogSnapshotFile.read(snapshotFile);
+		}
+		catch(NoSuchFileException e) {
+			return null;
+		}
+		catch(IOException e) {
+			fail("Ignoring catalog snapshot", e);
+			return null;
+		}
+		Collections.sort(list, BY_NAME);
+		Snapshot snap = new Snapshot(++lastVersion, list);
+		refresh = CompletableFuture.runAsync(() -> refreshFromDatabase(snap),
+				AsyncDatabaseController.sharedExecutor());
+		return snap;
+	}
+
+	/**
+	 * Replaces a snapshot that came from the file with the database's
+	 * catalog. If the catalog changed while the database was being read
+	 * it's not clear which is newer, so the cache is dropped instead.
+	 * The file's snapshot is compared by identity, since a snapshot
+	 * reloaded after {@link #invalidate()} is a different one even if
+	 * nothing else has changed.
+	 */
+	private void refreshFromDatabase(Snapshot fileSnap) {
+		List<University> fresh;
+		try {
+			fresh = db.getAllSchools();
+		}
+		catch(RuntimeException e) {
+			fail("Catalog refresh failed, still using the snapshot file", e);
+			return;
+		}
+		synchronized(writeLock) {
+			Snapshot old = current.get();
+			if(old == null) return;
+			if(old == fileSnap) install(fresh);
+			else {
+				current.set(null);
+				dropSnapshotFile();
+			}
+		}
+	}
+
+	/**
+	 * Swaps in a snapshot of universities straight from the database.
+	 * Callers hold writeLock.
+	 */
+	private Snapshot install(List<University> universities) {
+		List<University> list = new ArrayList<>(universities.size());
+		for(University u : universities) list.add(u.clone());
+		Collections.sort(list, BY_NAME);
+		Snapshot snap = new Snapshot(lastVersion + 1, list);
+		swap(snap);
+		return snap;
+	}
+
+	/**
+	 * Makes the snapshot after a one-row change. If the old snapshot's
+	 * columns were built the new ones are derived from them rather than
+	 * built again from every university.
+	 * @param old Snapshot before the change
+	 * @param list Universities after the change
+	 * @param row Row that changed
+	 * @param removed {@code true} if the old snapshot's row was removed or replaced
+	 * @param inserted University now at the row, or {@code null} if it was removed
+	 */
+	private static Snapshot next(Snapshot old, List<University> list, int row,
+			boolean removed, University inserted) {
+		Snapshot snap = new Snapshot(old.getVersion() + 1, list);
+		CatalogColumns c = old.columns;
+		if(c != null) snap.columns = c.edit(row, removed, inserted);
+		return snap;
+	}
+
+	/**
+	 * Makes a snapshot current and has it written to the snapshot file
+	 * in the background. Callers hold writeLock.
+	 */
+	private void swap(Snapshot snap) {
+		current.set(snap);
+		lastVersion = snap.getVersion();
+		if(snapshotFile == null) return;
+		fileGeneration++;
+		if(!fileWriting) {
+			fileWriting = true;
+			fileWrite = CompletableFuture.runAsync(this::writeSnapshotFile,
+					AsyncDatabaseController.sharedExecutor());
+		}
+	}
+
+	/**
+	 * Writes the newest snapshot to the file until there is nothing newer.
+	 * The slow part, writing and forcing the file, is done without
+	 * writeLock. The file is only moved into place if nothing changed
+	 * in the meantime, so a dropped file is never brought back.
+	 */
+	private void writeSnapshotFile() {
+		while(true) {
+			Snapshot snap;
+			long gen;
+			synchronized(writeLock) {
+				snap = current.get();
+				gen = fileGeneration;
+				if(gen == writtenGeneration || snap == null) {
+					writtenGeneration = gen;
+					fileWriting = false;
+					return;
+				}
+			}
+			Path tmp = null;
+			try {
+				tmp = CatalogSnapshotFile.writeTemp(snapshotFile, snap.getUniversities());
+				synchronized(writeLock) {
+					if(gen == fileGeneration) {
+						CatalogSnapshotFile.replace(tmp, snapshotFile);
+						writtenGeneration = gen;
+					}
+					else Files.deleteIfExists(tmp);
+				}
+			}
+			catch(IOException | RuntimeException e) {
+				synchronized(writeLock) {
+					// A stale file is worse than none
+					fail("Failed to write catalog snapshot", e);
+					deleteSnapshotFile();
+					writtenGeneration = gen;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the snapshot file, if there is one, once it no longer
+	 * matches the database. Callers hold writeLock.
+	 */
+	private void dropSnapshotFile() {
+		if(snapshotFile == null) return;
+		fileGeneration++;
+		deleteSnapshotFile();
+	}
+
+	private void deleteSnapshotFile() {
+		try {
+			Files.deleteIfExists(snapshotFile);
+		}
+		catch(IOException e) {
+			fail("Failed to delete catalog snapshot", e);
+		}
+	}
+
+	private void fail(String what, Exception e) {
+		snapshotFailure.set(new IllegalStateException(what + ": " + e.getMessage(), e));
+	}
+
+	/**
+	 * Gets and clears the last problem with the snapshot file: it couldn't
+	 * be read, written or deleted, or the database read that replaces it
+	 * failed. None of these stop the catalog from working, so they are
+	 * kept here for the frontend to report instead of being thrown.
+	 * @return The problem or {@code null} if there hasn't been one since the last call.
+	 */
+	public RuntimeException takeSnapshotFailure() {
+		return snapshotFailure.getAndSet(null);
+	}
+
+	/**
+	 * Starts loading the catalog in the background so the first read
+	 * doesn't have to wait for it.
+	 */
+	public void preload() {
+		if(current.get() != null) return;
+		CompletableFuture.runAsync(this::getSnapshot, AsyncDatabaseController.sharedExecutor());
+	}
+
+	/**
+	 * Waits for the background read that replaces a snapshot loaded from the file.
+	 */
+	void awaitRefresh() {
+		refresh.join();
+	}
+
+	/**
+	 * Waits for the snapshot file to be written with the current snapshot.
+	 * Call it before exiting, since the file is written on daemon threads.
+	 */
+	public void awaitSnapshotFile() {
+		fileWrite.join();
+	}
+
+	/**
+	 * Gets the current snapshot without loading one.
+	 * @return The snapshot or {@code null} if nothing is loaded.
+	 */
+	Snapshot getLoadedSnapshot() {
+		return current.get();
+	}
+
+	/**
+	 * Gets the version of the loaded snapshot.
+	 * @return The version or 0 if nothing is loaded.
+	 */
+	public long getVersion() {
+		Snapshot snap = current.get();
+		return snap == null ? 0 : snap.getVersion();
+	}
+
+	/**
+	 * Drops the cached snapshot so the next read reloads from the database.
+	 */
+	public void invalidate() {
+		synchronized(writeLock) {
+			current.set(null);
+			// Don't let a restart load what was just invalidated
+			dropSnapshotFile();
+		}
+	}
+
+	/**
+	 * Gets copies of every university, sorted by name.
+	 * @return A list of universities which the caller may modify.
+	 */
+	public List<University> getAllSchools() {
+		List<University> snap = getSnapshot().getUniversities();
+		List<University> list = new ArrayList<>(snap.size());
+		for(University u : snap) list.add(u.clone());
+		return list;
+	}
+
+	/**
+	 * Gets one page of copies of universities, sorted by name. If a
+	 * snapshot is loaded the page is cut from it with a binary search,
+	 * otherwise just that page is read from the database rather than
+	 * loading the catalog.
+	 * @param afterName Cursor from the previous page, or {@code null} for the first page.
+	 * @param limit Most universities on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if limit isn't positive.
+	 */
+	public Page<University> page(String afterName, int limit) {
+		Snapshot snap = current.get();
+		if(snap == null) return db.pageUniversities(afterName, limit);
+		
+		int read = Page.readAhead(limit);
+		int start = 0;
+		if(afterName != null) {
+			int i = snap.indexOf(afterName);
+			start = i >= 0 ? i + 1 : -(i + 1);
+		}
+		List<University> all = snap.getUniversities();
+		int end = (int)Math.min((long)start + read, all.size());
+		List<University> list = new ArrayList<>(Math.max(end - start, 0));
+		for(int i = start; i < end; i++) list.add(all.get(i).clone());
+		return Page.of(list, limit, University::getName);
+	}
+
+	/**
+	 * Gets a copy of a university by name.
+	 * If no snapshot is loaded this fetches just that university
+	 * instead of loading the catalog.
+	 * @param name Exact name to search for
+	 * @return The University if found, otherwise null.
+	 */
+	public University getUniversity(String name) {
+		Snapshot snap = current.get();
+		University u = snap != null ? snap.get(name) : db.getUniversity(name);
+		return u == null ? null : u.clone();
+	}
+
+	/**
+	 * Adds a new university to the database and the cache.
+	 * @param u University with attributes to add.
+	 * @return {@code true} if the operation succeeded.
+	 */
+	public boolean addNewUniversity(University u) {
+		synchronized(writeLock) {
+			if(!db.addNewUniversity(u)) return false;
+
+			Snapshot old = current.get();
+			if(old != null) {
+				List<University> list = new ArrayList<>(old.getUniversities());
+				int i = old.indexOf(u.getName());
+				University copy = u.clone();
+				if(i >= 0) list.set(i, copy);
+				else list.add(-(i + 1), copy);
+				swap(next(old, list, i >= 0 ? i : -(i + 1), i >= 0, copy));
+			}
+			else dropSnapshotFile();
+			return true;
+		}
+	}
+
+	/**
+	 * Edits a university in the database and the cache.
+	 * @param u University information
+	 * @return {@code true} if successful.
+	 */
+	public boolean editUniversity(University u) {
+		synchronized(writeLock) {
+			if(!db.editUniversity(u)) return false;
+
+			Snapshot old = current.get();
+			if(old != null) {
+				int i = old.indexOf(u.getName());
+				if(i < 0) {
+					// The cache missed a university the database has
+					current.set(null);
+					dropSnapshotFile();
+				}
+				else {
+					List<University> list = new ArrayList<>(old.getUniversities());
+					University copy = u.clone();
+					list.set(i, copy);
+					swap(next(old, list, i, true, copy));
+				}
+			}
+			else dropSnapshotFile();
+			return true;
+		}
+	}
+
+	/**
+	 * Removes a university from the database and the cache.
+	 * @param u Removes a university by name (only the name is used)
+	 * @return {@code true} if the operation succeeded.
+	 */
+	public boolean removeUniversity(University u) {
+		synchronized(writeLock) {
+			if(!db.removeUniversity(u)) return false;
+
+			Snapshot old = current.get();
+			if(old != null) {
+				int i = old.indexOf(u.getName());
+				if(i >= 0) {
+					List<University> list = new ArrayList<>(old.getUniversities());
+					list.remove(i);
+					swap(next(old, list, i, true, null));
+				}
+			}
+			else dropSnapshotFile();
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package cmc.backend;
+
+import java.util.List;
+import java.util.Locale;
+
+import cmc.backend.entities.University;
+
+/**
+ * The columns of a university in an import or export file.
+ * Headers are matched ignoring case, with spaces treated as underscores.
+ */
+public enum UniversityColumn {
+	NAME, STATE, LOCATION, CONTROL, NUM_STUDENTS, PERCENT_FEMALE, SAT_VERBAL,
+	SAT_MATH, EXPENSES, PERCENT_FINANCIAL_AID, NUM_APPLICANTS, PERCENT_ADMITTED,
+	PERCENT_ENROLLED, SCALE_ACADEMICS, SCALE_SOCIAL, SCALE_QUALITY_OF_LIFE,
+	EMPHASES, WEBPAGE_URL, IMAGE_URL;
+
+	private static final UniversityColumn[] ALL = values();
+
+	/**
+	 * Finds the column a header names.
+	 * @param header Header text
+	 * @return The column or {@code null} if it isn't one.
+	 */
+	public static UniversityColumn parse(String header) {
+		String h = header.trim().toUpperCase(Locale.ROOT).replace(' ', '_');
+		for(UniversityColumn c : ALL) {
+			if(c.name().equals(h)) return c;
+		}
+		return null;
+	}
+
+	/**
+	 * @return whether values in this column are numbers
+	 */
+	public boolean isNumeric() {
+		return ordinal() >= NUM_STUDENTS.ordinal() && ordinal() <= SCALE_QUALITY_OF_LIFE.ordinal();
+	}
+
+	/**
+	 * Gets a university's value for this column as text, in the same form
+	 * {@link UniversityImporter} reads. Emphases are separated by ';'.
+	 * @param u University
+	 * @return The value or {@code null} if it is unknown.
+	 */
+	public String valueOf(University u) {
+		switch(this) {
+		case NAME: return u.getName();
+		case STATE: return text(u.getState());
+		case LOCATION: return text(u.getLocation());
+		case CONTROL: return text(u.getControl());
+		case NUM_STUDENTS: return number(u.getNumStudents());
+		case PERCENT_FEMALE: return number(u.getPercentFemale());
+		case SAT_VERBAL: return number(u.getSatVerbal());
+		case SAT_MATH: return number(u.getSatMath());
+		case EXPENSES: return number(u.getExpenses());
+		case PERCENT_FINANCIAL_AID: return number(u.getPercentFinancialAid());
+		case NUM_APPLICANTS: return number(u.getNumApplicants());
+		case PERCENT_ADMITTED: return number(u.getPercentAdmitted());
+		case PERCENT_ENROLLED: return number(u.getPercentEnrolled());
+		case SCALE_ACADEMICS: return number(u.getScaleAcademics());
+		case SCALE_SOCIAL: return number(u.getScaleSocial());
+		case SCALE_QUALITY_OF_LIFE: return number(u.getScaleQualityOfLife());
+		case EMPHASES:
+			List<String> emphases = u.getEmphases();
+			return emphases.isEmpty() ? null : String.join(";", emphases);
+		case WEBPAGE_URL: return u.getWebpageUrl();
+		case IMAGE_URL: return u.getImageUrl();
+		default: throw new IllegalStateException();
+		}
+	}
+
+	private static String text(String s) {
+		return s == null || s.equals("-1") ? null : s;
+	}
+
+	private static String number(int x) {
+		return x == -1 ? null : Integer.toString(x);
+	}
+
+	private static String number(double x) {
+		if(x == -1) return null;
+		// Whole numbers without the trailing ".0"
+		if(x == Math.rint(x) && Math.abs(x) < 1e15) return Long.toString((long)x);
+		return Double.toString(x);
+	}
+
+}
@@ -3,6 +3,10 @@
  */
 package cmc.backend;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -23,6 +27,7 @@ public class UniversityController {
 
 	
 	private DatabaseController db;
+	private UniversityCatalog catalog;
 	
 	public UniversityController() {
 		this(new DatabaseController());
@@ -34,6 +39,16 @@ public class UniversityController {
 	 */
 	public UniversityController(DatabaseController injectedDb) {
 		this.db = injectedDb;
+		String snapshot = System.getProperty(UniversityCatalog.SNAPSHOT_FILE_PROPERTY);
+		this.catalog = new UniversityCatalog(injectedDb, snapshot == null ? null : Paths.get(snapshot));
+	}
+	
+	/**
+	 * Gets the cached catalog that reads are served from.
+	 * @return The university catalog.
+	 */
+	public UniversityCatalog getCatalog() {
+		return catalog;
 	}
 	
 	/**
@@ -47,7 +62,7 @@ public class UniversityController {
 	 */
 	public boolean addNewUniversity(University u) {
 		
-		return db.addNewUniversity(u);
+		return catalog.addNewUniversity(u);
 	}
 	
 	/**
@@ -62,7 +77,7 @@ public class UniversityController {
 	 */
 	public boolean removeUniversity(University u) {
 		
-		return db.removeUniversity(u);
+		return catalog.removeUniversity(u);
 	}
 	
 	
@@ -78,18 +93,32 @@ public class UniversityController {
 	 */
 	public boolean editUniversity(University u){
 		if (u == null) throw new IllegalArgumentException("University is null");
-		return db.editUniversity(u);
+		return catalog.editUniversity(u);
 	}
 	
 	/**
-	 * Gets the list of all the universities in the DB
+	 * Gets the list of all the universities in the DB.
+	 * This is served from the catalog cache.
 	 * @return A list of universities
 	 * @author Roman Lefler
 	 * @version Mar 13, 2025
 	 */
 	public List<University> getAllSchools() {
 		
-		return db.getAllSchools();
+		return catalog.getAllSchools();
+	}
+	
+	/**
+	 * Gets one page of universities sorted by name, without loading
+	 * the whole catalog if it isn't cached yet.
+	 * @param afterName Cursor from the previous page, or {@code null} for the first page.
+	 * @param limit Most universities on the page
+	 * @return The page.
+	 * @see Page#getNextCursor()
+	 */
+	public Page<University> pageUniversities(String afterName, int limit) {
+		
+		return catalog.page(afterName, limit);
 	}
 	
 	/**
@@ -107,19 +136,55 @@ public class UniversityController {
 		return db.getUniversitiesEmphases();
 	}
 	
+	/**
+	 * Imports universities from a CSV or TSV file in batches.
+	 * The catalog cache is reloaded on the next read.
+	 * @param file File to import
+	 * @return What happened.
+	 * @throws IOException If the file can't be read.
+	 * @see UniversityImporter
+	 */
+	public UniversityImporter.Report importUniversities(Path file) throws IOException {
+		try {
+			return new UniversityImporter(db).importFile(file);
+		}
+		finally {
+			// Even a failed import may have added some batches
+			catalog.invalidate();
+		}
+	}
+	
+	/**
+	 * Exports every university to a file as it is read. If the catalog
+	 * cache is loaded it is exported from memory, otherwise rows are
+	 * streamed from the database without loading the catalog.
+	 * @param file File to write; see {@link UniversityExporter#open(Path, List)}
+	 * @param columns Columns to write. If empty, every column is written.
+	 * @return How many universities were written.
+	 * @throws IOException If the file can't be written.
+	 */
+	public long exportUniversities(Path file, List<UniversityColumn> columns) throws IOException {
+		try(UniversityExporter exporter = UniversityExporter.open(file, columns)) {
+			UniversityCatalog.Snapshot snap = catalog.getLoadedSnapshot();
+			if(snap != null) {
+				for(University u : snap.getUniversities()) exporter.accept(u);
+			}
+			else db.forEachUniversity(exporter);
+			return exporter.getRowsWritten();
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
 	/**
 	 * Gets a university by name.
 	 * @param name Exact name to search for
 	 * @return The University if found, otherwise null.
 	 */
 	public University getUniversity(String name) {
-		List<University> list = getAllSchools();
-		
 		if(!University.isValidName(name)) throw new IllegalArgumentException("Invalid university name.");
-		for(University u : list) {
-			if(u.getName().equals(name)) return u;
-		}
-		return null;
+		return catalog.getUniversity(name);
 	}
 		
 }
@@ -0,0 +1,250 @@
+package cmc.backend;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+import cmc.backend.entities.University;
+
+/**
+ * Writes universities to CSV or JSON Lines as they are handed to it.
+ *
+ * Each university is written as soon as {@link #accept(University)} gets it
+ * and nothing is kept afterwards, so an exporter can be passed straight to
+ * {@link cmc.backend.controllers.DatabaseController#forEachUniversity(Consumer)}
+ * and the heap used doesn't depend on the size of the catalog.
+ * CSV output has a header and can be read back by {@link UniversityImporter}.
+ * In JSON Lines, numbers are numbers, unknown values are {@code null}
+ * and emphases are an array.
+ */
+public class UniversityExporter implements Consumer<University>, AutoCloseable {
+
+	/**
+	 * Output formats.
+	 */
+	public enum Format {
+		CSV, JSON_LINES;
+
+		/**
+		 * Picks a format from a file name: ".jsonl" or ".ndjson" is
+		 * JSON Lines and anything else is CSV. A ".gz" ending is ignored.
+		 * @param file File name
+		 * @return The format.
+		 */
+		public static Format forFile(Path file) {
+			String name = stripGzip(file.getFileName().toString().toLowerCase(Locale.ROOT));
+			return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : CSV;
+		}
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Writer out;
+	private final Format format;
+	private final UniversityColumn[] columns;
+	private final String[] jsonKeys;
+	private long rowsWritten;
+
+	/**
+	 * Creates an exporter over a writer. The header, if the format
+	 * has one, is written right away.
+	 * @param out Where to write; it's wrapped in a buffer if it isn't one
+	 * @param format Output format
+	 * @param columns Columns to write, in order. If empty, every column is written.
+	 * @throws IOException If the header can't be written.
+	 */
+	public UniversityExporter(Writer out, Format format, List<UniversityColumn> columns) throws IOException {
+		if(out == null || format == null || columns == null) throw new IllegalArgumentException();
+		this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_SIZE);
+		this.format = format;
+		this.columns = columns.isEmpty() ? UniversityColumn.values()
+				: columns.toArray(new UniversityColumn[columns.size()]);
+
+		jsonKeys = new String[this.columns.length];
+		for(int i = 0; i < jsonKeys.length; i++) {
+			jsonKeys[i] = "\"" + this.columns[i].name().toLowerCase(Locale.ROOT) + "\":";
+		}
+		if(format == Format.CSV) writeCsvHeader();
+	}
+
+	/**
+	 * Opens a file to export to, gzipped if its name ends in ".gz".
+	 * The format is picked by {@link Format#forFile(Path)}.
+	 * @param file File to create or overwrite
+	 * @param columns Columns to write, in order. If empty, every column is written.
+	 * @return The exporter, which must be closed.
+	 * @throws IOException If the file can't be opened.
+	 */
+	public static UniversityExporter open(Path file, List<UniversityColumn> columns) throws IOException {
+		OutputStream os = Files.newOutputStream(file);
+		try {
+			if(isGzip(file)) os = new GZIPOutputStream(os, BUFFER_SIZE);
+			Writer w = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
+			return new UniversityExporter(w, Format.forFile(file), columns);
+		}
+		catch(IOException | RuntimeException e) {
+			os.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Parses a comma separated list of column names.
+	 * @param list Column names, such as "name, state, sat_math"
+	 * @return The columns, or an empty list if the text is blank.
+	 * @throws IllegalArgumentException If a name isn't a column.
+	 */
+	public static List<UniversityColumn> parseColumns(String list) {
+		if(list == null || list.trim().isEmpty()) return Collections.emptyList();
+		List<UniversityColumn> result = new ArrayList<>();
+		for(String s : list.split(",")) {
+			UniversityColumn c = UniversityColumn.parse(s);
+			if(c == null) {
+				throw new IllegalArgumentException("'" + s.trim() + "' is not one of "
+						+ Arrays.toString(UniversityColumn.values()) + ".");
+			}
+			result.add(c);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the columns being written
+	 */
+	public List<UniversityColumn> getColumns() {
+		return Collections.unmodifiableList(Arrays.asList(columns));
+	}
+
+	/**
+	 * @return how many universities have been written
+	 */
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+
+	/**
+	 * Writes one university.
+	 * @param u University to write
+	 * @throws UncheckedIOException If writing fails.
+	 */
+	@Override
+	public void accept(University u) {
+		try {
+			if(format == Format.CSV) writeCsv(u);
+			else writeJson(u);
+			rowsWritten++;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Flushes and closes the underlying writer.
+	 * @throws IOException If it can't be flushed.
+	 */
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void writeCsvHeader() throws IOException {
+		for(int i = 0; i < columns.length; i++) {
+			if(i > 0) out.write(',');
+			out.write(columns[i].name());
+		}
+		out.write('\n');
+	}
+
+	private void writeCsv(University u) throws IOException {
+		for(int i = 0; i < columns.length; i++) {
+			if(i > 0) out.write(',');
+			String v = columns[i].valueOf(u);
+			if(v != null) writeCsvField(v);
+		}
+		out.write('\n');
+	}
+
+	private void writeCsvField(String v) throws IOException {
+		boolean quote = false;
+		for(int i = 0; i < v.length() && !quote; i++) {
+			char ch = v.charAt(i);
+			quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+		}
+		if(!quote) {
+			out.write(v);
+			return;
+		}
+		out.write('"');
+		for(int i = 0; i < v.length(); i++) {
+			char ch = v.charAt(i);
+			if(ch == '"') out.write('"');
+			out.write(ch);
+		}
+		out.write('"');
+	}
+
+	private void writeJson(University u) throws IOException {
+		out.write('{');
+		for(int i = 0; i < columns.length; i++) {
+			if(i > 0) out.write(',');
+			out.write(jsonKeys[i]);
+			UniversityColumn c = columns[i];
+			if(c == UniversityColumn.EMPHASES) {
+				out.write('[');
+				List<String> emphases = u.getEmphases();
+				for(int j = 0; j < emphases.size(); j++) {
+					if(j > 0) out.write(',');
+					writeJsonString(emphases.get(j));
+				}
+				out.write(']');
+				continue;
+			}
+			String v = c.valueOf(u);
+			if(v == null) out.write("null");
+			else if(c.isNumeric()) out.write(v);
+			else writeJsonString(v);
+		}
+		out.write("}\n");
+	}
+
+	private void writeJsonString(String v) throws IOException {
+		out.write('"');
+		for(int i = 0; i < v.length(); i++) {
+			char ch = v.charAt(i);
+			switch(ch) {
+			case '"': out.write("\\\""); break;
+			case '\\': out.write("\\\\"); break;
+			case '\n': out.write("\\n"); break;
+			case '\r': out.write("\\r"); break;
+			case '\t': out.write("\\t"); break;
+			default:
+				if(ch < 0x20) out.write(String.format("\\u%04x", (int)ch));
+				else out.write(ch);
+			}
+		}
+		out.write('"');
+	}
+
+	private static boolean isGzip(Path file) {
+		return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+	}
+
+	private static String stripGzip(String name) {
+		return name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+	}
+
+}
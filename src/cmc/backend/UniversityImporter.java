@@ -0,0 +1,359 @@
+package cmc.backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.entities.University;
+
+/**
+ * Imports universities from a CSV or TSV file in batches.
+ *
+ * The file is read one line at a time and only one batch of universities
+ * is held at once, so memory use doesn't grow with the file. The first line
+ * is a header naming the {@link UniversityColumn}s in any order; NAME is
+ * required and EMPHASES are separated by ';'.
+ * Blank or missing columns are unknown. Text is upper-cased like
+ * {@code AdminAddSchool} does, then every value goes through the
+ * {@link University} setters, and rows they reject are reported.
+ */
+public class UniversityImporter {
+
+	/**
+	 * Default number of universities written per batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	// Only this many rejected rows are described, so memory stays bounded
+	private static final int MAX_REJECTIONS_KEPT = 100;
+
+	/**
+	 * What happened during an import.
+	 */
+	public static class Report {
+
+		private long rowsRead;
+		private long imported;
+		private long duplicates;
+		private long rejected;
+		private long nanos;
+		private final List<String> rejections = new ArrayList<>();
+
+		/**
+		 * @return how many data rows were read, not counting the header
+		 */
+		public long getRowsRead() {
+			return rowsRead;
+		}
+
+		/**
+		 * @return how many universities were added
+		 */
+		public long getImported() {
+			return imported;
+		}
+
+		/**
+		 * @return how many valid rows were skipped because the name was taken
+		 */
+		public long getDuplicates() {
+			return duplicates;
+		}
+
+		/**
+		 * @return how many rows were invalid
+		 */
+		public long getRejected() {
+			return rejected;
+		}
+
+		/**
+		 * @return a description of the first rejected rows with their line numbers
+		 */
+		public List<String> getRejections() {
+			return Collections.unmodifiableList(rejections);
+		}
+
+		/**
+		 * @return how long the import took in milliseconds
+		 */
+		public long getMillis() {
+			return nanos / 1000000;
+		}
+
+		/**
+		 * @return rows read per second
+		 */
+		public double getRowsPerSecond() {
+			return nanos == 0 ? 0 : rowsRead * 1e9 / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Read %d rows in %d ms (%.0f rows/s): %d imported, "
+					+ "%d duplicates, %d rejected.", rowsRead, getMillis(), getRowsPerSecond(),
+					imported, duplicates, rejected);
+		}
+	}
+
+	private final DatabaseController db;
+	private final int batchSize;
+
+	/**
+	 * Creates an importer with the default batch size.
+	 * @param db Controller to add universities with
+	 */
+	public UniversityImporter(DatabaseController db) {
+		this(db, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates an importer.
+	 * @param db Controller to add universities with
+	 * @param batchSize Universities written per batch
+	 * @throws IllegalArgumentException if batchSize is less than 1
+	 */
+	public UniversityImporter(DatabaseController db, int batchSize) {
+		if(db == null) throw new IllegalArgumentException("db cannot be null.");
+		if(batchSize < 1) throw new IllegalArgumentException("batchSize must be at least 1.");
+		this.db = db;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Imports a file. Files ending in ".tsv" are tab separated,
+	 * anything else is comma separated.
+	 * @param file File to import
+	 * @return What happened.
+	 * @throws IOException If the file can't be read.
+	 */
+	public Report importFile(Path file) throws IOException {
+		char delimiter = file.toString().toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+		try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return importFrom(reader, delimiter);
+		}
+	}
+
+	/**
+	 * Imports from a reader.
+	 * @param in Text to import, including the header
+	 * @param delimiter Column separator, such as ',' or '\t'
+	 * @return What happened.
+	 * @throws IOException If the reader fails.
+	 * @throws IllegalArgumentException If the header is missing or has no NAME column.
+	 */
+	public Report importFrom(Reader in, char delimiter) throws IOException {
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader)in : new BufferedReader(in);
+		Report report = new Report();
+		long start = System.nanoTime();
+
+		String header = reader.readLine();
+		if(header == null) throw new IllegalArgumentException("File is empty.");
+		int[] columns = mapColumns(split(header, delimiter, new ArrayList<String>()));
+
+		List<University> batch = new ArrayList<>(batchSize);
+		List<String> fields = new ArrayList<>();
+		long lineNo = 1;
+		String line;
+		while((line = readRecord(reader)) != null) {
+			long first = lineNo + 1;
+			lineNo = first + lineBreaks(line);
+			if(line.trim().isEmpty()) continue;
+			report.rowsRead++;
+			try {
+				batch.add(parse(split(line, delimiter, fields), columns));
+			}
+			catch(IllegalArgumentException e) {
+				report.rejected++;
+				if(report.rejections.size() < MAX_REJECTIONS_KEPT) {
+					report.rejections.add("Line " + first + ": " + e.getMessage());
+				}
+			}
+			if(batch.size() == batchSize) flush(batch, report);
+		}
+		flush(batch, report);
+
+		report.nanos = System.nanoTime() - start;
+		return report;
+	}
+
+	private void flush(List<University> batch, Report report) {
+		if(batch.isEmpty()) return;
+		int added = db.addNewUniversities(batch);
+		report.imported += added;
+		report.duplicates += batch.size() - added;
+		batch.clear();
+	}
+
+	/**
+	 * Finds where each column is in the file.
+	 * @return Indexes by {@link UniversityColumn#ordinal()}, -1 if absent
+	 */
+	private static int[] mapColumns(List<String> header) {
+		int[] columns = new int[UniversityColumn.values().length];
+		for(int i = 0; i < columns.length; i++) columns[i] = -1;
+		for(int i = 0; i < header.size(); i++) {
+			UniversityColumn c = UniversityColumn.parse(header.get(i));
+			if(c != null) columns[c.ordinal()] = i;
+		}
+		if(columns[UniversityColumn.NAME.ordinal()] < 0) throw new IllegalArgumentException("Header has no NAME column.");
+		return columns;
+	}
+
+	private static String get(List<String> fields, int[] columns, UniversityColumn c) {
+		int i = columns[c.ordinal()];
+		if(i < 0 || i >= fields.size()) return null;
+		String s = fields.get(i).trim();
+		return s.isEmpty() ? null : s;
+	}
+
+	private static String caps(String s) {
+		return s == null ? null : s.toUpperCase(Locale.ROOT);
+	}
+
+	private static int intOf(String s) {
+		if(s == null) return -1;
+		try {
+			return Integer.parseInt(s);
+		}
+		catch(NumberFormatException e) {
+			throw new IllegalArgumentException("'" + s + "' is not a whole number.");
+		}
+	}
+
+	private static double doubleOf(String s) {
+		if(s == null) return -1;
+		try {
+			return Double.parseDouble(s);
+		}
+		catch(NumberFormatException e) {
+			throw new IllegalArgumentException("'" + s + "' is not a number.");
+		}
+	}
+
+	/**
+	 * Builds a university from one row.
+	 * @throws IllegalArgumentException if any value breaks the University setter rules.
+	 */
+	private static University parse(List<String> f, int[] c) {
+		String name = caps(get(f, c, UniversityColumn.NAME));
+		if(name == null) throw new IllegalArgumentException("Name is blank.");
+
+		University u = new University(name);
+		String state = caps(get(f, c, UniversityColumn.STATE));
+		if(state != null) u.setState(state);
+		String location = caps(get(f, c, UniversityColumn.LOCATION));
+		if(location != null) u.setLocation(location);
+		String control = caps(get(f, c, UniversityColumn.CONTROL));
+		if(control != null) u.setControl(control);
+
+		u.setNumStudents(intOf(get(f, c, UniversityColumn.NUM_STUDENTS)));
+		u.setPercentFemale(doubleOf(get(f, c, UniversityColumn.PERCENT_FEMALE)));
+		u.setSatVerbal(doubleOf(get(f, c, UniversityColumn.SAT_VERBAL)));
+		u.setSatMath(doubleOf(get(f, c, UniversityColumn.SAT_MATH)));
+		u.setExpenses(doubleOf(get(f, c, UniversityColumn.EXPENSES)));
+		u.setPercentFinancialAid(doubleOf(get(f, c, UniversityColumn.PERCENT_FINANCIAL_AID)));
+		u.setNumApplicants(intOf(get(f, c, UniversityColumn.NUM_APPLICANTS)));
+		u.setPercentAdmitted(doubleOf(get(f, c, UniversityColumn.PERCENT_ADMITTED)));
+		u.setPercentEnrolled(doubleOf(get(f, c, UniversityColumn.PERCENT_ENROLLED)));
+		u.setScaleAcademics(intOf(get(f, c, UniversityColumn.SCALE_ACADEMICS)));
+		u.setScaleSocial(intOf(get(f, c, UniversityColumn.SCALE_SOCIAL)));
+		u.setScaleQualityOfLife(intOf(get(f, c, UniversityColumn.SCALE_QUALITY_OF_LIFE)));
+
+		String emphases = get(f, c, UniversityColumn.EMPHASES);
+		if(emphases != null) {
+			for(String e : emphases.split(";")) {
+				e = e.trim();
+				if(!e.isEmpty()) u.addEmphasis(caps(e));
+			}
+		}
+		u.setWebpageUrl(get(f, c, UniversityColumn.WEBPAGE_URL));
+		u.setImageUrl(get(f, c, UniversityColumn.IMAGE_URL));
+		return u;
+	}
+
+	/**
+	 * Reads one record. A record goes on past the end of a line while a
+	 * quoted field is open, as when the exporter writes a field with a
+	 * line break in it.
+	 * @param reader Reader
+	 * @return The record with its line breaks as '\n', or {@code null} at the end.
+	 * @throws IOException If the reader fails.
+	 */
+	static String readRecord(BufferedReader reader) throws IOException {
+		String line = reader.readLine();
+		if(line == null || !opensQuote(line, false)) return line;
+		StringBuilder sb = new StringBuilder(line);
+		boolean open = true;
+		while(open && (line = reader.readLine()) != null) {
+			sb.append('\n').append(line);
+			open = opensQuote(line, true);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param line Text of one line
+	 * @param open {@code true} if a quoted field was open when it started
+	 * @return {@code true} if a quoted field is still open at its end.
+	 */
+	private static boolean opensQuote(String line, boolean open) {
+		// A "" escape flips twice, so counting quotes is enough
+		for(int i = 0; i < line.length(); i++) {
+			if(line.charAt(i) == '"') open = !open;
+		}
+		return open;
+	}
+
+	private static int lineBreaks(String record) {
+		int n = 0;
+		for(int i = 0; i < record.length(); i++) {
+			if(record.charAt(i) == '\n') n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Splits one record into fields. A field can be wrapped in double quotes
+	 * to contain the delimiter, and "" inside quotes is a literal quote.
+	 * @param line Record to split
+	 * @param delimiter Column separator
+	 * @param out List to reuse for the fields, cleared first
+	 * @return out
+	 */
+	static List<String> split(String line, char delimiter, List<String> out) {
+		out.clear();
+		StringBuilder sb = new StringBuilder();
+		boolean quoted = false;
+		for(int i = 0; i < line.length(); i++) {
+			char ch = line.charAt(i);
+			if(quoted) {
+				if(ch == '"') {
+					if(i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						sb.append('"');
+						i++;
+					}
+					else quoted = false;
+				}
+				else sb.append(ch);
+			}
+			else if(ch == '"') quoted = true;
+			else if(ch == delimiter) {
+				out.add(sb.toString());
+				sb.setLength(0);
+			}
+			else sb.append(ch);
+		}
+		out.add(sb.toString());
+		return out;
+	}
+
+}
@@ -0,0 +1,321 @@
+package cmc.backend.controllers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import cmc.CMCException;
+import cmc.backend.User;
+import cmc.backend.entities.University;
+
+/**
+ * Runs {@link DatabaseController} calls off the caller's thread.
+ * Every method returns a {@link CompletableFuture} that completes
+ * on a bounded executor.
+ *
+ * {@link #getAllSchools()} runs the university, emphasis and extra
+ * attribute queries at the same time and joins them, so it takes about
+ * as long as the slowest of the three instead of their sum.
+ */
+public class AsyncDatabaseController implements AutoCloseable {
+
+	/**
+	 * Same as the most connections DBExtension opens, more threads
+	 * would only wait for a connection.
+	 */
+	private static final int SHARED_THREADS = 8;
+
+	private static ExecutorService shared;
+	// Runs the queries a task on one of our executors fans out
+	private static ExecutorService fanOut;
+
+	/**
+	 * Marks threads that belong to one of our executors so blocking
+	 * calls made on them don't wait for tasks queued behind themselves.
+	 */
+	private static class FetchThread extends Thread {
+		private FetchThread(Runnable r, String name) {
+			super(r, name);
+			setDaemon(true);
+		}
+	}
+
+	/**
+	 * A thread of the fan-out executor. Its tasks are single queries
+	 * that never wait on other tasks.
+	 */
+	private static final class FanOutThread extends FetchThread {
+		private FanOutThread(Runnable r, String name) {
+			super(r, name);
+		}
+	}
+
+	private final DatabaseController db;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+
+	/**
+	 * Creates an async facade that runs on the shared executor.
+	 * @param db Controller to call
+	 */
+	public AsyncDatabaseController(DatabaseController db) {
+		this(db, sharedExecutor(), false);
+	}
+
+	/**
+	 * Creates an async facade with its own executor of a fixed size.
+	 * The executor is shut down by {@link #close()}.
+	 * @param db Controller to call
+	 * @param threads Number of threads
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	public AsyncDatabaseController(DatabaseController db, int threads) {
+		this(db, newExecutor(threads), true);
+	}
+
+	private AsyncDatabaseController(DatabaseController db, ExecutorService executor, boolean ownsExecutor) {
+		if(db == null) throw new IllegalArgumentException("db cannot be null.");
+		this.db = db;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+	}
+
+	/**
+	 * Gets the executor shared by every facade that doesn't have its own.
+	 * Its threads are daemons so it never needs to be shut down.
+	 * @return The shared executor.
+	 */
+	public static synchronized ExecutorService sharedExecutor() {
+		if(shared == null) shared = newExecutor(SHARED_THREADS);
+		return shared;
+	}
+
+	/**
+	 * Gets an executor to fan work out on from the current thread.
+	 * Work fanned out from one of our executors goes to a separate
+	 * fan-out executor, since queueing it behind the task that waits
+	 * for it could deadlock once every thread is waiting. Work fanned
+	 * out from the fan-out executor itself runs inline.
+	 * @return An executor for nested work.
+	 */
+	static Executor fanOutExecutor() {
+		Thread t = Thread.currentThread();
+		if(t instanceof FanOutThread) return Runnable::run;
+		if(t instanceof FetchThread) return fanOutPool();
+		return sharedExecutor();
+	}
+
+	private static synchronized ExecutorService fanOutPool() {
+		if(fanOut == null) {
+			AtomicInteger count = new AtomicInteger();
+			fanOut = Executors.newFixedThreadPool(SHARED_THREADS,
+					r -> new FanOutThread(r, "cmc-db-fanout-" + count.incrementAndGet()));
+		}
+		return fanOut;
+	}
+
+	/**
+	 * Waits for a future and rethrows what it failed with unwrapped.
+	 * @param <T> Result type
+	 * @param future Future to wait for
+	 * @return Its result.
+	 */
+	static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		}
+		catch(CompletionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if(cause instanceof Error) throw (Error)cause;
+			throw e;
+		}
+	}
+
+	private static ExecutorService newExecutor(int threads) {
+		if(threads < 1) throw new IllegalArgumentException("threads must be at least 1.");
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = r -> new FetchThread(r, "cmc-db-" + count.incrementAndGet());
+		return Executors.newFixedThreadPool(threads, factory);
+	}
+
+	private <T> CompletableFuture<T> async(Supplier<T> call) {
+		return CompletableFuture.supplyAsync(call, executor);
+	}
+
+	/**
+	 * A call that can throw {@link CMCException}.
+	 */
+	private interface CheckedCall<T> {
+		T call() throws CMCException;
+	}
+
+	private <T> CompletableFuture<T> asyncChecked(CheckedCall<T> call) {
+		return async(() -> {
+			try {
+				return call.call();
+			}
+			catch(CMCException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	/**
+	 * @return the controller this calls
+	 */
+	public DatabaseController getDatabaseController() {
+		return db;
+	}
+
+	/**
+	 * @see DatabaseController#getAllSchools()
+	 * @return Future list of every university.
+	 */
+	public CompletableFuture<List<University>> getAllSchools() {
+		return db.getAllSchools(executor);
+	}
+
+	/**
+	 * @see DatabaseController#getUniversity(String)
+	 * @param name Exact name of the university
+	 * @return Future university or {@code null}.
+	 */
+	public CompletableFuture<University> getUniversity(String name) {
+		return async(() -> db.getUniversity(name));
+	}
+
+	/**
+	 * @see DatabaseController#getUniversitiesEmphases()
+	 * @return Future map of university names to emphases.
+	 */
+	public CompletableFuture<Map<String, List<String>>> getUniversitiesEmphases() {
+		return async(db::getUniversitiesEmphases);
+	}
+
+	/**
+	 * @see DatabaseController#getAllEmphases()
+	 * @return Future list of every emphasis.
+	 */
+	public CompletableFuture<List<String>> getAllEmphases() {
+		return async(db::getAllEmphases);
+	}
+
+	/**
+	 * @see DatabaseController#addNewUniversity(University)
+	 * @param u University to add
+	 * @return Future {@code true} if it was added.
+	 */
+	public CompletableFuture<Boolean> addNewUniversity(University u) {
+		return async(() -> db.addNewUniversity(u));
+	}
+
+	/**
+	 * @see DatabaseController#editUniversity(University)
+	 * @param u University to edit
+	 * @return Future {@code true} if it was edited.
+	 */
+	public CompletableFuture<Boolean> editUniversity(University u) {
+		return async(() -> db.editUniversity(u));
+	}
+
+	/**
+	 * @see DatabaseController#removeUniversity(University)
+	 * @param u University to remove
+	 * @return Future {@code true} if it was removed.
+	 */
+	public CompletableFuture<Boolean> removeUniversity(University u) {
+		return async(() -> db.removeUniversity(u));
+	}
+
+	/**
+	 * @see DatabaseController#getUser(String)
+	 * @param username Username
+	 * @return Future user or {@code null}.
+	 */
+	public CompletableFuture<User> getUser(String username) {
+		return async(() -> db.getUser(username));
+	}
+
+	/**
+	 * @see DatabaseController#getAllUsers()
+	 * @return Future list of every user.
+	 */
+	public CompletableFuture<List<User>> getAllUsers() {
+		return async(db::getAllUsers);
+	}
+
+	/**
+	 * Fails with {@link CMCException} if the database rejects the user.
+	 * @see DatabaseController#addUser(User)
+	 * @param u User to add
+	 * @return Future {@code true} if it was added.
+	 */
+	public CompletableFuture<Boolean> addUser(User u) {
+		return asyncChecked(() -> db.addUser(u));
+	}
+
+	/**
+	 * @see DatabaseController#editUser(User)
+	 * @param u User to edit
+	 * @return Future {@code true} if it was edited.
+	 */
+	public CompletableFuture<Boolean> editUser(User u) {
+		return async(() -> db.editUser(u));
+	}
+
+	/**
+	 * Fails with {@link CMCException} if the database rejects the removal.
+	 * @see DatabaseController#removeUser(User)
+	 * @param u User to remove
+	 * @return Future {@code true} if it was removed.
+	 */
+	public CompletableFuture<Boolean> removeUser(User u) {
+		return asyncChecked(() -> db.removeUser(u));
+	}
+
+	/**
+	 * Fails with {@link CMCException} if the database rejects the save.
+	 * @see DatabaseController#saveSchool(String, String)
+	 * @param username Username
+	 * @param schoolName School name
+	 * @return Future {@code true} if it was saved.
+	 */
+	public CompletableFuture<Boolean> saveSchool(String username, String schoolName) {
+		return asyncChecked(() -> db.saveSchool(username, schoolName));
+	}
+
+	/**
+	 * @see DatabaseController#getSavedSchools(String)
+	 * @param username Username
+	 * @return Future saved schools or {@code null}.
+	 */
+	public CompletableFuture<List<String>> getSavedSchools(String username) {
+		return async(() -> db.getSavedSchools(username));
+	}
+
+	/**
+	 * @see DatabaseController#getUserSavedSchoolMap()
+	 * @return Future map of usernames to saved schools.
+	 */
+	public CompletableFuture<Map<String, List<String>>> getUserSavedSchoolMap() {
+		return async(db::getUserSavedSchoolMap);
+	}
+
+	/**
+	 * Shuts down this facade's executor if it has its own.
+	 * Calls already submitted still finish.
+	 */
+	@Override
+	public void close() {
+		if(ownsExecutor) executor.shutdown();
+	}
+
+}
@@ -1,21 +1,36 @@
 package cmc.backend.controllers;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 import cmc.CMCException;
-import cmc.backend.DBExtension;
-import cmc.backend.UniversityController;
+import cmc.backend.Page;
 import cmc.backend.User;
+import cmc.backend.entities.EmphasisDictionary;
 import cmc.backend.entities.University;
-import dblibrary.project.csci230.*;
+import cmc.backend.entities.UniversityRowDecoder;
+import cmc.backend.storage.FileStorageProvider;
+import cmc.backend.storage.JournaledStorageProvider;
+import cmc.backend.storage.LibraryStorageProvider;
+import cmc.backend.storage.StorageProvider;
+import cmc.backend.storage.UniversityExt;
 
 /**
  * The DatabaseController class is the primary interaction class with the
  * database library.
+ *
+ * Rows are read and written through a {@link StorageProvider}, which is the
+ * course's MySQL database unless the {@value #STORAGE_DIR_PROPERTY} system
+ * property names a directory for a {@link FileStorageProvider}.
  * @author Roman Lefler
  * @version Apr 4, 2025
  */
@@ -26,8 +41,32 @@ public class DatabaseController implements AutoCloseable {
 	 */
 	private static final String SHOULDNT_HAPPEN = "If you're seeing this DatabaseController has a bug.";
 	
-	private UniversityDBLibrary database;
-	private DBExtension dbext;
+	/**
+	 * System property naming a directory to keep data in
+	 * instead of the MySQL database.
+	 */
+	public static final String STORAGE_DIR_PROPERTY = "cmc.storage.dir";
+	
+	/**
+	 * System property naming a directory to journal the MySQL database in,
+	 * so restarts replay the journal instead of reloading everything.
+	 * Changes made to MySQL by anyone else are only picked up at startup
+	 * if they changed a table's row count, otherwise at the next hourly
+	 * resync; see {@link JournaledStorageProvider}.
+	 */
+	public static final String JOURNAL_DIR_PROPERTY = "cmc.journal.dir";
+	
+	private StorageProvider storage;
+	private final UserDirectory userDirectory = new UserDirectory();
+	private final SavedSchoolIndex savedSchools = new SavedSchoolIndex();
+	// Saves and removals share the read lock; loading the whole table takes the write lock
+	private final ReadWriteLock savedSchoolsLock = new ReentrantReadWriteLock();
+	private volatile WriteBehindQueue writeBehind;
+	// Concurrent full loads share one fetch
+	private final SingleFlight<String, List<University>> schoolLoads =
+			new SingleFlight<>(DatabaseController::copySchools);
+	private final SingleFlight<String, List<User>> userLoads =
+			new SingleFlight<>(DatabaseController::copyUsers);
 
 	/**
 	 * Creates a database controller and connects to the database.
@@ -36,6 +75,16 @@ public class DatabaseController implements AutoCloseable {
 		this(true);
 	}
 	
+	/**
+	 * Creates a database controller over any storage provider.
+	 * @param storage Where to keep data
+	 * @throws IllegalArgumentException if storage is {@code null}.
+	 */
+	public DatabaseController(StorageProvider storage) {
+		if(storage == null) throw new IllegalArgumentException("storage cannot be null.");
+		this.storage = storage;
+	}
+	
 	/**
 	 * Creates a database controller and choose to connect to the database.
 	 * SHOULD ONLY BE USED FOR OVERRIDES.
@@ -44,34 +93,87 @@ public class DatabaseController implements AutoCloseable {
 	 */
 	public DatabaseController(boolean shouldConnect) {
 		if(shouldConnect) {
-			database = new UniversityDBLibrary("dei", "Csci230$");
-			dbext = new DBExtension("dei", "Csci230$");
-			dbext.connect();
+			String dir = System.getProperty(STORAGE_DIR_PROPERTY);
+			String journal = System.getProperty(JOURNAL_DIR_PROPERTY);
+			if(dir != null) storage = new FileStorageProvider(Paths.get(dir));
+			else if(journal != null) {
+				// Reads come from the journal, so outside edits to MySQL
+				// can be up to an hour old
+				storage = new JournaledStorageProvider(
+						new LibraryStorageProvider("dei", "Csci230$"), Paths.get(journal));
+			}
+			else storage = new LibraryStorageProvider("dei", "Csci230$");
 		}
 	}
 	
+	/**
+	 * @return where this controller keeps its data, {@code null} for overrides
+	 *         that don't use a provider
+	 */
+	public StorageProvider getStorage() {
+		return storage;
+	}
+	
 	/**
 	 * Close connections to database.
+	 * Writes waiting in write-behind mode are flushed first.
 	 */
 	public void close() {
-		dbext.close();
+		WriteBehindQueue q = writeBehind;
+		try {
+			if(q != null) q.close();
+		}
+		finally {
+			storage.close();
+		}
+	}
+	
+	/**
+	 * Turns on write-behind mode. Saving a school and editing a user
+	 * then return once the caches are updated, and the database writes
+	 * are batched and flushed in the background.
+	 * @param maxPending Most writes held before a caller has to flush
+	 * @param maxStalenessMillis Longest a write waits before it is flushed
+	 * @throws IllegalStateException if write-behind is already on.
+	 */
+	public synchronized void enableWriteBehind(int maxPending, long maxStalenessMillis) {
+		if(writeBehind != null) throw new IllegalStateException("Write-behind is already enabled.");
+		writeBehind = new WriteBehindQueue(new WriteBehindQueue.Sink() {
+			@Override
+			public void saveSchools(List<String[]> saves) {
+				storage.insertSavedSchools(saves);
+			}
+			
+			@Override
+			public void editUsers(List<User> users) {
+				storage.updateUsers(users);
+			}
+		}, maxPending, maxStalenessMillis);
+	}
+	
+	/**
+	 * @return the write-behind queue or {@code null} if writes are synchronous
+	 */
+	public WriteBehindQueue getWriteBehind() {
+		return writeBehind;
+	}
+	
+	/**
+	 * Writes anything waiting in write-behind mode now.
+	 */
+	public void flushWrites() {
+		WriteBehindQueue q = writeBehind;
+		if(q != null) q.flush();
 	}
 
 	// add a user to the db
 	public boolean addUser(User u) throws CMCException {
-		int result = this.database.user_addUser(
-				u.getFirstName(), u.getLastName(),
-				u.getUsername(), u.getPassword(),
-				u.isAdmin() ? 'a' : 'u'
-		);
-		
-		if (result == -1) {
+		if (!storage.insertUser(u)) {
 			throw new CMCException("Error adding user to the DB");
 		}
 		else {
-			// No way to create deactivated user
-			if(u.isActivated()) return true;
-			else return editUser(u);
+			if(userDirectory.isLoaded()) userDirectory.put(u);
+			return true;
 		}
 	}
 
@@ -80,64 +182,102 @@ public class DatabaseController implements AutoCloseable {
 	public boolean removeUser(User u) throws CMCException {
 		
 		String username = u.getUsername();
-		
-		Map<String, List<String>> schoolMap = getUserSavedSchoolMap();
-		List<String> schools = schoolMap.get(username);
-		if(schools != null) {
-			for(String s : schools) database.user_removeSchool(username, s);
+		savedSchoolsLock.readLock().lock();
+		try {
+			// Pending saves have to be in the table to be removed
+			flushWrites();
+			
+			List<String> schools = getSavedSchools(username);
+			if(schools != null) {
+				for(String s : schools) {
+					storage.deleteSavedSchool(username, s);
+					savedSchools.remove(username, s);
+				}
+			}
+		}
+		finally {
+			savedSchoolsLock.readLock().unlock();
 		}
 		
-		int result = this.database.user_deleteUser(username);
-		
-		if (result != 1) {
+		if (!storage.deleteUser(username)) {
 			// TODO: How can we tell the difference?
 			throw new CMCException("Error removing user \"" + username +
 					"\" from the DB.  Not present?  DB error?");
 		}
 		else {
+			userDirectory.remove(username);
 			return true;
 		}
 	}
 	
+	/**
+	 * Gets the user directory, filling it from the database
+	 * the first time it is needed.
+	 * @return The loaded user directory.
+	 */
+	public UserDirectory getUserDirectory() {
+		if(!userDirectory.isLoaded()) {
+			List<User> all = userLoads.run("users", storage::loadUsers);
+			synchronized(userDirectory) {
+				if(!userDirectory.isLoaded()) userDirectory.load(all);
+			}
+		}
+		return userDirectory;
+	}
+	
+	/**
+	 * @return how many full loads of users or universities were skipped
+	 *         because the same load was already in flight
+	 */
+	public long getDeduplicatedLoads() {
+		return schoolLoads.getDeduplicated() + userLoads.getDeduplicated();
+	}
+	
+	/**
+	 * @return how many full loads of users or universities were started
+	 */
+	public long getFullLoads() {
+		return schoolLoads.getLoads() + userLoads.getLoads();
+	}
+	
+	private static List<University> copySchools(List<University> list) {
+		List<University> copy = new ArrayList<>(list.size());
+		for(University u : list) copy.add(u.clone());
+		return copy;
+	}
+	
+	private static List<User> copyUsers(List<User> list) {
+		List<User> copy = new ArrayList<>(list.size());
+		for(User u : list) copy.add(u.uClone());
+		return copy;
+	}
 	
 	// get a user; null if not in DB
 	public User getUser(String username) {
-		String[][] databaseUserStrings = this.database.user_getUsers();
-		
-		for (String[] singleUser : databaseUserStrings) {
-			String thisUsername = singleUser[2];
-			if (thisUsername.equals(username)) {
-				char type = singleUser[4].length() > 0 ? singleUser[4].charAt(0) : 'u';
-				User u = new User(singleUser[2], singleUser[3],
-						type == 'a', singleUser[0], singleUser[1]);
-				u.setActivated(singleUser[5].length() != 1 || singleUser[5].equals("Y"));
-				return u;
-			}
-		}
-		
-		return null;
+		return getUserDirectory().get(username);
 	}
 
 
 	// get the list of all the users in the DB
 	public List<User> getAllUsers() {
-		String[][] dbUserList = this.database.user_getUsers();
-		
-		ArrayList<User> result = new ArrayList<User>();
-		for (String[] user : dbUserList) {
-			char type = user[4].length() > 0 ? user[4].charAt(0) : 'u';
-			User u = new User(
-					user[2],
-					user[3],
-					type == 'a',
-					user[0],
-					user[1]
-			);
-			u.setActivated(user[5].length() != 1 || user[5].equals("Y"));
-			result.add(u);
-		}
-		
-		return result;
+		return getUserDirectory().getAll();
+	}
+	
+	/**
+	 * Gets one page of users in username order. Once the user directory
+	 * is loaded pages come from it, otherwise only the page's rows are
+	 * read from the database.
+	 * @param afterUsername Cursor from the previous page, or {@code null} for the first page.
+	 * @param limit Most users on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if limit isn't positive.
+	 */
+	public Page<User> pageUsers(String afterUsername, int limit) {
+		int read = Page.readAhead(limit);
+		List<User> users = userDirectory.isLoaded()
+				? userDirectory.getAfter(afterUsername, read)
+				: storage.loadUsersAfter(afterUsername, read);
+		return Page.of(users, limit, User::getUsername);
 	}
 	
 	/**
@@ -145,19 +285,23 @@ public class DatabaseController implements AutoCloseable {
 	 * user object.
 	 * @param u User to update
 	 * @return {@code true} if successful
+	 * @throws IllegalStateException if writes are queued and the queue
+	 *         is full and failing; nothing is changed.
 	 */
 	public boolean editUser(User u) {
 		
-		int result = database.user_editUser(
-				u.getUsername(),
-				u.getFirstName(),
-				u.getLastName(),
-				u.getPassword(),
-				u.isAdmin() ? 'a' : 'u',
-				u.isActivated() ? 'Y' : 'N'
-		);
+		WriteBehindQueue q = writeBehind;
+		if(q != null) {
+			UserDirectory dir = getUserDirectory();
+			if(dir.get(u.getUsername()) == null) return false;
+			q.editUser(u);
+			dir.put(u);
+			return true;
+		}
 		
-		return result > 0;
+		boolean result = storage.updateUser(u);
+		if(result && userDirectory.isLoaded()) userDirectory.put(u);
+		return result;
 	}
 
 	// save a school to a particular user's list
@@ -165,41 +309,86 @@ public class DatabaseController implements AutoCloseable {
 	//       "updating" a user in the DB.
 	public boolean saveSchool(String username, String schoolName) throws CMCException {
 		
-		Map<String, List<String>> schools = getUserSavedSchoolMap();
-		List<String> userSchools = schools.get(username);
-		// userSchools will be null if there are no saved schools
-		if(userSchools != null && userSchools.contains(schoolName)) return false;
-		
-		int result = this.database.user_saveSchool(username, schoolName);
-		if (result != 1) {
-			String msg = String.format("(%d) Error saving school \"%s\" to user \"%s\" in the DB.",
-					result, schoolName, username);
-			throw new Error(msg + " Already present?  DB error?");
+		savedSchoolsLock.readLock().lock();
+		try {
+			ensureSavedSchoolsLoaded(username);
+			if(savedSchools.contains(username, schoolName)) return false;
+			
+			WriteBehindQueue q = writeBehind;
+			if(q != null) {
+				q.saveSchool(username, schoolName);
+				savedSchools.add(username, schoolName);
+				return true;
+			}
+			
+			if (!storage.insertSavedSchool(username, schoolName)) {
+				String msg = String.format("Error saving school \"%s\" to user \"%s\" in the DB.",
+						schoolName, username);
+				throw new Error(msg + " Already present?  DB error?");
+			}
+			else {
+				savedSchools.add(username, schoolName);
+				return true;
+			}
 		}
-		else {
-			return true;
+		finally {
+			savedSchoolsLock.readLock().unlock();
 		}
 	}
 	
+	/**
+	 * Gets the schools a user has saved: the ones read from the database,
+	 * which come sorted by name, then any saved since in the order they
+	 * were saved. Only that user's rows are read from the database, and
+	 * only the first time.
+	 * @param username Username
+	 * @return The saved schools or {@code null} if there are none.
+	 */
+	public List<String> getSavedSchools(String username) {
+		ensureSavedSchoolsLoaded(username);
+		return savedSchools.getSchools(username);
+	}
+	
+	/**
+	 * Gets every user that has saved a school.
+	 * @param schoolName School name
+	 * @return A set of usernames.
+	 */
+	public Set<String> getUsersWhoSaved(String schoolName) {
+		ensureAllSavedSchoolsLoaded();
+		return savedSchools.getUsers(schoolName);
+	}
+	
 	// get the mapping from users to their saved universities in the DB
 	// e.g., peter -> {CSBSJU, HARVARD}
 	//       juser -> {YALE, AUGSBURG, STANFORD}
 	public Map<String, List<String>> getUserSavedSchoolMap() {
-		String[][] dbMapping = this.database.user_getUsernamesWithSavedSchools();
-
-		HashMap<String, List<String>> result = new HashMap<String, List<String>>();
-		
-		for (String[] entry : dbMapping) {
-			String user = entry[0];
-			String school = entry[1];
-			
-			if (!result.containsKey(user))
-				result.put(user, new ArrayList<String>());
-			
-			result.get(user).add(school);
+		ensureAllSavedSchoolsLoaded();
+		return savedSchools.toMap();
+	}
+	
+	private void ensureSavedSchoolsLoaded(String username) {
+		// Another thread may load the user and save a school while these
+		// rows are read, so the index keeps whichever load came first
+		if(!savedSchools.isLoaded(username)) {
+			savedSchools.loadUser(username, storage.loadSavedSchools(username));
+		}
+	}
+	
+	private void ensureAllSavedSchoolsLoaded() {
+		if(savedSchools.isComplete()) return;
+		// Loading replaces the index, so pending saves must be in the table
+		// and no save may land between the flush and the load
+		savedSchoolsLock.writeLock().lock();
+		try {
+			if(!savedSchools.isComplete()) {
+				flushWrites();
+				savedSchools.loadAll(storage.loadSavedSchools());
+			}
+		}
+		finally {
+			savedSchoolsLock.writeLock().unlock();
 		}
-
-		return result;
 	}
 	
 
@@ -214,7 +403,7 @@ public class DatabaseController implements AutoCloseable {
 	 * @version Mar 14, 2025
 	 */
 	public Map<String, List<String>> getUniversitiesEmphases() {
-		String[][] emphases = database.university_getNamesWithEmphases();
+		String[][] emphases = storage.loadEmphasisPairs();
 		Map<String, List<String>> dict = new HashMap<String, List<String>>();
 		for(String[] kv : emphases) {
 			
@@ -232,43 +421,98 @@ public class DatabaseController implements AutoCloseable {
 	/**
 	 * Gets the list of all the universities in the DB
 	 * @return A list of universities
+	 * @see #getAllSchools(Executor)
 	 * @author Roman Lefler
 	 * @version Mar 13, 2025
 	 */
 	public List<University> getAllSchools() {
-		String[][] dbUniversityList = this.database.university_getUniversities();
-
-		Map<String, List<String>> emphases = getUniversitiesEmphases();
-		ArrayList<University> result = new ArrayList<>();
+		return AsyncDatabaseController.join(getAllSchools(AsyncDatabaseController.fanOutExecutor()));
+	}
+	
+	/**
+	 * Gets the list of all the universities in the DB.
+	 * The universities, emphases and extra attributes are read
+	 * at the same time on an executor and joined once all three are done.
+	 * If a load is already in flight this waits for it instead and
+	 * gets a copy of its result.
+	 * @param executor Executor to run the three queries on
+	 * @return A future list of universities
+	 */
+	public CompletableFuture<List<University>> getAllSchools(Executor executor) {
+		return schoolLoads.share("schools", () -> fetchAllSchools(executor));
+	}
+	
+	private CompletableFuture<List<University>> fetchAllSchools(Executor executor) {
+		CompletableFuture<String[][]> rows =
+				CompletableFuture.supplyAsync(this::fetchUniversityRows, executor);
+		CompletableFuture<Map<String, BitSet>> emphases =
+				CompletableFuture.supplyAsync(this::fetchEmphasisBits, executor);
+		CompletableFuture<Map<String, UniversityExt>> ext =
+				CompletableFuture.supplyAsync(this::fetchUniversityExt, executor);
+		
+		return CompletableFuture.allOf(rows, emphases, ext)
+				.thenApply(v -> joinSchools(rows.join(), emphases.join(), ext.join()));
+	}
+	
+	/**
+	 * Reads every row of the University table.
+	 * @return Rows in the database library's column order.
+	 */
+	protected String[][] fetchUniversityRows() {
+		return storage.loadUniversityRows();
+	}
+	
+	/**
+	 * Reads every university's emphases straight into sets of
+	 * {@link EmphasisDictionary} ids.
+	 * @return University names to emphasis ids. Universities with
+	 *         no emphases are left out.
+	 */
+	protected Map<String, BitSet> fetchEmphasisBits() {
+		String[][] emphases = storage.loadEmphasisPairs();
+		Map<String, BitSet> dict = new HashMap<>();
+		for(String[] kv : emphases) {
+			BitSet bits = dict.get(kv[0]);
+			if(bits == null) {
+				bits = new BitSet();
+				dict.put(kv[0], bits);
+			}
+			bits.set(EmphasisDictionary.idOf(kv[1]));
+		}
+		return dict;
+	}
+	
+	/**
+	 * Reads every university's extra attributes.
+	 * @return University names to extra attributes.
+	 */
+	protected Map<String, UniversityExt> fetchUniversityExt() {
+		return storage.loadUniversityExt();
+	}
+	
+	/**
+	 * Builds universities out of the three tables they are stored in.
+	 * @param dbUniversityList Rows of the University table
+	 * @param emphases University names to emphasis ids
+	 * @param ext University names to extra attributes
+	 * @return A list of universities
+	 */
+	private static List<University> joinSchools(String[][] dbUniversityList,
+			Map<String, BitSet> emphases, Map<String, UniversityExt> ext) {
+		ArrayList<University> result = new ArrayList<>(dbUniversityList.length);
 		for (String[] k : dbUniversityList) {
 			
 			String name = k[0];
 			
-			University u = new University(k[0]);
-			u.setState(k[1]);
-			u.setLocation(k[2]);
-			u.setControl(k[3]);
-			u.setNumStudents(Integer.parseInt(k[4]));
-			u.setPercentFemale(Double.parseDouble(k[5]));
-			u.setSatVerbal(Double.parseDouble(k[6]));
-			u.setSatMath(Double.parseDouble(k[7]));
-			u.setExpenses(Double.parseDouble(k[8]));
-			u.setPercentFinancialAid(Double.parseDouble(k[9]));
-			u.setNumApplicants(Integer.parseInt(k[10]));
-			u.setPercentAdmitted(Double.parseDouble(k[11]));
-			u.setPercentEnrolled(Double.parseDouble(k[12]));
-			u.setScaleAcademics(Integer.parseInt(k[13]));
-			u.setScaleSocial(Integer.parseInt(k[14]));
-			u.setScaleQualityOfLife(Integer.parseInt(k[15]));
-			List<String> schoolEmphases = emphases.get(name);
-			if(schoolEmphases != null) {
-				for(String e : schoolEmphases) u.addEmphasis(e);
-			}
+			University u = UniversityRowDecoder.decode(k);
+			BitSet schoolEmphases = emphases.get(name);
+			if(schoolEmphases != null) u.setEmphasisBits(schoolEmphases);
 			
-			String webpageUrl = dbext.getWebpageUrl(name);
-			u.setWebpageUrl(webpageUrl);
-			String imageUrl = dbext.getImageUrl(name);
-			u.setImageUrl(imageUrl);
+			UniversityExt row = ext.get(name);
+			if(row != null) {
+				u.setWebpageUrl(row.getWebpageUrl());
+				u.setImageUrl(row.getImageUrl());
+			}
 			
 			result.add(u);
 		}
@@ -277,58 +521,88 @@ public class DatabaseController implements AutoCloseable {
 	}
 	
 	/**
-	 * Gets a list of all possible emphases.
-	 * @return A list of all emphases.
-	 * @author Roman Lefler
-	 * @version Mar 14, 2025
+	 * Hands every university to a callback one at a time, in name order,
+	 * as its row is decoded. The storage streams each row together with
+	 * its emphases and extra attributes, so no list or map of the whole
+	 * catalog is built. The callback may keep the universities it is given.
+	 * @param action Receives each university
 	 */
-	public List<String> getAllEmphases() {
-		// It's not clear to me why this returns a 2D array
-		String[][] arr = database.university_getEmphases();
-		List<String> list = new ArrayList<String>();
-		for(int i = 0; i < arr.length; i++) {
-			for(int j = 0; j < arr[i].length; j++) list.add(arr[i][j]);
-		}
+	public void forEachUniversity(Consumer<? super University> action) {
+		storage.scanUniversityRows((k, emphases, row) -> {
+			University u = UniversityRowDecoder.decode(k);
+			if(!emphases.isEmpty()) u.setEmphases(emphases);
+			
+			if(row != null) {
+				u.setWebpageUrl(row.getWebpageUrl());
+				u.setImageUrl(row.getImageUrl());
+			}
+			action.accept(u);
+		});
+	}
+	
+	/**
+	 * Gets one page of universities in name order without loading the
+	 * whole catalog. This reads the page's rows, then its emphases and
+	 * extra attributes, so it's three queries however big the table is.
+	 * @param afterName Cursor from the previous page, or {@code null} for the first page.
+	 * @param limit Most universities on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if limit isn't positive.
+	 */
+	public Page<University> pageUniversities(String afterName, int limit) {
+		List<String[]> rows = storage.loadUniversityRowsAfter(afterName, Page.readAhead(limit));
+		List<String> names = new ArrayList<>(rows.size());
+		for(String[] k : rows) names.add(k[0]);
+		Map<String, List<String>> emphases = storage.loadEmphases(names);
+		Map<String, UniversityExt> ext = storage.loadUniversityExt(names);
 		
-		return list;
+		List<University> list = new ArrayList<>(rows.size());
+		for(String[] k : rows) {
+			University u = UniversityRowDecoder.decode(k);
+			List<String> schoolEmphases = emphases.get(k[0]);
+			if(schoolEmphases != null) u.setEmphases(schoolEmphases);
+			
+			UniversityExt row = ext.get(k[0]);
+			if(row != null) {
+				u.setWebpageUrl(row.getWebpageUrl());
+				u.setImageUrl(row.getImageUrl());
+			}
+			list.add(u);
+		}
+		return Page.of(list, limit, University::getName);
 	}
 	
 	/**
-	 * Removes an emphasis from a university.
-	 * 
-	 * This method doesn't take a University object so that
-	 * it doesn't get confused with the list maintained in
-	 * the University object, which can be out of sync with the
-	 * database.
-	 * @param uniName University name to remove emphasis from.
-	 * @param emphasis The emphasis to remove
-	 * @return {@code true} is succeeded.
-	 * @author Roman Lefler
-	 * @version Mar 16, 2025
+	 * Gets one university by name without loading the whole catalog.
+	 * This reads its row, its emphases and its extra attributes.
+	 * @param name Exact name of the university
+	 * @return The university or {@code null} if it isn't in the database.
 	 */
-	private boolean removeEmphasis(String uniName, String emphasis) {
-		int result = database.university_removeUniversityEmphasis(uniName, emphasis);
-		return result > 0;
+	public University getUniversity(String name) {
+		String[] k = storage.loadUniversityRow(name);
+		if(k == null) return null;
+		
+		University u = UniversityRowDecoder.decode(k);
+		for(String e : storage.loadEmphases(name)) u.addEmphasis(e);
+		
+		UniversityExt row = storage.loadUniversityExt(name);
+		if(row != null) {
+			u.setWebpageUrl(row.getWebpageUrl());
+			u.setImageUrl(row.getImageUrl());
+		}
+		return u;
 	}
 	
 	/**
-	 * Adds an emphasis to a university.
-	 * 
-	 * This method doesn't take a University object so that
-	 * it doesn't get confused with the list maintained in
-	 * the University object, which can be out of sync with the
-	 * database.
-	 * @param uniName University name to add emphasis to.
-	 * @param emphasis The emphasis to add
-	 * @return {@code true} if succeeded.
+	 * Gets a list of all possible emphases.
+	 * @return A list of all emphases.
 	 * @author Roman Lefler
-	 * @version Mar 16, 2025
+	 * @version Mar 14, 2025
 	 */
-	private boolean addEmphasis(String uniName, String emphasis) {
-		int result = database.university_addUniversityEmphasis(uniName, emphasis);
-		return result > 0;
+	public List<String> getAllEmphases() {
+		return storage.loadEmphasisNames();
 	}
-
+	
 	/**
 	 * Adds a new university to the database.
 	 * @param u University with attributes to add.
@@ -340,27 +614,26 @@ public class DatabaseController implements AutoCloseable {
 	 */
 	public boolean addNewUniversity(University u) {
 		String name = u.getName();
-		int result = database.university_addUniversity(
-				name, u.getState(), u.getLocation(), u.getControl(),
-				u.getNumStudents(), u.getPercentFemale(), u.getSatVerbal(),
-				u.getSatMath(), u.getExpenses(), u.getPercentFinancialAid(),
-				u.getNumApplicants(), u.getPercentAdmitted(),
-				u.getPercentEnrolled(), u.getScaleAcademics(),
-				u.getScaleSocial(), u.getScaleQualityOfLife());
-		
-		if(result != 1) return false;
+		if(!storage.insertUniversity(u)) return false;
 		
-		dbext.setWebpageUrl(name, u.getWebpageUrl());
-		dbext.setImageUrl(name, u.getImageUrl());
+		storage.upsertUniversityExt(name, u.getWebpageUrl(), u.getImageUrl());
 		
-		String uniName = u.getName();
-		for(String e : u.getEmphases()) {
-			if(!addEmphasis(uniName, e)) throw new IllegalStateException(SHOULDNT_HAPPEN);
-		}
+		if(!storage.addEmphases(name, u.getEmphases())) throw new IllegalStateException(SHOULDNT_HAPPEN);
 		
 		return true;
 	}
 
+	/**
+	 * Adds many universities at once, with their emphases and extra attributes.
+	 * Universities whose names are taken are skipped.
+	 * @param batch Universities to add
+	 * @return How many were added.
+	 * @see #addNewUniversity(University)
+	 */
+	public int addNewUniversities(List<University> batch) {
+		return storage.insertUniversities(batch).size();
+	}
+
 	/**
 	 * Removes a university from the database.
 	 * @param u Removes a university by name (only the name is used)
@@ -378,22 +651,15 @@ public class DatabaseController implements AutoCloseable {
 		String uniName = u.getName();
 		// Since u's emphasis list can be out of sync with the database's
 		// emphases, we must rely on database's reported emphases
-		Map<String, List<String>> emphasesDict = getUniversitiesEmphases();
-		List<String> emphases = emphasesDict.get(uniName);
-		if(emphases != null) {
-			for(String k : u.getEmphases()) {
-				
-				if(!removeEmphasis(uniName, k)) throw new IllegalStateException(SHOULDNT_HAPPEN);
-			}
-		}
+		List<String> emphases = storage.loadEmphases(uniName);
+		if(!storage.removeEmphases(uniName, emphases)) throw new IllegalStateException(SHOULDNT_HAPPEN);
 		
-		int result = database.university_deleteUniversity(uniName);
-		if(result < 1) return false; 
+		if(!storage.deleteUniversity(uniName)) return false;
 		
 		// The success of this doesn't matter since
 		// It could fail if there are no saved extra
 		// Attributes
-		dbext.removeUniversityRow(uniName);
+		storage.deleteUniversityExt(uniName);
 		return true;
 	}
 	
@@ -409,45 +675,27 @@ public class DatabaseController implements AutoCloseable {
 	 */
 	public boolean editUniversity(University u) {
 		
+		String uniName = u.getName();
+		if(!storage.updateUniversity(u)) return false;
+		
 		// # Emphases:
 		// Anything that is present in the database but not u
 		// was removed.
 		// Anything that is present in u but not in the database
 		// was added.
-		String uniName = u.getName();
-		University old = new UniversityController().getUniversity(uniName);
-		List<String> oldE = old.getEmphases();
-		List<String> newE = u.getEmphases();
-		// Create a total set of all emphases
-		Set<String> both = new HashSet<>(oldE);
-		both.addAll(newE);
-		// Iterate through the total set of all emphases
-		for(String em : both) {
-			if(oldE.contains(em)) {
-				// In old but not new; Newly removed
-				if(!newE.contains(em)) {
-					if(!removeEmphasis(uniName, em)) throw new IllegalStateException(SHOULDNT_HAPPEN);
-				}
-			}
-			// Not in old (and therefore must be in new); Newly added
-			else {
-				if(!addEmphasis(uniName, em)) throw new IllegalStateException(SHOULDNT_HAPPEN);
-			}
-		}
-		
-		// Here's the easy part
-		int result = database.university_editUniversity(
-				u.getName(), u.getState(), u.getLocation(), u.getControl(),
-				u.getNumStudents(), u.getPercentFemale(), u.getSatVerbal(),
-				u.getSatMath(), u.getExpenses(), u.getPercentFinancialAid(),
-				u.getNumApplicants(), u.getPercentAdmitted(),
-				u.getPercentEnrolled(), u.getScaleAcademics(),
-				u.getScaleSocial(), u.getScaleQualityOfLife());
-		
-		if(result < 1) return false;
+		// Only this school's emphases are read.
+		BitSet oldE = EmphasisDictionary.encode(storage.loadEmphases(uniName));
+		BitSet newE = u.getEmphasisBits();
+		BitSet removedBits = (BitSet)oldE.clone();
+		removedBits.andNot(newE);
+		List<String> removed = EmphasisDictionary.decode(removedBits);
+		// Added in the university's own order
+		List<String> added = u.getEmphases();
+		added.removeIf(e -> oldE.get(EmphasisDictionary.lookup(e)));
+		if(!storage.removeEmphases(uniName, removed)) throw new IllegalStateException(SHOULDNT_HAPPEN);
+		if(!storage.addEmphases(uniName, added)) throw new IllegalStateException(SHOULDNT_HAPPEN);
 		
-		dbext.setWebpageUrl(uniName, u.getWebpageUrl());
-		dbext.setImageUrl(uniName, u.getImageUrl());
+		storage.upsertUniversityExt(uniName, u.getWebpageUrl(), u.getImageUrl());
 		return true;
 	}
 	
@@ -3,10 +3,17 @@ package cmc.backend.controllers;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import cmc.CMCException;
+import cmc.backend.Page;
 import cmc.backend.User;
 import cmc.backend.entities.University;
 
@@ -193,6 +200,18 @@ public class MockDatabaseController extends DatabaseController {
         return userList;
     }
 
+    @Override
+    public Page<User> pageUsers(String afterUsername, int limit) {
+        int read = Page.readAhead(limit);
+        TreeMap<String, User> sorted = new TreeMap<>(users);
+        List<User> page = new ArrayList<>();
+        for (User u : (afterUsername == null ? sorted : sorted.tailMap(afterUsername, false)).values()) {
+            if (page.size() == read) break;
+            page.add(u.uClone());
+        }
+        return Page.of(page, limit, User::getUsername);
+    }
+
     @Override
     public boolean editUser(User u) {
         if (u == null || u.getUsername() == null) {
@@ -224,6 +243,21 @@ public class MockDatabaseController extends DatabaseController {
         return list.add(schoolName);
     }
 
+    @Override
+    public List<String> getSavedSchools(String username) {
+        List<String> list = savedSchools.get(username);
+        return (list == null || list.isEmpty()) ? null : new ArrayList<>(list);
+    }
+
+    @Override
+    public Set<String> getUsersWhoSaved(String schoolName) {
+        Set<String> users = new HashSet<>();
+        for (Map.Entry<String, List<String>> kv : savedSchools.entrySet()) {
+            if (kv.getValue().contains(schoolName)) users.add(kv.getKey());
+        }
+        return users;
+    }
+
     @Override
     public Map<String, List<String>> getUserSavedSchoolMap() {
         return new HashMap<>(savedSchools);
@@ -240,6 +274,33 @@ public class MockDatabaseController extends DatabaseController {
         return new ArrayList<>(unis.values());
     }
 
+    @Override
+    public CompletableFuture<List<University>> getAllSchools(Executor executor) {
+        return CompletableFuture.supplyAsync(this::getAllSchools, executor);
+    }
+
+    @Override
+    public void forEachUniversity(Consumer<? super University> action) {
+        for (University u : new ArrayList<>(unis.values())) action.accept(u);
+    }
+
+    @Override
+    public Page<University> pageUniversities(String afterName, int limit) {
+        int read = Page.readAhead(limit);
+        TreeMap<String, University> sorted = new TreeMap<>(unis);
+        List<University> page = new ArrayList<>();
+        for (University u : (afterName == null ? sorted : sorted.tailMap(afterName, false)).values()) {
+            if (page.size() == read) break;
+            page.add(u);
+        }
+        return Page.of(page, limit, University::getName);
+    }
+
+    @Override
+    public University getUniversity(String name) {
+        return unis.get(name);
+    }
+
     @Override
     public List<String> getAllEmphases() {
         System.out.println("MockDatabaseController getAllEmphases() called (returning empty).");
@@ -254,6 +315,15 @@ public class MockDatabaseController extends DatabaseController {
         return unis.putIfAbsent(u.getName(), u) == null;
     }
 
+    @Override
+    public int addNewUniversities(List<University> batch) {
+        int added = 0;
+        for (University u : batch) {
+            if (addNewUniversity(u)) added++;
+        }
+        return added;
+    }
+
     @Override
     public boolean removeUniversity(University u) {
         if (u == null || u.getName() == null) {
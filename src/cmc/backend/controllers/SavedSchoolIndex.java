@@ -0,0 +1,174 @@
+package cmc.backend.controllers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory index of the MySavedSchools table.
+ * Each user maps to their saved schools in the order they were added,
+ * and each school maps back to the users that saved it.
+ *
+ * Users can be loaded one at a time, so reading a single user's list
+ * only needs that user's rows. The reverse index is only complete
+ * once the whole table has been loaded with {@link #loadAll(String[][])}.
+ */
+public class SavedSchoolIndex {
+
+	private final Map<String, LinkedHashSet<String>> byUser = new HashMap<>();
+	private final Map<String, Set<String>> bySchool = new HashMap<>();
+	private boolean complete = false;
+
+	/**
+	 * Checks if a user's saved schools are in the index.
+	 * @param username Username
+	 * @return {@code true} if that user doesn't need to be loaded.
+	 */
+	public synchronized boolean isLoaded(String username) {
+		return complete || byUser.containsKey(username);
+	}
+
+	/**
+	 * @return {@code true} if every row of the table is in the index
+	 */
+	public synchronized boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Loads one user's saved schools unless they are already loaded.
+	 * The rows may have been read before another thread loaded the user
+	 * and saved a school, so they never replace what is there.
+	 * @param username Username
+	 * @param schools Their saved schools
+	 * @return {@code false} if the user was already loaded.
+	 */
+	public synchronized boolean loadUser(String username, List<String> schools) {
+		if(isLoaded(username)) return false;
+		byUser.put(username, new LinkedHashSet<String>());
+		for(String s : schools) add(username, s);
+		return true;
+	}
+
+	/**
+	 * Loads the whole table, replacing what was there.
+	 * @param pairs Rows of (user, school)
+	 */
+	public synchronized void loadAll(String[][] pairs) {
+		byUser.clear();
+		bySchool.clear();
+		for(String[] entry : pairs) add(entry[0], entry[1]);
+		complete = true;
+	}
+
+	/**
+	 * Checks if a user has saved a school.
+	 * @param username Username
+	 * @param school School name
+	 * @return {@code true} if it's saved.
+	 */
+	public synchronized boolean contains(String username, String school) {
+		Set<String> set = byUser.get(username);
+		return set != null && set.contains(school);
+	}
+
+	/**
+	 * Records that a user saved a school.
+	 * @param username Username
+	 * @param school School name
+	 * @return {@code false} if it was already saved.
+	 */
+	public synchronized boolean add(String username, String school) {
+		LinkedHashSet<String> set = byUser.get(username);
+		if(set == null) {
+			set = new LinkedHashSet<>();
+			byUser.put(username, set);
+		}
+		if(!set.add(school)) return false;
+
+		Set<String> users = bySchool.get(school);
+		if(users == null) {
+			users = new HashSet<>();
+			bySchool.put(school, users);
+		}
+		users.add(username);
+		return true;
+	}
+
+	/**
+	 * Records that a user no longer has a school saved.
+	 * @param username Username
+	 * @param school School name
+	 * @return {@code true} if it was saved.
+	 */
+	public synchronized boolean remove(String username, String school) {
+		Set<String> set = byUser.get(username);
+		if(set == null || !set.remove(school)) return false;
+
+		Set<String> users = bySchool.get(school);
+		if(users != null) {
+			users.remove(username);
+			if(users.isEmpty()) bySchool.remove(school);
+		}
+		return true;
+	}
+
+	/**
+	 * Drops a user and all their saved schools.
+	 * @param username Username
+	 * @return The schools they had saved.
+	 */
+	public synchronized List<String> removeUser(String username) {
+		Set<String> set = byUser.remove(username);
+		if(set == null) return new ArrayList<>();
+
+		for(String school : set) {
+			Set<String> users = bySchool.get(school);
+			if(users != null) {
+				users.remove(username);
+				if(users.isEmpty()) bySchool.remove(school);
+			}
+		}
+		return new ArrayList<>(set);
+	}
+
+	/**
+	 * Gets a user's saved schools in the order they were added.
+	 * @param username Username
+	 * @return A copy of the list or {@code null} if they have none.
+	 */
+	public synchronized List<String> getSchools(String username) {
+		Set<String> set = byUser.get(username);
+		if(set == null || set.isEmpty()) return null;
+		return new ArrayList<>(set);
+	}
+
+	/**
+	 * Gets the loaded users that saved a school.
+	 * This only covers every user when {@link #isComplete()}.
+	 * @param school School name
+	 * @return A copy of the set of usernames.
+	 */
+	public synchronized Set<String> getUsers(String school) {
+		Set<String> users = bySchool.get(school);
+		return users == null ? new HashSet<String>() : new HashSet<>(users);
+	}
+
+	/**
+	 * Copies the index out as a map from users to their saved schools.
+	 * Users with no saved schools are left out.
+	 * @return A new map.
+	 */
+	public synchronized Map<String, List<String>> toMap() {
+		Map<String, List<String>> map = new HashMap<>();
+		for(Map.Entry<String, LinkedHashSet<String>> kv : byUser.entrySet()) {
+			if(!kv.getValue().isEmpty()) map.put(kv.getKey(), new ArrayList<>(kv.getValue()));
+		}
+		return map;
+	}
+
+}
@@ -0,0 +1,149 @@
+package cmc.backend.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Makes concurrent identical loads share one fetch.
+ *
+ * The first caller for a key starts the load. Anyone who asks for the
+ * same key before it finishes waits on that load instead of starting
+ * their own, and gets a copy of its result so callers never share
+ * mutable objects. Once a load finishes the next call starts a new one;
+ * nothing is cached.
+ * @param <K> Key type
+ * @param <V> Result type
+ */
+public class SingleFlight<K, V> {
+
+	/**
+	 * One load and the callers waiting on it.
+	 */
+	private class Flight {
+		private final CompletableFuture<V> leader = new CompletableFuture<>();
+		private final List<CompletableFuture<V>> followers = new ArrayList<>();
+		private boolean done = false;
+
+		private synchronized CompletableFuture<V> follow() {
+			if(done) return null;
+			CompletableFuture<V> f = new CompletableFuture<>();
+			followers.add(f);
+			return f;
+		}
+
+		/**
+		 * Hands out the result. Every follower gets its copy before the
+		 * leader gets the original, so it can't be changed while it's copied.
+		 */
+		private void finish(K key, V value, Throwable error) {
+			List<CompletableFuture<V>> waiting;
+			synchronized(this) {
+				done = true;
+				inFlight.remove(key, this);
+				waiting = new ArrayList<>(followers);
+			}
+			for(CompletableFuture<V> f : waiting) {
+				if(error != null) f.completeExceptionally(error);
+				else {
+					try {
+						f.complete(copier.apply(value));
+					}
+					catch(RuntimeException e) {
+						f.completeExceptionally(e);
+					}
+				}
+			}
+			if(error != null) leader.completeExceptionally(error);
+			else leader.complete(value);
+		}
+	}
+
+	private final ConcurrentHashMap<K, Flight> inFlight = new ConcurrentHashMap<>();
+	private final UnaryOperator<V> copier;
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong deduplicated = new AtomicLong();
+
+	/**
+	 * Creates a single-flight group.
+	 * @param copier Copies a result for each caller that shared a load
+	 */
+	public SingleFlight(UnaryOperator<V> copier) {
+		if(copier == null) throw new IllegalArgumentException("copier cannot be null.");
+		this.copier = copier;
+	}
+
+	/**
+	 * Joins the load in flight for a key or starts one.
+	 * @param key What is being loaded
+	 * @param start Starts the load; only called if none is in flight
+	 * @return The result of the load.
+	 */
+	public CompletableFuture<V> share(K key, Supplier<CompletableFuture<V>> start) {
+		while(true) {
+			Flight existing = inFlight.get(key);
+			if(existing != null) {
+				CompletableFuture<V> f = existing.follow();
+				if(f != null) {
+					deduplicated.incrementAndGet();
+					return f;
+				}
+				// It finished between the lookup and joining it
+				inFlight.remove(key, existing);
+				continue;
+			}
+
+			Flight mine = new Flight();
+			if(inFlight.putIfAbsent(key, mine) != null) continue;
+			loads.incrementAndGet();
+			CompletableFuture<V> result;
+			try {
+				result = start.get();
+			}
+			catch(RuntimeException | Error e) {
+				mine.finish(key, null, e);
+				throw e;
+			}
+			result.whenComplete((v, e) -> mine.finish(key, v, e));
+			return mine.leader;
+		}
+	}
+
+	/**
+	 * Runs a load on the calling thread unless one is already in flight.
+	 * @param key What is being loaded
+	 * @param load The load
+	 * @return The result of the load.
+	 */
+	public V run(K key, Supplier<V> load) {
+		return AsyncDatabaseController.join(share(key, () -> {
+			CompletableFuture<V> f = new CompletableFuture<>();
+			try {
+				f.complete(load.get());
+			}
+			catch(RuntimeException | Error e) {
+				f.completeExceptionally(e);
+			}
+			return f;
+		}));
+	}
+
+	/**
+	 * @return how many loads were started
+	 */
+	public long getLoads() {
+		return loads.get();
+	}
+
+	/**
+	 * @return how many calls shared a load that was already in flight
+	 */
+	public long getDeduplicated() {
+		return deduplicated.get();
+	}
+
+}
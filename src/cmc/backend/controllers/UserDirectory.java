@@ -0,0 +1,125 @@
+package cmc.backend.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cmc.backend.User;
+
+/**
+ * An in-memory directory of users keyed by username.
+ * It is filled once from the User table and then kept in sync by
+ * {@link DatabaseController} whenever a user is added, edited or removed,
+ * so looking a user up is a map lookup instead of a table scan.
+ * Users are kept sorted by username so they can also be read a page
+ * at a time.
+ *
+ * Users are cloned going in and out since User is mutable.
+ */
+public class UserDirectory {
+
+	private final ConcurrentNavigableMap<String, User> users = new ConcurrentSkipListMap<>();
+	private volatile boolean loaded = false;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @return {@code true} if {@link #load(List)} has been called
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Replaces the contents of the directory.
+	 * @param all Every user in the database.
+	 */
+	public synchronized void load(List<User> all) {
+		users.clear();
+		for(User u : all) users.put(u.getUsername(), u.uClone());
+		loaded = true;
+	}
+
+	/**
+	 * Looks up a user by username.
+	 * @param username Username
+	 * @return A copy of the user or {@code null} if there isn't one.
+	 */
+	public User get(String username) {
+		User u = username == null ? null : users.get(username);
+		if(u == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return u.uClone();
+	}
+
+	/**
+	 * Gets every user sorted by username.
+	 * @return Copies of every user.
+	 */
+	public List<User> getAll() {
+		List<User> list = new ArrayList<>(users.size());
+		for(User u : users.values()) list.add(u.uClone());
+		return list;
+	}
+
+	/**
+	 * Gets users in username order, starting after a cursor.
+	 * @param afterUsername Only users after this one, or {@code null} to start from the first.
+	 * @param limit Most users to get
+	 * @return Copies of up to {@code limit} users.
+	 */
+	public List<User> getAfter(String afterUsername, int limit) {
+		Map<String, User> tail = afterUsername == null ? users : users.tailMap(afterUsername, false);
+		List<User> list = new ArrayList<>();
+		for(User u : tail.values()) {
+			if(list.size() == limit) break;
+			list.add(u.uClone());
+		}
+		return list;
+	}
+
+	/**
+	 * Adds or replaces a user.
+	 * @param u User
+	 */
+	public void put(User u) {
+		users.put(u.getUsername(), u.uClone());
+	}
+
+	/**
+	 * Removes a user.
+	 * @param username Username
+	 */
+	public void remove(String username) {
+		users.remove(username);
+	}
+
+	/**
+	 * @return how many users are in the directory
+	 */
+	public int size() {
+		return users.size();
+	}
+
+	/**
+	 * @return how many lookups found a user
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return how many lookups didn't find a user
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+}
@@ -0,0 +1,326 @@
+package cmc.backend.controllers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cmc.backend.User;
+
+/**
+ * Holds saved schools and user edits in memory and writes them
+ * to the database later in batches.
+ *
+ * Duplicate writes are coalesced: saving the same school for the same
+ * user twice is one write, and only the newest edit of a user is written.
+ * Writes are flushed by a background thread once the oldest one has waited
+ * the maximum staleness, or by the caller once the queue is full.
+ * Callers keep their own caches up to date so reads see pending writes.
+ *
+ * User edits and saves are written as separate batches, so one failing
+ * doesn't stop the other. A batch that fails goes back on the queue and
+ * is retried after the maximum staleness, so the callers' caches never
+ * report a write the database won't get. The failure is thrown to a
+ * caller that flushed, and is kept for {@link #getLastFailure()} either way.
+ *
+ * The queue is bounded. A new write into a full queue first flushes it,
+ * and if that fails the write is rejected instead of queued, so a caller
+ * only updates its cache for writes that were accepted. A write that
+ * replaces one already waiting is always accepted.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+
+	/**
+	 * Where flushed writes go.
+	 */
+	public interface Sink {
+		/**
+		 * Saves schools to users' lists.
+		 * @param saves Pairs of (username, school name)
+		 */
+		void saveSchools(List<String[]> saves);
+
+		/**
+		 * Overwrites users.
+		 * @param users Newest version of each edited user
+		 */
+		void editUsers(List<User> users);
+	}
+
+	private final Sink sink;
+	private final int maxPending;
+	private final long maxStalenessMillis;
+	private final ScheduledExecutorService writer;
+
+	// Guarded by this
+	private final Set<List<String>> saves = new LinkedHashSet<>();
+	private final Map<String, User> edits = new LinkedHashMap<>();
+	private boolean closed = false;
+
+	// Keeps batches in the order they were taken off the queue
+	private final Object flushLock = new Object();
+
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private volatile RuntimeException lastFailure;
+
+	/**
+	 * Creates an empty queue with its own writer thread.
+	 * @param sink Where writes go
+	 * @param maxPending Most writes held before the caller has to flush
+	 * @param maxStalenessMillis Longest a write waits before it is flushed
+	 * @throws IllegalArgumentException if maxPending is less than 1
+	 */
+	public WriteBehindQueue(Sink sink, int maxPending, long maxStalenessMillis) {
+		if(sink == null) throw new IllegalArgumentException("sink cannot be null.");
+		if(maxPending < 1) throw new IllegalArgumentException("maxPending must be at least 1.");
+		this.sink = sink;
+		this.maxPending = maxPending;
+		this.maxStalenessMillis = maxStalenessMillis;
+		this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "cmc-write-behind");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Queues saving a school to a user's list.
+	 * @param username Username
+	 * @param school School name
+	 * @throws IllegalStateException if the queue is closed, or is full and
+	 *         couldn't be flushed. The save isn't queued.
+	 */
+	public void saveSchool(String username, String school) {
+		List<String> pair = new ArrayList<>(2);
+		pair.add(username);
+		pair.add(school);
+		boolean full;
+		while(true) {
+			synchronized(this) {
+				checkOpen();
+				if(saves.contains(pair)) {
+					coalesced.incrementAndGet();
+					return;
+				}
+				if(size() < maxPending) {
+					boolean wasEmpty = isEmpty();
+					saves.add(pair);
+					full = enqueued(wasEmpty);
+					break;
+				}
+			}
+			makeRoom();
+		}
+		if(full) backgroundFlush();
+	}
+
+	/**
+	 * Queues overwriting a user. A pending edit of the same user is replaced.
+	 * @param u User to write, copied
+	 * @throws IllegalStateException if the queue is closed, or is full and
+	 *         couldn't be flushed. The edit isn't queued.
+	 */
+	public void editUser(User u) {
+		User copy = u.uClone();
+		boolean full;
+		while(true) {
+			synchronized(this) {
+				checkOpen();
+				if(edits.remove(copy.getUsername()) != null) {
+					edits.put(copy.getUsername(), copy);
+					coalesced.incrementAndGet();
+					return;
+				}
+				if(size() < maxPending) {
+					boolean wasEmpty = isEmpty();
+					edits.put(copy.getUsername(), copy);
+					full = enqueued(wasEmpty);
+					break;
+				}
+			}
+			makeRoom();
+		}
+		if(full) backgroundFlush();
+	}
+
+	/**
+	 * Flushes a full queue so a new write fits.
+	 * @throws IllegalStateException if the flush failed, so the write can't be queued.
+	 */
+	private void makeRoom() {
+		try {
+			flush();
+		}
+		catch(IllegalStateException e) {
+			throw new IllegalStateException("Write-behind queue is full and can't be flushed; the write was not queued.",
+					e.getCause());
+		}
+	}
+
+	/**
+	 * @return how many writes are waiting
+	 */
+	public synchronized int size() {
+		return saves.size() + edits.size();
+	}
+
+	/**
+	 * Writes everything that is waiting on the caller's thread.
+	 * @throws IllegalStateException if the database rejected a batch;
+	 *         its writes are back on the queue to be retried.
+	 */
+	public void flush() {
+		synchronized(flushLock) {
+			List<String[]> saveBatch = new ArrayList<>();
+			List<User> editBatch;
+			synchronized(this) {
+				for(List<String> pair : saves) saveBatch.add(new String[] { pair.get(0), pair.get(1) });
+				editBatch = new ArrayList<>(edits.values());
+				saves.clear();
+				edits.clear();
+			}
+			RuntimeException failure = null;
+			// Users first so a new admin or reactivation lands before the saves
+			if(!editBatch.isEmpty()) {
+				try {
+					sink.editUsers(editBatch);
+					written.addAndGet(editBatch.size());
+				}
+				catch(RuntimeException e) {
+					failure = e;
+					requeueEdits(editBatch);
+				}
+			}
+			if(!saveBatch.isEmpty()) {
+				try {
+					sink.saveSchools(saveBatch);
+					written.addAndGet(saveBatch.size());
+				}
+				catch(RuntimeException e) {
+					if(failure == null) failure = e;
+					else failure.addSuppressed(e);
+					requeueSaves(saveBatch);
+				}
+			}
+			lastFailure = failure;
+			if(failure != null) throw new IllegalStateException("Write-behind flush failed; its writes will be retried.", failure);
+		}
+	}
+
+	/**
+	 * Puts back edits that failed. A user edited again since keeps the newer edit.
+	 */
+	private synchronized void requeueEdits(List<User> batch) {
+		failed.addAndGet(batch.size());
+		boolean wasEmpty = isEmpty();
+		for(User u : batch) edits.putIfAbsent(u.getUsername(), u);
+		retry(wasEmpty);
+	}
+
+	/**
+	 * Puts back saves that failed, ahead of the ones queued since.
+	 */
+	private synchronized void requeueSaves(List<String[]> batch) {
+		failed.addAndGet(batch.size());
+		boolean wasEmpty = isEmpty();
+		Set<List<String>> merged = new LinkedHashSet<>();
+		for(String[] pair : batch) merged.add(Arrays.asList(pair[0], pair[1]));
+		merged.addAll(saves);
+		saves.clear();
+		saves.addAll(merged);
+		retry(wasEmpty);
+	}
+
+	/**
+	 * Schedules a retry of requeued writes, unless a flush is already
+	 * scheduled for writes queued since or the queue is closed.
+	 * Must hold this.
+	 */
+	private void retry(boolean wasEmpty) {
+		if(wasEmpty && !closed) writer.schedule(this::backgroundFlush, maxStalenessMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return how many writes were merged into one already waiting
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	/**
+	 * @return how many writes reached the database
+	 */
+	public long getWritten() {
+		return written.get();
+	}
+
+	/**
+	 * @return how many times a write failed and went back on the queue
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return why the last flush failed, or {@code null} if it wrote everything
+	 */
+	public RuntimeException getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * Flushes everything that is waiting and stops the writer thread.
+	 * Nothing can be queued afterwards.
+	 * @throws IllegalStateException if the flush failed; the writes that
+	 *         failed are left in the queue, where {@link #size()} counts them.
+	 */
+	@Override
+	public void close() {
+		synchronized(this) {
+			if(closed) return;
+			closed = true;
+		}
+		writer.shutdownNow();
+		flush();
+	}
+
+	// Must hold this
+	private boolean isEmpty() {
+		return saves.isEmpty() && edits.isEmpty();
+	}
+
+	// Must hold this
+	private void checkOpen() {
+		if(closed) throw new IllegalStateException("Write-behind queue is closed.");
+	}
+
+	/**
+	 * Schedules a flush for the first write into an empty queue.
+	 * Must hold this.
+	 * @return {@code true} if the queue is full and must be flushed now.
+	 */
+	private boolean enqueued(boolean wasEmpty) {
+		if(wasEmpty) writer.schedule(this::backgroundFlush, maxStalenessMillis, TimeUnit.MILLISECONDS);
+		return saves.size() + edits.size() >= maxPending;
+	}
+
+	private void backgroundFlush() {
+		try {
+			flush();
+		}
+		catch(IllegalStateException e) {
+			// Nobody to throw to, since the writes were already accepted;
+			// they are requeued and the failure is kept for getLastFailure()
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package cmc.backend.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every emphasis string a small int id, so a set of emphases
+ * can be stored as a {@link BitSet} of ids.
+ *
+ * Ids are handed out the first time an emphasis is seen and are never
+ * reused, so a bit set stays valid for the life of the program.
+ * There is one dictionary shared by every university.
+ */
+public final class EmphasisDictionary {
+
+	private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+	// Guarded by IDS_LOCK for writes; index is the id. The array has
+	// room to spare and only the first count names are set; read count
+	// before names so every name below it is visible
+	private static volatile String[] names = new String[16];
+	private static volatile int count;
+	private static final Object IDS_LOCK = new Object();
+
+	private EmphasisDictionary() {
+	}
+
+	/**
+	 * Gets an emphasis's id, giving it a new one if it doesn't have one yet.
+	 * @param emphasis Emphasis string
+	 * @return Its id, at least 0.
+	 * @throws IllegalArgumentException if emphasis is {@code null}.
+	 */
+	public static int idOf(String emphasis) {
+		if(emphasis == null) throw new IllegalArgumentException("emphasis cannot be null.");
+		Integer id = IDS.get(emphasis);
+		if(id != null) return id;
+
+		synchronized(IDS_LOCK) {
+			id = IDS.get(emphasis);
+			if(id != null) return id;
+
+			int n = count;
+			String[] arr = names;
+			if(n == arr.length) {
+				arr = Arrays.copyOf(arr, n * 2);
+				names = arr;
+			}
+			arr[n] = emphasis;
+			// Publish the name before the id so a reader never finds an id without a name
+			count = n + 1;
+			IDS.put(emphasis, n);
+			return n;
+		}
+	}
+
+	/**
+	 * Gets an emphasis's id without giving it one.
+	 * @param emphasis Emphasis string
+	 * @return Its id or -1 if it has never been seen.
+	 */
+	public static int lookup(String emphasis) {
+		if(emphasis == null) return -1;
+		Integer id = IDS.get(emphasis);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Gets the emphasis with an id.
+	 * @param id Id from {@link #idOf(String)}
+	 * @return The emphasis string.
+	 * @throws IndexOutOfBoundsException if no emphasis has that id.
+	 */
+	public static String nameOf(int id) {
+		int n = count;
+		String[] arr = names;
+		if(id < 0 || id >= n) throw new IndexOutOfBoundsException("No emphasis has id " + id + ".");
+		return arr[id];
+	}
+
+	/**
+	 * @return how many emphases have an id
+	 */
+	public static int size() {
+		return count;
+	}
+
+	/**
+	 * Encodes emphases as a set of ids.
+	 * @param emphases Emphasis strings
+	 * @return A new bit set with each emphasis's id set.
+	 */
+	public static BitSet encode(Collection<String> emphases) {
+		BitSet bits = new BitSet();
+		for(String e : emphases) bits.set(idOf(e));
+		return bits;
+	}
+
+	/**
+	 * Decodes a set of ids to emphases, in id order.
+	 * @param bits Set of ids
+	 * @return An unmodifiable list of emphasis strings.
+	 */
+	public static List<String> decode(BitSet bits) {
+		if(bits.isEmpty()) return Collections.emptyList();
+		int n = count;
+		String[] arr = names;
+		if(bits.length() > n) throw new IndexOutOfBoundsException("No emphasis has id " + (bits.length() - 1) + ".");
+		List<String> list = new ArrayList<>(bits.cardinality());
+		for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) list.add(arr[i]);
+		return Collections.unmodifiableList(list);
+	}
+
+}
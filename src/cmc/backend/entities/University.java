@@ -1,6 +1,9 @@
 package cmc.backend.entities;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -8,7 +11,7 @@ import java.util.List;
  * @author Roman Lefler
  * @version Mar 13, 2025
  */
-public class University {
+public class University implements Cloneable {
 
 	private final String name;
 	
@@ -30,7 +33,12 @@ public class University {
 	private double percentAdmitted = -1d;
 	private double percentEnrolled = -1d;
 	
-	private final ArrayList<String> emphases = new ArrayList<>();
+	// Ids from EmphasisDictionary; the bits are for lookups and
+	// emphasisOrder keeps the same ids in the order they were added
+	private BitSet emphases = new BitSet();
+	private int[] emphasisOrder = NO_EMPHASES;
+	private int emphasisCount;
+	private static final int[] NO_EMPHASES = new int[0];
 	
 	private String webpageUrl;
 	private String imageUrl;
@@ -45,6 +53,34 @@ public class University {
 		this.name = name;
 	}
 	
+	/**
+	 * Creates a university from values that have already been checked,
+	 * in the column order of the University table. Nothing is validated.
+	 * @see UniversityRowDecoder
+	 */
+	University(String name, String state, String location, String control,
+			int numStudents, double percentFemale, double satVerbal, double satMath,
+			double expenses, double percentFinancialAid, int numApplicants,
+			double percentAdmitted, double percentEnrolled, int scaleAcademics,
+			int scaleSocial, int scaleQualityOfLife) {
+		this.name = name;
+		this.state = state;
+		this.location = location;
+		this.control = control;
+		this.numStudents = numStudents;
+		this.percentFemale = percentFemale;
+		this.satVerbal = satVerbal;
+		this.satMath = satMath;
+		this.expenses = expenses;
+		this.percentFinancialAid = percentFinancialAid;
+		this.numApplicants = numApplicants;
+		this.percentAdmitted = percentAdmitted;
+		this.percentEnrolled = percentEnrolled;
+		this.scaleAcademics = scaleAcademics;
+		this.scaleSocial = scaleSocial;
+		this.scaleQualityOfLife = scaleQualityOfLife;
+	}
+	
 	/**
 	 * Ensures that a given value is -1 or between the given range.
 	 * @param lo Inclusive minimum
@@ -55,7 +91,7 @@ public class University {
 	private static void ensure(double lo, double x, double hi) {
 		
 		if(x != -1 && (x < lo || x > hi)) {
-			String msg = String.format("Number %d not within [%d, %d].", x, lo, hi);
+			String msg = String.format("Number %s not within [%s, %s].", x, lo, hi);
 			throw new IllegalArgumentException(msg);
 		}
 	}
@@ -72,12 +108,18 @@ public class University {
 	
 	/**
 	 * Checks if a string is all-caps and not null.
+	 * ASCII is checked one char at a time without making an upper-case copy.
 	 * @param s Given string
 	 * @return {@code true} if not null and equal to it's {@link String#toUpperCase()}
 	 */
-	private static boolean isAllCaps(String s) {
+	static boolean isAllCaps(String s) {
 		if(s == null) throw new IllegalArgumentException("String cannot be null.");
-		return s.toUpperCase().equals(s);
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c >= 0x80) return s.toUpperCase().equals(s);
+			if(c >= 'a' && c <= 'z') return false;
+		}
+		return true;
 	}
 
 	/**
@@ -340,16 +382,101 @@ public class University {
 		this.imageUrl = imageUrl;
 	}
 
+	/**
+	 * Adds an emphasis. Adding one that is already there does nothing.
+	 * @param e Emphasis
+	 */
 	public void addEmphasis(String e) {
-		emphases.add(e);
+		int id = EmphasisDictionary.idOf(e);
+		if(emphases.get(id)) return;
+		emphases.set(id);
+		if(emphasisCount == emphasisOrder.length) {
+			emphasisOrder = Arrays.copyOf(emphasisOrder, Math.max(4, emphasisCount * 2));
+		}
+		emphasisOrder[emphasisCount++] = id;
 	}
 	
+	/**
+	 * @param e Emphasis
+	 * @return {@code true} if the university had that emphasis.
+	 */
 	public boolean removeEmphasis(String e) {
-		return emphases.remove(e);
+		int id = EmphasisDictionary.lookup(e);
+		if(id < 0 || !emphases.get(id)) return false;
+		emphases.clear(id);
+		int i = 0;
+		while(emphasisOrder[i] != id) i++;
+		System.arraycopy(emphasisOrder, i + 1, emphasisOrder, i, --emphasisCount - i);
+		return true;
 	}
 	
+	/**
+	 * Checks for an emphasis without allocating.
+	 * @param e Emphasis
+	 * @return {@code true} if the university has that emphasis.
+	 */
+	public boolean hasEmphasis(String e) {
+		int id = EmphasisDictionary.lookup(e);
+		return id >= 0 && emphases.get(id);
+	}
+	
+	/**
+	 * @return a new list of the emphases in the order they were added.
+	 * Changing it doesn't change the university.
+	 */
 	public List<String> getEmphases() {
-		return emphases;
+		List<String> list = new ArrayList<>(emphasisCount);
+		for(int i = 0; i < emphasisCount; i++) list.add(EmphasisDictionary.nameOf(emphasisOrder[i]));
+		return list;
+	}
+
+	/**
+	 * Replaces the emphases, keeping their order and skipping repeats.
+	 * @param list the new emphases
+	 */
+	public void setEmphases(Collection<String> list) {
+		emphases = new BitSet();
+		emphasisOrder = NO_EMPHASES;
+		emphasisCount = 0;
+		for(String e : list) addEmphasis(e);
+	}
+	
+	/**
+	 * @return a copy of the emphases as {@link EmphasisDictionary} ids
+	 */
+	public BitSet getEmphasisBits() {
+		return (BitSet)emphases.clone();
+	}
+	
+	/**
+	 * Replaces the emphases. They are ordered by id, since a bit set
+	 * has no other order.
+	 * @param bits the emphases as {@link EmphasisDictionary} ids, copied
+	 */
+	public void setEmphasisBits(BitSet bits) {
+		emphases = (BitSet)bits.clone();
+		emphasisCount = emphases.cardinality();
+		emphasisOrder = emphases.stream().toArray();
+	}
+	
+	/**
+	 * Creates a copy of this university, including its own
+	 * set of emphases.
+	 * @return A copy of this university.
+	 */
+	@Override
+	public University clone() {
+		University u;
+		try {
+			u = (University)super.clone();
+		}
+		catch(CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		// Cloning only gives a shallow copy so replace the set
+		u.emphases = (BitSet)emphases.clone();
+		u.emphasisOrder = emphasisOrder.clone();
+		return u;
 	}
 	
 	/**
@@ -0,0 +1,154 @@
+package cmc.backend.entities;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns rows of the University table into {@link University} objects
+ * while allocating as little as possible.
+ *
+ * Numbers are parsed straight from the row's strings, caps are checked
+ * with a char scan, and state, location and control, which only have a
+ * few distinct values, are shared through a small pool so every
+ * university doesn't keep its own copy. A row that passes every check
+ * is built through a constructor that skips the setters; any other row
+ * goes through the setters so they can report what's wrong.
+ */
+public final class UniversityRowDecoder {
+
+	// Past this many distinct values a column isn't low-cardinality
+	private static final int POOL_LIMIT = 4096;
+	private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+	// Every power of ten up to 1e22 is exact as a double
+	private static final double[] POW10 = new double[23];
+	static {
+		POW10[0] = 1;
+		for(int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+	}
+	// Mantissas below 2^53 are exact as a double
+	private static final int MAX_FAST_DIGITS = 15;
+
+	private UniversityRowDecoder() {
+	}
+
+	/**
+	 * Decodes a row of the University table.
+	 * @param k Row in the column order of
+	 *        {@code UniversityDBLibrary.university_getUniversities()}
+	 * @return A new University with no emphases or extra attributes.
+	 * @throws IllegalArgumentException if a value is invalid.
+	 * @throws NumberFormatException if a number can't be parsed.
+	 */
+	public static University decode(String[] k) {
+		String name = k[0];
+		String state = pooled(k[1]);
+		String location = pooled(k[2]);
+		String control = pooled(k[3]);
+		int numStudents = Integer.parseInt(k[4]);
+		double percentFemale = parseDouble(k[5]);
+		double satVerbal = parseDouble(k[6]);
+		double satMath = parseDouble(k[7]);
+		double expenses = parseDouble(k[8]);
+		double percentFinancialAid = parseDouble(k[9]);
+		int numApplicants = Integer.parseInt(k[10]);
+		double percentAdmitted = parseDouble(k[11]);
+		double percentEnrolled = parseDouble(k[12]);
+		int scaleAcademics = Integer.parseInt(k[13]);
+		int scaleSocial = Integer.parseInt(k[14]);
+		int scaleQualityOfLife = Integer.parseInt(k[15]);
+
+		boolean valid = caps(name) && caps(state) && caps(location) && caps(control)
+				&& in(0, numStudents, Integer.MAX_VALUE) && in(0, numApplicants, Integer.MAX_VALUE)
+				&& in(0, scaleAcademics, 5) && in(0, scaleSocial, 5) && in(0, scaleQualityOfLife, 5)
+				&& in(0, percentFemale, 100) && in(200, satVerbal, 800) && in(200, satMath, 800)
+				&& in(0, expenses, Double.POSITIVE_INFINITY) && in(0, percentFinancialAid, 100)
+				&& in(0, percentAdmitted, 100) && in(0, percentEnrolled, 100);
+		if(valid) {
+			return new University(name, state, location, control, numStudents,
+					percentFemale, satVerbal, satMath, expenses, percentFinancialAid,
+					numApplicants, percentAdmitted, percentEnrolled, scaleAcademics,
+					scaleSocial, scaleQualityOfLife);
+		}
+
+		University u = new University(name);
+		u.setState(state);
+		u.setLocation(location);
+		u.setControl(control);
+		u.setNumStudents(numStudents);
+		u.setPercentFemale(percentFemale);
+		u.setSatVerbal(satVerbal);
+		u.setSatMath(satMath);
+		u.setExpenses(expenses);
+		u.setPercentFinancialAid(percentFinancialAid);
+		u.setNumApplicants(numApplicants);
+		u.setPercentAdmitted(percentAdmitted);
+		u.setPercentEnrolled(percentEnrolled);
+		u.setScaleAcademics(scaleAcademics);
+		u.setScaleSocial(scaleSocial);
+		u.setScaleQualityOfLife(scaleQualityOfLife);
+		return u;
+	}
+
+	private static boolean caps(String s) {
+		return s != null && University.isAllCaps(s);
+	}
+
+	private static boolean in(double lo, double x, double hi) {
+		return x == -1 || (x >= lo && x <= hi);
+	}
+
+	/**
+	 * Gets the shared copy of a string.
+	 * @param s String
+	 * @return An equal string, the same instance for every equal value.
+	 */
+	static String pooled(String s) {
+		if(s == null) return null;
+		String shared = POOL.get(s);
+		if(shared != null) return shared;
+		if(POOL.size() >= POOL_LIMIT) return s;
+		shared = POOL.putIfAbsent(s, s);
+		return shared == null ? s : shared;
+	}
+
+	/**
+	 * Parses a double. Plain decimals with up to fifteen significant digits,
+	 * which is everything the database sends, are worked out directly and
+	 * give exactly what {@link Double#parseDouble(String)} would. Anything
+	 * else is handed to it.
+	 * @param s Text of the number
+	 * @return The number.
+	 * @throws NumberFormatException if it isn't a number.
+	 */
+	static double parseDouble(String s) {
+		int n = s.length();
+		int i = 0;
+		boolean negative = false;
+		if(n > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+			negative = s.charAt(0) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int significant = 0;
+		int decimals = -1;
+		boolean digits = false;
+		for(; i < n; i++) {
+			char c = s.charAt(i);
+			if(c >= '0' && c <= '9') {
+				if(mantissa != 0 || c != '0') significant++;
+				if(significant > MAX_FAST_DIGITS) return Double.parseDouble(s);
+				mantissa = mantissa * 10 + (c - '0');
+				if(decimals >= 0) decimals++;
+				digits = true;
+			}
+			else if(c == '.' && decimals < 0) decimals = 0;
+			else return Double.parseDouble(s);
+		}
+		if(!digits || decimals >= POW10.length) return Double.parseDouble(s);
+
+		// Both are exact, so the one division is correctly rounded
+		double v = decimals > 0 ? mantissa / POW10[decimals] : mantissa;
+		return negative ? -v : v;
+	}
+
+}
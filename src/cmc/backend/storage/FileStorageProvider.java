@@ -0,0 +1,755 @@
+package cmc.backend.storage;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import cmc.backend.User;
+import cmc.backend.entities.University;
+
+/**
+ * An embedded storage engine that keeps every table in memory and
+ * persists each change to a local memory-mapped log file.
+ *
+ * Reads never touch the file. A write appends one record to the mapped
+ * region, which is just a memory copy, and the operating system writes
+ * it back to disk. {@link #sync()} forces it to disk. When the provider is
+ * opened the log is replayed to rebuild the tables, and if most of the log
+ * is overwritten rows it is compacted down to one record per live row.
+ *
+ * Each record is a length, then a CRC-32 of the body, then the body: an
+ * operation byte and its string fields. The length is written last, but
+ * the operating system may write the mapped pages back in any order, so
+ * after a crash a length can be on disk without its body. Replay stops at
+ * the first record whose body doesn't match its CRC, and writing resumes
+ * there.
+ */
+public class FileStorageProvider implements StorageProvider {
+
+	/**
+	 * Name of the log file inside the storage directory.
+	 */
+	public static final String LOG_NAME = "cmc-store.log";
+
+	private static final int MAGIC = 0x434D4353;
+	private static final int FORMAT_VERSION = 2;
+	private static final int HEADER_BYTES = 8;
+	// Length and CRC before each record's body
+	private static final int RECORD_HEADER_BYTES = 8;
+	private static final int INITIAL_MAP_BYTES = 1 << 20;
+	// The mapping at least doubles and grows by at least this much,
+	// so a growing log is remapped only a few times
+	private static final int MIN_GROW_BYTES = 16 << 20;
+	// Compact once the log has this many records per live row
+	private static final int COMPACT_RATIO = 4;
+	private static final int COMPACT_MIN_RECORDS = 4096;
+
+	private static final byte PUT_USER = 1;
+	private static final byte DEL_USER = 2;
+	private static final byte SAVE = 3;
+	private static final byte UNSAVE = 4;
+	private static final byte PUT_UNI = 5;
+	private static final byte DEL_UNI = 6;
+	private static final byte ADD_EMPH = 7;
+	private static final byte DEL_EMPH = 8;
+	private static final byte PUT_EXT = 9;
+	private static final byte DEL_EXT = 10;
+
+	private final Path file;
+	private FileChannel channel;
+	private MappedByteBuffer map;
+	// Where the next record goes
+	private int end;
+	private long records;
+	private boolean closed = false;
+
+	// Sorted by username so users can be read a page at a time
+	private final TreeMap<String, User> users = new TreeMap<>();
+	private final Map<String, LinkedHashSet<String>> saved = new LinkedHashMap<>();
+	// Sorted by name so rows come back in the same order every time
+	private final TreeMap<String, String[]> universities = new TreeMap<>();
+	private final Map<String, TreeSet<String>> emphases = new HashMap<>();
+	private final Map<String, UniversityExt> ext = new HashMap<>();
+
+	/**
+	 * Opens the store in a directory, creating it if it doesn't exist.
+	 * @param dir Directory to keep the log in
+	 * @throws IllegalStateException if the log can't be opened or isn't a store.
+	 */
+	public FileStorageProvider(Path dir) {
+		try {
+			Files.createDirectories(dir);
+			file = dir.resolve(LOG_NAME);
+			open(file);
+			replay();
+			if(records > COMPACT_MIN_RECORDS && records > (long)COMPACT_RATIO * liveRows()) compact();
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Failed to open store in " + dir + ".", e);
+		}
+	}
+
+	private void open(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long size = Math.max(channel.size(), INITIAL_MAP_BYTES);
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		if(map.getInt(0) == 0) {
+			map.putInt(0, MAGIC);
+			map.putInt(4, FORMAT_VERSION);
+		}
+		else if(map.getInt(0) != MAGIC || map.getInt(4) != FORMAT_VERSION) {
+			closeLog();
+			throw new IOException(path + " is not a store of this version.");
+		}
+	}
+
+	/**
+	 * Rebuilds the tables from the log and finds where it ends, which is
+	 * the first record that is missing or fails its CRC.
+	 */
+	private void replay() {
+		int pos = HEADER_BYTES;
+		records = 0;
+		while(pos + RECORD_HEADER_BYTES <= map.capacity()) {
+			int len = map.getInt(pos);
+			if(len == 0) break;
+			if(len < 3 || pos + RECORD_HEADER_BYTES + len > map.capacity()) {
+				truncate(pos);
+				break;
+			}
+
+			ByteBuffer rec = map.duplicate();
+			rec.position(pos + RECORD_HEADER_BYTES);
+			rec.limit(pos + RECORD_HEADER_BYTES + len);
+			if(map.getInt(pos + 4) != crc(rec)) {
+				truncate(pos);
+				break;
+			}
+			byte op = rec.get();
+			String[] fields;
+			try {
+				fields = new String[rec.getShort()];
+				for(int i = 0; i < fields.length; i++) fields[i] = readString(rec);
+			}
+			catch(BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+				truncate(pos);
+				break;
+			}
+			apply(op, fields);
+
+			records++;
+			pos += RECORD_HEADER_BYTES + len;
+		}
+		end = pos;
+	}
+
+	/**
+	 * Zeros the log from a torn record on, so what is left of it can't
+	 * be read as a record once new ones are written over the start of it.
+	 */
+	private void truncate(int pos) {
+		byte[] zeros = new byte[8192];
+		ByteBuffer buf = map.duplicate();
+		buf.position(pos);
+		while(buf.hasRemaining()) buf.put(zeros, 0, Math.min(zeros.length, buf.remaining()));
+	}
+
+	/**
+	 * @return the CRC-32 of a buffer's remaining bytes, without moving its position
+	 */
+	private static int crc(ByteBuffer body) {
+		CRC32 crc = new CRC32();
+		crc.update(body.duplicate());
+		return (int)crc.getValue();
+	}
+
+	private static String readString(ByteBuffer rec) {
+		int n = rec.getInt();
+		if(n < 0) return null;
+		byte[] bytes = new byte[n];
+		rec.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Changes the in-memory tables for one record.
+	 * The caller has already checked the change is allowed.
+	 */
+	private void apply(byte op, String[] f) {
+		switch(op) {
+		case PUT_USER:
+			User u = new User(f[0], f[1], "a".equals(f[2]), f[3], f[4]);
+			u.setActivated("Y".equals(f[5]));
+			users.put(f[0], u);
+			break;
+		case DEL_USER:
+			users.remove(f[0]);
+			saved.remove(f[0]);
+			break;
+		case SAVE:
+			LinkedHashSet<String> schools = saved.get(f[0]);
+			if(schools == null) {
+				schools = new LinkedHashSet<>();
+				saved.put(f[0], schools);
+			}
+			schools.add(f[1]);
+			break;
+		case UNSAVE:
+			Set<String> list = saved.get(f[0]);
+			if(list != null && list.remove(f[1]) && list.isEmpty()) saved.remove(f[0]);
+			break;
+		case PUT_UNI:
+			universities.put(f[0], f);
+			break;
+		case DEL_UNI:
+			universities.remove(f[0]);
+			break;
+		case ADD_EMPH:
+			TreeSet<String> set = emphases.get(f[0]);
+			if(set == null) {
+				set = new TreeSet<>();
+				emphases.put(f[0], set);
+			}
+			set.add(f[1]);
+			break;
+		case DEL_EMPH:
+			Set<String> em = emphases.get(f[0]);
+			if(em != null && em.remove(f[1]) && em.isEmpty()) emphases.remove(f[0]);
+			break;
+		case PUT_EXT:
+			ext.put(f[0], new UniversityExt(f[1], f[2]));
+			break;
+		case DEL_EXT:
+			ext.remove(f[0]);
+			break;
+		default:
+			throw new IllegalStateException("Unknown record type " + op + " in " + file + ".");
+		}
+	}
+
+	/**
+	 * Appends a record to the log and applies it.
+	 */
+	private void write(byte op, String... fields) {
+		if(closed) throw new IllegalStateException("Store is closed.");
+		byte[][] encoded = new byte[fields.length][];
+		int len = 1 + 2;
+		for(int i = 0; i < fields.length; i++) {
+			if(fields[i] != null) {
+				encoded[i] = fields[i].getBytes(StandardCharsets.UTF_8);
+				len += encoded[i].length;
+			}
+			len += 4;
+		}
+		ensureCapacity(RECORD_HEADER_BYTES + len);
+
+		ByteBuffer buf = map.duplicate();
+		buf.position(end + RECORD_HEADER_BYTES);
+		buf.put(op);
+		buf.putShort((short)fields.length);
+		for(byte[] b : encoded) {
+			if(b == null) buf.putInt(-1);
+			else {
+				buf.putInt(b.length);
+				buf.put(b);
+			}
+		}
+		buf.flip();
+		buf.position(end + RECORD_HEADER_BYTES);
+		map.putInt(end + 4, crc(buf));
+		// Length last, so replay stops before a half written record
+		map.putInt(end, len);
+		end += RECORD_HEADER_BYTES + len;
+		records++;
+
+		apply(op, fields);
+	}
+
+	private void ensureCapacity(int bytes) {
+		long needed = (long)end + bytes + RECORD_HEADER_BYTES;
+		if(needed <= map.capacity()) return;
+		long size = Math.max((long)map.capacity() + Math.max(map.capacity(), MIN_GROW_BYTES), needed);
+		if(needed > Integer.MAX_VALUE) throw new IllegalStateException("Store is full.");
+		size = Math.min(size, Integer.MAX_VALUE);
+		MappedByteBuffer old = map;
+		try {
+			// Mapping past the end grows the file with zeros. The channel
+			// stays open, and the old mapping is let go of right away.
+			map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Failed to grow " + file + ".", e);
+		}
+		unmap(old);
+	}
+
+	/**
+	 * Releases a mapping now instead of when it is garbage collected.
+	 * A file that is still mapped can't be replaced or deleted on some
+	 * systems. The buffer must not be used afterwards; every use of the
+	 * mapping is under this provider's lock, so none is in progress.
+	 * If the runtime doesn't allow it, the mapping is left to the collector.
+	 */
+	private static void unmap(MappedByteBuffer buf) {
+		try {
+			// Java 9 and later
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field f = unsafeClass.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(f.get(null), buf);
+			return;
+		}
+		catch(ReflectiveOperationException | RuntimeException e) {
+			// Fall through to the Java 8 way
+		}
+		try {
+			Method cleanerMethod = buf.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buf);
+			if(cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+		}
+		catch(ReflectiveOperationException | RuntimeException e) {
+			// Left to the garbage collector
+		}
+	}
+
+	private int liveRows() {
+		int n = users.size() + universities.size() + ext.size();
+		for(Set<String> s : saved.values()) n += s.size();
+		for(Set<String> s : emphases.values()) n += s.size();
+		return n;
+	}
+
+	/**
+	 * Rewrites the log with one record per live row.
+	 * The new log is written under its own name next to the old one and
+	 * moved over it once neither is mapped, so a crash part way through
+	 * leaves the old log in place.
+	 */
+	public synchronized void compact() {
+		if(closed) throw new IllegalStateException("Store is closed.");
+		Path tmp = file.resolveSibling(LOG_NAME + ".tmp");
+
+		// Copy the live rows out since writing them rebuilds the tables
+		List<String[]> userRows = new ArrayList<>();
+		for(User u : users.values()) userRows.add(userFields(u));
+		List<String[]> saveRows = pairs(saved);
+		List<String[]> uniRows = new ArrayList<>(universities.values());
+		List<String[]> emphRows = pairs(emphases);
+		List<String[]> extRows = new ArrayList<>();
+		for(Map.Entry<String, UniversityExt> kv : ext.entrySet()) {
+			extRows.add(new String[] { kv.getKey(), kv.getValue().getWebpageUrl(), kv.getValue().getImageUrl() });
+		}
+
+		try {
+			map.force();
+			closeLog();
+			users.clear();
+			saved.clear();
+			universities.clear();
+			emphases.clear();
+			ext.clear();
+
+			Files.deleteIfExists(tmp);
+			open(tmp);
+			end = HEADER_BYTES;
+			records = 0;
+			for(String[] f : userRows) write(PUT_USER, f);
+			for(String[] f : saveRows) write(SAVE, f);
+			for(String[] f : uniRows) write(PUT_UNI, f);
+			for(String[] f : emphRows) write(ADD_EMPH, f);
+			for(String[] f : extRows) write(PUT_EXT, f);
+			map.force();
+			closeLog();
+
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			open(file);
+		}
+		catch(IOException e) {
+			closed = true;
+			throw new IllegalStateException("Failed to compact " + file + ".", e);
+		}
+	}
+
+	/**
+	 * Replaces everything in this store with the contents of another
+	 * provider and writes it out as a freshly compacted log.
+	 * Until the new log is moved into place the old one is kept,
+	 * so a crash part way through leaves the old contents.
+	 * @param src Provider to copy from
+	 */
+	public synchronized void replaceWith(StorageProvider src) {
+		if(closed) throw new IllegalStateException("Store is closed.");
+		List<User> srcUsers = src.loadUsers();
+		String[][] srcSaved = src.loadSavedSchools();
+		String[][] srcRows = src.loadUniversityRows();
+		String[][] srcEmphases = src.loadEmphasisPairs();
+		Map<String, UniversityExt> srcExt = src.loadUniversityExt();
+
+		users.clear();
+		saved.clear();
+		universities.clear();
+		emphases.clear();
+		ext.clear();
+		for(User u : srcUsers) apply(PUT_USER, userFields(u));
+		for(String[] f : srcSaved) apply(SAVE, f);
+		for(String[] f : srcRows) apply(PUT_UNI, f);
+		for(String[] f : srcEmphases) apply(ADD_EMPH, f);
+		for(Map.Entry<String, UniversityExt> kv : srcExt.entrySet()) {
+			apply(PUT_EXT, new String[] { kv.getKey(), kv.getValue().getWebpageUrl(), kv.getValue().getImageUrl() });
+		}
+		compact();
+	}
+
+	private static List<String[]> pairs(Map<String, ? extends Set<String>> table) {
+		List<String[]> list = new ArrayList<>();
+		for(Map.Entry<String, ? extends Set<String>> kv : table.entrySet()) {
+			for(String v : kv.getValue()) list.add(new String[] { kv.getKey(), v });
+		}
+		return list;
+	}
+
+	private static String[] userFields(User u) {
+		return new String[] {
+			u.getUsername(), u.getPassword(), u.isAdmin() ? "a" : "u",
+			u.getFirstName(), u.getLastName(), u.isActivated() ? "Y" : "N"
+		};
+	}
+
+	/**
+	 * Converts a university to a row in the order the library uses.
+	 * @param u University
+	 * @return Its row.
+	 */
+	public static String[] toRow(University u) {
+		return new String[] {
+			u.getName(), u.getState(), u.getLocation(), u.getControl(),
+			Integer.toString(u.getNumStudents()), Double.toString(u.getPercentFemale()),
+			Double.toString(u.getSatVerbal()), Double.toString(u.getSatMath()),
+			Double.toString(u.getExpenses()), Double.toString(u.getPercentFinancialAid()),
+			Integer.toString(u.getNumApplicants()), Double.toString(u.getPercentAdmitted()),
+			Double.toString(u.getPercentEnrolled()), Integer.toString(u.getScaleAcademics()),
+			Integer.toString(u.getScaleSocial()), Integer.toString(u.getScaleQualityOfLife())
+		};
+	}
+
+	/**
+	 * Forces every write so far to disk.
+	 */
+	public synchronized void sync() {
+		if(!closed) map.force();
+	}
+
+	/**
+	 * @return how many records are in the log, live or overwritten
+	 */
+	public synchronized long getRecordCount() {
+		return records;
+	}
+
+	@Override
+	public synchronized long[] countRows() {
+		long savedRows = 0;
+		for(Set<String> s : saved.values()) savedRows += s.size();
+		long emphasisRows = 0;
+		for(Set<String> s : emphases.values()) emphasisRows += s.size();
+		return new long[] { users.size(), savedRows, universities.size(), emphasisRows, ext.size() };
+	}
+
+	@Override
+	public synchronized List<User> loadUsers() {
+		List<User> list = new ArrayList<>(users.size());
+		for(User u : users.values()) list.add(u.uClone());
+		return list;
+	}
+
+	@Override
+	public synchronized List<User> loadUsersAfter(String afterUsername, int limit) {
+		Map<String, User> tail = afterUsername == null ? users : users.tailMap(afterUsername, false);
+		List<User> list = new ArrayList<>(Math.min(limit, tail.size()));
+		for(User u : tail.values()) {
+			if(list.size() == limit) break;
+			list.add(u.uClone());
+		}
+		return list;
+	}
+
+	@Override
+	public synchronized boolean insertUser(User u) {
+		if(users.containsKey(u.getUsername())) return false;
+		write(PUT_USER, userFields(u));
+		return true;
+	}
+
+	@Override
+	public synchronized boolean updateUser(User u) {
+		if(!users.containsKey(u.getUsername())) return false;
+		write(PUT_USER, userFields(u));
+		return true;
+	}
+
+	@Override
+	public synchronized void updateUsers(Collection<User> list) {
+		for(User u : list) updateUser(u);
+	}
+
+	@Override
+	public synchronized boolean deleteUser(String username) {
+		if(!users.containsKey(username)) return false;
+		write(DEL_USER, username);
+		return true;
+	}
+
+	@Override
+	public synchronized String[][] loadSavedSchools() {
+		return pairs(saved).toArray(new String[0][]);
+	}
+
+	@Override
+	public synchronized List<String> loadSavedSchools(String username) {
+		Set<String> set = saved.get(username);
+		return set == null ? new ArrayList<String>() : new ArrayList<>(set);
+	}
+
+	@Override
+	public synchronized boolean insertSavedSchool(String username, String school) {
+		if(!users.containsKey(username)) return false;
+		Set<String> set = saved.get(username);
+		if(set != null && set.contains(school)) return false;
+		write(SAVE, username, school);
+		return true;
+	}
+
+	@Override
+	public synchronized void insertSavedSchools(List<String[]> saves) {
+		for(String[] pair : saves) insertSavedSchool(pair[0], pair[1]);
+	}
+
+	@Override
+	public synchronized boolean deleteSavedSchool(String username, String school) {
+		Set<String> set = saved.get(username);
+		if(set == null || !set.contains(school)) return false;
+		write(UNSAVE, username, school);
+		return true;
+	}
+
+	@Override
+	public synchronized String[][] loadUniversityRows() {
+		String[][] rows = new String[universities.size()][];
+		int i = 0;
+		for(String[] row : universities.values()) rows[i++] = row.clone();
+		return rows;
+	}
+
+	/**
+	 * Only the row references are copied while locked, and each row's
+	 * emphases are copied as it is reached, so writers aren't held up
+	 * while the callback runs.
+	 */
+	@Override
+	public void scanUniversityRows(UniversityRowSink sink) {
+		String[][] rows;
+		synchronized(this) {
+			rows = universities.values().toArray(new String[universities.size()][]);
+		}
+		for(String[] row : rows) {
+			List<String> em;
+			UniversityExt x;
+			synchronized(this) {
+				Set<String> set = emphases.get(row[0]);
+				em = set == null ? new ArrayList<String>() : new ArrayList<>(set);
+				x = ext.get(row[0]);
+			}
+			sink.accept(row.clone(), em, x);
+		}
+	}
+
+	@Override
+	public synchronized List<String[]> loadUniversityRowsAfter(String afterName, int limit) {
+		Map<String, String[]> tail = afterName == null ? universities : universities.tailMap(afterName, false);
+		List<String[]> rows = new ArrayList<>(Math.min(limit, tail.size()));
+		for(String[] row : tail.values()) {
+			if(rows.size() == limit) break;
+			rows.add(row.clone());
+		}
+		return rows;
+	}
+
+	@Override
+	public synchronized String[] loadUniversityRow(String name) {
+		String[] row = universities.get(name);
+		return row == null ? null : row.clone();
+	}
+
+	@Override
+	public synchronized boolean insertUniversity(University u) {
+		if(universities.containsKey(u.getName())) return false;
+		write(PUT_UNI, toRow(u));
+		return true;
+	}
+
+	@Override
+	public synchronized List<String> insertUniversities(List<University> batch) {
+		List<String> added = new ArrayList<>();
+		for(University u : batch) {
+			if(!insertUniversity(u)) continue;
+			addEmphases(u.getName(), u.getEmphases());
+			if(u.getWebpageUrl() != null || u.getImageUrl() != null) {
+				write(PUT_EXT, u.getName(), u.getWebpageUrl(), u.getImageUrl());
+			}
+			added.add(u.getName());
+		}
+		return added;
+	}
+
+	@Override
+	public synchronized boolean updateUniversity(University u) {
+		if(!universities.containsKey(u.getName())) return false;
+		write(PUT_UNI, toRow(u));
+		return true;
+	}
+
+	@Override
+	public synchronized boolean deleteUniversity(String name) {
+		if(!universities.containsKey(name)) return false;
+		write(DEL_UNI, name);
+		return true;
+	}
+
+	@Override
+	public synchronized String[][] loadEmphasisPairs() {
+		return pairs(emphases).toArray(new String[0][]);
+	}
+
+	@Override
+	public synchronized List<String> loadEmphases(String school) {
+		Set<String> set = emphases.get(school);
+		return set == null ? new ArrayList<String>() : new ArrayList<>(set);
+	}
+
+	@Override
+	public synchronized Map<String, List<String>> loadEmphases(Collection<String> schools) {
+		Map<String, List<String>> map = new HashMap<>();
+		for(String school : schools) {
+			Set<String> set = emphases.get(school);
+			if(set != null) map.put(school, new ArrayList<>(set));
+		}
+		return map;
+	}
+
+	@Override
+	public synchronized List<String> loadEmphasisNames() {
+		TreeSet<String> all = new TreeSet<>();
+		for(Set<String> set : emphases.values()) all.addAll(set);
+		return new ArrayList<>(all);
+	}
+
+	@Override
+	public synchronized boolean addEmphases(String school, Collection<String> list) {
+		boolean all = true;
+		for(String e : list) {
+			Set<String> set = emphases.get(school);
+			if(set != null && set.contains(e)) all = false;
+			else write(ADD_EMPH, school, e);
+		}
+		return all;
+	}
+
+	@Override
+	public synchronized boolean removeEmphases(String school, Collection<String> list) {
+		boolean all = true;
+		for(String e : list) {
+			Set<String> set = emphases.get(school);
+			if(set == null || !set.contains(e)) all = false;
+			else write(DEL_EMPH, school, e);
+		}
+		return all;
+	}
+
+	@Override
+	public synchronized Map<String, UniversityExt> loadUniversityExt() {
+		return new HashMap<>(ext);
+	}
+
+	@Override
+	public synchronized UniversityExt loadUniversityExt(String school) {
+		return ext.get(school);
+	}
+
+	@Override
+	public synchronized Map<String, UniversityExt> loadUniversityExt(Collection<String> schools) {
+		Map<String, UniversityExt> map = new HashMap<>();
+		for(String school : schools) {
+			UniversityExt row = ext.get(school);
+			if(row != null) map.put(school, row);
+		}
+		return map;
+	}
+
+	@Override
+	public synchronized void upsertUniversityExt(String school, String webpageUrl, String imageUrl) {
+		write(PUT_EXT, school, webpageUrl, imageUrl);
+	}
+
+	@Override
+	public synchronized void upsertUniversityExt(Map<String, UniversityExt> rows) {
+		for(Map.Entry<String, UniversityExt> kv : rows.entrySet()) {
+			write(PUT_EXT, kv.getKey(), kv.getValue().getWebpageUrl(), kv.getValue().getImageUrl());
+		}
+	}
+
+	@Override
+	public synchronized boolean deleteUniversityExt(String school) {
+		if(!ext.containsKey(school)) return false;
+		write(DEL_EXT, school);
+		return true;
+	}
+
+	/**
+	 * Forces the log to disk and closes it.
+	 */
+	@Override
+	public synchronized void close() {
+		if(closed) return;
+		closed = true;
+		map.force();
+		try {
+			closeLog();
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Failed to close " + file + ".", e);
+		}
+	}
+
+	/**
+	 * Unmaps the log and closes its channel.
+	 */
+	private void closeLog() throws IOException {
+		MappedByteBuffer old = map;
+		map = null;
+		unmap(old);
+		channel.close();
+	}
+
+}
@@ -0,0 +1,565 @@
+package cmc.backend.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import cmc.backend.User;
+import cmc.backend.entities.University;
+
+/**
+ * Keeps a local journal of another provider so a restart doesn't have to
+ * reload everything from it.
+ *
+ * Every change is written to the backing provider first and, once that
+ * succeeds, appended to a {@link FileStorageProvider} in a local directory.
+ * Starting with an empty journal loads the backing provider once and
+ * writes it out as a checkpoint; starting with one just replays the last
+ * checkpoint and the changes appended since.
+ *
+ * Appends are only forced to disk once {@code syncEvery} of them are
+ * waiting or {@code syncMillis} has passed, so a burst of changes shares
+ * one sync. Every {@code checkpointMillis} the journal is compacted into a
+ * new checkpoint if anything was appended.
+ *
+ * Anyone else may have changed the backing provider while this was
+ * closed, and row counts can't show an edit to an existing row. So after
+ * a warm start reads go to the backing provider while the journal is
+ * checked against it in the background with {@link #resync()}; once that
+ * is done reads are served from the journal. A warm start that finds the
+ * row counts differ reloads the journal right away instead. Changes made
+ * by others while this is open are picked up by the resync that runs
+ * every {@code resyncMillis}.
+ *
+ * A resync reads the backing provider without holding up writes. Writes
+ * made meanwhile are applied again on top of what it read, and only
+ * switching the journal over to it waits for them.
+ */
+public class JournaledStorageProvider implements StorageProvider {
+
+	/**
+	 * Default number of appends that forces a sync.
+	 */
+	public static final int DEFAULT_SYNC_EVERY = 64;
+	/**
+	 * Default longest time an append waits to be synced.
+	 */
+	public static final long DEFAULT_SYNC_MILLIS = 50;
+	/**
+	 * Default time between checkpoints.
+	 */
+	public static final long DEFAULT_CHECKPOINT_MILLIS = 10 * 60 * 1000;
+	/**
+	 * Default time between reloads from the backing provider.
+	 */
+	public static final long DEFAULT_RESYNC_MILLIS = 60 * 60 * 1000;
+
+	private final StorageProvider backing;
+	private final FileStorageProvider journal;
+	private final Path stagingDir;
+	private final int syncEvery;
+	private final boolean warm;
+	private final ScheduledExecutorService background;
+	// Reads go to the backing provider until the journal has been checked
+	private volatile boolean verified;
+
+	// Keeps the journal in the same order as the backing provider
+	private final Object writeLock = new Object();
+	// One resync at a time
+	private final Object resyncLock = new Object();
+	// Journal writes made while a resync reads the backing provider, guarded by writeLock
+	private List<Consumer<StorageProvider>> duringResync;
+	private int unsynced;
+	private long checkpointedRecords;
+	private long syncs;
+	private long resyncs;
+	private volatile RuntimeException lastResyncFailure;
+	private boolean closed = false;
+
+	/**
+	 * Opens a journal with the default sync and checkpoint intervals.
+	 * @param backing Provider that holds the real data
+	 * @param dir Directory to keep the journal in
+	 */
+	public JournaledStorageProvider(StorageProvider backing, Path dir) {
+		this(backing, dir, DEFAULT_SYNC_EVERY, DEFAULT_SYNC_MILLIS, DEFAULT_CHECKPOINT_MILLIS);
+	}
+
+	/**
+	 * Opens a journal that reloads from the backing provider every
+	 * {@link #DEFAULT_RESYNC_MILLIS}.
+	 * @param backing Provider that holds the real data
+	 * @param dir Directory to keep the journal in
+	 * @param syncEvery Appends that force a sync
+	 * @param syncMillis Longest time an append waits to be synced
+	 * @param checkpointMillis Time between checkpoints
+	 * @throws IllegalArgumentException if backing is {@code null} or a number isn't positive.
+	 */
+	public JournaledStorageProvider(StorageProvider backing, Path dir,
+			int syncEvery, long syncMillis, long checkpointMillis) {
+		this(backing, dir, syncEvery, syncMillis, checkpointMillis, DEFAULT_RESYNC_MILLIS);
+	}
+
+	/**
+	 * Opens a journal, loading it from the backing provider if it is empty
+	 * or its tables don't have as many rows as the backing provider's.
+	 * Otherwise it is checked against the backing provider in the background.
+	 * @param backing Provider that holds the real data
+	 * @param dir Directory to keep the journal in
+	 * @param syncEvery Appends that force a sync
+	 * @param syncMillis Longest time an append waits to be synced
+	 * @param checkpointMillis Time between checkpoints
+	 * @param resyncMillis Time between reloads from the backing provider
+	 * @throws IllegalArgumentException if backing is {@code null} or a number isn't positive.
+	 */
+	public JournaledStorageProvider(StorageProvider backing, Path dir,
+			int syncEvery, long syncMillis, long checkpointMillis, long resyncMillis) {
+		if(backing == null) throw new IllegalArgumentException("backing cannot be null.");
+		if(syncEvery < 1 || syncMillis < 1 || checkpointMillis < 1 || resyncMillis < 1) {
+			throw new IllegalArgumentException("Sync, checkpoint and resync intervals must be positive.");
+		}
+		this.backing = backing;
+		this.syncEvery = syncEvery;
+		journal = new FileStorageProvider(dir);
+		stagingDir = dir.resolve("resync");
+		warm = journal.getRecordCount() > 0 && Arrays.equals(journal.countRows(), backing.countRows());
+		if(!warm) journal.replaceWith(backing);
+		verified = !warm;
+		checkpointedRecords = journal.getRecordCount();
+
+		background = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "cmc-journal");
+			t.setDaemon(true);
+			return t;
+		});
+		background.scheduleWithFixedDelay(this::syncIfDirty, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+		background.scheduleWithFixedDelay(this::checkpointIfChanged,
+				checkpointMillis, checkpointMillis, TimeUnit.MILLISECONDS);
+		background.scheduleWithFixedDelay(this::backgroundResync,
+				warm ? 0 : resyncMillis, resyncMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return {@code true} if this was restored from an existing journal
+	 *         rather than loaded from the backing provider, which also
+	 *         happens when the journal was found to be stale
+	 */
+	public boolean isWarm() {
+		return warm;
+	}
+
+	/**
+	 * @return {@code true} once reads are served from the journal, which
+	 *         after a warm start is when the first resync is done
+	 */
+	public boolean isVerified() {
+		return verified;
+	}
+
+	/**
+	 * @return where reads are served from
+	 */
+	private StorageProvider reads() {
+		return verified ? journal : backing;
+	}
+
+	/**
+	 * @return the provider that holds the real data
+	 */
+	public StorageProvider getBacking() {
+		return backing;
+	}
+
+	/**
+	 * @return how many times the journal has been synced to disk
+	 */
+	public long getSyncCount() {
+		synchronized(writeLock) {
+			return syncs;
+		}
+	}
+
+	/**
+	 * Forces every append so far to disk.
+	 */
+	public void sync() {
+		synchronized(writeLock) {
+			if(closed) return;
+			journal.sync();
+			unsynced = 0;
+			syncs++;
+		}
+	}
+
+	/**
+	 * Compacts the journal into a checkpoint of the current state.
+	 */
+	public void checkpoint() {
+		synchronized(writeLock) {
+			if(closed) return;
+			journal.compact();
+			unsynced = 0;
+			checkpointedRecords = journal.getRecordCount();
+		}
+	}
+
+	/**
+	 * Throws the journal away and reloads it from the backing provider,
+	 * picking up changes made there by anyone else. The backing provider
+	 * is read into a staging store while writes carry on; writes made
+	 * meanwhile are applied to it too, then the journal is switched over.
+	 */
+	public void resync() {
+		synchronized(resyncLock) {
+			synchronized(writeLock) {
+				if(closed) throw new IllegalStateException("Journal is closed.");
+				duringResync = new ArrayList<>();
+			}
+			FileStorageProvider staging = null;
+			try {
+				Files.deleteIfExists(stagingDir.resolve(FileStorageProvider.LOG_NAME));
+				staging = new FileStorageProvider(stagingDir);
+				staging.replaceWith(backing);
+				synchronized(writeLock) {
+					if(closed) throw new IllegalStateException("Journal is closed.");
+					// Each write is applied to the backing provider before it is
+					// recorded, and applying it again leaves the same rows
+					for(Consumer<StorageProvider> op : duringResync) op.accept(staging);
+					journal.replaceWith(staging);
+					unsynced = 0;
+					checkpointedRecords = journal.getRecordCount();
+					resyncs++;
+					verified = true;
+				}
+			}
+			catch(IOException e) {
+				throw new IllegalStateException("Failed to clear " + stagingDir + ".", e);
+			}
+			finally {
+				synchronized(writeLock) {
+					duringResync = null;
+				}
+				if(staging != null) staging.close();
+			}
+		}
+	}
+
+	/**
+	 * @return how many times the journal has been reloaded since it was opened
+	 */
+	public long getResyncCount() {
+		synchronized(writeLock) {
+			return resyncs;
+		}
+	}
+
+	/**
+	 * @return why the last scheduled resync failed, or {@code null} if it didn't
+	 */
+	public RuntimeException getLastResyncFailure() {
+		return lastResyncFailure;
+	}
+
+	private void backgroundResync() {
+		try {
+			resync();
+			lastResyncFailure = null;
+		}
+		catch(RuntimeException e) {
+			// The journal keeps what it had and the next one tries again
+			synchronized(writeLock) {
+				if(!closed) lastResyncFailure = e;
+			}
+		}
+	}
+
+	private void syncIfDirty() {
+		synchronized(writeLock) {
+			if(unsynced > 0) sync();
+		}
+	}
+
+	private void checkpointIfChanged() {
+		synchronized(writeLock) {
+			if(!closed && journal.getRecordCount() != checkpointedRecords) checkpoint();
+		}
+	}
+
+	/**
+	 * Applies a write to the journal, and to a resync's staging store if
+	 * one is reading, then counts it and syncs if enough are waiting.
+	 * Callers hold writeLock.
+	 */
+	private void append(Consumer<StorageProvider> op) {
+		op.accept(journal);
+		if(duringResync != null) duringResync.add(op);
+		if(++unsynced >= syncEvery) sync();
+	}
+
+	@Override
+	public List<User> loadUsers() {
+		return reads().loadUsers();
+	}
+
+	@Override
+	public List<User> loadUsersAfter(String afterUsername, int limit) {
+		return reads().loadUsersAfter(afterUsername, limit);
+	}
+
+	@Override
+	public boolean insertUser(User u) {
+		synchronized(writeLock) {
+			if(!backing.insertUser(u)) return false;
+			append(j -> {
+				if(!j.insertUser(u)) j.updateUser(u);
+			});
+			return true;
+		}
+	}
+
+	@Override
+	public boolean updateUser(User u) {
+		synchronized(writeLock) {
+			if(!backing.updateUser(u)) return false;
+			append(j -> {
+				if(!j.updateUser(u)) j.insertUser(u);
+			});
+			return true;
+		}
+	}
+
+	@Override
+	public void updateUsers(Collection<User> users) {
+		synchronized(writeLock) {
+			backing.updateUsers(users);
+			append(j -> j.updateUsers(users));
+		}
+	}
+
+	@Override
+	public boolean deleteUser(String username) {
+		synchronized(writeLock) {
+			if(!backing.deleteUser(username)) return false;
+			append(j -> j.deleteUser(username));
+			return true;
+		}
+	}
+
+	@Override
+	public String[][] loadSavedSchools() {
+		return reads().loadSavedSchools();
+	}
+
+	@Override
+	public List<String> loadSavedSchools(String username) {
+		return reads().loadSavedSchools(username);
+	}
+
+	@Override
+	public boolean insertSavedSchool(String username, String school) {
+		synchronized(writeLock) {
+			if(!backing.insertSavedSchool(username, school)) return false;
+			append(j -> j.insertSavedSchool(username, school));
+			return true;
+		}
+	}
+
+	@Override
+	public void insertSavedSchools(List<String[]> saves) {
+		synchronized(writeLock) {
+			backing.insertSavedSchools(saves);
+			append(j -> j.insertSavedSchools(saves));
+		}
+	}
+
+	@Override
+	public boolean deleteSavedSchool(String username, String school) {
+		synchronized(writeLock) {
+			if(!backing.deleteSavedSchool(username, school)) return false;
+			append(j -> j.deleteSavedSchool(username, school));
+			return true;
+		}
+	}
+
+	@Override
+	public String[][] loadUniversityRows() {
+		return reads().loadUniversityRows();
+	}
+
+	@Override
+	public void scanUniversityRows(UniversityRowSink sink) {
+		reads().scanUniversityRows(sink);
+	}
+
+	@Override
+	public List<String[]> loadUniversityRowsAfter(String afterName, int limit) {
+		return reads().loadUniversityRowsAfter(afterName, limit);
+	}
+
+	@Override
+	public String[] loadUniversityRow(String name) {
+		return reads().loadUniversityRow(name);
+	}
+
+	@Override
+	public boolean insertUniversity(University u) {
+		synchronized(writeLock) {
+			if(!backing.insertUniversity(u)) return false;
+			append(j -> {
+				if(!j.insertUniversity(u)) j.updateUniversity(u);
+			});
+			return true;
+		}
+	}
+
+	@Override
+	public List<String> insertUniversities(List<University> batch) {
+		synchronized(writeLock) {
+			List<String> added = backing.insertUniversities(batch);
+			if(!added.isEmpty()) {
+				// Only the ones the backing provider took, since a name it
+				// already had may be missing from the journal
+				Set<String> names = new HashSet<>(added);
+				List<University> inserted = new ArrayList<>(added.size());
+				for(University u : batch) {
+					if(names.remove(u.getName())) inserted.add(u);
+				}
+				append(j -> j.insertUniversities(inserted));
+			}
+			return added;
+		}
+	}
+
+	@Override
+	public boolean updateUniversity(University u) {
+		synchronized(writeLock) {
+			if(!backing.updateUniversity(u)) return false;
+			append(j -> {
+				if(!j.updateUniversity(u)) j.insertUniversity(u);
+			});
+			return true;
+		}
+	}
+
+	@Override
+	public boolean deleteUniversity(String name) {
+		synchronized(writeLock) {
+			if(!backing.deleteUniversity(name)) return false;
+			append(j -> j.deleteUniversity(name));
+			return true;
+		}
+	}
+
+	@Override
+	public String[][] loadEmphasisPairs() {
+		return reads().loadEmphasisPairs();
+	}
+
+	@Override
+	public List<String> loadEmphases(String school) {
+		return reads().loadEmphases(school);
+	}
+
+	@Override
+	public Map<String, List<String>> loadEmphases(Collection<String> schools) {
+		return reads().loadEmphases(schools);
+	}
+
+	@Override
+	public List<String> loadEmphasisNames() {
+		return reads().loadEmphasisNames();
+	}
+
+	/**
+	 * The journal gets every emphasis even if the backing provider
+	 * reports that some weren't added, which usually means they already were.
+	 */
+	@Override
+	public boolean addEmphases(String school, Collection<String> emphases) {
+		synchronized(writeLock) {
+			boolean all = backing.addEmphases(school, emphases);
+			append(j -> j.addEmphases(school, emphases));
+			return all;
+		}
+	}
+
+	@Override
+	public boolean removeEmphases(String school, Collection<String> emphases) {
+		synchronized(writeLock) {
+			boolean all = backing.removeEmphases(school, emphases);
+			append(j -> j.removeEmphases(school, emphases));
+			return all;
+		}
+	}
+
+	@Override
+	public Map<String, UniversityExt> loadUniversityExt() {
+		return reads().loadUniversityExt();
+	}
+
+	@Override
+	public UniversityExt loadUniversityExt(String school) {
+		return reads().loadUniversityExt(school);
+	}
+
+	@Override
+	public Map<String, UniversityExt> loadUniversityExt(Collection<String> schools) {
+		return reads().loadUniversityExt(schools);
+	}
+
+	@Override
+	public void upsertUniversityExt(String school, String webpageUrl, String imageUrl) {
+		synchronized(writeLock) {
+			backing.upsertUniversityExt(school, webpageUrl, imageUrl);
+			append(j -> j.upsertUniversityExt(school, webpageUrl, imageUrl));
+		}
+	}
+
+	@Override
+	public void upsertUniversityExt(Map<String, UniversityExt> rows) {
+		synchronized(writeLock) {
+			backing.upsertUniversityExt(rows);
+			append(j -> j.upsertUniversityExt(rows));
+		}
+	}
+
+	@Override
+	public boolean deleteUniversityExt(String school) {
+		synchronized(writeLock) {
+			if(!backing.deleteUniversityExt(school)) return false;
+			append(j -> j.deleteUniversityExt(school));
+			return true;
+		}
+	}
+
+	@Override
+	public long[] countRows() {
+		return reads().countRows();
+	}
+
+	/**
+	 * Syncs and closes the journal, then closes the backing provider.
+	 */
+	@Override
+	public void close() {
+		background.shutdownNow();
+		synchronized(writeLock) {
+			if(closed) return;
+			closed = true;
+			journal.close();
+		}
+		backing.close();
+	}
+
+}
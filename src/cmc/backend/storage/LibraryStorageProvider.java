@@ -0,0 +1,285 @@
+package cmc.backend.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import cmc.backend.DBExtension;
+import cmc.backend.User;
+import cmc.backend.entities.University;
+import dblibrary.project.csci230.UniversityDBLibrary;
+
+/**
+ * Stores everything in the course's MySQL database, through
+ * {@link UniversityDBLibrary} for the library's tables and
+ * {@link DBExtension} for our own table and batched statements.
+ */
+public class LibraryStorageProvider implements StorageProvider {
+
+	private final UniversityDBLibrary database;
+	private final DBExtension dbext;
+
+	/**
+	 * Connects to the database.
+	 * @param username Database username
+	 * @param password Database password
+	 */
+	public LibraryStorageProvider(String username, String password) {
+		database = new UniversityDBLibrary(username, password);
+		dbext = new DBExtension(username, password);
+		dbext.connect();
+	}
+
+	@Override
+	public List<User> loadUsers() {
+		String[][] dbUserList = database.user_getUsers();
+
+		ArrayList<User> result = new ArrayList<User>();
+		for (String[] user : dbUserList) result.add(toUser(user));
+
+		return result;
+	}
+
+	@Override
+	public List<User> loadUsersAfter(String afterUsername, int limit) {
+		List<User> result = new ArrayList<>();
+		for(String[] user : dbext.getUserRowsAfter(afterUsername, limit)) result.add(toUser(user));
+		return result;
+	}
+
+	/**
+	 * Converts a row of the User table in the library's column order.
+	 */
+	private static User toUser(String[] user) {
+		char type = user[4].length() > 0 ? user[4].charAt(0) : 'u';
+		User u = new User(
+				user[2],
+				user[3],
+				type == 'a',
+				user[0],
+				user[1]
+		);
+		u.setActivated(user[5].length() != 1 || user[5].equals("Y"));
+		return u;
+	}
+
+	@Override
+	public boolean insertUser(User u) {
+		int result = database.user_addUser(
+				u.getFirstName(), u.getLastName(),
+				u.getUsername(), u.getPassword(),
+				u.isAdmin() ? 'a' : 'u'
+		);
+		if(result == -1) return false;
+		// No way to create deactivated user
+		return u.isActivated() || updateUser(u);
+	}
+
+	@Override
+	public boolean updateUser(User u) {
+		int result = database.user_editUser(
+				u.getUsername(),
+				u.getFirstName(),
+				u.getLastName(),
+				u.getPassword(),
+				u.isAdmin() ? 'a' : 'u',
+				u.isActivated() ? 'Y' : 'N'
+		);
+		return result > 0;
+	}
+
+	@Override
+	public void updateUsers(Collection<User> users) {
+		dbext.editUsers(users);
+	}
+
+	@Override
+	public boolean deleteUser(String username) {
+		return database.user_deleteUser(username) == 1;
+	}
+
+	@Override
+	public String[][] loadSavedSchools() {
+		return database.user_getUsernamesWithSavedSchools();
+	}
+
+	@Override
+	public List<String> loadSavedSchools(String username) {
+		return dbext.getSavedSchools(username);
+	}
+
+	@Override
+	public boolean insertSavedSchool(String username, String school) {
+		return database.user_saveSchool(username, school) == 1;
+	}
+
+	@Override
+	public void insertSavedSchools(List<String[]> saves) {
+		dbext.saveSchools(saves);
+	}
+
+	@Override
+	public boolean deleteSavedSchool(String username, String school) {
+		return database.user_removeSchool(username, school) > 0;
+	}
+
+	@Override
+	public String[][] loadUniversityRows() {
+		return database.university_getUniversities();
+	}
+
+	@Override
+	public void scanUniversityRows(UniversityRowSink sink) {
+		dbext.scanUniversityRows(sink);
+	}
+
+	@Override
+	public List<String[]> loadUniversityRowsAfter(String afterName, int limit) {
+		return dbext.getUniversityRowsAfter(afterName, limit);
+	}
+
+	@Override
+	public String[] loadUniversityRow(String name) {
+		return dbext.getUniversityRow(name);
+	}
+
+	@Override
+	public boolean insertUniversity(University u) {
+		int result = database.university_addUniversity(
+				u.getName(), u.getState(), u.getLocation(), u.getControl(),
+				u.getNumStudents(), u.getPercentFemale(), u.getSatVerbal(),
+				u.getSatMath(), u.getExpenses(), u.getPercentFinancialAid(),
+				u.getNumApplicants(), u.getPercentAdmitted(),
+				u.getPercentEnrolled(), u.getScaleAcademics(),
+				u.getScaleSocial(), u.getScaleQualityOfLife());
+		return result == 1;
+	}
+
+	/**
+	 * Looks up which names are taken in one query, then adds the rows,
+	 * emphases and extra attributes in one batch each.
+	 */
+	@Override
+	public List<String> insertUniversities(List<University> batch) {
+		List<String> names = new ArrayList<>(batch.size());
+		for(University u : batch) names.add(u.getName());
+		Set<String> taken = new HashSet<>(dbext.findUniversities(names));
+
+		List<University> fresh = new ArrayList<>(batch.size());
+		List<String[]> emphases = new ArrayList<>();
+		Map<String, UniversityExt> ext = new HashMap<>();
+		for(University u : batch) {
+			if(!taken.add(u.getName())) continue;
+			fresh.add(u);
+			for(String e : u.getEmphases()) emphases.add(new String[] { u.getName(), e });
+			if(u.getWebpageUrl() != null || u.getImageUrl() != null) {
+				ext.put(u.getName(), new UniversityExt(u.getWebpageUrl(), u.getImageUrl()));
+			}
+		}
+
+		dbext.insertUniversityRows(fresh);
+		dbext.addEmphasisPairs(emphases);
+		dbext.upsertUniversityExt(ext);
+		List<String> added = new ArrayList<>(fresh.size());
+		for(University u : fresh) added.add(u.getName());
+		return added;
+	}
+
+	@Override
+	public boolean updateUniversity(University u) {
+		int result = database.university_editUniversity(
+				u.getName(), u.getState(), u.getLocation(), u.getControl(),
+				u.getNumStudents(), u.getPercentFemale(), u.getSatVerbal(),
+				u.getSatMath(), u.getExpenses(), u.getPercentFinancialAid(),
+				u.getNumApplicants(), u.getPercentAdmitted(),
+				u.getPercentEnrolled(), u.getScaleAcademics(),
+				u.getScaleSocial(), u.getScaleQualityOfLife());
+		return result >= 1;
+	}
+
+	@Override
+	public boolean deleteUniversity(String name) {
+		return database.university_deleteUniversity(name) >= 1;
+	}
+
+	@Override
+	public String[][] loadEmphasisPairs() {
+		return database.university_getNamesWithEmphases();
+	}
+
+	@Override
+	public List<String> loadEmphases(String school) {
+		return dbext.getEmphases(school);
+	}
+
+	@Override
+	public Map<String, List<String>> loadEmphases(Collection<String> schools) {
+		return dbext.getEmphases(schools);
+	}
+
+	@Override
+	public List<String> loadEmphasisNames() {
+		// It's not clear to me why this returns a 2D array
+		String[][] arr = database.university_getEmphases();
+		List<String> list = new ArrayList<String>();
+		for(int i = 0; i < arr.length; i++) {
+			for(int j = 0; j < arr[i].length; j++) list.add(arr[i][j]);
+		}
+		return list;
+	}
+
+	@Override
+	public boolean addEmphases(String school, Collection<String> emphases) {
+		return dbext.addEmphases(school, emphases);
+	}
+
+	@Override
+	public boolean removeEmphases(String school, Collection<String> emphases) {
+		return dbext.removeEmphases(school, emphases);
+	}
+
+	@Override
+	public Map<String, UniversityExt> loadUniversityExt() {
+		return dbext.getAllUniversityExt();
+	}
+
+	@Override
+	public UniversityExt loadUniversityExt(String school) {
+		return dbext.getUniversityExt(school);
+	}
+
+	@Override
+	public Map<String, UniversityExt> loadUniversityExt(Collection<String> schools) {
+		return dbext.getUniversityExt(schools);
+	}
+
+	@Override
+	public void upsertUniversityExt(String school, String webpageUrl, String imageUrl) {
+		dbext.upsertUniversityExt(school, webpageUrl, imageUrl);
+	}
+
+	@Override
+	public void upsertUniversityExt(Map<String, UniversityExt> rows) {
+		dbext.upsertUniversityExt(rows);
+	}
+
+	@Override
+	public boolean deleteUniversityExt(String school) {
+		return dbext.removeUniversityRow(school);
+	}
+
+	@Override
+	public long[] countRows() {
+		return dbext.countRows();
+	}
+
+	@Override
+	public void close() {
+		dbext.close();
+	}
+
+}
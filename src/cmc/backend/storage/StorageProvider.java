@@ -0,0 +1,254 @@
+package cmc.backend.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import cmc.backend.User;
+import cmc.backend.entities.University;
+
+/**
+ * Where {@link cmc.backend.controllers.DatabaseController} keeps its data.
+ *
+ * A provider only stores and fetches rows; caching, indexes and
+ * write-behind all live above it in the controller. Universities
+ * are exchanged as rows of strings in the column order of
+ * {@code UniversityDBLibrary.university_getUniversities()}:
+ * name, state, location, control, number of students, percent female,
+ * SAT verbal, SAT math, expenses, percent financial aid,
+ * number of applicants, percent admitted, percent enrolled,
+ * academics scale, social scale and quality of life scale.
+ *
+ * Implementations must be safe to call from several threads.
+ */
+public interface StorageProvider extends AutoCloseable {
+
+	/**
+	 * @return every user
+	 */
+	List<User> loadUsers();
+
+	/**
+	 * Reads users in username order, starting after a cursor.
+	 * @param afterUsername Only users after this one are read, or
+	 *        {@code null} to start from the first.
+	 * @param limit Most users to read
+	 * @return Up to {@code limit} users.
+	 */
+	List<User> loadUsersAfter(String afterUsername, int limit);
+
+	/**
+	 * Adds a user, including whether it is activated.
+	 * @param u User to add
+	 * @return {@code false} if the user couldn't be added, such as if
+	 *         the username is taken.
+	 */
+	boolean insertUser(User u);
+
+	/**
+	 * Overwrites a user, matched by username.
+	 * @param u User to write
+	 * @return {@code false} if there is no such user.
+	 */
+	boolean updateUser(User u);
+
+	/**
+	 * Overwrites many users at once, matched by username.
+	 * Users that don't exist are skipped.
+	 * @param users Users to write
+	 */
+	void updateUsers(Collection<User> users);
+
+	/**
+	 * Deletes a user. Their saved schools must already be removed.
+	 * @param username Username
+	 * @return {@code false} if there is no such user.
+	 */
+	boolean deleteUser(String username);
+
+	/**
+	 * @return every saved school as pairs of (username, school name)
+	 */
+	String[][] loadSavedSchools();
+
+	/**
+	 * @param username Username
+	 * @return the schools a user has saved
+	 */
+	List<String> loadSavedSchools(String username);
+
+	/**
+	 * Saves a school to a user's list.
+	 * @param username Username
+	 * @param school School name
+	 * @return {@code false} if it couldn't be saved.
+	 */
+	boolean insertSavedSchool(String username, String school);
+
+	/**
+	 * Saves many schools at once. Pairs already saved are skipped.
+	 * @param saves Pairs of (username, school name)
+	 */
+	void insertSavedSchools(List<String[]> saves);
+
+	/**
+	 * Removes a school from a user's list.
+	 * @param username Username
+	 * @param school School name
+	 * @return {@code false} if it wasn't saved.
+	 */
+	boolean deleteSavedSchool(String username, String school);
+
+	/**
+	 * @return every university row
+	 */
+	String[][] loadUniversityRows();
+
+	/**
+	 * Hands every university row to a callback one at a time in name
+	 * order, along with its emphases and extra attributes, without
+	 * collecting any of the three tables first. The callback must not
+	 * write to this provider.
+	 * @param sink Receives each row
+	 */
+	void scanUniversityRows(UniversityRowSink sink);
+
+	/**
+	 * Reads university rows in name order, starting after a cursor.
+	 * @param afterName Only universities after this one are read, or
+	 *        {@code null} to start from the first.
+	 * @param limit Most rows to read
+	 * @return Up to {@code limit} rows.
+	 */
+	List<String[]> loadUniversityRowsAfter(String afterName, int limit);
+
+	/**
+	 * @param name University name
+	 * @return its row or {@code null} if there's no such university
+	 */
+	String[] loadUniversityRow(String name);
+
+	/**
+	 * Adds a university's row. Emphases and extra attributes
+	 * are stored separately.
+	 * @param u University to add
+	 * @return {@code false} if it couldn't be added.
+	 */
+	boolean insertUniversity(University u);
+
+	/**
+	 * Adds many universities with their emphases and extra attributes.
+	 * A university whose name is taken, either already or earlier in
+	 * the batch, is skipped along with its emphases and attributes.
+	 * @param batch Universities to add
+	 * @return The names of the ones that were added, in batch order.
+	 */
+	List<String> insertUniversities(List<University> batch);
+
+	/**
+	 * Overwrites a university's row, matched by name.
+	 * @param u University to write
+	 * @return {@code false} if there's no such university.
+	 */
+	boolean updateUniversity(University u);
+
+	/**
+	 * Deletes a university's row.
+	 * @param name University name
+	 * @return {@code false} if there's no such university.
+	 */
+	boolean deleteUniversity(String name);
+
+	/**
+	 * @return every emphasis as pairs of (school name, emphasis)
+	 */
+	String[][] loadEmphasisPairs();
+
+	/**
+	 * @param school School name
+	 * @return the school's emphases, sorted
+	 */
+	List<String> loadEmphases(String school);
+
+	/**
+	 * @param schools School names
+	 * @return those schools' names to their sorted emphases; schools
+	 *         with no emphases are left out
+	 */
+	Map<String, List<String>> loadEmphases(Collection<String> schools);
+
+	/**
+	 * @return every distinct emphasis
+	 */
+	List<String> loadEmphasisNames();
+
+	/**
+	 * Adds emphases to a school.
+	 * @param school School name
+	 * @param emphases Emphases to add
+	 * @return {@code false} if any weren't added.
+	 */
+	boolean addEmphases(String school, Collection<String> emphases);
+
+	/**
+	 * Removes emphases from a school.
+	 * @param school School name
+	 * @param emphases Emphases to remove
+	 * @return {@code false} if any weren't removed.
+	 */
+	boolean removeEmphases(String school, Collection<String> emphases);
+
+	/**
+	 * @return school names to their extra attributes
+	 */
+	Map<String, UniversityExt> loadUniversityExt();
+
+	/**
+	 * @param school School name
+	 * @return its extra attributes or {@code null} if it has none
+	 */
+	UniversityExt loadUniversityExt(String school);
+
+	/**
+	 * @param schools School names
+	 * @return those schools' names to their extra attributes; schools
+	 *         with none are left out
+	 */
+	Map<String, UniversityExt> loadUniversityExt(Collection<String> schools);
+
+	/**
+	 * Sets a school's extra attributes, inserting or updating.
+	 * @param school School name
+	 * @param webpageUrl URL of webpage, may be {@code null}.
+	 * @param imageUrl URL of image, may be {@code null}.
+	 */
+	void upsertUniversityExt(String school, String webpageUrl, String imageUrl);
+
+	/**
+	 * Sets many schools' extra attributes at once.
+	 * @param rows School names to their extra attributes
+	 */
+	void upsertUniversityExt(Map<String, UniversityExt> rows);
+
+	/**
+	 * Deletes a school's extra attributes.
+	 * @param school School name
+	 * @return {@code false} if it had none.
+	 */
+	boolean deleteUniversityExt(String school);
+
+	/**
+	 * Counts the rows of every table, which is enough to tell that
+	 * another copy of the data has had rows added or removed.
+	 * @return How many users, saved schools, universities,
+	 *         emphases and rows of extra attributes there are.
+	 */
+	long[] countRows();
+
+	/**
+	 * Releases whatever the provider holds open.
+	 */
+	@Override
+	void close();
+
+}
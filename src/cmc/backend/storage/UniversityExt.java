@@ -0,0 +1,35 @@
+package cmc.backend.storage;
+
+/**
+ * The extra attributes stored for a university that the
+ * database library doesn't have columns for.
+ */
+public class UniversityExt {
+
+	private final String webpageUrl;
+	private final String imageUrl;
+
+	/**
+	 * Creates a row.
+	 * @param webpageUrl URL of webpage, may be {@code null}.
+	 * @param imageUrl URL of image, may be {@code null}.
+	 */
+	public UniversityExt(String webpageUrl, String imageUrl) {
+		this.webpageUrl = webpageUrl;
+		this.imageUrl = imageUrl;
+	}
+
+	/**
+	 * @return the webpageUrl
+	 */
+	public String getWebpageUrl() {
+		return webpageUrl;
+	}
+
+	/**
+	 * @return the imageUrl
+	 */
+	public String getImageUrl() {
+		return imageUrl;
+	}
+}
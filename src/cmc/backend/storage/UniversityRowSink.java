@@ -0,0 +1,20 @@
+package cmc.backend.storage;
+
+import java.util.List;
+
+/**
+ * Receives universities one at a time from
+ * {@link StorageProvider#scanUniversityRows(UniversityRowSink)},
+ * each with everything stored about it.
+ */
+public interface UniversityRowSink {
+
+	/**
+	 * Receives one university.
+	 * @param row Its row of the University table
+	 * @param emphases Its emphases, empty if it has none
+	 * @param ext Its extra attributes, or {@code null} if it has none
+	 */
+	void accept(String[] row, List<String> emphases, UniversityExt ext);
+
+}
@@ -1,10 +1,16 @@
 package cmc.frontend;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 import java.util.List;
 import java.util.ArrayList;
 import cmc.backend.AccountController;
+import cmc.backend.Page;
 import cmc.backend.UniversityController;
+import cmc.backend.UniversityExporter;
+import cmc.backend.UniversityImporter;
 import cmc.backend.entities.University;
 import cmc.backend.SystemController;
 import cmc.CMCException;
@@ -42,6 +48,16 @@ public class AdminInteraction extends UserInteraction {
      * @param users The list of users to display
      */
     public void displayUserTable(List<User> users) {
+        displayUserTable(users, 1);
+    }
+    
+    /**
+     * Displays a list of users in a tabular format, numbered from a given number.
+     * 
+     * @param users The list of users to display
+     * @param firstNumber Number shown next to the first user
+     */
+    public void displayUserTable(List<User> users, int firstNumber) {
         if (users == null || users.isEmpty()) {
             System.out.println("No users to display.");
             return;
@@ -88,13 +104,32 @@ public class AdminInteraction extends UserInteraction {
         // Print data
         for (int i = 0; i < users.size(); i++) {
             User user = users.get(i);
-            System.out.printf(format, (i + 1), user.getUsername(), user.getFirstName(), 
+            System.out.printf(format, (firstNumber + i), user.getUsername(), user.getFirstName(), 
                              user.getLastName(), (user.isAdmin() ? "Admin" : "User"), 
                              (user.isActivated() ? "Active" : "Inactive"));
         }
         System.out.println();
     }
     
+    /**
+     * Displays every user in a table a page at a time, asking before
+     * each page after the first, so only one page is ever loaded.
+     * 
+     * @param s Scanner for input
+     */
+    public void displayUserPages(Scanner s) {
+        String cursor = null;
+        int shown = 0;
+        do {
+            Page<User> page = acct.pageUsers(cursor, ConsoleUtils.PAGE_SIZE);
+            if (shown == 0 || !page.getItems().isEmpty()) {
+                displayUserTable(page.getItems(), shown + 1);
+            }
+            shown += page.getItems().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null && ConsoleUtils.askForMore(s));
+    }
+    
     /**
      * Displays a simplified list of users with just their numbers and usernames.
      * 
@@ -149,6 +184,51 @@ public class AdminInteraction extends UserInteraction {
         return theSystemController.addNewUniversity(uni);
     }
     
+    /**
+     * Imports universities from a CSV or TSV file and prints what happened.
+     * 
+     * @param path Path of the file
+     * @return true if the file was read, false otherwise
+     */
+    public boolean importUniversities(String path) {
+        try {
+            UniversityImporter.Report report = theSystemController.importUniversities(Paths.get(path));
+            System.out.println(report);
+            for (String r : report.getRejections()) {
+                System.out.println("  " + r);
+            }
+            return true;
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Could not read " + path + ": " + e.getMessage());
+            return false;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Could not import " + path + ": " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Exports universities to a CSV or JSON Lines file and prints how many were written.
+     * 
+     * @param path Path of the file, ending in ".gz" to compress it
+     * @param columns Comma separated column names, or blank for every column
+     * @return true if the file was written, false otherwise
+     */
+    public boolean exportUniversities(String path, String columns) {
+        try {
+            long rows = theSystemController.exportUniversities(Paths.get(path),
+                    UniversityExporter.parseColumns(columns));
+            System.out.println("Exported " + rows + " universities to " + path + ".");
+            return true;
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Could not write " + path + ": " + e.getMessage());
+            return false;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Could not export: " + e.getMessage());
+            return false;
+        }
+    }
+    
     /**
      * Removes a university from the system.
      * 
@@ -303,7 +383,7 @@ public class AdminInteraction extends UserInteraction {
         
         if (searchName.trim().isEmpty()) {
             System.out.println("Displaying all users:");
-            displayUserTable(uList);
+            displayUserPages(s);
             return true;
         }
 
@@ -337,6 +417,17 @@ public class AdminInteraction extends UserInteraction {
         return acct.getAllUsers();
     }
     
+    /**
+     * Gets one page of universities sorted by name.
+     * 
+     * @param afterName Cursor from the previous page, or null for the first page
+     * @param limit Most universities on the page
+     * @return The page
+     */
+    public Page<University> pageUniversities(String afterName, int limit) {
+        return theSystemController.pageUniversities(afterName, limit);
+    }
+    
     //(3) - Admin Editor Methods
     
     /**
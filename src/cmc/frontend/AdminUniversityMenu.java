@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Scanner;
 
 import cmc.CMCException;
+import cmc.backend.Page;
 import cmc.backend.entities.University;
 
 /**
@@ -33,10 +34,11 @@ public class AdminUniversityMenu {
 		
 		int choice = ConsoleUtils.getMenuOption(s, Arrays.asList(
 				"View Universities", "Add Universities", "Edit University",
-				"Remove University", "Go Back"));
+				"Remove University", "Import Universities", "Export Universities",
+				"Go Back"));
 		switch(choice) {
 		case 1:
-			printSchools();
+			printSchools(s);
 			break;
 		case 2:
 			addSchoolPrompt(s);
@@ -71,6 +73,12 @@ public class AdminUniversityMenu {
 			removeSchoolPrompt(s);
 			break;
 		case 5:
+			importSchoolsPrompt(s);
+			break;
+		case 6:
+			exportSchoolsPrompt(s);
+			break;
+		case 7:
 			// Return false to end loop
 			return false;
 		default:
@@ -81,10 +89,28 @@ public class AdminUniversityMenu {
 	}
 	
 	/**
-	 * Prints all universities, numbered.
+	 * Prints all universities, numbered, a page at a time so the first
+	 * page shows up without reading the whole catalog.
+	 */
+	private void printSchools(Scanner s) {
+		String cursor = null;
+		int n = 0;
+		do {
+			Page<University> page = ai.pageUniversities(cursor, ConsoleUtils.PAGE_SIZE);
+			for(University u : page.getItems()) {
+				System.out.print(++n);
+				System.out.print(") ");
+				System.out.println(u.getName());
+			}
+			cursor = page.getNextCursor();
+		} while(cursor != null && ConsoleUtils.askForMore(s));
+	}
+	
+	/**
+	 * Prints all universities, numbered, to choose one from.
 	 * @return Count of universities.
 	 */
-	private int printSchools() {
+	private int printAllSchools() {
 		List<University> us = ai.getAllUniversities();
 		for(int i = 0; i < us.size(); i++) {
 			System.out.print(i + 1);
@@ -95,7 +121,7 @@ public class AdminUniversityMenu {
 	}
 	
 	private void removeSchoolPrompt(Scanner s) {
-		int count = printSchools();
+		int count = printAllSchools();
 		int choice = ConsoleUtils.getSingleMenuEntry(s, 1, count);
 		if(choice == -1) {
 			System.out.println("Invalid input.");
@@ -118,6 +144,27 @@ public class AdminUniversityMenu {
 		}
 	}
 	
+	private void importSchoolsPrompt(Scanner s) {
+		System.out.println("CSV or TSV file to import (header row required): ");
+		String path = s.nextLine().trim();
+		if(path.isEmpty()) {
+			System.out.println("Import canceled.");
+			return;
+		}
+		ai.importUniversities(path);
+	}
+	
+	private void exportSchoolsPrompt(Scanner s) {
+		System.out.println("File to export to (.csv or .jsonl, add .gz to compress): ");
+		String path = s.nextLine().trim();
+		if(path.isEmpty()) {
+			System.out.println("Export canceled.");
+			return;
+		}
+		System.out.println("Columns separated by commas (blank for all): ");
+		ai.exportUniversities(path, s.nextLine());
+	}
+	
 	private void editUniversityPrompt(Scanner s, University u) throws CMCException {
 		System.out.println("Currently editting: " + u.getName());
 		University uni = AdminEditSchool.prompt(s, u);
@@ -8,6 +8,11 @@ import java.util.Scanner;
  */
 public class ConsoleUtils {
 	
+	/**
+	 * How many rows long listings print before asking to continue.
+	 */
+	public static final int PAGE_SIZE = 20;
+	
 	/**
 	 * Get the selected menu option based on user entry.
 	 * This reads one line from the provided Scanner.
@@ -59,6 +64,19 @@ public class ConsoleUtils {
 		
 		return choice;
 	}
+	/**
+	 * Asks whether to print the next page of a listing.
+	 * This reads one line from the provided Scanner.
+	 * 
+	 * @param s the Scanner from which to read the user's input
+	 * @return {@code true} unless the user enters q or there is no more input
+	 */
+	public static boolean askForMore(Scanner s) {
+		System.out.print("Press Enter for more, or q to stop: ");
+		if(!s.hasNextLine()) return false;
+		return !s.nextLine().trim().equalsIgnoreCase("q");
+	}
+	
 	/**
 	 * Reads integer from s and handles non-integer inputs
 	 * 
@@ -7,7 +7,6 @@ import cmc.*; // For CMCException
 
 // Use the specific User class that UserInteraction holds
 import cmc.backend.User;
-import cmc.backend.UniversityController;
 import cmc.backend.AccountController;
 
 // Use the entity classes for data representation
@@ -389,11 +388,12 @@ public class Driver {
 
         // Create AdminInteraction if it's not already created
         if (adminUi == null) {
-            // Initialize the AdminInteraction with the required controllers
+            // Initialize the AdminInteraction with the required controllers,
+            // sharing the university controller so there's one catalog cache
             adminUi = new AdminInteraction(
                 ui.theSystemController,
                 ui.acct,
-                new UniversityController()
+                ui.theSystemController.getUniversityController()
             );
         }
 
@@ -455,6 +455,16 @@ public class Driver {
         }
     }
 
+    /**
+     * Prints anything that went wrong keeping the catalog's snapshot file,
+     * which the backend records instead of printing.
+     */
+    private static void reportCatalogProblems() {
+        RuntimeException e = ui.theSystemController.getUniversityController()
+                .getCatalog().takeSnapshotFailure();
+        if (e != null) System.err.println(e.getMessage());
+    }
+
     /**
      * Main application loop.
      * 
@@ -464,7 +474,11 @@ public class Driver {
         Scanner s = new Scanner(System.in);
         boolean keepRunning = true;
 
+        // Load the catalog while the user logs in
+        ui.theSystemController.getUniversityController().getCatalog().preload();
+
         while (keepRunning) {
+            reportCatalogProblems();
             User currentUser = ui.getLoggedInUser();
 
             if (currentUser == null) {
@@ -487,6 +501,9 @@ public class Driver {
             }
         }
 
+        // The snapshot file is written in the background
+        ui.theSystemController.getUniversityController().getCatalog().awaitSnapshotFile();
+        reportCatalogProblems();
         System.out.println("\nExiting Choose My College. Goodbye!");
         s.close(); // Close scanner resource
     }
@@ -509,16 +526,8 @@ public class Driver {
         AdminInteraction adminUi = (AdminInteraction)baseUi;
         printHeader("Admin User Management");
 
-        // Get all users from the AdminInteraction instance
-        List<User> allUsers = adminUi.getAllUsers();
-        
-        // Display users in a table
-        if (allUsers != null && !allUsers.isEmpty()) {
-            // Use the display method from AdminInteraction
-            adminUi.displayUserTable(allUsers);
-        } else {
-            System.out.println("No users found or error retrieving user list.");
-        }
+        // Display users in a table, a page at a time
+        adminUi.displayUserPages(s);
 
         int choice = ConsoleUtils.getMenuOption(s, Arrays.asList(
             "Add User", 
@@ -24,8 +24,7 @@ public class UserInteraction {
 	// TODO: Someday, we should refactor the single SystemController class
 	//       into multiple classes for better organization of functionalities.
 	public UserInteraction() {
-		this.theSystemController = new SystemController();
-		acct = new AccountController();
+		this(new DatabaseController());
 	}
 
 	public UserInteraction(DatabaseController injectDb) {
@@ -193,16 +192,7 @@ public class UserInteraction {
         }
         // Assumes names in the database/list are consistently cased (e.g., uppercase)
         String searchName = name.toUpperCase();
-
-        List<University> allUnis = getAllUniversities(); // Use the existing method
-        if (allUnis == null) return null; // Handle case where getAllUniversities fails
-
-        for (University u : allUnis) {
-            if (u.getName().equals(searchName)) {
-                return u; // Found the match
-            }
-        }
-        return null; // Not found
+        return theSystemController.getUniversity(searchName); // null if not found
     }
     // <<< NEW METHOD END >>>
 
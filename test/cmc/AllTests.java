@@ -7,7 +7,26 @@ import org.junit.runner.RunWith;
 @Suite.SuiteClasses({
 	cmc.backend.SearchControllerTest.class,
 	cmc.backend.UniversityControllerTest.class,
+	cmc.backend.UniversityCatalogTest.class,
+	cmc.backend.CatalogSnapshotFileTest.class,
+	cmc.backend.CatalogColumnsTest.class,
+	cmc.backend.RangeSearchTest.class,
+	cmc.backend.AdvancedSearchTest.class,
+	cmc.backend.CompiledQueryTest.class,
+	cmc.backend.EmphasisDictionaryTest.class,
+	cmc.backend.UniversityRowDecoderTest.class,
+	cmc.backend.AsyncDatabaseControllerTest.class,
+	cmc.backend.SingleFlightTest.class,
 	cmc.backend.AccountControllerTest.class,
+	cmc.backend.UserDirectoryTest.class,
+	cmc.backend.SavedSchoolIndexTest.class,
+	cmc.backend.WriteBehindQueueTest.class,
+	cmc.backend.ConnectionPoolTest.class,
+	cmc.backend.FileStorageProviderTest.class,
+	cmc.backend.JournaledStorageProviderTest.class,
+	cmc.backend.PagingTest.class,
+	cmc.backend.UniversityImporterTest.class,
+	cmc.backend.UniversityExporterTest.class,
 	cmc.backend.UserTest.class,
 	
 	cmc.regression.DeactivatedUserCanStillLogin.class,
@@ -0,0 +1,153 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.entities.EmphasisDictionary;
+import cmc.backend.entities.University;
+
+/**
+ * Tests advanced searches against checking every University,
+ * and the plans and statistics behind them.
+ */
+public class AdvancedSearchTest extends SearchTestBase {
+
+	private static final String[] STATES = { "MINNESOTA", "IOWA", "WISCONSIN" };
+	private static final String[] LOCATIONS = { "URBAN", "SUBURBAN", "RURAL", "-1" };
+	private static final String[] CONTROLS = { "PRIVATE", "STATE" };
+	private static final String[] EMPHASES = { "ADV ART", "ADV MATH", "ADV NURSING" };
+
+	@Override
+	protected List<University> universities() {
+		List<University> list = new ArrayList<>();
+		Random r = new Random(24);
+		for(int i = 0; i < 400; i++) {
+			University u = new University("ADV U" + i);
+			u.setState(STATES[r.nextInt(STATES.length)]);
+			u.setLocation(LOCATIONS[r.nextInt(LOCATIONS.length)]);
+			u.setControl(CONTROLS[r.nextInt(CONTROLS.length)]);
+			u.setNumStudents(r.nextInt(5) == 0 ? -1 : 1000 + r.nextInt(20) * 1000);
+			u.setExpenses(10000 + r.nextInt(50) * 1000);
+			u.setScaleAcademics(1 + r.nextInt(5));
+			if(r.nextInt(3) == 0) u.setWebpageUrl("https://adv-u" + i + ".edu");
+			for(String e : EMPHASES) {
+				if(r.nextInt(4) == 0) u.addEmphasis(e);
+			}
+			list.add(u);
+		}
+		return list;
+	}
+
+	private static boolean contains(String s, String text) {
+		return s != null && s.toUpperCase().contains(text.toUpperCase());
+	}
+
+	private List<String> scan(String state, String location, String control, String name,
+			String url, String emphasis, Range... ranges) {
+		return scan(u -> (state == null || state.equalsIgnoreCase(u.getState()))
+				&& (location == null || location.equalsIgnoreCase(u.getLocation()))
+				&& (control == null || control.equalsIgnoreCase(u.getControl()))
+				&& (name == null || contains(u.getName(), name))
+				&& (url == null || contains(u.getWebpageUrl(), url))
+				&& (emphasis == null || u.hasEmphasis(emphasis))
+				&& inRanges(u, ranges));
+	}
+
+	private static String pick(Random r, String... values) {
+		int i = r.nextInt(values.length + 1);
+		return i == values.length ? null : values[i];
+	}
+
+	@Test
+	public void testMatchesScan() {
+		Random r = new Random(9);
+		for(int i = 0; i < 200; i++) {
+			String state = pick(r, "minnesota", "IOWA", "TEXAS");
+			String location = pick(r, "urban", "RURAL");
+			String control = pick(r, CONTROLS);
+			String name = r.nextInt(4) == 0 ? "u1" : null;
+			String url = r.nextInt(6) == 0 ? "ADV-U2" : null;
+			String emphasis = pick(r, "ADV ART", "ADV MATH", "NO SUCH EMPHASIS");
+			List<Range> ranges = new ArrayList<>();
+			if(r.nextBoolean()) ranges.add(Range.between(UniversityColumn.NUM_STUDENTS, r.nextInt(10000), 10000 + r.nextInt(20000)));
+			if(r.nextBoolean()) ranges.add(Range.atMost(UniversityColumn.EXPENSES, 10000 + r.nextInt(50000)));
+			if(r.nextBoolean()) ranges.add(Range.atLeast(UniversityColumn.SCALE_ACADEMICS, r.nextInt(6)));
+
+			SearchCriteria c = new SearchCriteria().withState(state).withLocation(location).withControl(control)
+					.withName(name).withWebpageUrl(url);
+			if(emphasis != null) c.withEmphasis(emphasis);
+			for(Range range : ranges) c.withRange(range);
+			Assert.assertEquals("criteria " + i,
+					scan(state, location, control, name, url, emphasis, ranges.toArray(new Range[0])),
+					names(search.advancedSearch(c)));
+		}
+		Assert.assertEquals(uc.getAllSchools().size(), search.advancedSearch(new SearchCriteria()).size());
+	}
+
+	@Test
+	public void testMostSelectiveIndexDrives() {
+		SearchCriteria c = new SearchCriteria()
+				.withState("IOWA")
+				.withRange(Range.between(UniversityColumn.NUM_STUDENTS, 5000, 5000))
+				.withName("ADV")
+				.withLocation("urban")
+				.withEmphasis("ADV MATH");
+		QueryPlan plan = search.explain(c);
+		Assert.assertTrue(plan.getDriver(), plan.getDriver().startsWith("index on NUM_STUDENTS"));
+		List<String> filters = plan.getFilters();
+		Assert.assertEquals(4, filters.size());
+		// Cheapest first: codes, then the emphasis bit, then the text search
+		Assert.assertTrue(filters.get(2), filters.get(2).startsWith("EMPHASES has ADV MATH"));
+		Assert.assertTrue(filters.get(3), filters.get(3).startsWith("NAME contains ADV"));
+		Assert.assertEquals(scan("IOWA", "urban", null, "ADV", null, "ADV MATH",
+				Range.between(UniversityColumn.NUM_STUDENTS, 5000, 5000)), names(search.advancedSearch(c)));
+
+		// Nothing indexed narrows it down, so every row is scanned
+		QueryPlan scan = search.explain(new SearchCriteria().withControl("PRIVATE").withName("U1"));
+		Assert.assertTrue(scan.getDriver(), scan.getDriver().startsWith("scan"));
+	}
+
+	@Test
+	public void testUnmatchableCriterionReadsNothing() {
+		QueryPlan plan = search.explain(new SearchCriteria().withState("IOWA").withEmphasis("NO SUCH EMPHASIS"));
+		Assert.assertTrue(plan.matchesNothing());
+		Assert.assertEquals(0, plan.getEstimatedRows());
+		Assert.assertTrue(search.advancedSearch(new SearchCriteria().withLocation("SPACE")).isEmpty());
+		Assert.assertFalse(search.explain(new SearchCriteria().withState("IOWA")).matchesNothing());
+	}
+
+	@Test
+	public void testStatisticsFollowCatalogMutations() {
+		int id = EmphasisDictionary.idOf("ADV NURSING");
+		SearchCriteria nursing = new SearchCriteria().withEmphasis("ADV NURSING").withLocation("RURAL");
+		search.advancedSearch(nursing);
+
+		University changed = uc.getUniversity("ADV U3");
+		changed.addEmphasis("ADV NURSING");
+		changed.setLocation("RURAL");
+		Assert.assertTrue(uc.editUniversity(changed));
+		University added = new University("AAA ADV");
+		added.addEmphasis("ADV NURSING");
+		added.addEmphasis("ADV NEW");
+		added.setLocation("RURAL");
+		Assert.assertTrue(uc.addNewUniversity(added));
+		Assert.assertTrue(uc.removeUniversity(uc.getUniversity("ADV U5")));
+
+		CatalogColumns edited = uc.getCatalog().getSnapshot().getColumns();
+		CatalogColumns rebuilt = new CatalogColumns(uc.getCatalog().getSnapshot().getUniversities());
+		Assert.assertEquals(rebuilt.emphasisCount(id), edited.emphasisCount(id));
+		Assert.assertEquals(1, edited.emphasisCount(EmphasisDictionary.lookup("ADV NEW")));
+		for(String l : Arrays.asList("URBAN", "SUBURBAN", "RURAL", "-1")) {
+			Assert.assertEquals(rebuilt.locationCount(rebuilt.locations.codeOf(l)),
+					edited.locationCount(edited.locations.codeOf(l)));
+		}
+		Assert.assertEquals(scan(null, "RURAL", null, null, null, "ADV NURSING"), names(search.advancedSearch(nursing)));
+		Assert.assertEquals("AAA ADV", search.advancedSearch(nursing).get(0).getName());
+	}
+
+}
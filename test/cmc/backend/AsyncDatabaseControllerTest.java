@@ -0,0 +1,134 @@
+package cmc.backend;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.controllers.AsyncDatabaseController;
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.controllers.MockDatabaseController;
+import cmc.backend.entities.EmphasisDictionary;
+import cmc.backend.entities.University;
+import cmc.backend.storage.UniversityExt;
+
+/**
+ * Tests the asynchronous database facade.
+ */
+public class AsyncDatabaseControllerTest {
+
+	private static final long QUERY_MS = 200;
+
+	/**
+	 * Answers the three catalog queries slowly without a database.
+	 */
+	private static class SlowDb extends DatabaseController {
+
+		private SlowDb() {
+			super(false);
+		}
+
+		private static void pause() {
+			try {
+				Thread.sleep(QUERY_MS);
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		protected String[][] fetchUniversityRows() {
+			pause();
+			return new String[][] {
+				{"AUGSBURG", "MINNESOTA", "SMALL-CITY", "PRIVATE", "10000", "60", "550", "550",
+					"45000", "95", "5000", "70", "30", "3", "4", "4"}
+			};
+		}
+
+		@Override
+		protected Map<String, BitSet> fetchEmphasisBits() {
+			pause();
+			Map<String, BitSet> m = new HashMap<>();
+			m.put("AUGSBURG", EmphasisDictionary.encode(Collections.singletonList("LIBERAL ARTS")));
+			return m;
+		}
+
+		@Override
+		protected Map<String, UniversityExt> fetchUniversityExt() {
+			pause();
+			Map<String, UniversityExt> m = new HashMap<>();
+			m.put("AUGSBURG", new UniversityExt("https://www.augsburg.edu", null));
+			return m;
+		}
+	}
+
+	private AsyncDatabaseController async;
+
+	@Before
+	public void setUp() {
+		async = new AsyncDatabaseController(new SlowDb(), 3);
+	}
+
+	@After
+	public void tearDown() {
+		async.close();
+	}
+
+	@Test
+	public void testGetAllSchoolsFansOut() throws Exception {
+		long start = System.nanoTime();
+		List<University> list = async.getAllSchools().get(5, TimeUnit.SECONDS);
+		long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// Run one after another this would take 3 * QUERY_MS
+		Assert.assertTrue("Took " + ms + " ms", ms < 2 * QUERY_MS);
+		Assert.assertEquals(1, list.size());
+		University u = list.get(0);
+		Assert.assertEquals("MINNESOTA", u.getState());
+		Assert.assertEquals(Collections.singletonList("LIBERAL ARTS"), u.getEmphases());
+		Assert.assertEquals("https://www.augsburg.edu", u.getWebpageUrl());
+	}
+
+	@Test
+	public void testBlockingGetAllSchoolsFansOut() {
+		long start = System.nanoTime();
+		List<University> list = async.getDatabaseController().getAllSchools();
+		long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		Assert.assertTrue("Took " + ms + " ms", ms < 2 * QUERY_MS);
+		Assert.assertEquals(1, list.size());
+	}
+
+	@Test
+	public void testNestedGetAllSchoolsFansOut() throws Exception {
+		// Like the catalog's preload, which runs on the shared executor
+		DatabaseController db = async.getDatabaseController();
+		long start = System.nanoTime();
+		List<University> list = CompletableFuture.supplyAsync(db::getAllSchools,
+				AsyncDatabaseController.sharedExecutor()).get(5, TimeUnit.SECONDS);
+		long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		Assert.assertTrue("Took " + ms + " ms", ms < 2 * QUERY_MS);
+		Assert.assertEquals(1, list.size());
+	}
+
+	@Test
+	public void testCallsRunOffCallerThread() throws Exception {
+		async.close();
+		async = new AsyncDatabaseController(new MockDatabaseController());
+		Assert.assertEquals("MINNESOTA", async.getUniversity("AUGSBURG").get().getState());
+		Assert.assertNull(async.getUniversity("NOT A REAL SCHOOL").get());
+		Assert.assertNotNull(async.getUser("mjordan").get());
+		Assert.assertEquals(7, async.getAllSchools().get().size());
+	}
+
+}
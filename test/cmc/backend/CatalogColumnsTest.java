@@ -0,0 +1,190 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+
+/**
+ * Tests the column layout of the catalog and that searching it
+ * finds the same universities as checking every University.
+ */
+public class CatalogColumnsTest extends SearchTestBase {
+
+	private static final String[] STATES = { "MINNESOTA", "IOWA", "-1" };
+	private static final String[] LOCATIONS = { "URBAN", "SUBURBAN", "RURAL", "-1" };
+	private static final String[] CONTROLS = { "PRIVATE", "STATE" };
+
+	@Override
+	protected List<University> universities() {
+		List<University> list = new ArrayList<>();
+		Random r = new Random(42);
+		for(int i = 0; i < 300; i++) {
+			University u = new University("COLUMN U" + i);
+			if(r.nextInt(10) > 0) u.setState(STATES[r.nextInt(STATES.length)]);
+			u.setLocation(LOCATIONS[r.nextInt(LOCATIONS.length)]);
+			u.setControl(CONTROLS[r.nextInt(CONTROLS.length)]);
+			u.setNumStudents(r.nextInt(4) == 0 ? -1 : 1000 + r.nextInt(3) * 500);
+			u.setSatVerbal(r.nextInt(4) == 0 ? -1 : 400 + r.nextInt(300));
+			u.setSatMath(400 + r.nextInt(300));
+			u.setPercentAdmitted(r.nextInt(4) == 0 ? -1 : r.nextInt(100));
+			u.setScaleAcademics(r.nextInt(6));
+			list.add(u);
+		}
+		return list;
+	}
+
+	private static boolean valid(String v) {
+		return v != null && !v.isEmpty() && !v.equals("-1");
+	}
+
+	/**
+	 * findSimilar the way it was written before the columns.
+	 */
+	private List<String> similarByObjects(University t) {
+		List<University> matches = new ArrayList<>();
+		for(University c : uc.getAllSchools()) {
+			if(t.getName().equals(c.getName())) continue;
+			int score = 0;
+			if(valid(t.getLocation()) && valid(c.getLocation()) && t.getLocation().equals(c.getLocation())) score++;
+			if(valid(t.getControl()) && valid(c.getControl()) && t.getControl().equals(c.getControl())) score++;
+			if(valid(t.getState()) && valid(c.getState()) && t.getState().equals(c.getState())) score++;
+			if(t.getNumStudents() > 0 && c.getNumStudents() > 0
+					&& c.getNumStudents() >= t.getNumStudents() * 0.75
+					&& c.getNumStudents() <= t.getNumStudents() * 1.25) score++;
+			double ts = t.getSatVerbal() + t.getSatMath();
+			double cs = c.getSatVerbal() + c.getSatMath();
+			if(ts >= 400 && cs >= 400 && Math.abs(ts - cs) <= 75) score++;
+			if(t.getPercentAdmitted() >= 0 && c.getPercentAdmitted() >= 0
+					&& Math.abs(t.getPercentAdmitted() - c.getPercentAdmitted()) <= 0.15 * 100.0) score++;
+			if(t.getScaleAcademics() > 0 && c.getScaleAcademics() > 0
+					&& Math.abs(t.getScaleAcademics() - c.getScaleAcademics()) <= 1) score++;
+			if(score >= 3) matches.add(c);
+		}
+		return names(matches);
+	}
+
+	@Test
+	public void testColumnsMatchUniversities() {
+		UniversityCatalog.Snapshot snap = uc.getCatalog().getSnapshot();
+		CatalogColumns columns = snap.getColumns();
+		Assert.assertSame(columns, snap.getColumns());
+		Assert.assertEquals(snap.size(), columns.size());
+		for(int i = 0; i < columns.size(); i++) {
+			University u = snap.getUniversities().get(i);
+			Assert.assertEquals(u.getNumStudents(), columns.numStudents[i]);
+			Assert.assertEquals(u.getSatMath(), columns.satMath[i], 0);
+			Assert.assertEquals(u.getLocation(), columns.locations.valueOf(columns.location[i]));
+			if(u.getState() == null) Assert.assertEquals(CatalogColumns.NONE, columns.state[i]);
+			else Assert.assertEquals(u.getState(), columns.states.valueOf(columns.state[i]));
+		}
+		// Only the distinct values are stored
+		Assert.assertTrue(columns.controls.size() <= CONTROLS.length + 2);
+	}
+
+	@Test
+	public void testSearchMatchesScan() {
+		for(String state : new String[] { "", "iowa", "Minnesota", "TEXAS", null }) {
+			for(int students : new int[] { -1, 1500, 42 }) {
+				List<String> expected = scan(u -> (state == null || state.isEmpty()
+						|| (u.getState() != null && u.getState().equals(state.toUpperCase())))
+						&& (students < 0 || u.getNumStudents() == students));
+				Assert.assertEquals(expected, names(search.search(state, students)));
+			}
+		}
+	}
+
+	@Test
+	public void testFindSimilarMatchesScan() {
+		for(University t : uc.getAllSchools()) {
+			Assert.assertEquals(similarByObjects(t), names(search.findSimilar(t)));
+		}
+		// A target that isn't in the catalog is compared with every university
+		University outside = new University("NOT IN CATALOG");
+		outside.setState("MINNESOTA");
+		outside.setLocation("URBAN");
+		outside.setScaleAcademics(3);
+		Assert.assertEquals(similarByObjects(outside), names(search.findSimilar(outside)));
+	}
+
+	private static void assertSameColumns(CatalogColumns expected, CatalogColumns actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertArrayEquals(expected.numStudents, actual.numStudents);
+		Assert.assertArrayEquals(expected.satVerbal, actual.satVerbal, 0);
+		Assert.assertArrayEquals(expected.percentAdmitted, actual.percentAdmitted, 0);
+		Assert.assertArrayEquals(expected.scaleAcademics, actual.scaleAcademics);
+		for(int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.locations.valueOf(expected.location[i]),
+					actual.locations.valueOf(actual.location[i]));
+			int e = expected.state[i];
+			Assert.assertEquals(e == CatalogColumns.NONE ? null : expected.states.valueOf(e),
+					actual.state[i] == CatalogColumns.NONE ? null : actual.states.valueOf(actual.state[i]));
+		}
+		for(int code = 0; code < expected.states.size(); code++) {
+			String v = expected.states.valueOf(code);
+			Assert.assertArrayEquals(v, expected.rowsInState(code),
+					actual.rowsInState(actual.states.codeOf(v)));
+		}
+	}
+
+	@Test
+	public void testEditsMatchRebuild() {
+		List<University> list = new ArrayList<>(uc.getAllSchools());
+		CatalogColumns columns = new CatalogColumns(list);
+		Random r = new Random(7);
+		for(int step = 0; step < 200; step++) {
+			int op = r.nextInt(3);
+			University u = new University("EDIT U" + step);
+			u.setState(r.nextInt(5) == 0 ? "TEXAS " + step : STATES[r.nextInt(STATES.length)]);
+			u.setNumStudents(r.nextInt(5000));
+			u.setLocation(LOCATIONS[r.nextInt(LOCATIONS.length)]);
+			if(op == 0 || list.isEmpty()) {
+				int row = r.nextInt(list.size() + 1);
+				list.add(row, u);
+				columns = columns.edit(row, false, u);
+			}
+			else if(op == 1) {
+				int row = r.nextInt(list.size());
+				list.set(row, u);
+				columns = columns.edit(row, true, u);
+			}
+			else {
+				int row = r.nextInt(list.size());
+				list.remove(row);
+				columns = columns.edit(row, true, null);
+			}
+			assertSameColumns(new CatalogColumns(list), columns);
+		}
+	}
+
+	@Test
+	public void testSearchFollowsCatalogMutations() {
+		Assert.assertFalse(search.search("IOWA", -1).isEmpty());
+		University moved = search.search("IOWA", -1).get(0);
+		moved.setState("WISCONSIN");
+		Assert.assertTrue(uc.editUniversity(moved));
+		University added = new University("AAA NEW U");
+		added.setState("WISCONSIN");
+		Assert.assertTrue(uc.addNewUniversity(added));
+		Assert.assertEquals(Arrays.asList("AAA NEW U", moved.getName()),
+				names(search.search("Wisconsin", -1)));
+
+		Assert.assertTrue(uc.removeUniversity(added));
+		Assert.assertEquals(1, search.search("WISCONSIN", -1).size());
+		testSearchMatchesScan();
+	}
+
+	@Test
+	public void testResultsAreCopies() {
+		List<University> found = search.search("IOWA", -1);
+		Assert.assertFalse(found.isEmpty());
+		found.get(0).setState("MINNESOTA");
+		Assert.assertEquals("IOWA", uc.getUniversity(found.get(0).getName()).getState());
+	}
+
+}
@@ -0,0 +1,242 @@
+package cmc.backend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cmc.backend.controllers.MockDatabaseController;
+import cmc.backend.entities.University;
+
+/**
+ * Tests the binary catalog snapshot and starting the catalog from it.
+ */
+public class CatalogSnapshotFileTest {
+
+	/**
+	 * A database whose full fetch waits until it is let go.
+	 */
+	private static class SlowDb extends MockDatabaseController {
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public List<University> getAllSchools() {
+			try {
+				release.await();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.getAllSchools();
+		}
+	}
+
+	/**
+	 * A database whose first full fetch reads the catalog straight away
+	 * but doesn't return it until it is let go, like a slow refresh.
+	 */
+	private static class StaleFirstFetchDb extends MockDatabaseController {
+		final CountDownLatch fetched = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		private boolean first = true;
+
+		@Override
+		public List<University> getAllSchools() {
+			List<University> list = super.getAllSchools();
+			synchronized(this) {
+				if(!first) return list;
+				first = false;
+			}
+			fetched.countDown();
+			try {
+				release.await();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return list;
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static University school(String name) {
+		University u = new University(name);
+		u.setState("MINNESOTA");
+		u.setControl("PRIVATE");
+		u.setNumStudents(1234);
+		u.setSatMath(610.5);
+		u.setScaleSocial(4);
+		u.addEmphasis("BIOLOGY");
+		u.addEmphasis("ART");
+		u.setWebpageUrl("https://" + name.toLowerCase().replace(' ', '-') + ".edu");
+		return u;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("catalog.bin");
+		List<University> list = Arrays.asList(school("SNAP A"), school("SNAP B"), new University("SNAP C"));
+		CatalogSnapshotFile.write(file, list);
+
+		List<University> read = CatalogSnapshotFile.read(file);
+		Assert.assertEquals(3, read.size());
+		University a = read.get(0);
+		Assert.assertEquals("SNAP A", a.getName());
+		Assert.assertEquals("MINNESOTA", a.getState());
+		Assert.assertEquals("PRIVATE", a.getControl());
+		Assert.assertEquals("-1", a.getLocation());
+		Assert.assertEquals(1234, a.getNumStudents());
+		Assert.assertEquals(610.5, a.getSatMath(), 0);
+		Assert.assertEquals(-1, a.getSatVerbal(), 0);
+		Assert.assertEquals(4, a.getScaleSocial());
+		Assert.assertTrue(a.hasEmphasis("ART") && a.hasEmphasis("BIOLOGY"));
+		Assert.assertEquals("https://snap-a.edu", a.getWebpageUrl());
+		Assert.assertNull(a.getImageUrl());
+		Assert.assertTrue(read.get(2).getEmphases().isEmpty());
+		Assert.assertNull(read.get(2).getWebpageUrl());
+	}
+
+	@Test
+	public void testRepeatedStringsStoredOnce() throws IOException {
+		Path one = folder.getRoot().toPath().resolve("one.bin");
+		Path many = folder.getRoot().toPath().resolve("many.bin");
+		List<University> list = new ArrayList<>();
+		for(int i = 0; i < 100; i++) {
+			University u = new University("SAME STATE " + i);
+			u.setState("MINNESOTA");
+			list.add(u);
+		}
+		CatalogSnapshotFile.write(one, list.subList(0, 1));
+		CatalogSnapshotFile.write(many, list);
+		long perExtraRow = (Files.size(many) - Files.size(one)) / 99;
+		// A row plus a short name, but not the state again
+		Assert.assertTrue(perExtraRow < 108 + 4 + 16);
+	}
+
+	@Test(expected = IOException.class)
+	public void testDamageDetected() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("catalog.bin");
+		CatalogSnapshotFile.write(file, Arrays.asList(school("SNAP A")));
+		byte[] b = Files.readAllBytes(file);
+		b[b.length - 1] ^= 1;
+		Files.write(file, b);
+		CatalogSnapshotFile.read(file);
+	}
+
+	@Test
+	public void testDamagedFileIsRecordedNotUsed() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("catalog.bin");
+		Files.write(file, new byte[] { 1, 2, 3 });
+		MockDatabaseController db = new MockDatabaseController();
+		db.addNewUniversity(school("FROM DB U"));
+		UniversityCatalog catalog = new UniversityCatalog(db, file);
+
+		// Loads from the database, since the file can't be read
+		Assert.assertEquals(db.getAllSchools().size(), catalog.getAllSchools().size());
+		RuntimeException failure = catalog.takeSnapshotFailure();
+		Assert.assertNotNull(failure);
+		Assert.assertTrue(failure.getMessage(), failure.getMessage().startsWith("Ignoring catalog snapshot"));
+		Assert.assertNull(catalog.takeSnapshotFailure());
+	}
+
+	@Test
+	public void testCatalogStartsFromFileThenRefreshes() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("catalog.bin");
+		CatalogSnapshotFile.write(file, Arrays.asList(school("FROM FILE U")));
+
+		SlowDb db = new SlowDb();
+		db.addNewUniversity(school("FROM DB U"));
+		UniversityCatalog catalog = new UniversityCatalog(db, file);
+
+		// Answered from the file while the database is still loading
+		Assert.assertEquals(1, catalog.getAllSchools().size());
+		Assert.assertNotNull(catalog.getUniversity("FROM FILE U"));
+		Assert.assertEquals(1, catalog.getVersion());
+
+		db.release.countDown();
+		catalog.awaitRefresh();
+		Assert.assertEquals(2, catalog.getVersion());
+		Assert.assertNull(catalog.getUniversity("FROM FILE U"));
+		Assert.assertNotNull(catalog.getUniversity("FROM DB U"));
+
+		// The file was rewritten with the database's catalog
+		catalog.awaitSnapshotFile();
+		List<University> written = CatalogSnapshotFile.read(file);
+		Assert.assertEquals(catalog.getAllSchools().size(), written.size());
+	}
+
+	@Test
+	public void testMutationsRewriteFile() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("catalog.bin");
+		MockDatabaseController db = new MockDatabaseController();
+		UniversityCatalog catalog = new UniversityCatalog(db, file);
+		catalog.getAllSchools();
+		catalog.awaitSnapshotFile();
+		Assert.assertTrue(Files.exists(file));
+
+		Assert.assertTrue(catalog.addNewUniversity(school("ADDED U")));
+		catalog.awaitSnapshotFile();
+		boolean found = false;
+		for(University u : CatalogSnapshotFile.read(file)) found |= u.getName().equals("ADDED U");
+		Assert.assertTrue(found);
+
+		catalog.invalidate();
+		Assert.assertFalse(Files.exists(file));
+	}
+
+	@Test
+	public void testBurstOfMutationsWritesNewest() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("catalog.bin");
+		MockDatabaseController db = new MockDatabaseController();
+		UniversityCatalog catalog = new UniversityCatalog(db, file);
+		catalog.getAllSchools();
+		for(int i = 0; i < 20; i++) Assert.assertTrue(catalog.addNewUniversity(school("BURST U" + i)));
+		catalog.awaitSnapshotFile();
+		Assert.assertEquals(catalog.getAllSchools().size(), CatalogSnapshotFile.read(file).size());
+
+		// Dropping the file while a write is in flight doesn't bring it back
+		Assert.assertTrue(catalog.addNewUniversity(school("LAST U")));
+		catalog.invalidate();
+		catalog.awaitSnapshotFile();
+		Assert.assertFalse(Files.exists(file));
+		Assert.assertNull(catalog.takeSnapshotFailure());
+	}
+
+	@Test
+	public void testSlowRefreshDoesNotOverwriteReload() throws Exception {
+		Path file = folder.getRoot().toPath().resolve("catalog.bin");
+		CatalogSnapshotFile.write(file, Arrays.asList(school("FROM FILE U")));
+		StaleFirstFetchDb db = new StaleFirstFetchDb();
+		UniversityCatalog catalog = new UniversityCatalog(db, file);
+		catalog.getAllSchools();
+		db.fetched.await();
+
+		// An import drops the cache, and the next read reloads it with the
+		// change while the refresh still holds rows from before it
+		catalog.invalidate();
+		Assert.assertTrue(db.addNewUniversity(school("IMPORTED U")));
+		catalog.getAllSchools();
+		Assert.assertTrue(catalog.getVersion() > 1);
+
+		db.release.countDown();
+		catalog.awaitRefresh();
+		Assert.assertNotNull(catalog.getUniversity("IMPORTED U"));
+		catalog.awaitSnapshotFile();
+		if(Files.exists(file)) {
+			boolean found = false;
+			for(University u : CatalogSnapshotFile.read(file)) found |= u.getName().equals("IMPORTED U");
+			Assert.assertTrue(found);
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package cmc.backend;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+
+/**
+ * Tests running compiled queries many times, across catalog
+ * changes and a page at a time.
+ */
+public class CompiledQueryTest extends SearchTestBase {
+
+	@Override
+	protected List<University> universities() {
+		List<University> list = new ArrayList<>();
+		for(int i = 0; i < 50; i++) {
+			University u = new University("COMPILED U" + (char)('A' + i % 26) + i);
+			u.setState(i % 3 == 0 ? "IOWA" : "MINNESOTA");
+			u.setControl(i % 2 == 0 ? "PRIVATE" : "STATE");
+			u.setNumStudents(1000 * (i % 5));
+			list.add(u);
+		}
+		return list;
+	}
+
+	@Test
+	public void testUnsetCriteriaAreDropped() {
+		Assert.assertEquals(0, CompiledQuery.compile(new SearchCriteria().withState("").withName(null)).getCriteriaCount());
+		Assert.assertEquals(2, CompiledQuery.compile(new SearchCriteria().withState("iowa")
+				.withControl("private").withLocation("")).getCriteriaCount());
+	}
+
+	@Test
+	public void testCompilingCopiesCriteria() {
+		SearchCriteria criteria = new SearchCriteria().withState("iowa");
+		CompiledQuery query = CompiledQuery.compile(criteria);
+		List<String> iowa = names(search.search(query));
+		criteria.withState("MINNESOTA").withControl("STATE");
+		Assert.assertEquals(iowa, names(search.search(query)));
+		Assert.assertEquals(names(search.search("IOWA", -1)), iowa);
+	}
+
+	@Test
+	public void testPlanReusedUntilCatalogChanges() {
+		CompiledQuery query = CompiledQuery.compile(new SearchCriteria().withState("IOWA").withControl("PRIVATE"));
+		QueryPlan plan = search.explain(query);
+		List<String> before = names(search.search(query));
+		Assert.assertSame(plan, search.explain(query));
+		Assert.assertEquals(before, names(search.search(query)));
+
+		University added = new University("AAA COMPILED");
+		added.setState("IOWA");
+		added.setControl("PRIVATE");
+		Assert.assertTrue(uc.addNewUniversity(added));
+		Assert.assertNotSame(plan, search.explain(query));
+		List<String> after = names(search.search(query));
+		Assert.assertEquals("AAA COMPILED", after.get(0));
+		Assert.assertEquals(before, after.subList(1, after.size()));
+	}
+
+	@Test
+	public void testQueryDoesNotKeepOldSnapshot() throws InterruptedException {
+		CompiledQuery query = CompiledQuery.compile(new SearchCriteria().withState("IOWA"));
+		WeakReference<UniversityCatalog.Snapshot> old = new WeakReference<>(uc.getCatalog().getSnapshot());
+		search.search(query);
+		// The query isn't run again, as with a saved search that sits idle
+		Assert.assertTrue(uc.addNewUniversity(new University("AAA UNPINNED")));
+		Assert.assertEquals(1, query.getCriteriaCount());
+
+		for(int i = 0; i < 50 && old.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		Assert.assertNull(old.get());
+	}
+
+	@Test
+	public void testPagesCoverResults() {
+		CompiledQuery query = CompiledQuery.compile(new SearchCriteria().withState("MINNESOTA")
+				.withRange(Range.atLeast(UniversityColumn.NUM_STUDENTS, 1000)));
+		List<String> all = names(search.search(query));
+		Assert.assertTrue(all.size() > 7);
+
+		List<String> paged = new ArrayList<>();
+		Page<University> page = search.searchPage(query, null, 3);
+		paged.addAll(names(page.getItems()));
+		while(page.hasMore()) {
+			page = search.searchPage(query, page.getNextCursor(), 3);
+			Assert.assertTrue(page.getItems().size() <= 3);
+			paged.addAll(names(page.getItems()));
+		}
+		Assert.assertEquals(all, paged);
+
+		// A cursor that isn't a result, or isn't a university, still finds its place
+		Assert.assertEquals(all.get(1), names(search.searchPage(query, all.get(0) + "X", 1).getItems()).get(0));
+		Assert.assertTrue(search.searchPage(query, "ZZZ", 5).getItems().isEmpty());
+	}
+
+	@Test
+	public void testSearchStillFiltersByStudents() {
+		List<String> expected = new ArrayList<>();
+		for(University u : uc.getAllSchools()) {
+			if("IOWA".equals(u.getState()) && u.getNumStudents() == 2000) expected.add(u.getName());
+		}
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, names(search.search("Iowa", 2000)));
+		Assert.assertEquals(uc.getAllSchools().size(), search.search("", -1).size());
+	}
+
+}
@@ -0,0 +1,242 @@
+package cmc.backend;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the JDBC connection pool against fake connections.
+ */
+public class ConnectionPoolTest {
+
+	/**
+	 * State behind one fake connection.
+	 */
+	private static class FakeState {
+		private boolean valid = true;
+		private boolean closed = false;
+		// If set, close() counts down closing and waits for finish
+		private CountDownLatch closing;
+		private CountDownLatch finish;
+	}
+
+	private AtomicInteger opened;
+	private ConnectionPool pool;
+
+	private static Connection fake(FakeState state) {
+		return (Connection)Proxy.newProxyInstance(
+				ConnectionPoolTest.class.getClassLoader(),
+				new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					switch(method.getName()) {
+					case "isValid":
+						return state.valid;
+					case "isClosed":
+						return state.closed;
+					case "prepareStatement":
+						return fakeStatement();
+					case "close":
+						if(state.closing != null) {
+							state.closing.countDown();
+							state.finish.await();
+						}
+						state.closed = true;
+						return null;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static PreparedStatement fakeStatement() {
+		boolean[] closed = new boolean[1];
+		return (PreparedStatement)Proxy.newProxyInstance(
+				ConnectionPoolTest.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class },
+				(proxy, method, args) -> {
+					switch(method.getName()) {
+					case "isClosed":
+						return closed[0];
+					case "close":
+						closed[0] = true;
+						return null;
+					case "clearParameters":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private ConnectionPool newPool(int maxSize, long timeoutMs, long maxIdleMs) {
+		return new ConnectionPool(() -> {
+			opened.incrementAndGet();
+			return fake(new FakeState());
+		}, maxSize, timeoutMs, maxIdleMs, 1);
+	}
+
+	@Before
+	public void setUp() {
+		opened = new AtomicInteger();
+		pool = newPool(2, 50, 60000);
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+	}
+
+	@Test
+	public void testReusesReleasedConnection() throws SQLException {
+		Connection a = pool.borrow();
+		pool.release(a);
+		Connection b = pool.borrow();
+		Assert.assertSame(a, b);
+		Assert.assertEquals(1, opened.get());
+		Assert.assertEquals(1, pool.getActiveCount());
+		Assert.assertEquals(0, pool.getIdleCount());
+	}
+
+	@Test
+	public void testBoundedWithTimeout() throws SQLException {
+		pool.borrow();
+		pool.borrow();
+		Assert.assertEquals(2, pool.getActiveCount());
+		try {
+			pool.borrow();
+			Assert.fail("Pool should have been exhausted.");
+		}
+		catch(SQLTimeoutException e) {
+			// Expected
+		}
+		Assert.assertEquals(2, opened.get());
+		Assert.assertEquals(0, pool.getWaitingCount());
+	}
+
+	@Test
+	public void testWaiterGetsReleasedConnection() throws Exception {
+		pool.close();
+		pool = newPool(1, 5000, 60000);
+		Connection a = pool.borrow();
+
+		Thread t = new Thread(() -> {
+			try {
+				while(pool.getWaitingCount() == 0) Thread.sleep(1);
+			}
+			catch(InterruptedException e) {
+				return;
+			}
+			pool.release(a);
+		});
+		t.start();
+		Connection b = pool.borrow();
+		t.join();
+		Assert.assertSame(a, b);
+	}
+
+	@Test
+	public void testInvalidConnectionReplacedOnBorrow() throws SQLException {
+		FakeState broken = new FakeState();
+		pool.close();
+		pool = new ConnectionPool(() -> {
+			// First connection is the broken one
+			return opened.incrementAndGet() == 1 ? fake(broken) : fake(new FakeState());
+		}, 2, 50, 60000, 1);
+
+		Connection a = pool.borrow();
+		pool.release(a);
+		broken.valid = false;
+
+		Connection b = pool.borrow();
+		Assert.assertNotSame(a, b);
+		Assert.assertTrue(broken.closed);
+		Assert.assertEquals(1, pool.getActiveCount());
+	}
+
+	@Test
+	public void testIdleEviction() throws Exception {
+		pool.close();
+		pool = newPool(2, 50, 1);
+		pool.release(pool.borrow());
+		Assert.assertEquals(1, pool.getIdleCount());
+		Thread.sleep(5);
+		pool.evictIdle();
+		Assert.assertEquals(0, pool.getIdleCount());
+	}
+
+	@Test
+	public void testSlowCloseDoesNotBlockBorrowers() throws Exception {
+		pool.close();
+		FakeState slow = new FakeState();
+		slow.closing = new CountDownLatch(1);
+		slow.finish = new CountDownLatch(1);
+		AtomicInteger n = new AtomicInteger();
+		pool = new ConnectionPool(() -> fake(n.getAndIncrement() == 0 ? slow : new FakeState()), 2, 1000, 1, 1);
+		pool.release(pool.borrow());
+		Thread.sleep(5);
+
+		ExecutorService threads = Executors.newFixedThreadPool(2);
+		try {
+			threads.submit(pool::evictIdle);
+			Assert.assertTrue(slow.closing.await(5, TimeUnit.SECONDS));
+			// The stale connection is still being closed
+			Future<Connection> borrowed = threads.submit(pool::borrow);
+			Assert.assertNotNull(borrowed.get(5, TimeUnit.SECONDS));
+		}
+		finally {
+			slow.finish.countDown();
+			threads.shutdown();
+		}
+	}
+
+	@Test
+	public void testDiscardFreesSlot() throws SQLException {
+		Connection a = pool.borrow();
+		pool.borrow();
+		pool.discard(a);
+		Assert.assertEquals(1, pool.getActiveCount());
+		pool.borrow();
+		Assert.assertEquals(3, opened.get());
+	}
+
+	@Test
+	public void testStatementsReusedPerConnection() throws SQLException {
+		Connection a = pool.borrow();
+		StatementCache cache = pool.getStatementCache(a);
+		PreparedStatement first = cache.prepare("SELECT 1");
+		PreparedStatement again = cache.prepare("SELECT 1");
+		cache.prepare("SELECT 2");
+		pool.release(a);
+
+		Assert.assertSame(first, again);
+		Assert.assertEquals(2, pool.getStatementsPrepared());
+		Assert.assertEquals(1, pool.getStatementsReused());
+
+		// Same connection comes back with its statements still cached
+		Connection b = pool.borrow();
+		pool.getStatementCache(b).prepare("SELECT 2");
+		Assert.assertEquals(2, pool.getStatementsPrepared());
+		Assert.assertEquals(2, pool.getStatementsReused());
+
+		pool.discard(b);
+		Assert.assertTrue(first.isClosed());
+	}
+
+}
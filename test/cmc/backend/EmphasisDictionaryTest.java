@@ -0,0 +1,81 @@
+package cmc.backend;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.entities.EmphasisDictionary;
+import cmc.backend.entities.University;
+
+/**
+ * Tests the emphasis dictionary and universities' emphasis bit sets.
+ */
+public class EmphasisDictionaryTest {
+
+	@Test
+	public void testIdsAreStable() {
+		int id = EmphasisDictionary.idOf("DICT TEST ENGINEERING");
+		Assert.assertEquals(id, EmphasisDictionary.idOf("DICT TEST ENGINEERING"));
+		Assert.assertEquals(id, EmphasisDictionary.lookup("DICT TEST ENGINEERING"));
+		Assert.assertEquals("DICT TEST ENGINEERING", EmphasisDictionary.nameOf(id));
+		Assert.assertEquals(-1, EmphasisDictionary.lookup("DICT TEST NEVER SEEN"));
+	}
+
+	@Test
+	public void testEncodeDecodeRoundTrip() {
+		BitSet bits = EmphasisDictionary.encode(Arrays.asList("DICT TEST A", "DICT TEST B", "DICT TEST A"));
+		Assert.assertEquals(2, bits.cardinality());
+		Assert.assertEquals(Arrays.asList("DICT TEST A", "DICT TEST B"), EmphasisDictionary.decode(bits));
+		Assert.assertEquals(Collections.emptyList(), EmphasisDictionary.decode(new BitSet()));
+	}
+
+	@Test
+	public void testUniversityMembership() {
+		University u = new University("DICT TEST U");
+		u.addEmphasis("DICT TEST ART");
+		u.addEmphasis("DICT TEST ART");
+		Assert.assertTrue(u.hasEmphasis("DICT TEST ART"));
+		Assert.assertFalse(u.hasEmphasis("DICT TEST MUSIC"));
+		Assert.assertEquals(Collections.singletonList("DICT TEST ART"), u.getEmphases());
+
+		University copy = u.clone();
+		Assert.assertTrue(u.removeEmphasis("DICT TEST ART"));
+		Assert.assertFalse(u.removeEmphasis("DICT TEST ART"));
+		Assert.assertTrue(u.getEmphases().isEmpty());
+		Assert.assertTrue(copy.hasEmphasis("DICT TEST ART"));
+	}
+
+	@Test
+	public void testEmphasesKeepInsertionOrder() {
+		EmphasisDictionary.idOf("DICT TEST ORDER A");
+		University u = new University("DICT TEST ORDER U");
+		u.addEmphasis("DICT TEST ORDER C");
+		u.addEmphasis("DICT TEST ORDER A");
+		u.addEmphasis("DICT TEST ORDER B");
+		u.addEmphasis("DICT TEST ORDER A");
+		Assert.assertEquals(Arrays.asList("DICT TEST ORDER C", "DICT TEST ORDER A", "DICT TEST ORDER B"),
+				u.getEmphases());
+
+		u.removeEmphasis("DICT TEST ORDER A");
+		u.getEmphases().add("DICT TEST ORDER D");
+		Assert.assertEquals(Arrays.asList("DICT TEST ORDER C", "DICT TEST ORDER B"), u.getEmphases());
+
+		u.setEmphases(Arrays.asList("DICT TEST ORDER B", "DICT TEST ORDER D"));
+		Assert.assertEquals(Arrays.asList("DICT TEST ORDER B", "DICT TEST ORDER D"), u.getEmphases());
+		Assert.assertFalse(u.hasEmphasis("DICT TEST ORDER C"));
+	}
+
+	@Test
+	public void testManyIds() {
+		int first = EmphasisDictionary.idOf("DICT TEST MANY 0");
+		for(int i = 1; i < 1000; i++) {
+			Assert.assertEquals(first + i, EmphasisDictionary.idOf("DICT TEST MANY " + i));
+		}
+		Assert.assertEquals("DICT TEST MANY 999", EmphasisDictionary.nameOf(first + 999));
+		Assert.assertTrue(EmphasisDictionary.size() >= first + 1000);
+	}
+
+}
@@ -0,0 +1,235 @@
+package cmc.backend;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cmc.CMCException;
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.entities.University;
+import cmc.backend.storage.FileStorageProvider;
+
+/**
+ * Tests the embedded file-backed storage engine through DatabaseController.
+ */
+public class FileStorageProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path dir;
+	private DatabaseController db;
+
+	@Before
+	public void setUp() throws Exception {
+		dir = folder.newFolder("store").toPath();
+		db = new DatabaseController(new FileStorageProvider(dir));
+	}
+
+	@After
+	public void tearDown() {
+		db.close();
+	}
+
+	private void reopen() {
+		db.close();
+		db = new DatabaseController(new FileStorageProvider(dir));
+	}
+
+	private static University school() {
+		University u = new University("FILE TEST U");
+		u.setState("MINNESOTA");
+		u.setNumStudents(4000);
+		u.setSatMath(600);
+		u.addEmphasis("ENGINEERING");
+		u.addEmphasis("BIOLOGY");
+		u.setWebpageUrl("https://example.edu");
+		return u;
+	}
+
+	@Test
+	public void testDataSurvivesReopen() throws CMCException {
+		Assert.assertTrue(db.addNewUniversity(school()));
+		User user = new User("filetest", "pw", false, "File", "Test");
+		user.setActivated(false);
+		db.addUser(user);
+		Assert.assertTrue(db.saveSchool("filetest", "FILE TEST U"));
+
+		reopen();
+
+		University u = db.getUniversity("FILE TEST U");
+		Assert.assertEquals("MINNESOTA", u.getState());
+		Assert.assertEquals(4000, u.getNumStudents());
+		Assert.assertEquals(600, u.getSatMath(), 0);
+		Assert.assertTrue(u.hasEmphasis("BIOLOGY"));
+		Assert.assertTrue(u.hasEmphasis("ENGINEERING"));
+		Assert.assertEquals("https://example.edu", u.getWebpageUrl());
+		Assert.assertEquals(1, db.getAllSchools().size());
+
+		Assert.assertFalse(db.getUser("filetest").isActivated());
+		Assert.assertEquals(Collections.singletonList("FILE TEST U"), db.getSavedSchools("filetest"));
+	}
+
+	@Test
+	public void testForEachUniversityJoinsAsItStreams() throws CMCException {
+		Assert.assertTrue(db.addNewUniversity(school()));
+		University plain = new University("AAA PLAIN U");
+		Assert.assertTrue(db.addNewUniversity(plain));
+
+		List<University> seen = new ArrayList<>();
+		db.forEachUniversity(seen::add);
+		Assert.assertEquals(2, seen.size());
+		Assert.assertEquals("AAA PLAIN U", seen.get(0).getName());
+		Assert.assertTrue(seen.get(0).getEmphases().isEmpty());
+		Assert.assertNull(seen.get(0).getWebpageUrl());
+		University u = seen.get(1);
+		Assert.assertTrue(u.hasEmphasis("BIOLOGY"));
+		Assert.assertTrue(u.hasEmphasis("ENGINEERING"));
+		Assert.assertEquals("https://example.edu", u.getWebpageUrl());
+	}
+
+	@Test
+	public void testEditAndRemove() throws CMCException {
+		University u = school();
+		db.addNewUniversity(u);
+		u.removeEmphasis("BIOLOGY");
+		u.addEmphasis("ART");
+		u.setState("IOWA");
+		Assert.assertTrue(db.editUniversity(u));
+
+		reopen();
+		University edited = db.getUniversity("FILE TEST U");
+		Assert.assertEquals("IOWA", edited.getState());
+		Assert.assertEquals(Arrays.asList("ART", "ENGINEERING"), db.getStorage().loadEmphases("FILE TEST U"));
+
+		Assert.assertTrue(db.removeUniversity(edited));
+		Assert.assertFalse(db.removeUniversity(edited));
+		reopen();
+		Assert.assertNull(db.getUniversity("FILE TEST U"));
+		Assert.assertTrue(db.getAllSchools().isEmpty());
+		Assert.assertTrue(db.getStorage().loadEmphasisPairs().length == 0);
+	}
+
+	@Test
+	public void testCompactKeepsOnlyLiveRows() throws CMCException {
+		University u = school();
+		db.addNewUniversity(u);
+		for(int i = 0; i < 100; i++) {
+			u.setNumStudents(i);
+			db.editUniversity(u);
+		}
+		FileStorageProvider store = (FileStorageProvider)db.getStorage();
+		Assert.assertTrue(store.getRecordCount() > 100);
+
+		store.compact();
+		// One university, two emphases and one row of URLs
+		Assert.assertEquals(4, store.getRecordCount());
+
+		reopen();
+		Assert.assertEquals(99, db.getUniversity("FILE TEST U").getNumStudents());
+	}
+
+	@Test
+	public void testLogGrowsAndCompactsPastFirstMapping() throws Exception {
+		University u = school();
+		db.addNewUniversity(u);
+		char[] big = new char[64 * 1024];
+		Arrays.fill(big, 'x');
+		// Well past the first mapping, so it has to grow
+		for(int i = 0; i < 40; i++) {
+			u.setWebpageUrl(new String(big) + i);
+			db.editUniversity(u);
+		}
+		Path log = dir.resolve(FileStorageProvider.LOG_NAME);
+		Assert.assertTrue(Files.size(log) > 2 << 20);
+
+		FileStorageProvider store = (FileStorageProvider)db.getStorage();
+		store.compact();
+		Assert.assertEquals(4, store.getRecordCount());
+		Assert.assertFalse(Files.exists(dir.resolve(FileStorageProvider.LOG_NAME + ".tmp")));
+		u.setNumStudents(1);
+		db.editUniversity(u);
+
+		reopen();
+		University read = db.getUniversity("FILE TEST U");
+		Assert.assertEquals(1, read.getNumStudents());
+		Assert.assertEquals(new String(big) + 39, read.getWebpageUrl());
+	}
+
+	@Test
+	public void testDuplicatesRejected() throws CMCException {
+		Assert.assertTrue(db.addNewUniversity(school()));
+		Assert.assertFalse(db.addNewUniversity(school()));
+		db.addUser(new User("filetest", "pw", false, "File", "Test"));
+		try {
+			db.addUser(new User("filetest", "pw", false, "File", "Test"));
+			Assert.fail("Duplicate user was added.");
+		}
+		catch(CMCException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Finds where the records end by looking for the last byte that isn't zero.
+	 */
+	private static long dataEnd(FileChannel ch) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate((int)ch.size());
+		ch.read(buf, 0);
+		int i = buf.capacity() - 1;
+		while(i >= 0 && buf.get(i) == 0) i--;
+		return i + 1;
+	}
+
+	@Test
+	public void testTornRecordIsDropped() throws Exception {
+		Assert.assertTrue(db.addNewUniversity(school()));
+		db.addUser(new User("filetest", "pw", false, "File", "Test"));
+		db.close();
+
+		Path log = dir.resolve(FileStorageProvider.LOG_NAME);
+		try(FileChannel ch = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// A length that reached the disk without its body
+			ByteBuffer len = ByteBuffer.allocate(4);
+			len.putInt(0, 64);
+			ch.write(len, dataEnd(ch));
+		}
+		db = new DatabaseController(new FileStorageProvider(dir));
+		Assert.assertNotNull(db.getUser("filetest"));
+		db.close();
+
+		try(FileChannel ch = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// A body that doesn't match its CRC; the user was written last
+			ByteBuffer b = ByteBuffer.allocate(1);
+			long at = dataEnd(ch) - 1;
+			ch.read(b, at);
+			b.put(0, (byte)(b.get(0) ^ 0x5A));
+			b.rewind();
+			ch.write(b, at);
+		}
+		db = new DatabaseController(new FileStorageProvider(dir));
+		Assert.assertNull(db.getUser("filetest"));
+		Assert.assertEquals("https://example.edu", db.getUniversity("FILE TEST U").getWebpageUrl());
+
+		// Writing resumes where the log was cut
+		db.addUser(new User("filetest", "pw", false, "File", "Test"));
+		reopen();
+		Assert.assertNotNull(db.getUser("filetest"));
+		Assert.assertNotNull(db.getUniversity("FILE TEST U"));
+	}
+
+}
@@ -0,0 +1,259 @@
+package cmc.backend;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cmc.CMCException;
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.entities.University;
+import cmc.backend.storage.FileStorageProvider;
+import cmc.backend.storage.JournaledStorageProvider;
+
+/**
+ * Tests that the journal restarts warm and keeps up with the backing provider.
+ */
+public class JournaledStorageProviderTest {
+
+	/**
+	 * Stands in for MySQL, counts full loads and can hold one up.
+	 */
+	private static class CountingProvider extends FileStorageProvider {
+
+		volatile int userLoads;
+		volatile CountDownLatch loading;
+		final CountDownLatch release = new CountDownLatch(1);
+
+		CountingProvider(Path dir) {
+			super(dir);
+		}
+
+		@Override
+		public synchronized List<User> loadUsers() {
+			userLoads++;
+			return super.loadUsers();
+		}
+
+		@Override
+		public String[][] loadEmphasisPairs() {
+			CountDownLatch l = loading;
+			if(l != null) {
+				l.countDown();
+				try {
+					release.await();
+				}
+				catch(InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			return super.loadEmphasisPairs();
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path backingDir;
+	private Path journalDir;
+	private CountingProvider backing;
+	private JournaledStorageProvider journaled;
+
+	@Before
+	public void setUp() throws Exception {
+		backingDir = folder.newFolder("mysql").toPath();
+		journalDir = folder.newFolder("journal").toPath();
+		backing = new CountingProvider(backingDir);
+		backing.insertUser(new User("seed", "pw", false, "Seed", "User"));
+		University u = new University("SEED U");
+		u.addEmphasis("ART");
+		backing.insertUniversity(u);
+		backing.addEmphases("SEED U", u.getEmphases());
+	}
+
+	@After
+	public void tearDown() {
+		if(journaled != null) journaled.close();
+	}
+
+	private JournaledStorageProvider open() {
+		backing = new CountingProvider(backingDir);
+		journaled = new JournaledStorageProvider(backing, journalDir, 1000, 60000, 60000);
+		return journaled;
+	}
+
+	private void awaitVerified() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while(!journaled.isVerified() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+		Assert.assertTrue(journaled.isVerified());
+		Assert.assertNull(journaled.getLastResyncFailure());
+	}
+
+	@Test
+	public void testColdThenWarmStart() throws CMCException, InterruptedException {
+		backing.close();
+		DatabaseController db = new DatabaseController(open());
+		Assert.assertFalse(journaled.isWarm());
+		Assert.assertEquals(1, backing.userLoads);
+		Assert.assertNotNull(db.getUser("seed"));
+
+		University added = new University("JOURNAL U");
+		added.setState("IOWA");
+		Assert.assertTrue(db.addNewUniversity(added));
+		db.addUser(new User("journal", "pw", false, "Jour", "Nal"));
+		Assert.assertTrue(db.saveSchool("journal", "JOURNAL U"));
+		db.close();
+
+		db = new DatabaseController(open());
+		Assert.assertTrue(journaled.isWarm());
+		// Loaded once in the background to check the journal
+		awaitVerified();
+		Assert.assertEquals(1, backing.userLoads);
+		Assert.assertEquals("IOWA", db.getUniversity("JOURNAL U").getState());
+		Assert.assertTrue(db.getUniversity("SEED U").hasEmphasis("ART"));
+		Assert.assertEquals(Collections.singletonList("JOURNAL U"), db.getSavedSchools("journal"));
+
+		// The backing provider got every change too
+		Assert.assertNotNull(backing.loadUniversityRow("JOURNAL U"));
+		Assert.assertEquals(Collections.singletonList("JOURNAL U"), backing.loadSavedSchools("journal"));
+	}
+
+	@Test
+	public void testFailedWriteIsNotJournaled() {
+		backing.close();
+		open();
+		Assert.assertFalse(journaled.insertUniversity(new University("SEED U")));
+		Assert.assertFalse(journaled.deleteUser("nobody"));
+		Assert.assertEquals(1, journaled.loadUniversityRows().length);
+	}
+
+	@Test
+	public void testSyncBatchingAndCheckpoint() {
+		backing.close();
+		backing = new CountingProvider(backingDir);
+		journaled = new JournaledStorageProvider(backing, journalDir, 10, 60000, 60000);
+		long before = journaled.getSyncCount();
+		University u = new University("BATCH U");
+		journaled.insertUniversity(u);
+		for(int i = 0; i < 24; i++) {
+			u.setNumStudents(i);
+			journaled.updateUniversity(u);
+		}
+		// 25 appends, one sync per 10
+		Assert.assertEquals(before + 2, journaled.getSyncCount());
+
+		journaled.checkpoint();
+		journaled.close();
+		journaled = null;
+
+		JournaledStorageProvider reopened = open();
+		Assert.assertEquals("23", reopened.loadUniversityRow("BATCH U")[4]);
+	}
+
+	@Test
+	public void testResyncSeesOutsideChanges() {
+		backing.close();
+		open();
+		backing.insertUniversity(new University("OUTSIDE U"));
+		Assert.assertNull(journaled.loadUniversityRow("OUTSIDE U"));
+		journaled.resync();
+		Assert.assertNotNull(journaled.loadUniversityRow("OUTSIDE U"));
+	}
+
+	@Test
+	public void testStaleJournalReloadedAtWarmStart() {
+		backing.close();
+		open();
+		journaled.close();
+
+		// Someone else adds a row while the journal is closed
+		backing = new CountingProvider(backingDir);
+		backing.insertUniversity(new University("OUTSIDE U"));
+		backing.close();
+
+		open();
+		Assert.assertFalse(journaled.isWarm());
+		Assert.assertEquals(1, backing.userLoads);
+		Assert.assertNotNull(journaled.loadUniversityRow("OUTSIDE U"));
+	}
+
+	@Test
+	public void testOutsideEditSeenAtWarmStart() throws InterruptedException {
+		backing.close();
+		open();
+		journaled.close();
+
+		// Someone else edits a row while the journal is closed; the counts stay the same
+		backing = new CountingProvider(backingDir);
+		University u = new University("SEED U");
+		u.setState("IOWA");
+		backing.updateUniversity(u);
+		backing.close();
+
+		open();
+		Assert.assertTrue(journaled.isWarm());
+		Assert.assertEquals("IOWA", journaled.loadUniversityRow("SEED U")[1]);
+		awaitVerified();
+		Assert.assertEquals("IOWA", journaled.loadUniversityRow("SEED U")[1]);
+	}
+
+	@Test
+	public void testWriteDuringResyncKept() throws Exception {
+		backing.close();
+		open();
+		backing.loading = new CountDownLatch(1);
+		Thread resync = new Thread(journaled::resync);
+		resync.start();
+		Assert.assertTrue(backing.loading.await(5, TimeUnit.SECONDS));
+
+		// Users were already read, so this one only gets in by being applied again
+		Assert.assertTrue(journaled.insertUser(new User("during", "pw", false, "Dur", "Ing")));
+		backing.release.countDown();
+		resync.join(5000);
+		Assert.assertEquals(1, journaled.getResyncCount());
+		boolean kept = false;
+		for(User u : journaled.loadUsers()) kept |= u.getUsername().equals("during");
+		Assert.assertTrue(kept);
+	}
+
+	@Test
+	public void testOnlyInsertedUniversitiesJournaled() {
+		backing.close();
+		open();
+		backing.insertUniversity(new University("OUTSIDE U"));
+
+		University taken = new University("OUTSIDE U");
+		taken.setState("IOWA");
+		List<String> added = journaled.insertUniversities(Arrays.asList(taken, new University("NEW U")));
+		Assert.assertEquals(Collections.singletonList("NEW U"), added);
+		Assert.assertNotNull(journaled.loadUniversityRow("NEW U"));
+		// The backing provider kept its own row, so the journal must not have this one
+		Assert.assertNull(journaled.loadUniversityRow("OUTSIDE U"));
+	}
+
+	@Test
+	public void testResyncIsScheduled() throws InterruptedException {
+		backing.close();
+		backing = new CountingProvider(backingDir);
+		journaled = new JournaledStorageProvider(backing, journalDir, 1000, 60000, 60000, 20);
+		University u = new University("SEED U");
+		u.setState("IOWA");
+		backing.updateUniversity(u);
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while(journaled.getResyncCount() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+		Assert.assertTrue(journaled.getResyncCount() > 0);
+		Assert.assertNull(journaled.getLastResyncFailure());
+		Assert.assertEquals("IOWA", journaled.loadUniversityRow("SEED U")[1]);
+	}
+
+}
@@ -0,0 +1,134 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cmc.CMCException;
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.entities.University;
+import cmc.backend.storage.FileStorageProvider;
+
+/**
+ * Tests reading universities and users a page at a time.
+ */
+public class PagingTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatabaseController db;
+
+	@Before
+	public void setUp() throws Exception {
+		db = new DatabaseController(new FileStorageProvider(folder.newFolder("store").toPath()));
+		List<University> batch = new ArrayList<>();
+		// Added out of order so the pages have to be sorted
+		for(int i = 9; i >= 0; i--) {
+			University u = new University("PAGE U" + i);
+			u.setState("MINNESOTA");
+			if(i == 4) {
+				u.addEmphasis("ART");
+				u.setWebpageUrl("https://page-u4.edu");
+			}
+			batch.add(u);
+		}
+		Assert.assertEquals(10, db.addNewUniversities(batch));
+		for(int i = 6; i >= 0; i--) db.addUser(new User("pager" + i, "pw", false, "Page", "R" + i));
+	}
+
+	@After
+	public void tearDown() {
+		db.close();
+	}
+
+	private static List<String> names(Page<University> page) {
+		List<String> list = new ArrayList<>();
+		for(University u : page.getItems()) list.add(u.getName());
+		return list;
+	}
+
+	@Test
+	public void testUniversitiesPagedFromDatabase() {
+		Page<University> first = db.pageUniversities(null, 4);
+		Assert.assertEquals(4, first.getItems().size());
+		Assert.assertEquals("PAGE U0", first.getItems().get(0).getName());
+		Assert.assertEquals("PAGE U3", first.getNextCursor());
+
+		Page<University> second = db.pageUniversities(first.getNextCursor(), 4);
+		University u4 = second.getItems().get(0);
+		Assert.assertEquals("PAGE U4", u4.getName());
+		Assert.assertTrue(u4.hasEmphasis("ART"));
+		Assert.assertEquals("https://page-u4.edu", u4.getWebpageUrl());
+		Assert.assertFalse(second.getItems().get(1).hasEmphasis("ART"));
+
+		Page<University> last = db.pageUniversities(second.getNextCursor(), 4);
+		Assert.assertEquals(2, last.getItems().size());
+		Assert.assertFalse(last.hasMore());
+	}
+
+	@Test
+	public void testExactlyFullLastPage() {
+		Page<University> page = db.pageUniversities("PAGE U4", 5);
+		Assert.assertEquals(5, page.getItems().size());
+		Assert.assertFalse(page.hasMore());
+		Assert.assertTrue(db.pageUniversities("PAGE U9", 5).getItems().isEmpty());
+	}
+
+	@Test
+	public void testCursorSurvivesRemoval() {
+		Page<University> first = db.pageUniversities(null, 3);
+		// The cursor's own row going away doesn't lose the next page
+		Assert.assertTrue(db.removeUniversity(new University("PAGE U2")));
+		Assert.assertEquals("PAGE U3", db.pageUniversities(first.getNextCursor(), 3).getItems().get(0).getName());
+	}
+
+	@Test
+	public void testCatalogPagesMatchDatabase() {
+		UniversityCatalog catalog = new UniversityCatalog(db);
+		// Nothing cached, so this comes from the database
+		List<String> uncached = names(catalog.page("PAGE U1", 3));
+		Assert.assertEquals(0, catalog.getVersion());
+
+		catalog.getAllSchools();
+		Assert.assertEquals(uncached, names(catalog.page("PAGE U1", 3)));
+		Assert.assertEquals("PAGE U4", catalog.page("PAGE U1", 3).getNextCursor());
+		// A cursor that isn't a university still finds its place
+		Assert.assertEquals("PAGE U2", names(catalog.page("PAGE U1X", 1)).get(0));
+
+		// Pages are copies
+		catalog.page(null, 1).getItems().get(0).setState("IOWA");
+		Assert.assertEquals("MINNESOTA", catalog.page(null, 1).getItems().get(0).getState());
+	}
+
+	@Test
+	public void testUsersPagedBeforeAndAfterDirectoryLoads() throws CMCException {
+		Page<User> fromStorage = db.pageUsers("pager2", 2);
+		Assert.assertEquals("pager3", fromStorage.getItems().get(0).getUsername());
+		Assert.assertEquals("pager4", fromStorage.getNextCursor());
+
+		db.getAllUsers();
+		Page<User> fromDirectory = db.pageUsers("pager2", 2);
+		Assert.assertEquals("pager3", fromDirectory.getItems().get(0).getUsername());
+		Assert.assertEquals("pager4", fromDirectory.getNextCursor());
+
+		db.addUser(new User("pager35", "pw", false, "Page", "R"));
+		Assert.assertEquals("pager35", db.pageUsers("pager3", 1).getItems().get(0).getUsername());
+
+		Page<User> end = db.pageUsers("pager5", 2);
+		Assert.assertEquals(1, end.getItems().size());
+		Assert.assertFalse(end.hasMore());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLimitMustBePositive() {
+		db.pageUniversities(null, 0);
+	}
+
+}
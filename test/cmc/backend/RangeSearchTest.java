@@ -0,0 +1,129 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+
+/**
+ * Tests range searches against checking every University,
+ * and the sorted indexes behind them.
+ */
+public class RangeSearchTest extends SearchTestBase {
+
+	@Override
+	protected List<University> universities() {
+		List<University> list = new ArrayList<>();
+		Random r = new Random(23);
+		for(int i = 0; i < 300; i++) {
+			University u = new University("RANGE U" + i);
+			u.setNumStudents(r.nextInt(5) == 0 ? -1 : 1000 + r.nextInt(20) * 1000);
+			u.setSatVerbal(r.nextInt(5) == 0 ? -1 : 400 + r.nextInt(400));
+			u.setSatMath(400 + r.nextInt(400));
+			u.setExpenses(r.nextInt(5) == 0 ? -1 : 10000 + r.nextInt(50) * 1000);
+			u.setPercentAdmitted(r.nextInt(100));
+			u.setScaleSocial(1 + r.nextInt(5));
+			list.add(u);
+		}
+		return list;
+	}
+
+	private List<String> scan(Range... ranges) {
+		return scan(u -> inRanges(u, ranges));
+	}
+
+	@Test
+	public void testRangesMatchScan() {
+		Range students = Range.between(UniversityColumn.NUM_STUDENTS, 5000, 15000);
+		Range sat = Range.atLeast(UniversityColumn.SAT_MATH, 600);
+		Range expenses = Range.atMost(UniversityColumn.EXPENSES, 40000);
+		Assert.assertEquals(scan(students), names(search.rangeSearch(students)));
+		Assert.assertEquals(scan(students, sat, expenses), names(search.rangeSearch(students, sat, expenses)));
+		Assert.assertEquals(scan(expenses, students), names(search.rangeSearch(expenses, students)));
+		Assert.assertFalse(search.rangeSearch(students, sat, expenses).isEmpty());
+
+		UniversityColumn[] numeric = { UniversityColumn.NUM_STUDENTS, UniversityColumn.SAT_VERBAL,
+				UniversityColumn.EXPENSES, UniversityColumn.PERCENT_ADMITTED, UniversityColumn.SCALE_SOCIAL };
+		Random r = new Random(5);
+		for(int i = 0; i < 50; i++) {
+			Range[] ranges = new Range[1 + r.nextInt(3)];
+			for(int j = 0; j < ranges.length; j++) {
+				UniversityColumn c = numeric[r.nextInt(numeric.length)];
+				double a = r.nextInt(30000) - 10;
+				ranges[j] = Range.between(c, a / 100, a / (1 + r.nextInt(3)) + r.nextInt(20000));
+			}
+			Assert.assertEquals(scan(ranges), names(search.rangeSearch(ranges)));
+		}
+	}
+
+	@Test
+	public void testUnknownValuesNeverMatch() {
+		Range any = Range.atMost(UniversityColumn.NUM_STUDENTS, Double.MAX_VALUE);
+		for(University u : search.rangeSearch(any)) Assert.assertNotEquals(-1, u.getNumStudents());
+		Assert.assertEquals(scan(any).size(), search.rangeSearch(any).size());
+		Assert.assertTrue(search.rangeSearch(Range.between(UniversityColumn.EXPENSES, -1, -1)).isEmpty());
+		Assert.assertEquals(uc.getAllSchools().size(), search.rangeSearch().size());
+	}
+
+	@Test
+	public void testIndexFollowsCatalogMutations() {
+		Range few = Range.between(UniversityColumn.NUM_STUDENTS, 2000, 3000);
+		List<University> before = search.rangeSearch(few);
+		University moved = uc.getUniversity("RANGE U7");
+		moved.setNumStudents(2500);
+		Assert.assertTrue(uc.editUniversity(moved));
+		University added = new University("AAA RANGE");
+		added.setNumStudents(2000);
+		Assert.assertTrue(uc.addNewUniversity(added));
+		Assert.assertTrue(uc.removeUniversity(before.get(before.size() - 1)));
+
+		Assert.assertEquals(scan(few), names(search.rangeSearch(few)));
+		Assert.assertEquals("AAA RANGE", search.rangeSearch(few).get(0).getName());
+	}
+
+	@Test
+	public void testEditsMatchRebuild() {
+		Random r = new Random(11);
+		List<Double> values = new ArrayList<>();
+		for(int i = 0; i < 100; i++) values.add((double) (r.nextInt(4) == 0 ? -1 : r.nextInt(20)));
+		SortedIndex index = SortedIndex.of(toArray(values));
+		for(int step = 0; step < 300; step++) {
+			int op = r.nextInt(3);
+			double v = r.nextInt(4) == 0 ? -1 : r.nextInt(20);
+			if(op == 0 || values.isEmpty()) {
+				int row = r.nextInt(values.size() + 1);
+				values.add(row, v);
+				index = index.edit(row, SortedIndex.UNKNOWN, 0, v, 1);
+			}
+			else {
+				int row = r.nextInt(values.size());
+				double old = op == 1 ? values.set(row, v) : values.remove(row);
+				index = op == 1 ? index.edit(row, old, 1, v, 1) : index.edit(row, old, 1, SortedIndex.UNKNOWN, 0);
+			}
+			SortedIndex rebuilt = SortedIndex.of(toArray(values));
+			Assert.assertEquals(rebuilt.size(), index.size());
+			Assert.assertArrayEquals(rebuilt.rows(0, rebuilt.size()), index.rows(0, index.size()));
+		}
+	}
+
+	private static double[] toArray(List<Double> values) {
+		double[] a = new double[values.size()];
+		for(int i = 0; i < a.length; i++) a[i] = values.get(i);
+		return a;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTextColumnsHaveNoRange() {
+		Range.atLeast(UniversityColumn.STATE, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMinCannotPassMax() {
+		Range.between(UniversityColumn.EXPENSES, 10, 5);
+	}
+
+}
@@ -0,0 +1,78 @@
+package cmc.backend;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.controllers.SavedSchoolIndex;
+
+/**
+ * Tests the per-user saved school index.
+ */
+public class SavedSchoolIndexTest {
+
+	private SavedSchoolIndex index;
+
+	@Before
+	public void setUp() {
+		index = new SavedSchoolIndex();
+		index.loadAll(new String[][] {
+			{"peter", "CSBSJU"}, {"peter", "HARVARD"},
+			{"juser", "YALE"}, {"juser", "HARVARD"}
+		});
+	}
+
+	@Test
+	public void testLookupAndDuplicates() {
+		Assert.assertTrue(index.contains("peter", "HARVARD"));
+		Assert.assertFalse(index.add("peter", "HARVARD"));
+		Assert.assertTrue(index.add("peter", "YALE"));
+		Assert.assertEquals(Arrays.asList("CSBSJU", "HARVARD", "YALE"), index.getSchools("peter"));
+	}
+
+	@Test
+	public void testReverseIndex() {
+		Assert.assertEquals(2, index.getUsers("HARVARD").size());
+		index.remove("juser", "HARVARD");
+		Assert.assertEquals(1, index.getUsers("HARVARD").size());
+		Assert.assertTrue(index.getUsers("HARVARD").contains("peter"));
+	}
+
+	@Test
+	public void testRemoveUser() {
+		List<String> removed = index.removeUser("peter");
+		Assert.assertEquals(2, removed.size());
+		Assert.assertNull(index.getSchools("peter"));
+		Assert.assertFalse(index.getUsers("CSBSJU").contains("peter"));
+		Map<String, List<String>> map = index.toMap();
+		Assert.assertFalse(map.containsKey("peter"));
+		Assert.assertTrue(map.containsKey("juser"));
+	}
+
+	@Test
+	public void testLoadSingleUser() {
+		SavedSchoolIndex partial = new SavedSchoolIndex();
+		Assert.assertFalse(partial.isLoaded("peter"));
+		partial.loadUser("peter", Arrays.asList("CSBSJU"));
+		Assert.assertTrue(partial.isLoaded("peter"));
+		Assert.assertFalse(partial.isLoaded("juser"));
+		Assert.assertFalse(partial.isComplete());
+	}
+
+	@Test
+	public void testStaleLoadDoesNotReplaceUser() {
+		SavedSchoolIndex partial = new SavedSchoolIndex();
+		Assert.assertTrue(partial.loadUser("peter", Arrays.asList("CSBSJU")));
+		partial.add("peter", "YALE");
+		// Rows read before YALE was saved
+		Assert.assertFalse(partial.loadUser("peter", Arrays.asList("CSBSJU")));
+		Assert.assertEquals(Arrays.asList("CSBSJU", "YALE"), partial.getSchools("peter"));
+		Assert.assertFalse(index.loadUser("peter", Arrays.asList("NOWHERE")));
+		Assert.assertFalse(index.contains("peter", "NOWHERE"));
+	}
+
+}
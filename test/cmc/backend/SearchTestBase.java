@@ -0,0 +1,67 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.Before;
+
+import cmc.backend.controllers.MockDatabaseController;
+import cmc.backend.entities.University;
+
+/**
+ * Base for the search tests. Each test gets a catalog over a mock
+ * database filled with the subclass's universities, and results are
+ * checked against checking every University.
+ */
+public abstract class SearchTestBase {
+
+	protected UniversityController uc;
+	protected SearchController search;
+
+	@Before
+	public void setUp() {
+		MockDatabaseController db = new MockDatabaseController();
+		for(University u : universities()) db.addNewUniversity(u);
+		uc = new UniversityController(db);
+		search = new SearchController(uc);
+	}
+
+	/**
+	 * @return the universities the catalog starts with
+	 */
+	protected abstract List<University> universities();
+
+	protected static List<String> names(List<University> list) {
+		List<String> names = new ArrayList<>();
+		for(University u : list) names.add(u.getName());
+		return names;
+	}
+
+	/**
+	 * Searches by checking every University in the catalog.
+	 * @param match What to search for
+	 * @return The names that match, in name order.
+	 */
+	protected List<String> scan(Predicate<University> match) {
+		List<String> expected = new ArrayList<>();
+		for(University u : uc.getAllSchools()) {
+			if(match.test(u)) expected.add(u.getName());
+		}
+		return expected;
+	}
+
+	/**
+	 * @param u University
+	 * @param ranges Ranges
+	 * @return {@code true} if the university has a known value in every range.
+	 */
+	protected static boolean inRanges(University u, Range... ranges) {
+		for(Range range : ranges) {
+			String v = range.getColumn().valueOf(u);
+			if(v == null || !range.matches(Double.parseDouble(v))) return false;
+		}
+		return true;
+	}
+
+}
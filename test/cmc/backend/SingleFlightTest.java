@@ -0,0 +1,120 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.controllers.SingleFlight;
+import cmc.backend.entities.University;
+import cmc.backend.storage.UniversityExt;
+
+/**
+ * Tests that concurrent identical loads share one fetch.
+ */
+public class SingleFlightTest {
+
+	private static final int CALLERS = 6;
+
+	/**
+	 * Holds the university query open until every caller has arrived.
+	 */
+	private static class GatedDb extends DatabaseController {
+
+		final CountDownLatch gate = new CountDownLatch(1);
+		final AtomicInteger rowFetches = new AtomicInteger();
+
+		private GatedDb() {
+			super(false);
+		}
+
+		@Override
+		protected String[][] fetchUniversityRows() {
+			rowFetches.incrementAndGet();
+			try {
+				gate.await();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new String[][] {
+				{"AUGSBURG", "MINNESOTA", "SMALL-CITY", "PRIVATE", "10000", "60", "550", "550",
+					"45000", "95", "5000", "70", "30", "3", "4", "4"}
+			};
+		}
+
+		@Override
+		protected Map<String, BitSet> fetchEmphasisBits() {
+			return new HashMap<>();
+		}
+
+		@Override
+		protected Map<String, UniversityExt> fetchUniversityExt() {
+			return new HashMap<>();
+		}
+	}
+
+	@Test
+	public void testConcurrentSchoolLoadsShareOneFetch() throws Exception {
+		GatedDb db = new GatedDb();
+		ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+		try {
+			List<Future<List<University>>> results = new ArrayList<>();
+			for(int i = 0; i < CALLERS; i++) results.add(pool.submit(() -> db.getAllSchools()));
+
+			while(db.getDeduplicatedLoads() < CALLERS - 1) Thread.sleep(5);
+			db.gate.countDown();
+
+			Map<University, Boolean> seen = new IdentityHashMap<>();
+			for(Future<List<University>> f : results) {
+				List<University> list = f.get();
+				Assert.assertEquals(1, list.size());
+				Assert.assertEquals("AUGSBURG", list.get(0).getName());
+				seen.put(list.get(0), true);
+			}
+			Assert.assertEquals(1, db.rowFetches.get());
+			Assert.assertEquals(1, db.getFullLoads());
+			// Everyone got their own copy
+			Assert.assertEquals(CALLERS, seen.size());
+
+			// Nothing is cached once the load is done
+			db.getAllSchools();
+			Assert.assertEquals(2, db.rowFetches.get());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFailureReachesEveryCaller() throws Exception {
+		SingleFlight<String, String> flight = new SingleFlight<>(s -> s);
+		CompletableFuture<String> load = new CompletableFuture<>();
+		CompletableFuture<String> first = flight.share("k", () -> load);
+		CompletableFuture<String> second = flight.share("k", () -> {
+			throw new AssertionError("Second load started.");
+		});
+		Assert.assertEquals(1, flight.getDeduplicated());
+
+		load.completeExceptionally(new IllegalStateException("down"));
+		Assert.assertTrue(first.isCompletedExceptionally());
+		Assert.assertTrue(second.isCompletedExceptionally());
+
+		// A new call after the failure starts a fresh load
+		Assert.assertEquals("ok", flight.run("k", () -> "ok"));
+		Assert.assertEquals(2, flight.getLoads());
+	}
+
+}
@@ -0,0 +1,105 @@
+package cmc.backend;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.controllers.MockDatabaseController;
+import cmc.backend.entities.University;
+
+/**
+ * Tests the versioned catalog cache in front of the database.
+ */
+public class UniversityCatalogTest {
+
+	/**
+	 * Counts how many times the full catalog is fetched.
+	 */
+	private static class CountingDb extends MockDatabaseController {
+		private int loads = 0;
+
+		@Override
+		public List<University> getAllSchools() {
+			loads++;
+			return super.getAllSchools();
+		}
+	}
+
+	private CountingDb db;
+	private UniversityCatalog catalog;
+
+	@Before
+	public void setUp() {
+		db = new CountingDb();
+		catalog = new UniversityCatalog(db);
+	}
+
+	@Test
+	public void testReadsHitDatabaseOnce() {
+		catalog.getAllSchools();
+		catalog.getUniversity("AUGSBURG");
+		catalog.getAllSchools();
+		Assert.assertEquals(1, db.loads);
+		Assert.assertEquals(1, catalog.getVersion());
+	}
+
+	@Test
+	public void testMutationsBumpVersionWithoutReload() {
+		catalog.getAllSchools();
+
+		University u = new University("CATALOG TEST U");
+		Assert.assertTrue(catalog.addNewUniversity(u));
+		Assert.assertEquals(2, catalog.getVersion());
+		Assert.assertNotNull(catalog.getUniversity("CATALOG TEST U"));
+
+		u.setState("IOWA");
+		Assert.assertTrue(catalog.editUniversity(u));
+		Assert.assertEquals(3, catalog.getVersion());
+		Assert.assertEquals("IOWA", catalog.getUniversity("CATALOG TEST U").getState());
+
+		Assert.assertTrue(catalog.removeUniversity(u));
+		Assert.assertEquals(4, catalog.getVersion());
+		Assert.assertNull(catalog.getUniversity("CATALOG TEST U"));
+
+		Assert.assertEquals(1, db.loads);
+	}
+
+	@Test
+	public void testPointLookupDoesNotLoadCatalog() {
+		Assert.assertEquals("MINNESOTA", catalog.getUniversity("AUGSBURG").getState());
+		Assert.assertNull(catalog.getUniversity("NOT A REAL SCHOOL"));
+		Assert.assertEquals(0, db.loads);
+		Assert.assertEquals(0, catalog.getVersion());
+	}
+
+	@Test
+	public void testCallerCannotModifySnapshot() {
+		University u = catalog.getUniversity("AUGSBURG");
+		u.setState("IOWA");
+		u.addEmphasis("LIBERAL ARTS");
+
+		University again = catalog.getUniversity("AUGSBURG");
+		Assert.assertEquals("MINNESOTA", again.getState());
+		Assert.assertTrue(again.getEmphases().isEmpty());
+	}
+
+	@Test
+	public void testFailedWriteKeepsVersion() {
+		catalog.getAllSchools();
+		// Already present so the mock refuses it
+		Assert.assertFalse(catalog.addNewUniversity(new University("AUGSBURG")));
+		Assert.assertEquals(1, catalog.getVersion());
+	}
+
+	@Test
+	public void testInvalidateReloads() {
+		catalog.getAllSchools();
+		catalog.invalidate();
+		Assert.assertEquals(0, catalog.getVersion());
+		catalog.getAllSchools();
+		Assert.assertEquals(2, db.loads);
+	}
+
+}
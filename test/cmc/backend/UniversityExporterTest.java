@@ -0,0 +1,130 @@
+package cmc.backend;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.entities.University;
+import cmc.backend.storage.FileStorageProvider;
+
+/**
+ * Tests streaming universities out to CSV and JSON Lines.
+ */
+public class UniversityExporterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatabaseController db;
+
+	@Before
+	public void setUp() throws Exception {
+		db = new DatabaseController(new FileStorageProvider(folder.newFolder("store").toPath()));
+		University u = new University("EXPORT U");
+		u.setState("MINNESOTA");
+		u.setNumStudents(4000);
+		u.setSatMath(612.5);
+		u.setExpenses(20000);
+		u.addEmphasis("ART");
+		db.addNewUniversity(u);
+
+		University quoted = new University("COMMA, \"QUOTE\" COLLEGE");
+		quoted.setWebpageUrl("https://example.edu");
+		db.addNewUniversity(quoted);
+	}
+
+	@After
+	public void tearDown() {
+		db.close();
+	}
+
+	@Test
+	public void testCsvReadsBackIn() throws IOException {
+		StringWriter sw = new StringWriter();
+		try(UniversityExporter ex = new UniversityExporter(sw, UniversityExporter.Format.CSV,
+				Collections.<UniversityColumn>emptyList())) {
+			db.forEachUniversity(ex);
+			Assert.assertEquals(2, ex.getRowsWritten());
+		}
+
+		DatabaseController copy = new DatabaseController(new FileStorageProvider(folder.newFolder("copy").toPath()));
+		try {
+			UniversityImporter.Report r = new UniversityImporter(copy).importFrom(
+					new StringReader(sw.toString()), ',');
+			Assert.assertEquals(2, r.getImported());
+
+			University u = copy.getUniversity("EXPORT U");
+			Assert.assertEquals("MINNESOTA", u.getState());
+			Assert.assertEquals(4000, u.getNumStudents());
+			Assert.assertEquals(612.5, u.getSatMath(), 0);
+			Assert.assertEquals(-1, u.getSatVerbal(), 0);
+			Assert.assertTrue(u.hasEmphasis("ART"));
+			Assert.assertEquals("https://example.edu",
+					copy.getUniversity("COMMA, \"QUOTE\" COLLEGE").getWebpageUrl());
+		}
+		finally {
+			copy.close();
+		}
+	}
+
+	@Test
+	public void testJsonLinesSelectedColumns() throws IOException {
+		StringWriter sw = new StringWriter();
+		List<UniversityColumn> cols = UniversityExporter.parseColumns("name, expenses, emphases, state");
+		try(UniversityExporter ex = new UniversityExporter(sw, UniversityExporter.Format.JSON_LINES, cols)) {
+			ex.accept(db.getUniversity("EXPORT U"));
+			ex.accept(db.getUniversity("COMMA, \"QUOTE\" COLLEGE"));
+		}
+		String[] lines = sw.toString().split("\n");
+		Assert.assertEquals("{\"name\":\"EXPORT U\",\"expenses\":20000,\"emphases\":[\"ART\"],\"state\":\"MINNESOTA\"}",
+				lines[0]);
+		Assert.assertEquals("{\"name\":\"COMMA, \\\"QUOTE\\\" COLLEGE\",\"expenses\":null,\"emphases\":[],\"state\":null}",
+				lines[1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownColumn() {
+		UniversityExporter.parseColumns("name,colour");
+	}
+
+	@Test
+	public void testGzipFileFromController() throws IOException {
+		UniversityController uc = new UniversityController(db);
+		Path file = folder.getRoot().toPath().resolve("schools.jsonl.gz");
+		Assert.assertEquals(2, uc.exportUniversities(file, Arrays.asList(UniversityColumn.NAME)));
+
+		List<String> lines = new ArrayList<>();
+		try(BufferedReader r = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+			String line;
+			while((line = r.readLine()) != null) lines.add(line);
+		}
+		Assert.assertEquals(2, lines.size());
+		Assert.assertTrue(lines.contains("{\"name\":\"EXPORT U\"}"));
+
+		// Same result once the catalog cache is loaded
+		uc.getAllSchools();
+		Path csv = folder.getRoot().toPath().resolve("schools.csv");
+		Assert.assertEquals(2, uc.exportUniversities(csv, Collections.<UniversityColumn>emptyList()));
+		Assert.assertEquals(3, Files.readAllLines(csv, StandardCharsets.UTF_8).size());
+	}
+
+}
@@ -0,0 +1,119 @@
+package cmc.backend;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cmc.backend.controllers.DatabaseController;
+import cmc.backend.entities.University;
+import cmc.backend.storage.FileStorageProvider;
+
+/**
+ * Tests bulk importing universities from CSV and TSV.
+ */
+public class UniversityImporterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DatabaseController db;
+
+	@Before
+	public void setUp() throws Exception {
+		db = new DatabaseController(new FileStorageProvider(folder.newFolder("store").toPath()));
+	}
+
+	@After
+	public void tearDown() {
+		db.close();
+	}
+
+	@Test
+	public void testImportsValidRows() throws IOException {
+		String csv = "Name,State,Num Students,SAT_MATH,Emphases,Webpage_Url\n"
+				+ "import u,minnesota,4000,600,\"Biology; Art\",https://example.edu\n"
+				+ "\"COMMA, COLLEGE\",iowa,,,,\n";
+		UniversityImporter.Report r = new UniversityImporter(db).importFrom(new StringReader(csv), ',');
+
+		Assert.assertEquals(2, r.getRowsRead());
+		Assert.assertEquals(2, r.getImported());
+		Assert.assertEquals(0, r.getRejected());
+
+		University u = db.getUniversity("IMPORT U");
+		Assert.assertEquals("MINNESOTA", u.getState());
+		Assert.assertEquals(4000, u.getNumStudents());
+		Assert.assertEquals(600, u.getSatMath(), 0);
+		Assert.assertEquals(2, u.getEmphases().size());
+		Assert.assertTrue(u.hasEmphasis("BIOLOGY") && u.hasEmphasis("ART"));
+		Assert.assertEquals("https://example.edu", u.getWebpageUrl());
+
+		University c = db.getUniversity("COMMA, COLLEGE");
+		Assert.assertEquals(-1, c.getNumStudents());
+	}
+
+	@Test
+	public void testRejectsAndDuplicatesAreReported() throws IOException {
+		String csv = "NAME,SCALE_SOCIAL,SAT_MATH\n"
+				+ "GOOD U,3,500\n"
+				+ "BAD SCALE U,9,500\n"
+				+ "BAD NUMBER U,3,lots\n"
+				+ "GOOD U,4,500\n";
+		UniversityImporter.Report r = new UniversityImporter(db, 2).importFrom(new StringReader(csv), ',');
+
+		Assert.assertEquals(4, r.getRowsRead());
+		Assert.assertEquals(1, r.getImported());
+		Assert.assertEquals(1, r.getDuplicates());
+		Assert.assertEquals(2, r.getRejected());
+		Assert.assertTrue(r.getRejections().get(0).startsWith("Line 3:"));
+		Assert.assertTrue(r.getRejections().get(1).startsWith("Line 4:"));
+		Assert.assertEquals(3, db.getUniversity("GOOD U").getScaleSocial());
+	}
+
+	@Test
+	public void testTsvFileInSmallBatches() throws IOException {
+		StringBuilder sb = new StringBuilder("NAME\tSTATE\n");
+		for(int i = 0; i < 25; i++) sb.append("TSV U ").append(i).append("\tOHIO\n");
+		Path file = folder.newFile("schools.tsv").toPath();
+		Files.write(file, sb.toString().getBytes("UTF-8"));
+
+		UniversityImporter.Report r = new UniversityImporter(db, 7).importFile(file);
+		Assert.assertEquals(25, r.getImported());
+		Assert.assertEquals(25, db.getAllSchools().size());
+		Assert.assertEquals("OHIO", db.getUniversity("TSV U 24").getState());
+	}
+
+	@Test
+	public void testQuotedFieldSpansLines() throws IOException {
+		String csv = "NAME,WEBPAGE_URL,SAT_MATH\n"
+				+ "\"TWO\nLINE U\",\"https://example.edu\r\n/about\",500\n"
+				+ "BAD NUMBER U,,lots\n";
+		UniversityImporter.Report r = new UniversityImporter(db).importFrom(new StringReader(csv), ',');
+
+		Assert.assertEquals(2, r.getRowsRead());
+		Assert.assertEquals(1, r.getImported());
+		Assert.assertEquals("https://example.edu\n/about", db.getUniversity("TWO\nLINE U").getWebpageUrl());
+		Assert.assertTrue(r.getRejections().get(0).startsWith("Line 5:"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHeaderNeedsName() throws IOException {
+		new UniversityImporter(db).importFrom(new StringReader("STATE\nIOWA\n"), ',');
+	}
+
+	@Test
+	public void testSplitQuotes() {
+		Assert.assertEquals(Arrays.asList("a", "b,\"c\"", ""),
+				UniversityImporter.split("a,\"b,\"\"c\"\"\",", ',', new ArrayList<String>()));
+	}
+
+}
@@ -0,0 +1,78 @@
+package cmc.backend;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+import cmc.backend.entities.UniversityRowDecoder;
+
+/**
+ * Tests decoding University table rows without the setters.
+ */
+public class UniversityRowDecoderTest {
+
+	private static String[] row(String name, String satVerbal, String percentFemale) {
+		return new String[] {
+			name, new String("MINNESOTA"), "SMALL-CITY", "PRIVATE", "10000", percentFemale,
+			satVerbal, "550", "45000", "95", "5000", "70", "30", "3", "4", "-1"
+		};
+	}
+
+	@Test
+	public void testDecodesEveryColumn() {
+		University u = UniversityRowDecoder.decode(row("AUGSBURG", "550.25", "60"));
+		Assert.assertEquals("AUGSBURG", u.getName());
+		Assert.assertEquals("MINNESOTA", u.getState());
+		Assert.assertEquals("SMALL-CITY", u.getLocation());
+		Assert.assertEquals("PRIVATE", u.getControl());
+		Assert.assertEquals(10000, u.getNumStudents());
+		Assert.assertEquals(60, u.getPercentFemale(), 0);
+		Assert.assertEquals(550.25, u.getSatVerbal(), 0);
+		Assert.assertEquals(550, u.getSatMath(), 0);
+		Assert.assertEquals(45000, u.getExpenses(), 0);
+		Assert.assertEquals(95, u.getPercentFinancialAid(), 0);
+		Assert.assertEquals(5000, u.getNumApplicants());
+		Assert.assertEquals(70, u.getPercentAdmitted(), 0);
+		Assert.assertEquals(30, u.getPercentEnrolled(), 0);
+		Assert.assertEquals(3, u.getScaleAcademics());
+		Assert.assertEquals(4, u.getScaleSocial());
+		Assert.assertEquals(-1, u.getScaleQualityOfLife());
+		Assert.assertTrue(u.getEmphases().isEmpty());
+	}
+
+	@Test
+	public void testNumbersMatchParseDouble() {
+		String[] values = { "0", "-1", "-1.0", "550.0", "33.333", "0.1", "12.345678901234",
+				"1234567890.12345678", "1e3", "+7", "99.99999999999999999", "0.000001" };
+		for(String v : values) {
+			String[] r = row("NUMBERS U", "-1", "-1");
+			r[8] = v;
+			double expected = Double.parseDouble(v);
+			Assert.assertEquals(v, Double.doubleToLongBits(expected),
+					Double.doubleToLongBits(UniversityRowDecoder.decode(r).getExpenses()));
+		}
+	}
+
+	@Test
+	public void testLowCardinalityColumnsShared() {
+		University a = UniversityRowDecoder.decode(row("A U", "-1", "-1"));
+		University b = UniversityRowDecoder.decode(row("B U", "-1", "-1"));
+		Assert.assertSame(a.getState(), b.getState());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRangeStillRejected() {
+		UniversityRowDecoder.decode(row("BAD U", "900", "-1"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLowerCaseStillRejected() {
+		UniversityRowDecoder.decode(row("Bad U", "-1", "-1"));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testGarbageNumber() {
+		UniversityRowDecoder.decode(row("BAD U", "lots", "-1"));
+	}
+
+}
@@ -0,0 +1,65 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.controllers.UserDirectory;
+
+/**
+ * Tests the username-indexed user directory.
+ */
+public class UserDirectoryTest {
+
+	private UserDirectory dir;
+
+	@Before
+	public void setUp() {
+		List<User> all = new ArrayList<>();
+		all.add(new User("zed", "pw", false, "Zed", "Z"));
+		all.add(new User("amy", "pw", true, "Amy", "A"));
+		dir = new UserDirectory();
+		dir.load(all);
+	}
+
+	@Test
+	public void testLookupCountsHitsAndMisses() {
+		Assert.assertNotNull(dir.get("amy"));
+		Assert.assertNotNull(dir.get("zed"));
+		Assert.assertNull(dir.get("nobody"));
+		Assert.assertEquals(2, dir.getHits());
+		Assert.assertEquals(1, dir.getMisses());
+	}
+
+	@Test
+	public void testPutAndRemove() {
+		User u = new User("bob", "pw", false, "Bob", "B");
+		dir.put(u);
+		Assert.assertEquals("Bob", dir.get("bob").getFirstName());
+
+		u.setActivated(false);
+		dir.put(u);
+		Assert.assertFalse(dir.get("bob").isActivated());
+
+		dir.remove("bob");
+		Assert.assertNull(dir.get("bob"));
+	}
+
+	@Test
+	public void testReturnedUsersAreCopies() {
+		dir.get("amy").setPassword("changed");
+		Assert.assertEquals("pw", dir.get("amy").getPassword());
+	}
+
+	@Test
+	public void testGetAllSortedByUsername() {
+		List<User> all = dir.getAll();
+		Assert.assertEquals(2, all.size());
+		Assert.assertEquals("amy", all.get(0).getUsername());
+		Assert.assertEquals("zed", all.get(1).getUsername());
+	}
+
+}
@@ -0,0 +1,234 @@
+package cmc.backend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.controllers.WriteBehindQueue;
+
+/**
+ * Tests batching and coalescing of write-behind writes.
+ */
+public class WriteBehindQueueTest {
+
+	/**
+	 * Records every batch it is given.
+	 */
+	private static class RecordingSink implements WriteBehindQueue.Sink {
+		final List<List<String[]>> saveBatches = new ArrayList<>();
+		final List<List<User>> editBatches = new ArrayList<>();
+
+		@Override
+		public synchronized void saveSchools(List<String[]> saves) {
+			saveBatches.add(saves);
+		}
+
+		@Override
+		public synchronized void editUsers(List<User> users) {
+			editBatches.add(users);
+		}
+
+		synchronized int batches() {
+			return saveBatches.size() + editBatches.size();
+		}
+	}
+
+	private RecordingSink sink;
+	private WriteBehindQueue queue;
+
+	@Before
+	public void setUp() {
+		sink = new RecordingSink();
+		queue = new WriteBehindQueue(sink, 10, 60000);
+	}
+
+	@After
+	public void tearDown() {
+		queue.close();
+	}
+
+	@Test
+	public void testDuplicatesCoalesced() {
+		queue.saveSchool("peter", "YALE");
+		queue.saveSchool("peter", "YALE");
+		queue.saveSchool("peter", "HARVARD");
+
+		User u = new User("peter", "pw", false, "Peter", "Ohmann");
+		queue.editUser(u);
+		u.setActivated(false);
+		queue.editUser(u);
+		// Editing after queueing must not change what is written
+		u.setFirstName("Changed");
+
+		Assert.assertEquals(3, queue.size());
+		Assert.assertEquals(2, queue.getCoalesced());
+
+		queue.flush();
+		Assert.assertEquals(0, queue.size());
+		Assert.assertEquals(3, queue.getWritten());
+		Assert.assertEquals(2, sink.saveBatches.get(0).size());
+		User written = sink.editBatches.get(0).get(0);
+		Assert.assertFalse(written.isActivated());
+		Assert.assertEquals("Peter", written.getFirstName());
+	}
+
+	@Test
+	public void testFullQueueFlushes() {
+		for(int i = 0; i < 10; i++) queue.saveSchool("peter", "SCHOOL " + i);
+		Assert.assertEquals(0, queue.size());
+		Assert.assertEquals(1, sink.batches());
+		Assert.assertEquals(10, sink.saveBatches.get(0).size());
+	}
+
+	@Test
+	public void testCloseFlushes() {
+		queue.saveSchool("peter", "YALE");
+		queue.close();
+		Assert.assertEquals(1, queue.getWritten());
+		try {
+			queue.saveSchool("peter", "HARVARD");
+			Assert.fail("Closed queue accepted a write.");
+		}
+		catch(IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testStaleWritesFlushedInBackground() throws InterruptedException {
+		queue.close();
+		queue = new WriteBehindQueue(sink, 10, 10);
+		queue.saveSchool("peter", "YALE");
+		long deadline = System.currentTimeMillis() + 5000;
+		while(sink.batches() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+		Assert.assertEquals(1, sink.batches());
+		Assert.assertEquals(0, queue.size());
+	}
+
+	/**
+	 * Fails every batch of one kind until told to stop.
+	 */
+	private static class FailingSink extends RecordingSink {
+		volatile boolean failSaves;
+		volatile boolean failEdits;
+
+		@Override
+		public void saveSchools(List<String[]> saves) {
+			if(failSaves) throw new IllegalStateException("DB down");
+			super.saveSchools(saves);
+		}
+
+		@Override
+		public void editUsers(List<User> users) {
+			if(failEdits) throw new IllegalStateException("DB down");
+			super.editUsers(users);
+		}
+	}
+
+	@Test
+	public void testFailedBatchIsRetried() {
+		queue.close();
+		FailingSink failing = new FailingSink();
+		failing.failSaves = true;
+		queue = new WriteBehindQueue(failing, 10, 60000);
+		queue.saveSchool("peter", "YALE");
+		try {
+			queue.flush();
+			Assert.fail("Failure was swallowed.");
+		}
+		catch(IllegalStateException e) {
+			Assert.assertSame(e.getCause(), queue.getLastFailure());
+		}
+		Assert.assertEquals(1, queue.getFailed());
+		// Still waiting, along with what was queued after it
+		Assert.assertEquals(1, queue.size());
+		queue.saveSchool("peter", "HARVARD");
+
+		failing.failSaves = false;
+		queue.flush();
+		Assert.assertNull(queue.getLastFailure());
+		Assert.assertEquals(0, queue.size());
+		Assert.assertEquals(2, queue.getWritten());
+		Assert.assertEquals("YALE", failing.saveBatches.get(0).get(0)[1]);
+	}
+
+	@Test
+	public void testFailedEditsDoNotDropSaves() {
+		queue.close();
+		FailingSink failing = new FailingSink();
+		failing.failEdits = true;
+		queue = new WriteBehindQueue(failing, 10, 60000);
+		User u = new User("peter", "pw", false, "Peter", "Ohmann");
+		queue.editUser(u);
+		queue.saveSchool("peter", "YALE");
+		try {
+			queue.flush();
+			Assert.fail("Failure was swallowed.");
+		}
+		catch(IllegalStateException e) {
+			// Expected
+		}
+		Assert.assertEquals(1, failing.saveBatches.size());
+		Assert.assertEquals(1, queue.size());
+
+		// A newer edit queued before the retry wins over the failed one
+		u.setFirstName("Newer");
+		queue.editUser(u);
+		failing.failEdits = false;
+		queue.flush();
+		Assert.assertEquals("Newer", failing.editBatches.get(0).get(0).getFirstName());
+	}
+
+	@Test
+	public void testFullQueueRejectsWhileFailing() {
+		queue.close();
+		FailingSink failing = new FailingSink();
+		failing.failSaves = true;
+		queue = new WriteBehindQueue(failing, 3, 60000);
+		// Filling the queue tries a flush, but these writes were accepted
+		for(int i = 0; i < 3; i++) queue.saveSchool("peter", "SCHOOL " + i);
+		Assert.assertEquals(3, queue.size());
+		Assert.assertNotNull(queue.getLastFailure());
+
+		try {
+			queue.saveSchool("peter", "ONE TOO MANY");
+			Assert.fail("Full queue accepted a write.");
+		}
+		catch(IllegalStateException e) {
+			Assert.assertSame(e.getCause(), queue.getLastFailure());
+		}
+		Assert.assertEquals(3, queue.size());
+		// One already waiting takes no room
+		queue.saveSchool("peter", "SCHOOL 1");
+		Assert.assertEquals(3, queue.size());
+
+		failing.failSaves = false;
+		queue.saveSchool("peter", "ONE TOO MANY");
+		Assert.assertEquals(1, queue.size());
+		Assert.assertEquals(3, queue.getWritten());
+	}
+
+	@Test
+	public void testFailedBatchRetriedInBackground() throws InterruptedException {
+		queue.close();
+		FailingSink failing = new FailingSink();
+		failing.failSaves = true;
+		queue = new WriteBehindQueue(failing, 10, 10);
+		queue.saveSchool("peter", "YALE");
+		long deadline = System.currentTimeMillis() + 5000;
+		// The failure is recorded once the flush is over, after it was counted
+		while(queue.getLastFailure() == null && System.currentTimeMillis() < deadline) Thread.sleep(5);
+		Assert.assertNotNull(queue.getLastFailure());
+		Assert.assertTrue(queue.getFailed() > 0);
+
+		failing.failSaves = false;
+		while(failing.batches() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+		Assert.assertEquals(1, failing.batches());
+		Assert.assertEquals(0, queue.size());
+	}
+
+}
@@ -0,0 +1,107 @@
+package cmc.bench;
+
+import java.lang.management.ManagementFactory;
+
+import cmc.backend.entities.University;
+import cmc.backend.entities.UniversityRowDecoder;
+
+/**
+ * Measures bytes allocated and time taken per decoded University row,
+ * comparing {@link UniversityRowDecoder} with decoding through the setters
+ * the way DatabaseController used to. Run it with the
+ * UniversityRowDecoderBench ant target; it needs a HotSpot JVM for the
+ * per-thread allocation counter.
+ */
+public class UniversityRowDecoderBench {
+
+	private static final int ROWS = 20000;
+	private static final int WARMUP_ROUNDS = 20;
+	private static final int ROUNDS = 10;
+
+	private static final String[] STATES = { "MINNESOTA", "IOWA", "WISCONSIN", "NEW YORK", "CALIFORNIA" };
+	private static final String[] LOCATIONS = { "URBAN", "SUBURBAN", "SMALL-CITY", "RURAL" };
+	private static final String[] CONTROLS = { "PRIVATE", "STATE", "CITY" };
+
+	private interface Decoder {
+		University decode(String[] row);
+	}
+
+	private static University setters(String[] k) {
+		University u = new University(k[0]);
+		u.setState(k[1]);
+		u.setLocation(k[2]);
+		u.setControl(k[3]);
+		u.setNumStudents(Integer.parseInt(k[4]));
+		u.setPercentFemale(Double.parseDouble(k[5]));
+		u.setSatVerbal(Double.parseDouble(k[6]));
+		u.setSatMath(Double.parseDouble(k[7]));
+		u.setExpenses(Double.parseDouble(k[8]));
+		u.setPercentFinancialAid(Double.parseDouble(k[9]));
+		u.setNumApplicants(Integer.parseInt(k[10]));
+		u.setPercentAdmitted(Double.parseDouble(k[11]));
+		u.setPercentEnrolled(Double.parseDouble(k[12]));
+		u.setScaleAcademics(Integer.parseInt(k[13]));
+		u.setScaleSocial(Integer.parseInt(k[14]));
+		u.setScaleQualityOfLife(Integer.parseInt(k[15]));
+		return u;
+	}
+
+	/**
+	 * Rows like the database library returns, each with its own strings.
+	 */
+	private static String[][] rows() {
+		String[][] rows = new String[ROWS][];
+		for(int i = 0; i < ROWS; i++) {
+			rows[i] = new String[] {
+				"UNIVERSITY " + i,
+				new String(STATES[i % STATES.length]),
+				new String(LOCATIONS[i % LOCATIONS.length]),
+				new String(CONTROLS[i % CONTROLS.length]),
+				Integer.toString(1000 + i), Double.toString(40 + i % 20 + 0.5),
+				Integer.toString(400 + i % 300), Integer.toString(450 + i % 300),
+				Integer.toString(20000 + i), Integer.toString(i % 100),
+				Integer.toString(5000 + i), Double.toString(i % 100),
+				Integer.toString(i % 90), Integer.toString(i % 5 + 1),
+				Integer.toString(i % 5 + 1), "-1"
+			};
+		}
+		return rows;
+	}
+
+	private static long allocatedBytes() {
+		com.sun.management.ThreadMXBean bean =
+				(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static void measure(String label, Decoder decoder, String[][] rows) {
+		University[] out = new University[rows.length];
+		for(int r = 0; r < WARMUP_ROUNDS; r++) {
+			for(int i = 0; i < rows.length; i++) out[i] = decoder.decode(rows[i]);
+		}
+
+		long bytes = 0;
+		long nanos = 0;
+		for(int r = 0; r < ROUNDS; r++) {
+			long b = allocatedBytes();
+			long t = System.nanoTime();
+			for(int i = 0; i < rows.length; i++) out[i] = decoder.decode(rows[i]);
+			nanos += System.nanoTime() - t;
+			bytes += allocatedBytes() - b;
+		}
+		long decoded = (long)ROWS * ROUNDS;
+		System.out.printf("%-10s %8.1f bytes/row %8.1f ns/row%n", label,
+				(double)bytes / decoded, (double)nanos / decoded);
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args Not used
+	 */
+	public static void main(String[] args) {
+		String[][] rows = rows();
+		measure("setters", UniversityRowDecoderBench::setters, rows);
+		measure("decoder", UniversityRowDecoder::decode, rows);
+	}
+
+}
@@ -55,7 +55,7 @@ public class AdminUniversityDetailsWorksTest {
 				+ "\n" //Name (don't change)
 				+ "NY\n" //New State
 				+ "\n\n\n\n\n\n\n\n\n\n\n\n\n" //all other fields ignored
-				+ "5\n"; //Go Back
+				+ "7\n"; //Go Back
 		
 		InputStream enterStream = new ByteArrayInputStream(input.getBytes()); //reads input in bytes or one by one
 		Scanner s = new Scanner(enterStream);
@@ -78,7 +78,7 @@ public class AdminUniversityDetailsWorksTest {
 				+ "4\n"
 				+ "1\n"
 				+"EXIT\n"
-				+"5\n";
+				+"7\n";
 		
 		InputStream enterStream = new ByteArrayInputStream(input.getBytes()); //reads input in bytes or one by one
 		Scanner s = new Scanner(enterStream);